@@ -75,6 +75,7 @@ dependencies {
 
     // --- Testing Dependencies ---
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.13") // Android framework classes (Uri, SharedPreferences) on the JVM
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
\ No newline at end of file
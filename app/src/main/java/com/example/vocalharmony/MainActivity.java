@@ -27,6 +27,8 @@ import com.google.firebase.auth.FirebaseUser;
 // Import R file
 import com.example.vocalharmony.R;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.example.vocalharmony.ui.dashboard.LibraryAnalysisWorker;
+import com.example.vocalharmony.ui.dashboard.StorageRetentionWorker;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -73,6 +75,11 @@ public class MainActivity extends AppCompatActivity {
         // --- ADDED: Create Notification Channel on startup ---
         createNotificationChannel();
 
+        // Keep per-take metrics current; unchanged takes are skipped, so this is cheap after the first run
+        LibraryAnalysisWorker.enqueue(getApplicationContext());
+        // Daily pass that archives old takes as FLAC and keeps the library within its byte budget
+        StorageRetentionWorker.schedule(getApplicationContext());
+
 
         // --- Firebase Anonymous Authentication Logic (Keep as before) ---
         mAuth = FirebaseAuth.getInstance();
@@ -4,7 +4,6 @@ package com.example.vocalharmony.ui; // Or your correct package name
 // Imports
 import android.Manifest;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.content.res.Resources; // Keep if needed by getResourceName in saveMaxSNRResult's exception log
 import android.os.Bundle;
@@ -28,12 +27,17 @@ import androidx.fragment.app.Fragment;
 import com.example.vocalharmony.R;
 import com.example.vocalharmony.ui.home.AudioProcessor; // Check path
 import com.example.vocalharmony.ui.home.SNRBar; // Check path
+import com.example.vocalharmony.ui.home.SnrHistoryRepository;
+import com.example.vocalharmony.ui.home.SnrHistoryStore;
+import com.example.vocalharmony.ui.home.SnrTrace;
+import com.example.vocalharmony.ui.home.SnrTraceView;
 import com.google.android.material.button.MaterialButton;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.File;
+import java.io.IOException;
 import java.util.Locale;
-import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Fragment responsible for BOTH baseline recording AND SNR testing.
@@ -43,11 +47,12 @@ public class VoiceQualityFragment extends Fragment implements
         AudioProcessor.MicrophoneTestTestingCallback {
 
     private static final String TAG = "VoiceQualityFragment";
-    private static final String PREFS_NAME = "VocalHarmonyPrefs";
-    private static final String SNR_KEY_PREFIX = "snr_";
 
     // --- UI Elements ---
     private SNRBar snrBar;
+    private SnrTraceView snrTrace;
+    // Records every SNR window of the running test; kept with the result when it is saved
+    private SnrTrace.Writer traceWriter;
     private ImageView micStatusIndicator;
     private TextView textFeedback;
     private MaterialButton buttonRecordBaseline;
@@ -66,6 +71,8 @@ public class VoiceQualityFragment extends Fragment implements
     private double maxSnrValueSession = Double.NEGATIVE_INFINITY;
     private double loadedBaselinePower = 0.0;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Saves results; never interrupted, as that would close the history store's shared FileChannel
+    private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor();
     private ActivityResultLauncher<String> requestPermissionLauncher;
 
     // --- Fragment Lifecycle & Setup ---
@@ -115,6 +122,7 @@ public class VoiceQualityFragment extends Fragment implements
     // --- UI Initialization ---
     private void initializeUIComponents(View rootView) {
         snrBar = rootView.findViewById(R.id.snr_bar);
+        snrTrace = rootView.findViewById(R.id.snr_trace);
         micStatusIndicator = rootView.findViewById(R.id.mic_status_indicator);
         // *** Ensure these IDs match your actual fragment_voice_quality.xml layout ***
         textFeedback = rootView.findViewById(R.id.baseline_feedback_vq);
@@ -155,6 +163,7 @@ public class VoiceQualityFragment extends Fragment implements
         Log.d(TAG, "Resetting UI visuals.");
         // Reset SNR display elements
         if (snrBar != null) snrBar.reset();
+        if (snrTrace != null) snrTrace.reset();
         // Use requireContext safely IF we are sure fragment is attached (should be in onViewCreated)
         String defaultValueSNR = isAdded() ? getString(R.string.snr_default_value) : "-- dB";
         if (textCurrentSNRValue != null) textCurrentSNRValue.setText(defaultValueSNR);
@@ -333,6 +342,7 @@ public class VoiceQualityFragment extends Fragment implements
         Log.i(TAG, "Starting SNR Test execution...");
         maxSnrValueSession = Double.NEGATIVE_INFINITY;
         if(snrBar != null) snrBar.reset();
+        if (snrTrace != null) snrTrace.reset();
         String defaultValue = getString(R.string.snr_default_value);
         if (textCurrentSNRValue != null) textCurrentSNRValue.setText(defaultValue);
         if (textMaxSNRValue != null) textMaxSNRValue.setText(defaultValue);
@@ -346,6 +356,7 @@ public class VoiceQualityFragment extends Fragment implements
         if (baselineQualityLevelVq != null) baselineQualityLevelVq.setVisibility(View.INVISIBLE);
         updateFeedback("SNR test running..."); // Provide feedback
 
+        openTraceWriter();
         audioProcessor.testMicrophone();
     }
 
@@ -358,6 +369,7 @@ public class VoiceQualityFragment extends Fragment implements
         isTestingSnr = false; // Set flag immediately
 
         saveMaxSNRResult(); // Try saving result first
+        discardTrace(); // No-op if the trace was saved with the result
 
         audioProcessor.stopTesting(); // Signal AudioProcessor
 
@@ -389,6 +401,7 @@ public class VoiceQualityFragment extends Fragment implements
 
         // Log based on the captured state
         if(wasPreviouslyTestingSnr) Log.d(TAG, "Reset occurred during SNR test. Result NOT saved.");
+        discardTrace();
         if(wasPreviouslyRecordingBaseline) Log.d(TAG, "Reset occurred during baseline recording.");
 
         // Reset the visual elements of the UI and update buttons for idle state
@@ -403,16 +416,63 @@ public class VoiceQualityFragment extends Fragment implements
         if (getContext() == null || !isAdded()) { Log.e(TAG,"Cannot save Max SNR: Context null or fragment not added."); return; }
         if (maxSnrValueSession <= Double.NEGATIVE_INFINITY || !Double.isFinite(maxSnrValueSession)) { Log.w(TAG, "Not saving Max SNR: No valid max value recorded (value=" + maxSnrValueSession + ")."); return; }
         float snrToSave = (float) maxSnrValueSession;
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-        String timestamp = sdf.format(new Date());
-        String key = SNR_KEY_PREFIX + timestamp;
-        Log.i(TAG, String.format(Locale.US, "Saving Max SNR: Key='%s', Value=%.1f", key, snrToSave));
+        long timestamp = System.currentTimeMillis();
+        Log.i(TAG, String.format(Locale.US, "Saving Max SNR: Time=%d, Value=%.1f", timestamp, snrToSave));
+        SnrTrace.Writer writer = detachTrace();
+        Context appContext = requireContext().getApplicationContext();
+        SnrHistoryRepository repository = SnrHistoryRepository.getInstance(appContext);
+        // Disk writes and syncs; the repository publishes the result to the screens that show it
+        saveExecutor.execute(() -> {
+            File trace = finishTrace(writer, SnrTrace.traceFile(appContext, timestamp));
+            int flags = trace != null ? SnrHistoryStore.FLAG_HAS_TRACE : 0;
+            boolean saved = repository.append(timestamp, snrToSave, flags);
+            if (saved) Log.i(TAG,"Max SNR saved successfully.");
+            else Log.e(TAG, "Failed to save Max SNR.");
+            if (!saved && trace != null && !trace.delete()) Log.w(TAG, "Failed to delete orphaned trace " + trace.getName());
+        });
+    }
+
+    // --- Session Trace ---
+    private void openTraceWriter() {
+        discardTrace();
         try {
-            SharedPreferences prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            prefs.edit().putFloat(key, snrToSave).apply();
-            Log.i(TAG,"Max SNR saved successfully.");
-        } catch (Exception e) { Log.e(TAG, "Failed to save Max SNR: " + e.getMessage(), e); }
+            traceWriter = new SnrTrace.Writer(SnrTrace.pendingFile(requireContext()), System.currentTimeMillis(), AudioProcessor.getWindowSizeMs());
+            audioProcessor.setTraceWriter(traceWriter);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not start SNR trace; only the max will be saved", e);
+            traceWriter = null;
+        }
+    }
+
+    /** Stops feeding the running trace and hands it over, or null if there is none. Main thread. */
+    @Nullable
+    private SnrTrace.Writer detachTrace() {
+        SnrTrace.Writer writer = traceWriter;
+        if (writer == null) return null;
+        traceWriter = null;
+        if (audioProcessor != null) audioProcessor.setTraceWriter(null);
+        return writer;
+    }
+
+    /** Closes a detached trace and files it as {@code target}. Returns the file, or null if there is none. Any thread. */
+    @Nullable
+    private static File finishTrace(@Nullable SnrTrace.Writer writer, File target) {
+        if (writer == null) return null;
+        writer.close();
+        if (writer.getCount() == 0 || !writer.getFile().renameTo(target)) {
+            Log.w(TAG, "Not keeping SNR trace (" + writer.getCount() + " values)");
+            if (!writer.getFile().delete()) Log.w(TAG, "Failed to delete pending trace");
+            return null;
+        }
+        Log.d(TAG, "Saved SNR trace: " + writer.getCount() + " values, " + target.length() + " bytes");
+        return target;
+    }
+
+    private void discardTrace() {
+        SnrTrace.Writer writer = detachTrace();
+        if (writer == null) return;
+        writer.close();
+        if (!writer.getFile().delete()) Log.w(TAG, "Failed to delete pending trace");
     }
 
     // --- AudioProcessor.VoiceQualityTestingCallback Implementation ---
@@ -427,6 +487,7 @@ public class VoiceQualityFragment extends Fragment implements
                 double currentToSend = Double.isFinite(snr) ? snr : 0.0;
                 snrBar.setSNRValue(currentToSend, maxToSend); // *** Ensure SNRBar handles this ***
             }
+            if (snrTrace != null) snrTrace.append((float) snr);
             String defaultValue = getString(R.string.snr_default_value);
             if (textCurrentSNRValue != null) textCurrentSNRValue.setText(Double.isFinite(snr) ? String.format(Locale.getDefault(), "%.1f dB", snr) : defaultValue);
             if (textMaxSNRValue != null) { String maxText = (maxSnrValueSession > Double.NEGATIVE_INFINITY && Double.isFinite(maxSnrValueSession)) ? String.format(Locale.getDefault(), "%.1f dB", maxSnrValueSession) : defaultValue; textMaxSNRValue.setText(maxText); }
@@ -524,12 +585,13 @@ public class VoiceQualityFragment extends Fragment implements
     public void onDestroyView() {
         super.onDestroyView(); // Call super first
         Log.i(TAG, "onDestroyView: Cleaning up resources.");
+        discardTrace();
         if (audioProcessor != null) {
             audioProcessor.release();
             audioProcessor = null;
         }
         // Nullify view references
-        snrBar = null; micStatusIndicator = null; textFeedback = null;
+        snrBar = null; snrTrace = null; micStatusIndicator = null; textFeedback = null;
         buttonRecordBaseline = null; baselineQualityLabelVq = null; baselineQualityLevelVq = null;
         textCurrentSNRValue = null; textMaxSNRValue = null;
         buttonStartSnr = null; buttonStopSnr = null; buttonReset = null;
@@ -541,5 +603,6 @@ public class VoiceQualityFragment extends Fragment implements
     public void onDestroy() {
         Log.d(TAG, "onDestroy");
         super.onDestroy();
+        saveExecutor.shutdown(); // A result already queued is still saved
     }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the {@link UploadQueue} in one job with a {@link BatchUploader}, instead of scheduling
+ * an {@link UploadWorker} per recording. Items that fail in a retryable way stay queued with a
+ * per-item backoff; when the run ends, a follow-up is scheduled for when the next of them is
+ * due. The output reports the run's totals and throughput, and every attempt is logged to
+ * {@link UploadMetrics}.
+ */
+public class BatchUploadWorker extends Worker {
+
+    private static final String TAG = "BatchUploadWorker";
+    public static final String UNIQUE_WORK_NAME = "batch_upload";
+
+    // Input keys
+    public static final String KEY_PARALLELISM = "PARALLELISM";
+    public static final int DEFAULT_PARALLELISM = 3;
+    public static final String KEY_PRIORITY = "PRIORITY"; // UploadQueue.Priority name
+    public static final UploadQueue.Priority DEFAULT_PRIORITY = UploadQueue.Priority.NEWEST_FIRST;
+
+    // Output keys
+    public static final String KEY_UPLOADED = "UPLOADED";
+    public static final String KEY_RETRY_LATER = "RETRY_LATER";
+    public static final String KEY_FAILED = "FAILED";
+    public static final String KEY_DEFERRED = "DEFERRED";
+    public static final String KEY_BYTES = "BYTES";
+    public static final String KEY_BYTES_PER_SECOND = "BYTES_PER_SECOND";
+
+    public BatchUploadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Adds a recording to the upload queue and makes sure a batch run is scheduled. Does disk
+     * I/O; call off the main thread.
+     */
+    public static void enqueue(@NonNull Context context, @NonNull UploadItem item) throws IOException {
+        UploadQueue.getInstance(context).enqueue(item, sizeOf(context, Uri.parse(item.fileUri)));
+        schedule(context, DEFAULT_PARALLELISM, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Schedules a run now. A run in progress is left alone (it schedules a follow-up if it finishes
+     * with items still queued); a run waiting for a backoff to pass is brought forward.
+     * Blocks briefly to look up the current run; call off the main thread.
+     */
+    public static void schedule(@NonNull Context context, int parallelism, @NonNull UploadQueue.Priority priority) {
+        ExistingWorkPolicy policy = ExistingWorkPolicy.KEEP;
+        try {
+            boolean running = false;
+            boolean waiting = false;
+            for (WorkInfo info : WorkManager.getInstance(context).getWorkInfosForUniqueWork(UNIQUE_WORK_NAME).get()) {
+                running |= info.getState() == WorkInfo.State.RUNNING;
+                waiting |= info.getState() == WorkInfo.State.ENQUEUED || info.getState() == WorkInfo.State.BLOCKED;
+            }
+            if (waiting && !running) policy = ExistingWorkPolicy.REPLACE;
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Could not look up batch upload state; keeping any scheduled run", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, policy, buildRequest(parallelism, priority, 0L));
+    }
+
+    /** Queues another run after this one, starting once {@code delayMs} has passed. */
+    private static void scheduleFollowUp(Context context, int parallelism, UploadQueue.Priority priority, long delayMs) {
+        Log.d(TAG, "Next batch upload in " + delayMs + " ms");
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE,
+                buildRequest(parallelism, priority, delayMs));
+    }
+
+    private static OneTimeWorkRequest buildRequest(int parallelism, UploadQueue.Priority priority, long delayMs) {
+        return new OneTimeWorkRequest.Builder(BatchUploadWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setInputData(new Data.Builder()
+                        .putInt(KEY_PARALLELISM, parallelism)
+                        .putString(KEY_PRIORITY, priority.name())
+                        .build())
+                .setInitialDelay(delayMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        int parallelism = getInputData().getInt(KEY_PARALLELISM, DEFAULT_PARALLELISM);
+        UploadQueue.Priority priority = DEFAULT_PRIORITY;
+        String priorityName = getInputData().getString(KEY_PRIORITY);
+        if (priorityName != null) {
+            try {
+                priority = UploadQueue.Priority.valueOf(priorityName);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Unknown priority " + priorityName + ", using " + DEFAULT_PRIORITY);
+            }
+        }
+
+        UploadQueue queue = UploadQueue.getInstance(context);
+        RecordingUploader uploader = new RecordingUploader(context, UploadWorker.getBackend());
+        BatchUploader.Report report = new BatchUploader(uploader, queue, UploadMetrics.getInstance(context),
+                parallelism, priority).run(this::isStopped);
+
+        Log.i(TAG, "doWork: " + report);
+        Data output = new Data.Builder()
+                .putInt(KEY_UPLOADED, report.uploaded)
+                .putInt(KEY_RETRY_LATER, report.retryLater)
+                .putInt(KEY_FAILED, report.failed)
+                .putInt(KEY_DEFERRED, report.deferred)
+                .putLong(KEY_BYTES, report.bytes)
+                .putDouble(KEY_BYTES_PER_SECOND, report.getBytesPerSecond())
+                .build();
+        // WorkManager reruns a stopped job by itself
+        if (isStopped()) return Result.retry();
+        // Anything still pending (failed attempts, items backing off, or added during the run) needs another run
+        long nextAttemptAt = queue.getNextAttemptAt();
+        if (nextAttemptAt >= 0) {
+            scheduleFollowUp(context, parallelism, priority, Math.max(0L, nextAttemptAt - System.currentTimeMillis()));
+        }
+        return Result.success(output);
+    }
+
+    /** Size of the recording for {@link UploadQueue.Priority#SMALLEST_FIRST}, or -1 if it cannot be told. */
+    private static long sizeOf(Context context, Uri uri) {
+        try (AssetFileDescriptor descriptor = context.getContentResolver().openAssetFileDescriptor(uri, "r")) {
+            return descriptor != null ? descriptor.getLength() : -1L;
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Could not size " + uri, e);
+            return -1L;
+        }
+    }
+}
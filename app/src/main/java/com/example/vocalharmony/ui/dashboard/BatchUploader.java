@@ -0,0 +1,209 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drains an {@link UploadQueue}, uploading up to {@code parallelism} items at a time. Their
+ * metadata is collected in one {@link UploadManifest} per user, which is sent once the transfers
+ * are done; an item leaves the queue only when its manifest is sent. A run that is stopped part
+ * way therefore leaves every item either uploaded or still pending with its retry state. Has no Android scheduling
+ * dependencies, so it can be driven against a {@link LocalStorageBackend}.
+ */
+public class BatchUploader {
+
+    private static final String TAG = "BatchUploader";
+    public static final int MAX_PARALLELISM = 8;
+    private static final long MANIFEST_WAIT_SECONDS = 30;
+
+    /** What one run did. */
+    public static class Report {
+        public int uploaded;
+        public int retryLater;
+        public int failed;
+        /** Pending items left alone because their backoff had not passed. */
+        public int deferred;
+        public long bytes;
+        public long elapsedMs;
+
+        public double getBytesPerSecond() {
+            return elapsedMs > 0 ? bytes * 1000.0 / elapsedMs : 0.0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "uploaded %d, retry later %d, failed %d, deferred %d; %d B in %d ms (%.1f KiB/s)",
+                    uploaded, retryLater, failed, deferred, bytes, elapsedMs, getBytesPerSecond() / 1024.0);
+        }
+    }
+
+    private final RecordingUploader uploader;
+    private final UploadQueue queue;
+    private final UploadMetrics metrics;
+    private final int parallelism;
+    private final UploadQueue.Priority priority;
+
+    public BatchUploader(@NonNull RecordingUploader uploader, @NonNull UploadQueue queue, @NonNull UploadMetrics metrics,
+                         int parallelism, @NonNull UploadQueue.Priority priority) {
+        this.uploader = uploader;
+        this.queue = queue;
+        this.metrics = metrics;
+        this.parallelism = Math.max(1, Math.min(parallelism, MAX_PARALLELISM));
+        this.priority = priority;
+    }
+
+    /**
+     * Uploads every ready item once, starting them in priority order. Blocks; call off the main
+     * thread.
+     * @param isCancelled polled before each item starts; items already in flight are finished
+     */
+    @NonNull
+    public Report run(@NonNull BooleanSupplier isCancelled) {
+        List<UploadQueue.Entry> pending = queue.getReady(System.currentTimeMillis(), priority);
+        Report report = new Report();
+        report.deferred = queue.getPending().size() - pending.size();
+        if (pending.isEmpty()) return report;
+        Log.i(TAG, "Uploading " + pending.size() + " items " + priority + ", " + parallelism + " at a time");
+
+        long start = SystemClock.elapsedRealtime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, pending.size()), runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "BatchUpload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutorCompletionService<Long> completion = new ExecutorCompletionService<>(pool);
+        Map<String, UploadManifest> manifests = new HashMap<>(); // By user
+        List<Future<Long>> futures = new ArrayList<>();
+        for (UploadQueue.Entry entry : pending) {
+            futures.add(completion.submit(() -> isCancelled.getAsBoolean() ? null : uploadOne(entry, manifests, report)));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    Long bytes = completion.take().get();
+                    if (bytes != null) report.bytes += bytes;
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Unexpected upload error", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while waiting for uploads", e);
+        } finally {
+            // Not shutdownNow: interrupting a transfer would only throw away its last chunk
+            pool.shutdown();
+        }
+        try {
+            // Let stragglers (left running after an interrupt) finish their manifest entries first
+            if (!pool.awaitTermination(MANIFEST_WAIT_SECONDS, TimeUnit.SECONDS)) Log.w(TAG, "Uploads still running");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (manifests) {
+            for (UploadManifest manifest : manifests.values()) sendManifest(manifest, report);
+        }
+        report.elapsedMs = SystemClock.elapsedRealtime() - start;
+        Log.i(TAG, "Batch done: " + report);
+        Log.i(TAG, "Recent attempts: " + metrics.summarize());
+        return report;
+    }
+
+    /**
+     * Uploads one item's audio and adds it to its user's manifest. Failures are recorded in the
+     * queue; successes stay pending until the manifest is sent. Returns the bytes sent.
+     */
+    private long uploadOne(UploadQueue.Entry entry, Map<String, UploadManifest> manifests, Report report) {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            RecordingUploader.Result result = uploader.upload(entry.item);
+            UploadManifest manifest;
+            synchronized (manifests) {
+                manifest = manifests.get(entry.item.userId);
+                if (manifest == null) {
+                    manifest = uploader.newManifest(entry.item.userId);
+                    manifests.put(entry.item.userId, manifest);
+                }
+            }
+            // The audio is stored by content hash, so if the manifest never goes out the next
+            // run finds it already uploaded and only re-sends the metadata
+            manifest.add(result);
+            metrics.recordSuccess(entry.getId(), result.bytesSent, SystemClock.elapsedRealtime() - start, result.deduplicated);
+            return result.bytesSent;
+        } catch (IOException e) {
+            boolean retryable = e instanceof RetryableUploadException || e instanceof InterruptedIOException;
+            Log.w(TAG, (retryable ? "Will retry " : "Giving up on ") + entry.item.targetFilename, e);
+            UploadQueue.State state = recordFailure(entry.getId(), e, retryable, report);
+            metrics.recordFailure(entry.getId(), SystemClock.elapsedRealtime() - start, e, state == UploadQueue.State.PENDING);
+            return 0L;
+        }
+    }
+
+    /** Sends one manifest, then settles its items in the queue. */
+    private void sendManifest(UploadManifest manifest, Report report) {
+        List<String> ids = manifest.getItemIds();
+        try {
+            if (ids.isEmpty()) return;
+            long start = SystemClock.elapsedRealtime();
+            try {
+                long bytes = uploader.sendManifest(manifest);
+                report.bytes += bytes;
+                metrics.recordSuccess(manifest.getRemotePath(), bytes, SystemClock.elapsedRealtime() - start, false);
+            } catch (IOException e) {
+                boolean retryable = e instanceof RetryableUploadException || e instanceof InterruptedIOException;
+                Log.w(TAG, "Could not send manifest for " + ids.size() + " items", e);
+                metrics.recordFailure(manifest.getRemotePath(), SystemClock.elapsedRealtime() - start, e, retryable);
+                for (String id : ids) recordFailure(id, e, retryable, report);
+                return;
+            }
+            for (String id : ids) {
+                try {
+                    queue.markDone(id);
+                } catch (IOException e) {
+                    // Uploads are idempotent, so the worst case is sending this item's metadata again
+                    Log.e(TAG, "Could not save upload queue; " + id + " may be uploaded again", e);
+                }
+                synchronized (report) { report.uploaded++; }
+            }
+        } finally {
+            manifest.discard();
+        }
+    }
+
+    /** Records a failed attempt in the queue and the report. Returns the item's new state. */
+    private UploadQueue.State recordFailure(String id, IOException error, boolean retryable, Report report) {
+        UploadQueue.State state;
+        try {
+            state = queue.markAttemptFailed(id, String.valueOf(error.getMessage()), retryable);
+        } catch (IOException saveError) {
+            Log.e(TAG, "Could not save upload queue", saveError);
+            state = retryable ? UploadQueue.State.PENDING : UploadQueue.State.FAILED;
+        }
+        synchronized (report) {
+            if (state == UploadQueue.State.PENDING) report.retryLater++; else report.failed++;
+        }
+        return state;
+    }
+}
@@ -20,13 +20,13 @@ import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 
 import com.example.vocalharmony.R; // Your R file
+import com.example.vocalharmony.ui.home.AppPreferences;
 import com.google.android.material.button.MaterialButton;
 
 public class ConsentFragment extends Fragment {
 
     private static final String TAG = "ConsentFragment";
-    // Key for storing consent status in SharedPreferences
-    public static final String PREFS_NAME = "VocalHarmonyPrefs";
+    // Keys for storing consent status in SharedPreferences (kept in AppPreferences.consent)
     public static final String PREF_KEY_CONSENT_GIVEN = "user_consent_data_collection_given";
     public static final String PREF_KEY_CONSENT_STATUS_SET = "user_consent_status_set"; // To know if user made a choice
 
@@ -71,7 +71,7 @@ public class ConsentFragment extends Fragment {
         if (getContext() == null) return;
 
         // Save consent status to SharedPreferences
-        SharedPreferences prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences prefs = AppPreferences.consent(requireContext());
         SharedPreferences.Editor editor = prefs.edit();
         editor.putBoolean(PREF_KEY_CONSENT_GIVEN, agreed);
         editor.putBoolean(PREF_KEY_CONSENT_STATUS_SET, true); // Mark that user made a choice
@@ -107,14 +107,14 @@ public class ConsentFragment extends Fragment {
     // --- Static helper method to check consent status from other fragments/activities ---
     public static boolean hasUserConsented(Context context) {
         if (context == null) return false;
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences prefs = AppPreferences.consent(context);
         // Return true only if the user explicitly agreed (status is set AND it's true)
         return prefs.getBoolean(PREF_KEY_CONSENT_STATUS_SET, false) &&
                 prefs.getBoolean(PREF_KEY_CONSENT_GIVEN, false);
     }
     public static boolean isConsentStatusSet(Context context) {
         if (context == null) return false;
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences prefs = AppPreferences.consent(context);
         return prefs.getBoolean(PREF_KEY_CONSENT_STATUS_SET, false);
     }
 }
\ No newline at end of file
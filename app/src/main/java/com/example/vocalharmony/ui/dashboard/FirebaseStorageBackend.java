@@ -0,0 +1,153 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StorageBackend} on Firebase Cloud Storage. Files go up through the SDK's resumable
+ * upload protocol, which sends the data in chunks; the session URI it reports is the resume
+ * token, so a later attempt continues from the last chunk the server confirmed.
+ *
+ * Rather than a fixed deadline for the whole file (which a large take on a slow link can never
+ * meet), an upload is abandoned only when no progress has been reported for
+ * {@link #STALL_TIMEOUT_MS}. A stalled or interrupted task is paused rather than cancelled:
+ * cancelling also ends the session on the server, while a paused one survives for the next
+ * attempt. If resuming a session fails for any reason, its token is dropped so the next attempt
+ * starts a new one instead of retrying a dead session.
+ */
+public class FirebaseStorageBackend implements StorageBackend {
+
+    private static final String TAG = "FirebaseStorageBackend";
+    private static final long STALL_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long POLL_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long REQUEST_TIMEOUT_MINUTES = 1;
+
+    private final FirebaseStorage storage;
+
+    public FirebaseStorageBackend() {
+        this(FirebaseStorage.getInstance());
+    }
+
+    public FirebaseStorageBackend(@NonNull FirebaseStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void upload(@NonNull Uri source, @NonNull String remotePath, @Nullable String contentType,
+                       @Nullable String resumeToken, @NonNull ProgressListener listener) throws IOException {
+        StorageReference ref = storage.getReference().child(remotePath);
+        StorageMetadata metadata = new StorageMetadata.Builder().setContentType(contentType).build();
+        UploadTask task = resumeToken != null
+                ? ref.putFile(source, metadata, Uri.parse(resumeToken))
+                : ref.putFile(source, metadata);
+        Log.d(TAG, (resumeToken != null ? "Resuming " : "Starting ") + "upload to " + ref.getPath());
+
+        AtomicLong lastProgress = new AtomicLong(SystemClock.elapsedRealtime());
+        task.addOnProgressListener(Runnable::run, snapshot -> {
+            lastProgress.set(SystemClock.elapsedRealtime());
+            Uri session = snapshot.getUploadSessionUri();
+            listener.onProgress(session != null ? session.toString() : resumeToken,
+                    snapshot.getBytesTransferred(), snapshot.getTotalByteCount());
+        });
+
+        while (true) {
+            try {
+                Tasks.await(task, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (SystemClock.elapsedRealtime() - lastProgress.get() > STALL_TIMEOUT_MS) {
+                    abandon(task);
+                    throw new RetryableUploadException("Upload to " + remotePath + " stalled");
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (resumeToken != null) {
+                    // Expired, or the error leaves it unknown whether the session still works; start a new one next time
+                    listener.onProgress(null, 0, -1);
+                    throw new RetryableUploadException("Could not resume upload to " + remotePath, cause);
+                }
+                throw toIOException("Upload to " + remotePath + " failed", cause);
+            } catch (InterruptedException e) {
+                abandon(task);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Upload to " + remotePath + " interrupted");
+            }
+        }
+    }
+
+    /** Stops a task without ending its server-side session, which {@link UploadTask#cancel} would. */
+    private static void abandon(UploadTask task) {
+        if (!task.pause()) Log.w(TAG, "Could not pause upload task; it may have just finished");
+    }
+
+    @Override
+    public boolean exists(@NonNull String remotePath) throws IOException {
+        StorageReference ref = storage.getReference().child(remotePath);
+        try {
+            Tasks.await(ref.getMetadata(), REQUEST_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            return true;
+        } catch (TimeoutException e) {
+            throw new RetryableUploadException("Metadata lookup for " + remotePath + " timed out", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof StorageException
+                    && ((StorageException) cause).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                return false;
+            }
+            throw toIOException("Metadata lookup for " + remotePath + " failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Metadata lookup for " + remotePath + " interrupted");
+        }
+    }
+
+    @Override
+    public void putBytes(@NonNull byte[] data, @NonNull String remotePath, @Nullable String contentType) throws IOException {
+        StorageReference ref = storage.getReference().child(remotePath);
+        StorageMetadata metadata = new StorageMetadata.Builder().setContentType(contentType).build();
+        try {
+            Tasks.await(ref.putBytes(data, metadata), REQUEST_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (TimeoutException e) {
+            throw new RetryableUploadException("Upload to " + remotePath + " timed out", e);
+        } catch (ExecutionException e) {
+            throw toIOException("Upload to " + remotePath + " failed", e.getCause() != null ? e.getCause() : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload to " + remotePath + " interrupted");
+        }
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (!(error instanceof StorageException)) return error instanceof IOException;
+        int code = ((StorageException) error).getErrorCode();
+        return code == StorageException.ERROR_RETRY_LIMIT_EXCEEDED
+                || code == StorageException.ERROR_UNKNOWN
+                || code == StorageException.ERROR_CANCELED;
+    }
+
+    private static IOException toIOException(String message, Throwable error) {
+        if (isRetryable(error)) return new RetryableUploadException(message, error);
+        if (error instanceof StorageException) {
+            Log.w(TAG, "StorageException code " + ((StorageException) error).getErrorCode() + ": " + error.getMessage());
+        }
+        return new IOException(message, error);
+    }
+}
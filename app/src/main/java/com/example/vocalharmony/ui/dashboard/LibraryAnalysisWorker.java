@@ -0,0 +1,148 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.vocalharmony.ui.home.AudioMetrics;
+import com.example.vocalharmony.ui.home.AudioProcessor;
+import com.example.vocalharmony.ui.home.MappedWavReader;
+import com.example.vocalharmony.ui.home.RecordingCatalog;
+import com.example.vocalharmony.ui.home.RecordingItem;
+import com.example.vocalharmony.ui.home.RecordingStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-analyses the whole recordings library in the background and stores per-take metrics
+ * (SNR against the saved baseline, RMS/peak, clipping ratio, duration) in the
+ * {@link RecordingCatalog}. Takes whose size and mtime haven't changed are skipped, and the
+ * catalog is saved as results come in, so an interrupted run picks up where it left off.
+ */
+public class LibraryAnalysisWorker extends Worker {
+
+    private static final String TAG = "LibraryAnalysisWorker";
+    public static final String UNIQUE_WORK_NAME = "library_analysis";
+
+    // Output keys
+    public static final String KEY_ANALYZED = "ANALYZED";
+    public static final String KEY_SKIPPED = "SKIPPED";
+    public static final String KEY_FAILED = "FAILED";
+
+    private static final int ANALYSIS_WINDOW_MS = 100; // Same window as the live SNR test
+    private static final int SAVE_EVERY_N_RESULTS = 16;
+
+    public LibraryAnalysisWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /** Queues a run unless one is already pending or running. Cheap to call on every launch. */
+    public static void enqueue(@NonNull Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(LibraryAnalysisWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiresBatteryNotLow(true).build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        double baselineNoisePower = AudioProcessor.getSavedBaselineNoisePower(context);
+        RecordingCatalog catalog = RecordingCatalog.getInstance(context);
+        List<RecordingItem> recordings = RecordingStore.getInstance(context).getRecordings();
+
+        // Drop results for deleted or renamed takes, then find the ones that need work
+        List<String> names = new ArrayList<>();
+        List<File> pending = new ArrayList<>();
+        for (RecordingItem item : recordings) {
+            File take = new File(item.getFilePath());
+            names.add(take.getName());
+            // FLAC archives keep the metrics computed while they were still WAV
+            if (!take.getName().endsWith(RecordingStore.FILENAME_SUFFIX)) continue;
+            if (!catalog.isUpToDate(take, baselineNoisePower)) pending.add(take);
+        }
+        catalog.retainOnly(names);
+        int skipped = recordings.size() - pending.size();
+        Log.i(TAG, "doWork: " + recordings.size() + " takes, " + pending.size() + " to analyse, " + skipped + " unchanged.");
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(() -> {
+                // Keep analysis from competing with the UI thread
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "LibraryAnalysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutorCompletionService<File> completion = new ExecutorCompletionService<>(pool);
+        List<Future<File>> futures = new ArrayList<>();
+        for (File take : pending) {
+            futures.add(completion.submit(() -> {
+                try (MappedWavReader reader = MappedWavReader.open(take)) {
+                    catalog.put(take, baselineNoisePower, AudioMetrics.analyze(reader, baselineNoisePower, ANALYSIS_WINDOW_MS));
+                }
+                return take;
+            }));
+        }
+
+        int analyzed = 0;
+        int failed = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                if (isStopped()) {
+                    Log.i(TAG, "Stopped after " + analyzed + " takes; remaining ones are picked up next run.");
+                    break;
+                }
+                try {
+                    completion.take().get();
+                    analyzed++;
+                    if (analyzed % SAVE_EVERY_N_RESULTS == 0) saveQuietly(catalog);
+                } catch (ExecutionException e) {
+                    failed++;
+                    Log.w(TAG, "Could not analyse a take", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while waiting for analysis results", e);
+        } finally {
+            pool.shutdownNow();
+            saveQuietly(catalog);
+        }
+
+        Log.i(TAG, "doWork: analysed " + analyzed + ", skipped " + skipped + ", failed " + failed);
+        Data output = new Data.Builder()
+                .putInt(KEY_ANALYZED, analyzed)
+                .putInt(KEY_SKIPPED, skipped)
+                .putInt(KEY_FAILED, failed)
+                .build();
+        return Result.success(output);
+    }
+
+    private static void saveQuietly(RecordingCatalog catalog) {
+        try {
+            catalog.save();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save recording catalog", e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * {@link StorageBackend} that "uploads" into a directory on the device, for tests and for
+ * running the upload path without a Firebase project. It follows the same resumable protocol:
+ * data is copied in {@link #CHUNK_SIZE} chunks into a {@code .part} file that is synced after
+ * each chunk, the synced offset is reported in the resume token, and a resumed upload continues
+ * from it. The
+ * object appears under its remote path only once complete.
+ */
+public class LocalStorageBackend implements StorageBackend {
+
+    private static final String TAG = "LocalStorageBackend";
+    static final int CHUNK_SIZE = 256 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    private final ContentResolver resolver;
+    private final File root;
+
+    public LocalStorageBackend(@NonNull Context context, @NonNull File root) {
+        this.resolver = context.getApplicationContext().getContentResolver();
+        this.root = root;
+    }
+
+    /** Where the object for {@code remotePath} ends up. */
+    @NonNull
+    public File fileFor(@NonNull String remotePath) {
+        return new File(root, remotePath);
+    }
+
+    @Override
+    public void upload(@NonNull Uri source, @NonNull String remotePath, @Nullable String contentType,
+                       @Nullable String resumeToken, @NonNull ProgressListener listener) throws IOException {
+        File target = fileFor(remotePath);
+        File part = new File(target.getPath() + PART_SUFFIX);
+        ensureParent(target);
+        // The token is the part file and the offset synced so far; a resume never trusts bytes
+        // past that offset, which a crash may have left unwritten
+        String session = part.getPath() + "#";
+        long offset = 0L;
+        if (resumeToken != null && resumeToken.startsWith(session) && part.exists()) {
+            try {
+                offset = Math.min(part.length(), Long.parseLong(resumeToken.substring(session.length())));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Ignoring malformed resume token " + resumeToken);
+            }
+        }
+        if (offset > 0) Log.d(TAG, "Resuming " + remotePath + " at " + offset + " bytes");
+
+        try (AssetFileDescriptor descriptor = openSource(source);
+             FileInputStream in = descriptor.createInputStream();
+             RandomAccessFile out = new RandomAccessFile(part, "rw")) {
+            long total = descriptor.getLength();
+            if (total != AssetFileDescriptor.UNKNOWN_LENGTH && offset > total) offset = 0;
+            out.setLength(offset);
+            out.seek(offset);
+            skipFully(in, offset);
+
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int n;
+            while ((n = readChunk(in, chunk)) > 0) {
+                out.write(chunk, 0, n);
+                out.getFD().sync();
+                offset += n;
+                listener.onProgress(session + offset, offset, total);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RetryableUploadException("Upload to " + remotePath + " interrupted at " + offset);
+                }
+            }
+        }
+        if (!part.renameTo(target)) throw new RetryableUploadException("Could not publish " + target);
+    }
+
+    @Override
+    public boolean exists(@NonNull String remotePath) {
+        return fileFor(remotePath).isFile();
+    }
+
+    @Override
+    public void putBytes(@NonNull byte[] data, @NonNull String remotePath, @Nullable String contentType) throws IOException {
+        File target = fileFor(remotePath);
+        ensureParent(target);
+        File temp = new File(target.getPath() + PART_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) throw new RetryableUploadException("Could not publish " + target);
+    }
+
+    private AssetFileDescriptor openSource(Uri source) throws IOException {
+        try {
+            AssetFileDescriptor descriptor = resolver.openAssetFileDescriptor(source, "r");
+            if (descriptor == null) throw new FileNotFoundException("Cannot open " + source);
+            return descriptor;
+        } catch (SecurityException e) {
+            throw new IOException("No access to " + source, e);
+        }
+    }
+
+    /** Reads until the chunk is full or the source ends. */
+    private static int readChunk(InputStream in, byte[] chunk) throws IOException {
+        int filled = 0;
+        int n;
+        while (filled < chunk.length && (n = in.read(chunk, filled, chunk.length - filled)) > 0) filled += n;
+        return filled;
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) throw new EOFException("Source is shorter than the uploaded part");
+            bytes -= skipped;
+        }
+    }
+
+    private static void ensureParent(File target) throws IOException {
+        File parent = target.getParentFile();
+        // mkdirs() is false if a parallel upload created it first, so check the outcome, not the call
+        if (parent != null && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Could not create " + parent);
+        }
+    }
+}
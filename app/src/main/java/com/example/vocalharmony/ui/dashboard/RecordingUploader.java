@@ -0,0 +1,159 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Uploads the audio of one {@link UploadItem}. The audio is stored content-addressed (see
+ * {@link UploadBlob}): WAV takes are compressed to FLAC, the remote name is the content's
+ * SHA-256, and data the backend already has is skipped. New audio goes up as a resumable session
+ * (see {@link UploadSessionStore}); metadata is collected in an {@link UploadManifest}. Shared
+ * by the single-file {@link UploadWorker} and the {@link BatchUploader}. Thread-safe; items may
+ * be uploaded in parallel.
+ */
+public class RecordingUploader {
+
+    private static final String TAG = "RecordingUploader";
+    private static final String STAGING_DIR = "upload_staging";
+
+    // Striped locks so two items with the same content never upload one blob at the same time
+    // (they would share its session); shared across instances because both workers may run at once
+    private static final Object[] BLOB_LOCKS = new Object[16];
+    static {
+        for (int i = 0; i < BLOB_LOCKS.length; i++) BLOB_LOCKS[i] = new Object();
+    }
+
+    /** The audio side of an uploaded item, and the manifest entry that describes it. */
+    public static final class Result {
+        public final UploadItem item;
+        /** Remote path of the audio blob. */
+        public final String audioPath;
+        /** Bytes sent by this call (a resumed upload only counts the rest of the file). */
+        public final long bytesSent;
+        /** Whether the backend already had the audio, so nothing was sent. */
+        public final boolean deduplicated;
+        private final UploadBlob blob;
+        private final long uploadedAt;
+
+        Result(UploadItem item, UploadBlob blob, String audioPath, long bytesSent, boolean deduplicated) {
+            this.item = item;
+            this.blob = blob;
+            this.audioPath = audioPath;
+            this.bytesSent = bytesSent;
+            this.deduplicated = deduplicated;
+            this.uploadedAt = System.currentTimeMillis();
+        }
+
+        /** One record for an {@link UploadManifest}. */
+        @NonNull
+        JSONObject toManifestEntry() throws JSONException {
+            return new JSONObject()
+                    .put("userId", item.userId)
+                    .put("sentenceText", item.sentence)
+                    .put("recordingTimestamp", item.recordedAt)
+                    .put("uploadTimestamp", uploadedAt)
+                    .put("audioFilename", item.targetFilename)
+                    .put("audioStoragePath", "/" + audioPath)
+                    .put("audioSha256", blob.sha256)
+                    .put("audioSha256Of", blob.hashOf == UploadBlob.HashOf.PCM ? "pcm" : "file")
+                    .put("audioBytes", blob.length)
+                    .put("deduplicated", deduplicated);
+        }
+    }
+
+    private final ContentResolver resolver;
+    private final StorageBackend backend;
+    private final UploadSessionStore sessions;
+    private final File stagingDir;
+
+    public RecordingUploader(@NonNull Context context, @NonNull StorageBackend backend) {
+        Context appContext = context.getApplicationContext();
+        this.resolver = appContext.getContentResolver();
+        this.backend = backend;
+        this.sessions = new UploadSessionStore(appContext);
+        this.stagingDir = new File(appContext.getCacheDir(), STAGING_DIR);
+    }
+
+    /**
+     * Uploads the item's audio, blocking until done. Its metadata is not sent; add the result to
+     * an {@link UploadManifest}.
+     * @throws RetryableUploadException if a later attempt may succeed; the audio session is kept
+     * @throws InterruptedIOException if interrupted; the audio session is kept
+     * @throws IOException if the item cannot be uploaded; the audio session is dropped
+     */
+    @NonNull
+    public Result upload(@NonNull UploadItem item) throws IOException {
+        UploadBlob blob = UploadBlob.prepare(resolver, Uri.parse(item.fileUri), item.targetFilename, stagingDir);
+        try {
+            String audioPath = blob.remotePathFor(item.userId);
+            long audioBytes;
+            boolean deduplicated;
+            synchronized (BLOB_LOCKS[Math.floorMod(audioPath.hashCode(), BLOB_LOCKS.length)]) {
+                // A blob with a session in progress is not complete yet, whatever the backend says
+                deduplicated = sessions.getSession(audioPath) == null && backend.exists(audioPath);
+                audioBytes = deduplicated ? 0L : uploadAudio(item, blob, audioPath);
+            }
+            if (deduplicated) {
+                Log.i(TAG, "Audio for " + item.targetFilename + " already uploaded as " + blob.sha256 + "; skipped "
+                        + blob.length + " bytes");
+            }
+            return new Result(item, blob, audioPath, audioBytes, deduplicated);
+        } finally {
+            blob.discard();
+        }
+    }
+
+    /** Starts an empty manifest for {@code userId}'s items. */
+    @NonNull
+    public UploadManifest newManifest(@NonNull String userId) throws IOException {
+        return new UploadManifest(stagingDir, userId);
+    }
+
+    /**
+     * Sends a finished manifest in one request. The local copy is kept; call
+     * {@link UploadManifest#discard()} afterwards.
+     * @return bytes sent
+     */
+    public long sendManifest(@NonNull UploadManifest manifest) throws IOException {
+        byte[] data = manifest.finish();
+        backend.putBytes(data, manifest.getRemotePath(), UploadManifest.CONTENT_TYPE);
+        Log.i(TAG, "Manifest uploaded: " + manifest.getItemIds().size() + " items, " + data.length + " bytes");
+        return data.length;
+    }
+
+    /** Sends the blob as a resumable session. Returns the bytes sent. Call with its lock held. */
+    private long uploadAudio(UploadItem item, UploadBlob blob, String audioPath) throws IOException {
+        try {
+            String session = sessions.getSession(audioPath);
+            long startOffset = session != null ? sessions.getOffset(audioPath) : 0L;
+            if (session != null) Log.i(TAG, "Resuming " + item.targetFilename + " at " + startOffset + " bytes");
+            long[] uploaded = {startOffset, -1L};
+            // Encoding is deterministic, so a re-encoded take matches the bytes a session already holds
+            backend.upload(blob.source, audioPath, blob.contentType, session, (token, bytesUploaded, totalBytes) -> {
+                sessions.save(audioPath, token, bytesUploaded);
+                uploaded[0] = bytesUploaded;
+                uploaded[1] = totalBytes;
+            });
+            sessions.clear(audioPath);
+            Log.i(TAG, "Audio uploaded: " + uploaded[0] + "/" + uploaded[1] + " bytes for " + item.targetFilename
+                    + " (" + blob.originalLength + " bytes before encoding)");
+            return Math.max(0L, uploaded[0] - startOffset);
+        } catch (RetryableUploadException | InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            sessions.clear(audioPath);
+            throw e;
+        }
+    }
+}
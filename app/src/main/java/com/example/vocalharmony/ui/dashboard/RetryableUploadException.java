@@ -0,0 +1,18 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+/** An upload failed in a way that may succeed if tried again later, e.g. a dropped connection. */
+public class RetryableUploadException extends IOException {
+
+    public RetryableUploadException(@NonNull String message) {
+        super(message);
+    }
+
+    public RetryableUploadException(@NonNull String message, @Nullable Throwable cause) {
+        super(message, cause);
+    }
+}
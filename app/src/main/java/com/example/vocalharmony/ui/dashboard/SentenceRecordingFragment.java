@@ -1,12 +1,17 @@
 package com.example.vocalharmony.ui.dashboard; // Your package
 
 import android.Manifest;
+import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
 import android.media.MediaRecorder;
-// Removed Uri import - not needed for local only
+import android.net.Uri;
 import android.os.Bundle;
-// Removed Handler/Looper imports - not needed
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -21,23 +26,46 @@ import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
-// Removed WorkManager, Firebase, UUID imports
-
 import com.example.vocalharmony.R; // Make sure R is imported correctly
+import com.example.vocalharmony.ui.home.AudioMetrics;
+import com.example.vocalharmony.ui.home.AudioProcessor;
+import com.example.vocalharmony.ui.home.PassageSegmenter;
+import com.example.vocalharmony.ui.home.TakeQualityGate;
+import com.example.vocalharmony.ui.home.WavWriter;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.switchmaterial.SwitchMaterial;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A fragment for recording user audio while they read prompted sentences.
- * Handles displaying sentences, requesting permission, recording audio locally,
- * and managing UI states. (Cloud upload deferred).
+ * Handles displaying sentences, requesting permission, recording and managing UI states.
+ *
+ * Takes are captured as PCM WAV and judged while they are recorded by a {@link TakeQualityGate}
+ * (speech SNR against the saved baseline, and clipping). Clipping is flagged as soon as it
+ * happens; a take that fails the gate is deleted when recording stops. Only takes that pass are
+ * moved into local storage and queued for upload on Save.
+ *
+ * In passage mode the user reads the whole passage in one take instead, and a
+ * {@link PassageSegmenter} splits it into a take per sentence while it is captured. Each sentence
+ * goes through its own gate; if the reading doesn't split into one take per sentence, all of it
+ * is discarded.
  */
 public class SentenceRecordingFragment extends Fragment {
 
@@ -49,11 +77,14 @@ public class SentenceRecordingFragment extends Fragment {
     private MaterialButton saveButton; // Now acts as "Confirm Local Save"
     private MaterialButton nextSentenceButton;
     private TextView statusTextView;
+    private SwitchMaterial passageModeSwitch;
 
     // --- State Variables ---
     private volatile boolean isRecording = false;
     private String currentSentence = "";
-    private File currentRecordingFile = null; // Path to the latest successfully stopped recording
+    private File currentRecordingFile = null; // The latest take that passed the gate, waiting for Save
+    private boolean lastTakeRejected = false; // Keeps the rejection reason on screen until the next take
+    private List<PassageSegmenter.Segment> pendingPassageTakes = new ArrayList<>(); // Sentences of a passage reading that passed the gate, waiting for Save
 
     // --- Sentence Management ---
     private List<String> sentenceList;
@@ -64,8 +95,21 @@ public class SentenceRecordingFragment extends Fragment {
     private ActivityResultLauncher<String> requestPermissionLauncher;
     private boolean hasAudioPermission = false;
 
-    // --- MediaRecorder ---
-    private MediaRecorder mediaRecorder = null;
+    // --- AudioRecord ---
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNEL_CONFIG = AudioFormat.CHANNEL_IN_MONO;
+    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
+    private static final int BUFFER_SIZE = Math.max(4096,
+            AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT));
+    private static final long LIVE_UPDATE_MS = 250;
+    private AudioRecord audioRecord = null;
+    private Thread recordingThread = null;
+    private TakeQualityGate qualityGate = null;
+    private File takeFile = null; // The take being captured, in the cache until it passes the gate
+    private PassageSegmenter passageSegmenter = null; // Set while a passage reading is captured
+    private volatile boolean takeWriteFailed = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor();
 
     // --- Lifecycle Methods ---
 
@@ -111,6 +155,7 @@ public class SentenceRecordingFragment extends Fragment {
         saveButton = view.findViewById(R.id.save_button);
         nextSentenceButton = view.findViewById(R.id.next_sentence_button);
         statusTextView = view.findViewById(R.id.status_textview);
+        passageModeSwitch = view.findViewById(R.id.passage_mode_switch);
 
         updatePermissionStatus();
         setupInitialState();
@@ -130,12 +175,12 @@ public class SentenceRecordingFragment extends Fragment {
         super.onPause();
         Log.d(TAG, "onPause");
         if (isRecording) {
-            Log.w(TAG, "Fragment paused during recording. Stopping and releasing recorder.");
-            try { if(mediaRecorder != null) { mediaRecorder.stop(); Log.d(TAG,"MediaRecorder stopped in onPause."); } }
-            catch (Exception e) { Log.e(TAG,"Error stopping recorder in onPause", e); } // Catch generic Exception as stop can throw Runtime variants
-            releaseMediaRecorder();
-            isRecording = false;
-            currentRecordingFile = null;
+            Log.w(TAG, "Fragment paused during recording. Stopping and discarding the take.");
+            finishCapture();
+            deleteTake(takeFile);
+            takeFile = null;
+            qualityGate = null;
+            abortPassage();
             updateButtonStates();
             if(isAdded() && statusTextView != null) statusTextView.setText(R.string.status_prompt_stopped);
         }
@@ -145,15 +190,17 @@ public class SentenceRecordingFragment extends Fragment {
     public void onDestroyView() {
         super.onDestroyView();
         Log.d(TAG, "onDestroyView");
-        releaseMediaRecorder();
-        promptSentenceTextView = null; recordButton = null; saveButton = null; nextSentenceButton = null; statusTextView = null;
+        mainHandler.removeCallbacksAndMessages(null);
+        promptSentenceTextView = null; recordButton = null; saveButton = null; nextSentenceButton = null; statusTextView = null; passageModeSwitch = null;
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "onDestroy");
-        releaseMediaRecorder();
+        finishCapture();
+        abortPassage();
+        saveExecutor.shutdown();
     }
 
     // --- Permission Handling Methods (Keep as before) ---
@@ -188,7 +235,8 @@ public class SentenceRecordingFragment extends Fragment {
     private void loadNextSentence() {
         Log.d(TAG, "loadNextSentence called");
         if (isRecording) { Log.w(TAG,"Loading next sentence while recording - stopping first."); stopRecording(); }
-        currentRecordingFile = null; isRecording = false;
+        discardUnsavedTakes(); // Moving on discards an unsaved take
+        isRecording = false; lastTakeRejected = false;
 
         if (remainingSentences == null || sentenceList == null) {
             Log.e(TAG,"Sentence lists not initialized!"); loadSentences();
@@ -200,7 +248,7 @@ public class SentenceRecordingFragment extends Fragment {
             remainingSentences.addAll(sentenceList); Collections.shuffle(remainingSentences, randomGenerator);
             if(isAdded()) Toast.makeText(getContext(), "Starting next round of sentences.", Toast.LENGTH_SHORT).show();
         }
-        if (!remainingSentences.isEmpty()) { currentSentence = remainingSentences.remove(0); if(isAdded() && promptSentenceTextView != null) { promptSentenceTextView.setText(currentSentence); } Log.d(TAG, "Displayed sentence: \"" + currentSentence + "\""); }
+        if (!remainingSentences.isEmpty()) { currentSentence = remainingSentences.remove(0); showIdlePrompt(); Log.d(TAG, "Displayed sentence: \"" + currentSentence + "\""); }
         else { Log.e(TAG,"No sentences available after reshuffle."); if(isAdded() && promptSentenceTextView != null) { promptSentenceTextView.setText("Error loading sentence."); } currentSentence = ""; }
 
         if(isAdded() && statusTextView != null) statusTextView.setText(getString(R.string.status_prompt_ready));
@@ -211,6 +259,20 @@ public class SentenceRecordingFragment extends Fragment {
 
     private void setupInitialState() { Log.d(TAG, "Setting up initial UI state."); loadNextSentence(); }
 
+    private boolean isPassageMode() {
+        return passageModeSwitch != null && passageModeSwitch.isChecked();
+    }
+
+    /** The current sentence, or in passage mode the instructions for reading the whole passage. */
+    private void showIdlePrompt() {
+        if (!isAdded() || promptSentenceTextView == null) return;
+        if (isPassageMode()) {
+            promptSentenceTextView.setText(R.string.passage_prompt_ready);
+        } else {
+            promptSentenceTextView.setText(currentSentence);
+        }
+    }
+
     /** Updates the enabled/disabled state and text of buttons based on current state flags. */
     private void updateButtonStates() {
         // Add checks for null views in case called before onViewCreated fully completes or after onDestroyView
@@ -225,21 +287,25 @@ public class SentenceRecordingFragment extends Fragment {
 
         // --- Save Button ---
         // Enable Save only if permission granted, NOT recording, AND a valid recording file exists
-        saveButton.setEnabled(hasAudioPermission && !isRecording && currentRecordingFile != null);
+        boolean hasUnsavedTakes = currentRecordingFile != null || !pendingPassageTakes.isEmpty();
+        saveButton.setEnabled(hasAudioPermission && !isRecording && hasUnsavedTakes);
 
         // --- Next Sentence Button ---
-        // Enable Next only if NOT recording
-        nextSentenceButton.setEnabled(!isRecording);
+        // Enable Next only if NOT recording; there is no next sentence when reading the whole passage
+        nextSentenceButton.setEnabled(!isRecording && !isPassageMode());
+
+        // --- Passage Mode Switch ---
+        if (passageModeSwitch != null) passageModeSwitch.setEnabled(!isRecording);
 
         // Log the state (optional but helpful for debugging)
         Log.d(TAG, "Updated Button States: RecordEnabled=" + recordButton.isEnabled() +
                 ", SaveEnabled=" + saveButton.isEnabled() + ", NextEnabled=" + nextSentenceButton.isEnabled() +
                 ", HasPerm=" + hasAudioPermission + ", IsRecording=" + isRecording +
-                ", RecordingExists=" + (currentRecordingFile != null));
+                ", RecordingExists=" + hasUnsavedTakes);
 
         // Update status text only if idle (not recording, no file ready to save)
         // (Keep this logic as is)
-        if(!isRecording && currentRecordingFile == null) {
+        if(!isRecording && !hasUnsavedTakes && !lastTakeRejected) {
             statusTextView.setText(hasAudioPermission ? getString(R.string.status_prompt_ready) : getString(R.string.permission_needed_to_record));
         }
     }
@@ -249,120 +315,389 @@ public class SentenceRecordingFragment extends Fragment {
     private void setupButtonClickListeners() {
         Log.d(TAG, "Setting up button click listeners.");
         if (recordButton == null || saveButton == null || nextSentenceButton == null) { Log.e(TAG, "Buttons null in setupButtonClickListeners!"); return; }
-        recordButton.setOnClickListener(v -> { if (isRecording) { stopRecording(); } else { startRecording(); } });
+        recordButton.setOnClickListener(v -> {
+            if (isRecording) { if (passageSegmenter != null) stopPassageRecording(); else stopRecording(); }
+            else if (isPassageMode()) { startPassageRecording(); }
+            else { startRecording(); }
+        });
+        if (passageModeSwitch != null) passageModeSwitch.setOnCheckedChangeListener((button, checked) -> { showIdlePrompt(); updateButtonStates(); });
         saveButton.setOnClickListener(v -> saveAndUploadRecording()); // This now calls the simplified local save version
         nextSentenceButton.setOnClickListener(v -> loadNextSentence());
     }
 
-    // --- Recording Logic (Keep as before) ---
+    // --- Recording Logic ---
 
     private void startRecording() {
-        // ... (Keep the full startRecording implementation using MediaRecorder as provided previously) ...
         Log.d(TAG, "startRecording button pressed");
         if (!checkAndRequestAudioPermission()) { Log.w(TAG, "Audio permission check failed or pending."); return; }
         if (isRecording) { Log.w(TAG, "Start called while already recording."); return; }
         if (getContext() == null) { Log.e(TAG, "Start recording failed: Context is null."); return; }
 
-        File recordingsDir = new File(requireContext().getFilesDir(), "sentence_recordings");
-        if (!recordingsDir.exists() && !recordingsDir.mkdirs()) { Log.e(TAG, "Failed to create recordings directory: " + recordingsDir.getAbsolutePath()); if(isAdded()) statusTextView.setText("Error: Cannot create storage directory."); return; }
+        // Takes are written to the cache and only moved into storage once they pass the gate and are saved
+        File takesDir = new File(requireContext().getCacheDir(), "sentence_takes");
+        if (!takesDir.exists() && !takesDir.mkdirs()) { Log.e(TAG, "Failed to create takes directory: " + takesDir.getAbsolutePath()); if(isAdded()) statusTextView.setText("Error: Cannot create storage directory."); return; }
+        discardUnsavedTakes(); // A new take replaces an unsaved one
+        lastTakeRejected = false;
         String timestamp = String.valueOf(System.currentTimeMillis());
         String sentenceHash = String.valueOf(currentSentence.hashCode());
-        String fileName = "Rec_" + sentenceHash + "_" + timestamp + ".m4a";
-        currentRecordingFile = new File(recordingsDir, fileName);
-        Log.d(TAG, "Output file target: " + currentRecordingFile.getAbsolutePath());
+        takeFile = new File(takesDir, "Rec_" + sentenceHash + "_" + timestamp + ".wav");
+        Log.d(TAG, "Take file target: " + takeFile.getAbsolutePath());
 
-        releaseMediaRecorder();
-        mediaRecorder = new MediaRecorder();
+        OutputStream out = null;
         try {
-            mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-            mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
-            mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-            mediaRecorder.setOutputFile(currentRecordingFile.getAbsolutePath());
-            mediaRecorder.prepare();
-            Log.d(TAG,"MediaRecorder prepared for " + currentRecordingFile.getName());
-            mediaRecorder.start();
-            Log.i(TAG,"MediaRecorder started.");
+            audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT, BUFFER_SIZE);
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) throw new IllegalStateException("AudioRecord could not be initialized");
+            out = new BufferedOutputStream(new FileOutputStream(takeFile));
+            WavWriter.writeHeader(out, SAMPLE_RATE, 1, 16, 0); // Sizes are patched in when the take stops
+            qualityGate = TakeQualityGate.fromSettings(requireContext(), SAMPLE_RATE);
+            takeWriteFailed = false;
+            audioRecord.startRecording();
+            Log.i(TAG, "AudioRecord started.");
             isRecording = true;
+
+            final AudioRecord record = audioRecord;
+            final OutputStream takeOut = out;
+            final TakeQualityGate gate = qualityGate;
+            recordingThread = new Thread(() -> captureTake(record, takeOut, gate), "SentenceTake Thread");
+            recordingThread.start();
+
             if(isAdded() && statusTextView != null) statusTextView.setText(R.string.status_prompt_recording);
             updateButtonStates();
-        } catch (IOException | IllegalStateException | SecurityException e) {
-            Log.e(TAG, "MediaRecorder setup/start failed for " + currentRecordingFile.getName(), e);
+        } catch (IOException | IllegalStateException | IllegalArgumentException | SecurityException e) {
+            Log.e(TAG, "AudioRecord setup/start failed for " + takeFile.getName(), e);
             if(isAdded() && statusTextView != null) statusTextView.setText(getString(R.string.status_error_prefix) + "Recorder start failed");
-            releaseMediaRecorder(); currentRecordingFile = null; updateButtonStates();
-        } catch (Exception e) {
-            Log.e(TAG, "Unexpected error starting recorder", e); if(isAdded() && statusTextView != null) statusTextView.setText(getString(R.string.status_error_prefix) + "Unknown recorder error");
-            releaseMediaRecorder(); currentRecordingFile = null; updateButtonStates();
+            if (out != null) { try { out.close(); } catch (IOException ignored) { } }
+            isRecording = false; releaseAudioRecord(); deleteTake(takeFile); takeFile = null; qualityGate = null; updateButtonStates();
+        }
+    }
+
+    /** Capture thread: writes the take as WAV data and feeds the gate until recording stops. */
+    private void captureTake(AudioRecord record, OutputStream out, TakeQualityGate gate) {
+        short[] samples = new short[BUFFER_SIZE / 2];
+        byte[] bytes = new byte[samples.length * 2];
+        long lastUpdate = 0;
+        try {
+            while (isRecording) {
+                int read = record.read(samples, 0, samples.length);
+                if (read < 0) { Log.e(TAG, "AudioRecord read error: " + read + ". Stopping capture."); takeWriteFailed = true; break; }
+                for (int i = 0; i < read; i++) { // Little-endian 16-bit, as in the WAV data chunk
+                    bytes[2 * i] = (byte) samples[i];
+                    bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+                }
+                out.write(bytes, 0, read * 2);
+                gate.add(samples, 0, read);
+                long now = SystemClock.elapsedRealtime();
+                if (now - lastUpdate >= LIVE_UPDATE_MS) {
+                    lastUpdate = now;
+                    mainHandler.post(() -> showLiveQuality(gate));
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "IOException writing take", e);
+            takeWriteFailed = true;
+        } finally {
+            try { out.close(); } catch (IOException e) { Log.e(TAG, "IOException closing take", e); takeWriteFailed = true; }
+        }
+    }
+
+    /** Shows the running SNR and clipping, and flags clipping the moment it crosses the limit. */
+    private void showLiveQuality(TakeQualityGate gate) {
+        if (!isRecording || gate != qualityGate || !isAdded() || statusTextView == null) return;
+        if (gate.getLiveVerdict() == TakeQualityGate.Verdict.CLIPPING) {
+            statusTextView.setText(R.string.take_flag_clipping_live);
+        } else if (gate.isSnrChecked()) {
+            statusTextView.setText(getString(R.string.take_live_quality, gate.getSpeechSnrDb(), gate.getClippingRatio() * 100.0));
+        } else {
+            statusTextView.setText(getString(R.string.take_live_quality_no_baseline, gate.getClippingRatio() * 100.0));
         }
     }
 
     private void stopRecording() {
-        // ... (Keep the full stopRecording implementation using MediaRecorder as provided previously, including the corrected catch block) ...
         Log.d(TAG, "stopRecording requested");
         if (!isRecording) { Log.w(TAG,"Stop called but not recording."); return; }
-        if (mediaRecorder != null) {
-            try {
-                mediaRecorder.stop(); Log.i(TAG,"MediaRecorder stopped successfully for " + (currentRecordingFile != null ? currentRecordingFile.getName() : "unknown file"));
-                isRecording = false;
-            } catch (RuntimeException e) { // Catch RuntimeException and subtypes like IllegalStateException
-                Log.e(TAG, "MediaRecorder stop() failed", e); if(isAdded() && statusTextView != null) { statusTextView.setText(getString(R.string.status_error_prefix) + "Stopping recording failed"); }
-                if (currentRecordingFile != null && currentRecordingFile.exists()) { Log.w(TAG, "Deleting potentially corrupt file: " + currentRecordingFile.getName()); if(!currentRecordingFile.delete()) { Log.e(TAG, "Failed to delete corrupt recording file."); } }
-                currentRecordingFile = null; isRecording = false;
-            } finally {
-                releaseMediaRecorder();
+        finishCapture();
+        File take = takeFile;
+        TakeQualityGate gate = qualityGate;
+        takeFile = null;
+        qualityGate = null;
+
+        boolean written = !takeWriteFailed && take != null && gate != null;
+        if (written) {
+            try { WavWriter.finalizeHeader(take, take.length() - WavWriter.HEADER_SIZE); }
+            catch (IOException e) { Log.e(TAG, "Failed to finalize WAV header for " + take.getName(), e); written = false; }
+        }
+        if (!written) {
+            deleteTake(take);
+            lastTakeRejected = true;
+            if(isAdded() && statusTextView != null) statusTextView.setText(R.string.status_error_saving);
+            updateButtonStates();
+            return;
+        }
+
+        TakeQualityGate.Verdict verdict = gate.getVerdict();
+        Log.i(TAG, String.format(Locale.US, "Take %s: %s, speech SNR %.1f dB, clipping %.3f%%",
+                take.getName(), verdict, gate.getSpeechSnrDb(), gate.getClippingRatio() * 100.0));
+        if (verdict == TakeQualityGate.Verdict.OK) {
+            currentRecordingFile = take;
+            if(isAdded() && statusTextView != null) {
+                statusTextView.setText(gate.isSnrChecked() ? getString(R.string.take_accepted, gate.getSpeechSnrDb()) : getString(R.string.take_accepted_no_baseline));
+            }
+        } else {
+            // A bad take never reaches storage or the upload queue
+            deleteTake(take);
+            lastTakeRejected = true;
+            if(isAdded() && statusTextView != null) statusTextView.setText(rejectionMessage(gate, verdict));
+        }
+        updateButtonStates();
+    }
+
+    // --- Passage Mode ---
+
+    /** Starts one continuous take of the whole passage; it is split into a take per sentence as it is captured. */
+    private void startPassageRecording() {
+        Log.d(TAG, "startPassageRecording button pressed");
+        if (!checkAndRequestAudioPermission()) { Log.w(TAG, "Audio permission check failed or pending."); return; }
+        if (isRecording) { Log.w(TAG, "Start called while already recording."); return; }
+        if (getContext() == null) { Log.e(TAG, "Start recording failed: Context is null."); return; }
+        if (sentenceList == null || sentenceList.isEmpty()) { Log.e(TAG, "No sentences to read."); return; }
+
+        File takesDir = new File(requireContext().getCacheDir(), "sentence_takes");
+        if (!takesDir.exists() && !takesDir.mkdirs()) { Log.e(TAG, "Failed to create takes directory: " + takesDir.getAbsolutePath()); if(isAdded()) statusTextView.setText("Error: Cannot create storage directory."); return; }
+        discardUnsavedTakes(); // A new reading replaces unsaved takes
+        lastTakeRejected = false;
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < sentenceList.size(); i++) {
+            files.add(new File(takesDir, "Rec_" + sentenceList.get(i).hashCode() + "_" + timestamp + "_" + i + ".wav"));
+        }
+        Context context = requireContext();
+        // The saved baseline is Hanning-windowed power; the segmenter's VAD works on raw power
+        double noiseFloorPower = AudioProcessor.getSavedBaselineNoisePower(context) / AudioMetrics.HANN_POWER_GAIN;
+        final PassageSegmenter segmenter = new PassageSegmenter(sentenceList, files, SAMPLE_RATE, noiseFloorPower,
+                TakeQualityGate.fromSettings(context, SAMPLE_RATE), index -> mainHandler.post(() -> showPassageSentence(index)));
+
+        try {
+            audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT, BUFFER_SIZE);
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) throw new IllegalStateException("AudioRecord could not be initialized");
+            takeWriteFailed = false;
+            passageSegmenter = segmenter;
+            audioRecord.startRecording();
+            Log.i(TAG, "AudioRecord started for passage reading.");
+            isRecording = true;
+
+            final AudioRecord record = audioRecord;
+            recordingThread = new Thread(() -> capturePassage(record, segmenter), "PassageTake Thread");
+            recordingThread.start();
+
+            showPassageSentence(0);
+            updateButtonStates();
+        } catch (IllegalStateException | IllegalArgumentException | SecurityException e) {
+            Log.e(TAG, "AudioRecord setup/start failed for passage reading", e);
+            if(isAdded() && statusTextView != null) statusTextView.setText(getString(R.string.status_error_prefix) + "Recorder start failed");
+            isRecording = false; releaseAudioRecord(); passageSegmenter = null; segmenter.abort(); updateButtonStates();
+        }
+    }
+
+    /** Capture thread: feeds the reading to the segmenter, which writes the sentence files, until recording stops. */
+    private void capturePassage(AudioRecord record, PassageSegmenter segmenter) {
+        short[] samples = new short[BUFFER_SIZE / 2];
+        try {
+            while (isRecording) {
+                int read = record.read(samples, 0, samples.length);
+                if (read < 0) { Log.e(TAG, "AudioRecord read error: " + read + ". Stopping capture."); takeWriteFailed = true; break; }
+                segmenter.write(samples, 0, read);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "IOException writing passage reading", e);
+            takeWriteFailed = true;
+        }
+    }
+
+    /** Shows the sentence being read with the one after it, so the reader can look ahead. */
+    private void showPassageSentence(int index) {
+        if (!isRecording || passageSegmenter == null || !isAdded() || promptSentenceTextView == null || statusTextView == null) return;
+        String prompt = sentenceList.get(index);
+        if (index + 1 < sentenceList.size()) prompt += "\n\n" + sentenceList.get(index + 1);
+        promptSentenceTextView.setText(prompt);
+        statusTextView.setText(getString(R.string.passage_status_sentence, index + 1, sentenceList.size()));
+    }
+
+    private void stopPassageRecording() {
+        Log.d(TAG, "stopPassageRecording requested");
+        finishCapture(); // The capture thread has ended, so the segmenter can be used from here
+        PassageSegmenter segmenter = passageSegmenter;
+        passageSegmenter = null;
+        showIdlePrompt();
+
+        List<PassageSegmenter.Segment> segments = null;
+        if (!takeWriteFailed) {
+            try { segments = segmenter.finish(); }
+            catch (IOException e) { Log.e(TAG, "Failed to close the last sentence of the passage reading", e); }
+        }
+        lastTakeRejected = true;
+        if (segments == null) {
+            segmenter.abort();
+            if(isAdded() && statusTextView != null) statusTextView.setText(R.string.status_error_saving);
+            updateButtonStates();
+            return;
+        }
+        int total = sentenceList.size();
+        if (segments.size() != total) {
+            // The pauses didn't line up with the sentences, so no file can be trusted to hold its sentence
+            Log.w(TAG, "Passage reading split into " + segments.size() + " of " + total + " sentences; discarding it.");
+            segmenter.abort();
+            if(isAdded() && statusTextView != null) statusTextView.setText(getString(R.string.passage_rejected_split, segments.size(), total));
+            updateButtonStates();
+            return;
+        }
+
+        List<PassageSegmenter.Segment> kept = new ArrayList<>();
+        for (PassageSegmenter.Segment segment : segments) {
+            TakeQualityGate.Verdict verdict = segment.gate.getVerdict();
+            Log.i(TAG, String.format(Locale.US, "Sentence %d: %s, speech SNR %.1f dB, clipping %.3f%%",
+                    segment.index, verdict, segment.gate.getSpeechSnrDb(), segment.gate.getClippingRatio() * 100.0));
+            if (verdict == TakeQualityGate.Verdict.OK) {
+                kept.add(segment);
+            } else {
+                deleteTake(segment.file); // A bad sentence never reaches storage or the upload queue
             }
-        } else { Log.w(TAG,"Stop called while isRecording=true, but mediaRecorder was null!"); isRecording = false; currentRecordingFile = null; }
-        if(isAdded() && statusTextView != null) { statusTextView.setText(currentRecordingFile != null ? R.string.status_prompt_stopped : R.string.status_error_saving); }
+        }
+        pendingPassageTakes = kept;
+        lastTakeRejected = kept.isEmpty();
+        if(isAdded() && statusTextView != null) {
+            statusTextView.setText(kept.isEmpty() ? getString(R.string.passage_none_passed) : getString(R.string.passage_accepted, kept.size(), total));
+        }
         updateButtonStates();
     }
 
-    private void releaseMediaRecorder() {
-        // ... (Keep the full releaseMediaRecorder implementation as provided previously) ...
-        if (mediaRecorder != null) {
-            Log.d(TAG, "Releasing MediaRecorder resource...");
-            try { mediaRecorder.reset(); mediaRecorder.release(); Log.d(TAG, "MediaRecorder released."); }
-            catch (Exception e) { Log.e(TAG, "Exception during MediaRecorder reset/release", e); }
-            finally { mediaRecorder = null; }
+    /** Drops a passage reading in progress and its files. Call only once the capture thread has stopped. */
+    private void abortPassage() {
+        if (passageSegmenter == null) return;
+        passageSegmenter.abort();
+        passageSegmenter = null;
+        showIdlePrompt();
+    }
+
+    private String rejectionMessage(TakeQualityGate gate, TakeQualityGate.Verdict verdict) {
+        switch (verdict) {
+            case CLIPPING: return getString(R.string.take_rejected_clipping, gate.getClippingRatio() * 100.0, gate.getMaxClippingRatio() * 100.0);
+            case LOW_SNR: return getString(R.string.take_rejected_low_snr, gate.getSpeechSnrDb(), gate.getMinSnrDb());
+            default: return getString(R.string.take_rejected_no_speech);
         }
     }
 
-    // --- MODIFIED Save Logic (Local Only) ---
+    /** Stops the capture thread and releases the recorder. Safe to call when not recording. */
+    private void finishCapture() {
+        isRecording = false;
+        if (recordingThread != null) {
+            try { recordingThread.join(); }
+            catch (InterruptedException e) { Log.e(TAG, "Interrupted while waiting for capture thread", e); Thread.currentThread().interrupt(); }
+            recordingThread = null;
+        }
+        releaseAudioRecord();
+    }
+
+    private void releaseAudioRecord() {
+        if (audioRecord != null) {
+            Log.d(TAG, "Releasing AudioRecord...");
+            try { if (audioRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) audioRecord.stop(); audioRecord.release(); }
+            catch (IllegalStateException e) { Log.e(TAG, "Exception during AudioRecord stop/release", e); }
+            finally { audioRecord = null; }
+        }
+    }
+
+    private void deleteTake(@Nullable File take) {
+        if (take != null && take.exists() && !take.delete()) Log.w(TAG, "Failed to delete take " + take.getName());
+    }
+
+    /** Deletes the accepted takes that were never saved: the single take, or a passage reading's sentences. */
+    private void discardUnsavedTakes() {
+        deleteTake(currentRecordingFile);
+        currentRecordingFile = null;
+        for (PassageSegmenter.Segment segment : pendingPassageTakes) deleteTake(segment.file);
+        pendingPassageTakes = new ArrayList<>();
+    }
+
+    // --- Save Logic ---
 
     /**
-     * Confirms local save is complete and resets state for the next recording.
-     * (Upload functionality deferred).
+     * Moves the accepted takes into local storage and queues them for upload: the single take,
+     * or every sentence of a passage reading that passed. Takes that failed the quality gate
+     * were deleted when they stopped, so they never get here.
      */
-    private void saveAndUploadRecording() { // Method name kept for now, but only saves locally
-        Log.d(TAG, "saveAndUploadRecording called (Local Save Confirmation)");
+    private void saveAndUploadRecording() {
+        Log.d(TAG, "saveAndUploadRecording called");
 
         // 1. Validate State (Ensure a recording exists)
-        if (currentRecordingFile == null || !currentRecordingFile.exists()) {
-            Log.e(TAG, "Save clicked but currentRecordingFile is null or doesn't exist!");
+        Map<File, String> takes = new LinkedHashMap<>(); // Take -> the sentence read in it
+        for (PassageSegmenter.Segment segment : pendingPassageTakes) takes.put(segment.file, sentenceList.get(segment.index));
+        if (currentRecordingFile != null) takes.put(currentRecordingFile, currentSentence);
+        takes.keySet().removeIf(take -> !take.exists());
+        if (takes.isEmpty()) {
+            Log.e(TAG, "Save clicked but there is no take on disk!");
             // Check fragment state before showing Toast
             if(isAdded() && getContext() != null) {
                 Toast.makeText(getContext(), "No valid recording found to save.", Toast.LENGTH_SHORT).show();
             }
-            currentRecordingFile = null; // Ensure reference is cleared if invalid
+            currentRecordingFile = null; pendingPassageTakes = new ArrayList<>(); // Ensure references are cleared if invalid
             updateButtonStates();
             return;
         }
+        if (getContext() == null) { Log.e(TAG, "Save failed: Context is null."); return; }
 
-        final File savedFile = currentRecordingFile; // Keep reference for logging/toast
-
-        Log.i(TAG, "Recording confirmed saved locally: " + savedFile.getName() + " at " + savedFile.getAbsolutePath());
-
-        // 2. Update UI Feedback
-        if(isAdded() && getContext() != null) {
-            // Make sure statusTextView is not null before using
-            if (statusTextView != null) {
-                statusTextView.setText("Recording saved locally"); // Change status message
+        // 2. Move the takes into local storage
+        File recordingsDir = new File(requireContext().getFilesDir(), "sentence_recordings");
+        if (!recordingsDir.exists() && !recordingsDir.mkdirs()) { Log.e(TAG, "Failed to create recordings directory: " + recordingsDir.getAbsolutePath()); if(statusTextView != null) statusTextView.setText("Error: Cannot create storage directory."); return; }
+        final Map<File, String> savedFiles = new LinkedHashMap<>();
+        for (Map.Entry<File, String> take : takes.entrySet()) {
+            File savedFile = new File(recordingsDir, take.getKey().getName());
+            if (take.getKey().renameTo(savedFile)) {
+                savedFiles.put(savedFile, take.getValue());
+            } else {
+                Log.e(TAG, "Failed to move " + take.getKey().getName() + " into " + recordingsDir.getAbsolutePath());
+                deleteTake(take.getKey());
             }
-            Toast.makeText(getContext(), "Saved: " + savedFile.getName(), Toast.LENGTH_SHORT).show();
         }
-
-        // 3. Reset State for Next Recording
-        currentRecordingFile = null; // Clear the reference to the saved file
-        isRecording = false;         // Ensure recording state is false
-        updateButtonStates();        // Re-enable Record/Next, disable Save
+        currentRecordingFile = null;
+        pendingPassageTakes = new ArrayList<>();
+        if (savedFiles.isEmpty()) {
+            if(statusTextView != null) statusTextView.setText(R.string.status_error_saving);
+            lastTakeRejected = true;
+            updateButtonStates();
+            return;
+        }
+        File firstSaved = savedFiles.keySet().iterator().next();
+        Log.i(TAG, savedFiles.size() + " recording(s) saved locally in " + recordingsDir.getAbsolutePath());
+        Toast.makeText(getContext(), savedFiles.size() == 1 ? "Saved: " + firstSaved.getName() : "Saved " + savedFiles.size() + " recordings", Toast.LENGTH_SHORT).show();
+        updateButtonStates(); // Re-enable Record/Next, disable Save
+
+        // 3. Queue the uploads, one per sentence (disk I/O, so off the main thread)
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            Log.w(TAG, "No signed-in user; " + savedFiles.size() + " recording(s) kept locally only.");
+            if(statusTextView != null) statusTextView.setText(R.string.status_prompt_saved_local);
+            return;
+        }
+        final List<UploadItem> items = new ArrayList<>();
+        for (Map.Entry<File, String> saved : savedFiles.entrySet()) {
+            File savedFile = saved.getKey();
+            items.add(new UploadItem(Uri.fromFile(savedFile).toString(), user.getUid(), saved.getValue(),
+                    savedFile.lastModified(), savedFile.getName()));
+        }
+        final Context appContext = requireContext().getApplicationContext();
+        saveExecutor.execute(() -> {
+            boolean queued = true;
+            for (UploadItem item : items) {
+                try {
+                    BatchUploadWorker.enqueue(appContext, item);
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not queue upload for " + item.targetFilename, e);
+                    queued = false;
+                }
+            }
+            final boolean ok = queued;
+            mainHandler.post(() -> { if(isAdded() && statusTextView != null) statusTextView.setText(ok ? R.string.status_prompt_queued : R.string.status_prompt_saved_local); });
+        });
     }
 
     // --- REMOVED observeUploadWork method ---
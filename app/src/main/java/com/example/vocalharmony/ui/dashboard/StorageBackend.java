@@ -0,0 +1,48 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Remote storage that uploads go to. Large files are sent as a resumable session: the backend
+ * reports a session token and the confirmed byte offset as it goes, the caller persists them
+ * (see {@link UploadSessionStore}), and a later attempt passes the token back to continue from
+ * that offset instead of byte zero.
+ *
+ * Failures worth retrying later (network errors, stalls, server hiccups) are thrown as
+ * {@link RetryableUploadException}; any other {@link IOException} means the upload cannot
+ * succeed as requested.
+ */
+public interface StorageBackend {
+
+    /** Receives upload progress. Called on a backend thread; keep it quick. */
+    interface ProgressListener {
+        /**
+         * @param sessionToken token to resume this upload with, or null if there is nothing to
+         *                     resume (a later attempt must start over)
+         * @param bytesUploaded bytes the remote end has confirmed
+         * @param totalBytes size of the file, or -1 if unknown
+         */
+        void onProgress(@Nullable String sessionToken, long bytesUploaded, long totalBytes);
+    }
+
+    /**
+     * Uploads the file at {@code source} to {@code remotePath}, blocking until it is complete.
+     * @param resumeToken token from an earlier attempt's progress, or null to start a new session
+     */
+    void upload(@NonNull Uri source, @NonNull String remotePath, @Nullable String contentType,
+                @Nullable String resumeToken, @NonNull ProgressListener listener) throws IOException;
+
+    /**
+     * Whether a complete object already exists at {@code remotePath}. Content-addressed uploads
+     * use this to skip data the backend already holds.
+     */
+    boolean exists(@NonNull String remotePath) throws IOException;
+
+    /** Uploads a small in-memory object in one request, blocking until it is complete. */
+    void putBytes(@NonNull byte[] data, @NonNull String remotePath, @Nullable String contentType) throws IOException;
+}
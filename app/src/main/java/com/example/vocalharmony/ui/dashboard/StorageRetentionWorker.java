@@ -0,0 +1,62 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.vocalharmony.ui.home.StorageRetentionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily background pass of the {@link StorageRetentionManager}: transcodes old takes to FLAC
+ * and evicts the least recently used ones once the library is over its byte budget.
+ */
+public class StorageRetentionWorker extends Worker {
+
+    private static final String TAG = "StorageRetentionWorker";
+    public static final String UNIQUE_WORK_NAME = "storage_retention";
+
+    // Output keys
+    public static final String KEY_RECLAIMED_BYTES = "RECLAIMED_BYTES";
+    public static final String KEY_TRANSCODED = "TRANSCODED";
+    public static final String KEY_EVICTED = "EVICTED";
+
+    public StorageRetentionWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /** Schedules the daily pass if it isn't scheduled already. */
+    public static void schedule(@NonNull Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(StorageRetentionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(new Constraints.Builder().setRequiresBatteryNotLow(true).build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(UNIQUE_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Log.i(TAG, "doWork: starting retention pass");
+        try {
+            StorageRetentionManager.Report report = new StorageRetentionManager(getApplicationContext()).run(this::isStopped);
+            Data output = new Data.Builder()
+                    .putLong(KEY_RECLAIMED_BYTES, report.getReclaimedBytes())
+                    .putInt(KEY_TRANSCODED, report.transcoded)
+                    .putInt(KEY_EVICTED, report.evicted)
+                    .build();
+            return Result.success(output);
+        } catch (Exception e) {
+            Log.e(TAG, "Retention pass failed", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.vocalharmony.ui.home.FlacEncoder;
+import com.example.vocalharmony.ui.home.MappedWavReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Audio ready for a content-addressed upload. A WAV take is encoded to FLAC in a staging file,
+ * and the PCM is hashed in the same pass. Anything else, such as the AAC .m4a takes the
+ * sentence recorder writes, is already compressed, so it is hashed as it is read and sent
+ * unchanged. The SHA-256 names the remote object, so a take the backend already holds is not
+ * sent again.
+ */
+final class UploadBlob {
+
+    private static final String TAG = "UploadBlob";
+    private static final String BLOB_DIR = "blobs";
+    private static final String WAV_EXTENSION = ".wav";
+    private static final String FLAC_EXTENSION = ".flac";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    /** What {@link #sha256} covers: the decoded PCM of an encoded take, or the bytes of the file. */
+    enum HashOf { PCM, FILE }
+
+    final Uri source;
+    final String sha256;
+    final HashOf hashOf;
+    final String extension;
+    @Nullable final String contentType;
+    /** Size of what will be uploaded. */
+    final long length;
+    /** Size of the original recording. */
+    final long originalLength;
+    @Nullable private final File staged;
+
+    private UploadBlob(Uri source, String sha256, HashOf hashOf, String extension, long length,
+                       long originalLength, @Nullable File staged) {
+        this.source = source;
+        this.sha256 = sha256;
+        this.hashOf = hashOf;
+        this.extension = extension;
+        this.contentType = contentTypeFor(extension);
+        this.length = length;
+        this.originalLength = originalLength;
+        this.staged = staged;
+    }
+
+    /**
+     * Hashes the recording at {@code uri}, encoding it to FLAC under {@code stagingDir} first if
+     * it is a WAV file. Each call stages its own file. Call {@link #discard()} when done with the result.
+     * @param filename the recording's name, used for its extension and the staging file's prefix
+     */
+    @NonNull
+    static UploadBlob prepare(@NonNull ContentResolver resolver, @NonNull Uri uri, @NonNull String filename,
+                              @NonNull File stagingDir) throws IOException {
+        String extension = extensionOf(filename);
+        if (WAV_EXTENSION.equals(extension) && "file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return encodeWav(uri, new File(uri.getPath()), filename, stagingDir);
+        }
+        return hashFile(resolver, uri, extension);
+    }
+
+    /** Remote path of this content in {@code userId}'s folder. */
+    @NonNull
+    String remotePathFor(@NonNull String userId) {
+        return "recordings/" + userId + "/" + BLOB_DIR + "/" + sha256 + extension;
+    }
+
+    /** Deletes the staging file, if there is one. */
+    void discard() {
+        if (staged != null && staged.exists() && !staged.delete()) Log.w(TAG, "Failed to delete " + staged.getName());
+    }
+
+    // --- Preparation ---
+
+    private static UploadBlob encodeWav(Uri uri, File wav, String filename, File stagingDir) throws IOException {
+        if (!stagingDir.mkdirs() && !stagingDir.isDirectory()) throw new IOException("Could not create " + stagingDir);
+        // Unique per attempt, so parallel uploads of takes with the same name never share a file.
+        // Retries stay idempotent through the content hash, not this name; one orphaned by process
+        // death is left for the system to clear from the cache dir.
+        File flac = File.createTempFile(filename + "_", FLAC_EXTENSION, stagingDir);
+        MessageDigest digest = newDigest();
+        long flacSize;
+        try (MappedWavReader reader = MappedWavReader.open(wav)) {
+            // The format is part of the content: the same samples at another rate are different audio
+            digest.update(String.format(Locale.US, "pcm16le/%d/%d\n", reader.getSampleRate(), reader.getChannels())
+                    .getBytes(StandardCharsets.US_ASCII));
+            flacSize = FlacEncoder.encode(reader, flac, digest);
+        } catch (IOException e) {
+            if (flac.exists() && !flac.delete()) Log.w(TAG, "Failed to delete " + flac.getName());
+            throw e;
+        }
+        Log.d(TAG, "Encoded " + filename + ": " + wav.length() + " -> " + flacSize + " bytes");
+        return new UploadBlob(Uri.fromFile(flac), toHex(digest.digest()), HashOf.PCM, FLAC_EXTENSION,
+                flacSize, wav.length(), flac);
+    }
+
+    private static UploadBlob hashFile(ContentResolver resolver, Uri uri, String extension) throws IOException {
+        MessageDigest digest = newDigest();
+        long length = 0;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new FileNotFoundException("Cannot open " + uri);
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+                length += n;
+            }
+        } catch (SecurityException e) {
+            throw new IOException("No access to " + uri, e);
+        }
+        return new UploadBlob(uri, toHex(digest.digest()), HashOf.FILE, extension, length, length, null);
+    }
+
+    // --- Helpers ---
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static String extensionOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot >= 0 ? filename.substring(dot).toLowerCase(Locale.US) : "";
+    }
+
+    @Nullable
+    private static String contentTypeFor(String extension) {
+        switch (extension) {
+            case FLAC_EXTENSION: return "audio/flac";
+            case WAV_EXTENSION: return "audio/wav";
+            case ".m4a": return "audio/mp4";
+            default: return null;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) hex.append(String.format(Locale.US, "%02x", b & 0xFF));
+        return hex.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/** One sentence recording to upload, with the metadata that goes with it. Immutable. */
+public final class UploadItem {
+
+    private static final String KEY_FILE_URI = "fileUri";
+    private static final String KEY_USER_ID = "userId";
+    private static final String KEY_SENTENCE = "sentence";
+    private static final String KEY_RECORDED_AT = "recordedAt";
+    private static final String KEY_TARGET_FILENAME = "targetFilename";
+
+    public final String fileUri;
+    public final String userId;
+    public final String sentence;
+    public final long recordedAt;
+    /** The recording's file name (e.g. Rec_hash_time.wav). */
+    public final String targetFilename;
+
+    public UploadItem(@NonNull String fileUri, @NonNull String userId, @NonNull String sentence,
+                      long recordedAt, @NonNull String targetFilename) {
+        this.fileUri = fileUri;
+        this.userId = userId;
+        this.sentence = sentence;
+        this.recordedAt = recordedAt;
+        this.targetFilename = targetFilename;
+    }
+
+    /**
+     * Path-like name of the item in the user's folder. Unique per item, so it serves as the
+     * item's id. The audio itself is stored by content hash (see {@link UploadBlob}) and the
+     * metadata in an {@link UploadManifest}.
+     */
+    @NonNull
+    public String getRemotePath() {
+        return "recordings/" + userId + "/" + targetFilename;
+    }
+
+    @NonNull
+    JSONObject toJson() throws JSONException {
+        return new JSONObject()
+                .put(KEY_FILE_URI, fileUri)
+                .put(KEY_USER_ID, userId)
+                .put(KEY_SENTENCE, sentence)
+                .put(KEY_RECORDED_AT, recordedAt)
+                .put(KEY_TARGET_FILENAME, targetFilename);
+    }
+
+    @NonNull
+    static UploadItem fromJson(@NonNull JSONObject json) throws JSONException {
+        return new UploadItem(json.getString(KEY_FILE_URI), json.getString(KEY_USER_ID),
+                json.getString(KEY_SENTENCE), json.getLong(KEY_RECORDED_AT), json.getString(KEY_TARGET_FILENAME));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Metadata for a batch of uploaded recordings, as NDJSON: one compact JSON record per line. Each
+ * record is appended to a local file when its recording finishes, and the whole file is sent in
+ * one request at the end. This replaces the separate pretty-printed .json that used to follow
+ * each recording. A manifest covers one user, because it is stored in that user's folder.
+ * Thread-safe.
+ */
+public class UploadManifest {
+
+    private static final String TAG = "UploadManifest";
+    private static final String MANIFEST_DIR = "manifests";
+    private static final String EXTENSION = ".ndjson";
+    static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final String userId;
+    private final String batchId;
+    private final File localFile;
+    private final List<String> itemIds = new ArrayList<>();
+    private Writer writer;
+
+    /** Starts an empty manifest, staged in {@code stagingDir} until it is sent. */
+    UploadManifest(@NonNull File stagingDir, @NonNull String userId) throws IOException {
+        if (!stagingDir.mkdirs() && !stagingDir.isDirectory()) throw new IOException("Could not create " + stagingDir);
+        this.userId = userId;
+        // Sortable by time; the random part keeps batches that start together apart
+        this.batchId = String.format(Locale.US, "%d_%s", System.currentTimeMillis(),
+                UUID.randomUUID().toString().substring(0, 8));
+        this.localFile = new File(stagingDir, "manifest_" + batchId + EXTENSION);
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(localFile), StandardCharsets.UTF_8));
+    }
+
+    /** Where the manifest is stored remotely. */
+    @NonNull
+    public String getRemotePath() {
+        return "recordings/" + userId + "/" + MANIFEST_DIR + "/" + batchId + EXTENSION;
+    }
+
+    /** Appends the record for an uploaded recording. Fails once the manifest has been finished. */
+    public synchronized void add(@NonNull RecordingUploader.Result result) throws IOException {
+        if (!userId.equals(result.item.userId)) throw new IllegalArgumentException("Item belongs to another user");
+        // Only a straggler from an interrupted batch gets here; it goes in the next batch's manifest
+        if (writer == null) throw new RetryableUploadException("Manifest already sent");
+        try {
+            writer.write(result.toManifestEntry().toString());
+        } catch (JSONException e) {
+            throw new IOException("Could not build metadata for " + result.item.targetFilename, e);
+        }
+        writer.write('\n');
+        writer.flush();
+        itemIds.add(result.item.getRemotePath());
+    }
+
+    /** Ids of the items recorded so far, in the order they were added. */
+    @NonNull
+    public synchronized List<String> getItemIds() {
+        return new ArrayList<>(itemIds);
+    }
+
+    public synchronized boolean isEmpty() {
+        return itemIds.isEmpty();
+    }
+
+    /** Closes the manifest and returns its contents. No records can be added afterwards. */
+    @NonNull
+    synchronized byte[] finish() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        byte[] bytes = new byte[(int) localFile.length()];
+        try (InputStream in = new FileInputStream(localFile)) {
+            int off = 0;
+            while (off < bytes.length) {
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) throw new IOException("Manifest truncated while reading");
+                off += n;
+            }
+        }
+        return bytes;
+    }
+
+    /** Deletes the local copy. */
+    public synchronized void discard() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing manifest", e);
+            }
+            writer = null;
+        }
+        if (localFile.exists() && !localFile.delete()) Log.w(TAG, "Failed to delete " + localFile.getName());
+    }
+}
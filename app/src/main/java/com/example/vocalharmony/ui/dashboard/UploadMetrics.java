@@ -0,0 +1,241 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rolling log of upload attempts: what was sent, how long it took and why it failed, for the
+ * last {@link #MAX_RECORDS} attempts. Kept as NDJSON in app storage, appended to as attempts
+ * finish and trimmed now and then, so the history of a backlog draining over several runs can
+ * be read back (see {@link #summarize()}) to tune parallelism and priority. Thread-safe.
+ */
+public class UploadMetrics {
+
+    private static final String TAG = "UploadMetrics";
+    private static final String METRICS_FILENAME = "upload_metrics.ndjson";
+    public static final int MAX_RECORDS = 500;
+    private static final int MAX_ERROR_LENGTH = 200;
+
+    public enum Outcome { UPLOADED, DEDUPLICATED, RETRY, FAILED }
+
+    /** One attempt. */
+    public static final class Record {
+        public final long timestamp;
+        /** Item id, or the manifest's remote path. */
+        public final String target;
+        public final Outcome outcome;
+        public final long bytes;
+        public final long latencyMs;
+        /** Exception type for failed attempts; groups failures by reason. */
+        @Nullable public final String errorType;
+        @Nullable public final String errorMessage;
+
+        Record(long timestamp, String target, Outcome outcome, long bytes, long latencyMs,
+               @Nullable String errorType, @Nullable String errorMessage) {
+            this.timestamp = timestamp;
+            this.target = target;
+            this.outcome = outcome;
+            this.bytes = bytes;
+            this.latencyMs = latencyMs;
+            this.errorType = errorType;
+            this.errorMessage = errorMessage;
+        }
+
+        /** Throughput of this attempt, or 0 if it sent nothing. */
+        public double getBytesPerSecond() {
+            return latencyMs > 0 ? bytes * 1000.0 / latencyMs : 0.0;
+        }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("t", timestamp)
+                    .put("target", target)
+                    .put("outcome", outcome.name())
+                    .put("bytes", bytes)
+                    .put("latencyMs", latencyMs)
+                    .put("errorType", errorType != null ? errorType : JSONObject.NULL)
+                    .put("error", errorMessage != null ? errorMessage : JSONObject.NULL);
+        }
+
+        static Record fromJson(JSONObject json) throws JSONException {
+            return new Record(json.getLong("t"), json.getString("target"), Outcome.valueOf(json.getString("outcome")),
+                    json.optLong("bytes"), json.optLong("latencyMs"),
+                    json.isNull("errorType") ? null : json.optString("errorType"),
+                    json.isNull("error") ? null : json.optString("error"));
+        }
+    }
+
+    /** Aggregates over the records in the log. */
+    public static final class Summary {
+        public int attempts;
+        public int succeeded;
+        public int deduplicated;
+        public int failed;
+        public long bytes;
+        public long medianLatencyMs;
+        public long p90LatencyMs;
+        /** Bytes over time spent on attempts that sent data. */
+        public double bytesPerSecond;
+        /** Failed attempts by {@link Record#errorType}. */
+        public final Map<String, Integer> failureReasons = new HashMap<>();
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d attempts (%d ok, %d deduplicated, %d failed), %d B at %.1f KiB/s, "
+                            + "latency p50 %d ms p90 %d ms, failures %s", attempts, succeeded, deduplicated, failed,
+                    bytes, bytesPerSecond / 1024.0, medianLatencyMs, p90LatencyMs, failureReasons);
+        }
+    }
+
+    private static volatile UploadMetrics instance;
+
+    private final File file;
+    private final Deque<Record> records;
+    private int linesInFile;
+
+    private UploadMetrics(File file, Deque<Record> records, int linesInFile) {
+        this.file = file;
+        this.records = records;
+        this.linesInFile = linesInFile;
+    }
+
+    /** App-scoped instance. Loads from disk on first use. */
+    @NonNull
+    public static UploadMetrics getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (UploadMetrics.class) {
+                if (instance == null) instance = load(new File(context.getApplicationContext().getFilesDir(), METRICS_FILENAME));
+            }
+        }
+        return instance;
+    }
+
+    /** Loads a log from {@code file}, skipping unreadable lines. */
+    @NonNull
+    static UploadMetrics load(@NonNull File file) {
+        Deque<Record> records = new ArrayDeque<>();
+        int lines = 0;
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    try {
+                        records.addLast(Record.fromJson(new JSONObject(line)));
+                        if (records.size() > MAX_RECORDS) records.removeFirst();
+                    } catch (JSONException | IllegalArgumentException e) {
+                        Log.w(TAG, "Skipping bad metrics line"); // e.g. torn by a crash mid-append
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Upload metrics unreadable, starting fresh", e);
+            }
+        }
+        return new UploadMetrics(file, records, lines);
+    }
+
+    /** Records a successful attempt. */
+    public void recordSuccess(@NonNull String target, long bytes, long latencyMs, boolean deduplicated) {
+        add(new Record(System.currentTimeMillis(), target, deduplicated ? Outcome.DEDUPLICATED : Outcome.UPLOADED,
+                bytes, latencyMs, null, null));
+    }
+
+    /** Records a failed attempt. */
+    public void recordFailure(@NonNull String target, long latencyMs, @NonNull Throwable error, boolean willRetry) {
+        String message = String.valueOf(error.getMessage());
+        if (message.length() > MAX_ERROR_LENGTH) message = message.substring(0, MAX_ERROR_LENGTH);
+        add(new Record(System.currentTimeMillis(), target, willRetry ? Outcome.RETRY : Outcome.FAILED,
+                0L, latencyMs, error.getClass().getSimpleName(), message));
+    }
+
+    /** The logged attempts, oldest first. */
+    @NonNull
+    public synchronized List<Record> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    @NonNull
+    public synchronized Summary summarize() {
+        Summary summary = new Summary();
+        long[] latencies = new long[records.size()];
+        long transferMs = 0;
+        for (Record record : records) {
+            latencies[summary.attempts++] = record.latencyMs;
+            summary.bytes += record.bytes;
+            if (record.bytes > 0) transferMs += record.latencyMs;
+            switch (record.outcome) {
+                case UPLOADED: summary.succeeded++; break;
+                case DEDUPLICATED: summary.succeeded++; summary.deduplicated++; break;
+                default:
+                    summary.failed++;
+                    summary.failureReasons.merge(String.valueOf(record.errorType), 1, Integer::sum);
+                    break;
+            }
+        }
+        if (latencies.length > 0) {
+            Arrays.sort(latencies);
+            summary.medianLatencyMs = latencies[latencies.length / 2];
+            summary.p90LatencyMs = latencies[Math.min(latencies.length - 1, latencies.length * 9 / 10)];
+        }
+        summary.bytesPerSecond = transferMs > 0 ? summary.bytes * 1000.0 / transferMs : 0.0;
+        return summary;
+    }
+
+    private synchronized void add(Record record) {
+        records.addLast(record);
+        if (records.size() > MAX_RECORDS) records.removeFirst();
+        // Metrics are best effort: a write error is logged, never thrown into the upload
+        try {
+            if (linesInFile >= 2 * MAX_RECORDS) {
+                rewrite();
+            } else {
+                try (OutputStream out = new FileOutputStream(file, true)) {
+                    out.write((record.toJson().toString() + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                linesInFile++;
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Could not write upload metrics", e);
+        }
+    }
+
+    /** Trims the file to the records held in memory, via a temp file. */
+    private void rewrite() throws IOException, JSONException {
+        StringBuilder ndjson = new StringBuilder();
+        for (Record record : records) ndjson.append(record.toJson().toString()).append('\n');
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            if (!temp.delete()) Log.w(TAG, "Failed to delete temp metrics");
+            throw new IOException("Could not replace " + file.getName());
+        }
+        linesInFile = records.size();
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recordings waiting to be uploaded, with per-item retry state, stored as one JSON file in app
+ * storage so the backlog survives process death. Items leave the queue once uploaded; an item
+ * that fails permanently, or runs out of attempts, stays as {@link State#FAILED} so it can be
+ * inspected or re-queued.
+ *
+ * A failed attempt backs the item off exponentially, with jitter so a backlog that failed
+ * together does not retry in lockstep; {@link #getReady} hands out only items whose backoff has
+ * passed, in {@link Priority} order. Thread-safe.
+ */
+public class UploadQueue {
+
+    private static final String TAG = "UploadQueue";
+    private static final String QUEUE_FILENAME = "upload_queue.json";
+    public static final int MAX_ATTEMPTS = 8;
+    static final long BASE_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final String KEY_ENTRIES = "entries";
+    private static final String KEY_ITEM = "item";
+    private static final String KEY_STATE = "state";
+    private static final String KEY_ATTEMPTS = "attempts";
+    private static final String KEY_LAST_ERROR = "lastError";
+    private static final String KEY_ENQUEUED_AT = "enqueuedAt";
+    private static final String KEY_SIZE_BYTES = "sizeBytes";
+    private static final String KEY_NEXT_ATTEMPT_AT = "nextAttemptAt";
+
+    public enum State { PENDING, FAILED }
+
+    /** Order in which ready items are handed out. */
+    public enum Priority {
+        /** Enqueue order. */
+        OLDEST_FIRST,
+        /** Most recently recorded first, so fresh takes reach the server quickly. */
+        NEWEST_FIRST,
+        /** Smallest first, so the most items drain per minute of connectivity. Unknown sizes go last. */
+        SMALLEST_FIRST
+    }
+
+    /** Snapshot of one queued item and its retry state. */
+    public static final class Entry {
+        public final UploadItem item;
+        public final State state;
+        public final int attempts;
+        @Nullable public final String lastError;
+        public final long enqueuedAt;
+        /** Size of the recording, or -1 if unknown. */
+        public final long sizeBytes;
+        /** Wall-clock time before which the item is not retried. */
+        public final long nextAttemptAt;
+
+        Entry(UploadItem item, State state, int attempts, @Nullable String lastError, long enqueuedAt,
+              long sizeBytes, long nextAttemptAt) {
+            this.item = item;
+            this.state = state;
+            this.attempts = attempts;
+            this.lastError = lastError;
+            this.enqueuedAt = enqueuedAt;
+            this.sizeBytes = sizeBytes;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+
+        @NonNull
+        public String getId() { return item.getRemotePath(); }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put(KEY_ITEM, item.toJson())
+                    .put(KEY_STATE, state.name())
+                    .put(KEY_ATTEMPTS, attempts)
+                    .put(KEY_LAST_ERROR, lastError != null ? lastError : JSONObject.NULL)
+                    .put(KEY_ENQUEUED_AT, enqueuedAt)
+                    .put(KEY_SIZE_BYTES, sizeBytes)
+                    .put(KEY_NEXT_ATTEMPT_AT, nextAttemptAt);
+        }
+
+        static Entry fromJson(JSONObject json) throws JSONException {
+            return new Entry(UploadItem.fromJson(json.getJSONObject(KEY_ITEM)),
+                    State.valueOf(json.optString(KEY_STATE, State.PENDING.name())),
+                    json.optInt(KEY_ATTEMPTS), json.isNull(KEY_LAST_ERROR) ? null : json.optString(KEY_LAST_ERROR),
+                    json.optLong(KEY_ENQUEUED_AT), json.optLong(KEY_SIZE_BYTES, -1L), json.optLong(KEY_NEXT_ATTEMPT_AT));
+        }
+    }
+
+    private static volatile UploadQueue instance;
+
+    private final File queueFile;
+    // Keyed by item id, in enqueue order
+    private final Map<String, Entry> entries;
+
+    private UploadQueue(File queueFile, Map<String, Entry> entries) {
+        this.queueFile = queueFile;
+        this.entries = entries;
+    }
+
+    /** App-scoped instance, so the UI and upload workers share one copy. Loads from disk on first use. */
+    @NonNull
+    public static UploadQueue getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (UploadQueue.class) {
+                if (instance == null) instance = load(new File(context.getApplicationContext().getFilesDir(), QUEUE_FILENAME));
+            }
+        }
+        return instance;
+    }
+
+    /** Loads a queue from {@code file}. A missing or unreadable file yields an empty queue. */
+    @NonNull
+    static UploadQueue load(@NonNull File file) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] bytes = new byte[(int) file.length()];
+                int off = 0;
+                while (off < bytes.length) {
+                    int n = in.read(bytes, off, bytes.length - off);
+                    if (n < 0) break;
+                    off += n;
+                }
+                JSONArray array = new JSONObject(new String(bytes, 0, off, StandardCharsets.UTF_8)).getJSONArray(KEY_ENTRIES);
+                for (int i = 0; i < array.length(); i++) {
+                    Entry entry = Entry.fromJson(array.getJSONObject(i));
+                    entries.put(entry.getId(), entry);
+                }
+            } catch (IOException | JSONException | IllegalArgumentException e) {
+                Log.w(TAG, "Upload queue unreadable, starting fresh", e);
+            }
+        }
+        return new UploadQueue(file, entries);
+    }
+
+    /** Adds an item of unknown size; see {@link #enqueue(UploadItem, long)}. */
+    public void enqueue(@NonNull UploadItem item) throws IOException {
+        enqueue(item, -1L);
+    }
+
+    /**
+     * Adds an item, or re-queues it with fresh retry state if it is already there.
+     * @param sizeBytes size of the recording, or -1 if unknown; used for {@link Priority#SMALLEST_FIRST}
+     */
+    public synchronized void enqueue(@NonNull UploadItem item, long sizeBytes) throws IOException {
+        long now = System.currentTimeMillis();
+        entries.put(item.getRemotePath(), new Entry(item, State.PENDING, 0, null, now, sizeBytes, now));
+        save();
+    }
+
+    /** Pending items whose backoff has passed at {@code now}, in {@code priority} order. */
+    @NonNull
+    public synchronized List<Entry> getReady(long now, @NonNull Priority priority) {
+        List<Entry> ready = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.state == State.PENDING && entry.nextAttemptAt <= now) ready.add(entry);
+        }
+        switch (priority) {
+            case NEWEST_FIRST:
+                Collections.sort(ready, (a, b) -> Long.compare(b.item.recordedAt, a.item.recordedAt));
+                break;
+            case SMALLEST_FIRST:
+                Collections.sort(ready, (a, b) -> Long.compare(sortableSize(a), sortableSize(b)));
+                break;
+            case OLDEST_FIRST:
+                break; // Already in enqueue order
+        }
+        return ready;
+    }
+
+    /** When the next pending item becomes ready, or -1 if nothing is pending. */
+    public synchronized long getNextAttemptAt() {
+        long next = -1L;
+        for (Entry entry : entries.values()) {
+            if (entry.state == State.PENDING && (next < 0 || entry.nextAttemptAt < next)) next = entry.nextAttemptAt;
+        }
+        return next;
+    }
+
+    /** Items that still need uploading, ready or not, in enqueue order. */
+    @NonNull
+    public synchronized List<Entry> getPending() {
+        List<Entry> pending = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.state == State.PENDING) pending.add(entry);
+        }
+        return pending;
+    }
+
+    @NonNull
+    public synchronized List<Entry> getAll() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized int size() { return entries.size(); }
+
+    /** Removes an uploaded item. */
+    public synchronized void markDone(@NonNull String id) throws IOException {
+        if (entries.remove(id) != null) save();
+    }
+
+    /**
+     * Records a failed attempt. The item stays pending, backed off by {@link #backoffMs}, unless
+     * the failure is permanent or it has used up {@link #MAX_ATTEMPTS}.
+     * @return the item's new state
+     */
+    @NonNull
+    public synchronized State markAttemptFailed(@NonNull String id, @NonNull String error, boolean retryable) throws IOException {
+        Entry entry = entries.get(id);
+        if (entry == null) return State.FAILED;
+        int attempts = entry.attempts + 1;
+        State state = retryable && attempts < MAX_ATTEMPTS ? State.PENDING : State.FAILED;
+        long nextAttemptAt = System.currentTimeMillis() + backoffMs(attempts, ThreadLocalRandom.current());
+        entries.put(id, new Entry(entry.item, state, attempts, error, entry.enqueuedAt, entry.sizeBytes, nextAttemptAt));
+        save();
+        return state;
+    }
+
+    /**
+     * Delay before retrying after the given number of failed attempts: {@link #BASE_BACKOFF_MS}
+     * doubled per attempt up to {@link #MAX_BACKOFF_MS}, of which a random half is taken off
+     * ("equal jitter"), so the delay still grows but items that failed together spread out.
+     */
+    static long backoffMs(int attempts, @NonNull Random random) {
+        long delay = BASE_BACKOFF_MS << Math.min(Math.max(attempts - 1, 0), 20);
+        delay = Math.min(delay, MAX_BACKOFF_MS);
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    private static long sortableSize(Entry entry) {
+        return entry.sizeBytes >= 0 ? entry.sizeBytes : Long.MAX_VALUE;
+    }
+
+    /** Writes the queue via a temp file so an interrupted save never loses the backlog. */
+    private void save() throws IOException {
+        String json;
+        try {
+            JSONArray array = new JSONArray();
+            for (Entry entry : entries.values()) array.put(entry.toJson());
+            json = new JSONObject().put(KEY_ENTRIES, array).toString();
+        } catch (JSONException e) {
+            throw new IOException("Could not serialise upload queue", e);
+        }
+        File temp = new File(queueFile.getParentFile(), queueFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(queueFile)) {
+            if (!temp.delete()) Log.w(TAG, "Failed to delete temp queue");
+            throw new IOException("Could not replace " + queueFile.getName());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.vocalharmony.ui.home.AppPreferences;
+
+/**
+ * Persists the resumable session of each upload in progress, keyed by remote path, so an upload
+ * interrupted by a timeout, process death or reboot continues where it stopped.
+ */
+public class UploadSessionStore {
+
+    private static final String KEY_SESSION_PREFIX = "session:";
+    private static final String KEY_OFFSET_PREFIX = "offset:";
+
+    private final SharedPreferences prefs;
+
+    public UploadSessionStore(@NonNull Context context) {
+        this.prefs = AppPreferences.uploads(context);
+    }
+
+    /** Token to resume the upload to {@code remotePath} with, or null to start over. */
+    @Nullable
+    public String getSession(@NonNull String remotePath) {
+        return prefs.getString(KEY_SESSION_PREFIX + remotePath, null);
+    }
+
+    /** Bytes confirmed by the remote end in the current session. */
+    public long getOffset(@NonNull String remotePath) {
+        return prefs.getLong(KEY_OFFSET_PREFIX + remotePath, 0L);
+    }
+
+    /** Records progress; a null token forgets the session. */
+    public void save(@NonNull String remotePath, @Nullable String sessionToken, long offset) {
+        if (sessionToken == null) {
+            clear(remotePath);
+            return;
+        }
+        prefs.edit()
+                .putString(KEY_SESSION_PREFIX + remotePath, sessionToken)
+                .putLong(KEY_OFFSET_PREFIX + remotePath, offset)
+                .apply();
+    }
+
+    public void clear(@NonNull String remotePath) {
+        prefs.edit()
+                .remove(KEY_SESSION_PREFIX + remotePath)
+                .remove(KEY_OFFSET_PREFIX + remotePath)
+                .apply();
+    }
+}
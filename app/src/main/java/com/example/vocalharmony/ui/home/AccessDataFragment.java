@@ -1,7 +1,5 @@
 package com.example.vocalharmony.ui.home;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,7 +14,6 @@ import androidx.navigation.Navigation;
 import com.example.vocalharmony.R;
 
 import java.util.Locale;
-import java.util.Map;
 
 public class AccessDataFragment extends Fragment {
 
@@ -27,6 +24,7 @@ public class AccessDataFragment extends Fragment {
     private TextView textViewS2N;
     private TextView textViewBestScore;
     private TextView textViewBestS2N;
+    private TextView textViewHistorySummary;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -38,14 +36,12 @@ public class AccessDataFragment extends Fragment {
         textViewS2N = root.findViewById(R.id.text_s2n);
         textViewBestScore = root.findViewById(R.id.text_best_score);
         textViewBestS2N = root.findViewById(R.id.text_best_s2n);
+        textViewHistorySummary = root.findViewById(R.id.text_history_summary);
 
         // *** FIX: Make graphButton a local variable ***
         Button graphButton = root.findViewById(R.id.button_graph); // Declare locally
 
-        // 2) Load and display data from SharedPreferences
-        loadAndDisplayData();
-
-        // 3) Set a click listener to the local graphButton variable
+        // 2) Set a click listener to the local graphButton variable
         // Ensure the button and navigation action exist
         if (graphButton != null) { // Add null check for safety
             graphButton.setOnClickListener(v -> {
@@ -67,8 +63,16 @@ public class AccessDataFragment extends Fragment {
         return root;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // 3) Load and display data from the SNR history
+        loadAndDisplayData();
+    }
+
     /**
-     * Loads the latest and best SNR values from SharedPreferences and updates the UI.
+     * Shows the latest and best SNR values and this day's/week's figures from the
+     * {@link SnrHistoryRepository} summary, and keeps them current as results are saved.
      */
     private void loadAndDisplayData() {
         // Safety check for context
@@ -77,47 +81,19 @@ public class AccessDataFragment extends Fragment {
             return;
         }
 
-        // 1) Retrieve SharedPreferences
-        SharedPreferences sharedPreferences = requireActivity()
-                .getSharedPreferences("VocalHarmonyPrefs", Context.MODE_PRIVATE);
-
-        // 2) Retrieve all entries.
-        Map<String, ?> allEntries = sharedPreferences.getAll();
-
-        float latestSNR = 0.0f;
-        float bestSNR = 0.0f;
-        String latestTimestamp = ""; // Initialize to empty string
-
-        // 3) Iterate over all entries
-        for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-
-            // Check for keys starting with "snr_" and if the value is a Float
-            if (key.startsWith("snr_") && value instanceof Float) {
-                float snrValue = (Float) value;
-
-                // Extract timestamp (handle potential errors if key format is wrong)
-                String timestamp = "";
-                if (key.length() > "snr_".length()) {
-                    timestamp = key.substring("snr_".length());
-                }
+        // 1) Open the shared SNR history; it loads in the background
+        SnrHistoryRepository history = SnrHistoryRepository.getInstance(requireContext());
 
-                // Compare timestamps lexicographically (assumes YYYY-MM-DD HH:MM:SS format or similar sortable format)
-                // Initialize latestTimestamp check ensures first valid entry becomes the latest initially
-                if (latestTimestamp.isEmpty() || timestamp.compareTo(latestTimestamp) > 0) {
-                    latestTimestamp = timestamp;
-                    latestSNR = snrValue;
-                }
+        // 2) Follow the running aggregates; no scan of the history. Shows empty until they arrive
+        displaySummary(history.getSummary());
+        history.getSummaryData().observe(getViewLifecycleOwner(), this::displaySummary);
+    }
 
-                // Update bestSNR
-                if (snrValue > bestSNR) {
-                    bestSNR = snrValue;
-                }
-            }
-        }
+    private void displaySummary(SnrSummary summary) {
+        float latestSNR = summary.latest;
+        float bestSNR = summary.best;
 
-        // 4) Display the data in UI
+        // 3) Display the data in UI
         String latestSNRText = String.format(Locale.getDefault(), "%.1f", latestSNR); // Format to one decimal place like SNR display
         String bestSNRText   = String.format(Locale.getDefault(), "%.1f", bestSNR); // Format to one decimal place
 
@@ -130,6 +106,7 @@ public class AccessDataFragment extends Fragment {
             // *** FIX: Use format string for values to avoid concatenation warning ***
             textViewS2N.setText(getString(R.string.s2n_value_format, getString(R.string.s2n_label), latestSNRText));
             textViewBestS2N.setText(getString(R.string.s2n_value_format, getString(R.string.s2n_label), bestSNRText));
+            if (textViewHistorySummary != null) textViewHistorySummary.setText(formatPeriods(summary));
 
         } catch (Exception e) {
             android.util.Log.e("AccessDataFragment", "Error setting text from string resources: " + e.getMessage());
@@ -140,4 +117,23 @@ public class AccessDataFragment extends Fragment {
             textViewBestS2N.setText("SNR: " + bestSNRText);
         }
     }
+
+    /** Session count plus min/mean/max for today and this week, one per line. */
+    private String formatPeriods(SnrSummary summary) {
+        long now = System.currentTimeMillis();
+        StringBuilder text = new StringBuilder(getString(R.string.history_sessions_format, summary.count));
+        appendPeriod(text, R.string.history_today, summary.getDay(now));
+        appendPeriod(text, R.string.history_this_week, summary.getWeek(now));
+        return text.toString();
+    }
+
+    private void appendPeriod(StringBuilder text, int labelRes, SnrSummary.Period period) {
+        text.append('\n');
+        if (period == null) {
+            text.append(getString(R.string.history_period_empty_format, getString(labelRes)));
+        } else {
+            text.append(getString(R.string.history_period_format, getString(labelRes),
+                    period.getMean(), period.min, period.max, period.count));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.vocalharmony.ui.dashboard.ConsentFragment;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The app's SharedPreferences files, one per purpose, so reading a flag never loads unrelated
+ * data:
+ * <ul>
+ *   <li>{@link #consent}: the data-collection consent choice.</li>
+ *   <li>{@link #calibration}: the measured noise baseline.</li>
+ *   <li>{@link #settings}: retention and recording settings and small bookkeeping values.</li>
+ *   <li>{@link #uploads}: resumable upload sessions in progress.</li>
+ * </ul>
+ * Older versions kept all of these, and every SNR result, in a single VocalHarmonyPrefs file.
+ * The first time any store is opened the known keys are moved out of it; the old file is
+ * deleted once nothing is left in it (the SNR results are moved separately by
+ * {@link SnrHistoryStore}). After that, checking whether the move has happened is one read of
+ * the small settings file.
+ */
+public final class AppPreferences {
+
+    private static final String TAG = "AppPreferences";
+
+    private static final String CONSENT_NAME = "VocalHarmonyConsent";
+    private static final String CALIBRATION_NAME = "VocalHarmonyCalibration";
+    private static final String SETTINGS_NAME = "VocalHarmonySettings";
+    private static final String UPLOADS_NAME = "VocalHarmonyUploads";
+
+    // --- Legacy storage ---
+    private static final String LEGACY_NAME = "VocalHarmonyPrefs";
+    private static final String KEY_LEGACY_SPLIT = "legacyPrefsSplit";
+
+    private static final String[] CONSENT_KEYS = {
+            ConsentFragment.PREF_KEY_CONSENT_GIVEN,
+            ConsentFragment.PREF_KEY_CONSENT_STATUS_SET,
+    };
+    private static final String[] CALIBRATION_KEYS = {
+            AudioProcessor.KEY_BASELINE_POWER,
+    };
+    private static final String[] SETTINGS_KEYS = {
+            StorageRetentionManager.KEY_BUDGET_BYTES,
+            StorageRetentionManager.KEY_KEEP_WAV_DAYS,
+            StorageRetentionManager.KEY_LAST_RECLAIMED_BYTES,
+            StorageRetentionManager.KEY_TOTAL_RECLAIMED_BYTES,
+            RecordYourselfFragment.KEY_TRIM_SILENCE,
+            RecordYourselfFragment.KEY_TRIM_GUARD_MS,
+            SnrHistoryStore.KEY_MIGRATED,
+    };
+
+    private static volatile boolean legacySplit = false;
+
+    private AppPreferences() {}
+
+    @NonNull
+    public static SharedPreferences consent(@NonNull Context context) {
+        return open(context, CONSENT_NAME);
+    }
+
+    @NonNull
+    public static SharedPreferences calibration(@NonNull Context context) {
+        return open(context, CALIBRATION_NAME);
+    }
+
+    @NonNull
+    public static SharedPreferences settings(@NonNull Context context) {
+        return open(context, SETTINGS_NAME);
+    }
+
+    @NonNull
+    public static SharedPreferences uploads(@NonNull Context context) {
+        return open(context, UPLOADS_NAME);
+    }
+
+    /** The old all-in-one file, for moving the SNR results out of it. */
+    @NonNull
+    static SharedPreferences legacy(@NonNull Context context) {
+        return open(context, LEGACY_NAME);
+    }
+
+    /** Deletes the old file if everything has been moved out of it. */
+    static void releaseLegacy(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        SharedPreferences legacy = appContext.getSharedPreferences(LEGACY_NAME, Context.MODE_PRIVATE);
+        if (legacy.getAll().isEmpty() && appContext.deleteSharedPreferences(LEGACY_NAME)) {
+            Log.i(TAG, "Deleted " + LEGACY_NAME);
+        }
+    }
+
+    private static SharedPreferences open(Context context, String name) {
+        Context appContext = context.getApplicationContext();
+        if (!legacySplit) splitLegacy(appContext);
+        return appContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    // --- Migration ---
+
+    private static synchronized void splitLegacy(Context appContext) {
+        if (legacySplit) return;
+        SharedPreferences settings = appContext.getSharedPreferences(SETTINGS_NAME, Context.MODE_PRIVATE);
+        if (settings.getBoolean(KEY_LEGACY_SPLIT, false)) {
+            legacySplit = true;
+            return;
+        }
+
+        // Copies first, then the marker, then removal from the old file: a crash part way only
+        // means the copy is repeated next launch
+        SharedPreferences legacy = appContext.getSharedPreferences(LEGACY_NAME, Context.MODE_PRIVATE);
+        Map<String, ?> values = legacy.getAll();
+        boolean copied = copy(values, CONSENT_KEYS, appContext.getSharedPreferences(CONSENT_NAME, Context.MODE_PRIVATE))
+                & copy(values, CALIBRATION_KEYS, appContext.getSharedPreferences(CALIBRATION_NAME, Context.MODE_PRIVATE))
+                & copy(values, SETTINGS_KEYS, settings);
+        if (!copied || !settings.edit().putBoolean(KEY_LEGACY_SPLIT, true).commit()) {
+            Log.e(TAG, "Could not split " + LEGACY_NAME + "; will retry next launch");
+            return;
+        }
+        SharedPreferences.Editor editor = legacy.edit();
+        for (String[] keys : new String[][] {CONSENT_KEYS, CALIBRATION_KEYS, SETTINGS_KEYS}) {
+            for (String key : keys) editor.remove(key);
+        }
+        if (!editor.commit()) Log.w(TAG, "Could not remove moved keys from " + LEGACY_NAME);
+        legacySplit = true;
+        Log.i(TAG, "Split " + LEGACY_NAME + " into purpose-specific stores");
+        releaseLegacy(appContext);
+    }
+
+    /** Copies the present keys into {@code target}. Returns false if the write failed. */
+    @SuppressWarnings("unchecked")
+    private static boolean copy(Map<String, ?> values, String[] keys, SharedPreferences target) {
+        SharedPreferences.Editor editor = target.edit();
+        boolean any = false;
+        for (String key : keys) {
+            Object value = values.get(key);
+            if (value == null || target.contains(key)) continue; // Never overwrite a newer value
+            if (value instanceof Boolean) editor.putBoolean(key, (Boolean) value);
+            else if (value instanceof Float) editor.putFloat(key, (Float) value);
+            else if (value instanceof Integer) editor.putInt(key, (Integer) value);
+            else if (value instanceof Long) editor.putLong(key, (Long) value);
+            else if (value instanceof String) editor.putString(key, (String) value);
+            else if (value instanceof Set) editor.putStringSet(key, (Set<String>) value);
+            else continue;
+            any = true;
+        }
+        return !any || editor.commit();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.vocalharmony.ui.home;
+
+/**
+ * Signal measurements shared by the live tests ({@link AudioProcessor}) and offline analysis
+ * of saved takes, so both report SNR the same way.
+ */
+public final class AudioMetrics {
+
+    public static final double MAX_SNR_DB = 30.0;
+    /** Mean-square gain of the Hanning window: windowed power is about 3/8 of raw power. */
+    public static final double HANN_POWER_GAIN = 0.375;
+    private static final double EPSILON = 1e-10;
+
+    private AudioMetrics() {}
+
+    /** Applies a Hanning window in place. */
+    public static void applyHanningWindow(short[] buffer, int validSamples) {
+        if (validSamples <= 1) return;
+        for (int n = 0; n < validSamples; n++) {
+            double multiplier = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * n / (validSamples - 1.0)));
+            buffer[n] = (short) (buffer[n] * multiplier);
+        }
+    }
+
+    /** Average power (mean square) of the first {@code validSamples} samples. */
+    public static double calculatePower(short[] buffer, int validSamples) {
+        if (validSamples <= 0) return 0.0;
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < validSamples; i++) { double sample = buffer[i]; sumOfSquares += (sample * sample); }
+        return sumOfSquares / validSamples;
+    }
+
+    /** SNR in dB, clamped to [0, {@link #MAX_SNR_DB}]. */
+    public static double calculateSNR(double signalPower, double noisePower) {
+        if (noisePower <= EPSILON) { return (signalPower > EPSILON) ? MAX_SNR_DB : 0.0; }
+        if (signalPower <= EPSILON) { return 0.0; }
+        double ratio = signalPower / noisePower; if (ratio <= 1.0) { return 0.0; }
+        double snr = 10.0 * Math.log10(ratio); return Math.max(0.0, Math.min(MAX_SNR_DB, snr));
+    }
+
+    /** Whole-take metrics produced by {@link #analyze}. */
+    public static class TakeMetrics {
+        public final long durationMs;
+        public final double rms;
+        public final int peak;
+        public final double clippingRatio;
+        public final double meanSnrDb;
+        public final double maxSnrDb;
+
+        public TakeMetrics(long durationMs, double rms, int peak, double clippingRatio, double meanSnrDb, double maxSnrDb) {
+            this.durationMs = durationMs;
+            this.rms = rms;
+            this.peak = peak;
+            this.clippingRatio = clippingRatio;
+            this.meanSnrDb = meanSnrDb;
+            this.maxSnrDb = maxSnrDb;
+        }
+    }
+
+    /**
+     * Analyses a saved take in windows of {@code windowMs}, the same way the live test does
+     * (Hanning window, mean power, SNR against the baseline). RMS, peak and clipping use the
+     * raw samples. Reads through the mapped file; nothing is copied onto the heap beyond one window.
+     */
+    public static TakeMetrics analyze(MappedWavReader reader, double baselineNoisePower, int windowMs) {
+        int channels = reader.getChannels();
+        int windowFrames = Math.max(1, reader.getSampleRate() * windowMs / 1000);
+        short[] interleaved = new short[windowFrames * channels];
+        short[] window = new short[windowFrames];
+
+        long frames = reader.getFrameCount();
+        double sumOfSquares = 0.0;
+        long clipped = 0;
+        int peak = 0;
+        double snrSum = 0.0;
+        double snrMax = 0.0;
+        int fullWindows = 0;
+
+        for (long pos = 0; pos < frames; ) {
+            int n = reader.read(pos, interleaved, 0, windowFrames);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                short s = interleaved[i * channels]; // First channel; takes are mono
+                window[i] = s;
+                int abs = Math.abs((int) s);
+                if (abs > peak) peak = abs;
+                if (s == Short.MAX_VALUE || s == Short.MIN_VALUE) clipped++;
+                sumOfSquares += (double) s * s;
+            }
+            // Only full windows feed the SNR, as in AudioProcessor
+            if (n == windowFrames) {
+                applyHanningWindow(window, n);
+                double snr = calculateSNR(calculatePower(window, n), baselineNoisePower);
+                snrSum += snr;
+                if (snr > snrMax) snrMax = snr;
+                fullWindows++;
+            }
+            pos += n;
+        }
+
+        double rms = frames > 0 ? Math.sqrt(sumOfSquares / frames) : 0.0;
+        double clippingRatio = frames > 0 ? (double) clipped / frames : 0.0;
+        double meanSnr = fullWindows > 0 ? snrSum / fullWindows : 0.0;
+        return new TakeMetrics(reader.getDurationMs(), rms, peak, clippingRatio, meanSnr, snrMax);
+    }
+}
@@ -20,9 +20,8 @@ import com.example.vocalharmony.R; // Ensure R is imported
 public class AudioProcessor {
 
     private static final String TAG = "AudioProcessor";
-    // SharedPreferences Constants
-    private static final String PREFS_NAME = "VocalHarmonyPrefs";
-    private static final String KEY_BASELINE_POWER = "baselineNoisePower";
+    // SharedPreferences Constants (kept in AppPreferences.calibration)
+    static final String KEY_BASELINE_POWER = "baselineNoisePower";
 
     // Audio Configuration Constants
     private static final int SAMPLE_RATE = 44100;
@@ -64,6 +63,9 @@ public class AudioProcessor {
     // Baseline Noise Power - Loaded from Prefs or calculated
     private double baselineNoisePower = 0.0;
 
+    // Receives every SNR window of a test on the processing thread (see setTraceWriter)
+    @Nullable private volatile SnrTrace.Writer traceWriter;
+
     /** Constructor */
     public AudioProcessor(@NonNull Context context,
                           @Nullable VoiceQualityTestingCallback voiceQualityTestingCallback,
@@ -166,7 +168,7 @@ public class AudioProcessor {
             }
             try {
                 int shortsRead = audioRecord.read(buffer, 0, windowSizeSamples);
-                if (shortsRead == windowSizeSamples) { applyHanningWindow(buffer, shortsRead); sumNoisePower += calculatePower(buffer, shortsRead); totalValidWindowsRead++; }
+                if (shortsRead == windowSizeSamples) { AudioMetrics.applyHanningWindow(buffer, shortsRead); sumNoisePower += AudioMetrics.calculatePower(buffer, shortsRead); totalValidWindowsRead++; }
                 else if (shortsRead > 0) { Log.w(TAG, "Partial baseline read: " + shortsRead); }
                 else if (shortsRead < 0) { Log.e(TAG, "Baseline read error: " + shortsRead); isBaselineRecording = false; break; }
             } catch (Exception e) { Log.e(TAG, "Baseline read exception: " + e.getMessage(), e); isBaselineRecording = false; break; }
@@ -235,7 +237,8 @@ public class AudioProcessor {
             try {
                 int shortsRead = audioRecord.read(buffer, 0, windowSizeSamples);
                 if (shortsRead == windowSizeSamples) {
-                    applyHanningWindow(buffer, shortsRead); double signalPower = calculatePower(buffer, shortsRead); double snr = calculateSNR(signalPower, this.baselineNoisePower);
+                    AudioMetrics.applyHanningWindow(buffer, shortsRead); double signalPower = AudioMetrics.calculatePower(buffer, shortsRead); double snr = AudioMetrics.calculateSNR(signalPower, this.baselineNoisePower);
+                    SnrTrace.Writer writer = traceWriter; if (writer != null) { writer.append((float) snr); }
                     if (voiceQualityTestingCallback != null) { new Handler(Looper.getMainLooper()).post(() -> { if (voiceQualityTestingCallback != null && isTesting) { voiceQualityTestingCallback.onIntermediateSNR(snr); } }); }
                 } else if (shortsRead > 0) { Log.v(TAG, "Partial SNR read: " + shortsRead); }
                 else if (shortsRead < 0) { Log.e(TAG, "SNR read error: " + shortsRead); isTesting = false; break; }
@@ -243,6 +246,15 @@ public class AudioProcessor {
         } Log.d(TAG, "SNR processing loop finished.");
     }
 
+    /** Length of one SNR window, i.e. the spacing of the values in a trace. */
+    public static int getWindowSizeMs() { return WINDOW_SIZE_MS; }
+
+    /**
+     * Sets (or clears, with null) the writer that records the full SNR trace of the running test.
+     * Values are appended on the processing thread; the caller owns the writer and closes it.
+     */
+    public void setTraceWriter(@Nullable SnrTrace.Writer writer) { this.traceWriter = writer; }
+
     /** Public method called by UI to stop active test/recording */
     public void stopTesting() {
         Log.d(TAG, "stopTesting() called externally."); isTesting = false; isBaselineRecording = false;
@@ -283,24 +295,29 @@ public class AudioProcessor {
      */
     public void clearBaseline() {
         Log.d(TAG,"Clearing baseline..."); this.baselineNoisePower = 0.0;
-        try { SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE); prefs.edit().remove(KEY_BASELINE_POWER).apply(); Log.i(TAG,"Cleared baseline from Prefs."); }
+        try { SharedPreferences prefs = AppPreferences.calibration(context); prefs.edit().remove(KEY_BASELINE_POWER).apply(); Log.i(TAG,"Cleared baseline from Prefs."); }
         catch (Exception e) { Log.e(TAG, "Failed to clear baseline from Prefs", e); }
     }
 
     // --- SharedPreferences Methods for Baseline ---
 
+    /** Reads the saved baseline without creating a processor (e.g. for background analysis). 0 if none. */
+    public static double getSavedBaselineNoisePower(@NonNull Context context) {
+        return AppPreferences.calibration(context).getFloat(KEY_BASELINE_POWER, 0.0f);
+    }
+
     /** Saves baseline power to SharedPreferences */
     private void saveBaselineToPrefs(double calculatedBaselinePower) {
         if (calculatedBaselinePower <= 0.0) { Log.w(TAG, "Not saving non-positive baseline: " + calculatedBaselinePower); return; }
         Log.i(TAG, "Saving baseline power to Prefs: " + calculatedBaselinePower);
-        try { SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE); prefs.edit().putFloat(KEY_BASELINE_POWER, (float) calculatedBaselinePower).apply(); this.baselineNoisePower = calculatedBaselinePower; }
+        try { SharedPreferences prefs = AppPreferences.calibration(context); prefs.edit().putFloat(KEY_BASELINE_POWER, (float) calculatedBaselinePower).apply(); this.baselineNoisePower = calculatedBaselinePower; }
         catch (Exception e) { Log.e(TAG, "Failed to save baseline to Prefs", e); }
     }
 
     /** Loads baseline power from SharedPreferences */
     private double loadBaselineFromPrefs() {
         Log.d(TAG, "Loading baseline power from Prefs...");
-        try { SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE); this.baselineNoisePower = prefs.getFloat(KEY_BASELINE_POWER, 0.0f); Log.i(TAG, "Loaded baseline from Prefs: " + this.baselineNoisePower); return this.baselineNoisePower; }
+        try { SharedPreferences prefs = AppPreferences.calibration(context); this.baselineNoisePower = prefs.getFloat(KEY_BASELINE_POWER, 0.0f); Log.i(TAG, "Loaded baseline from Prefs: " + this.baselineNoisePower); return this.baselineNoisePower; }
         catch (Exception e) { Log.e(TAG, "Failed to load baseline from Prefs", e); this.baselineNoisePower = 0.0; return 0.0; }
     }
 
@@ -323,26 +340,7 @@ public class AudioProcessor {
 
     // --- Calculation Helpers ---
 
-    /** Applies Hanning window */
-    private void applyHanningWindow(short[] buffer, int validSamples) {
-        if (validSamples <= 1) return;
-        for (int n = 0; n < validSamples; n++) { double multiplier = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * n / (validSamples - 1.0))); buffer[n] = (short) (buffer[n] * multiplier); }
-    }
-
-    /** Calculates average power */
-    private double calculatePower(short[] buffer, int validSamples) {
-        if (validSamples <= 0) return 0.0; double sumOfSquares = 0.0;
-        for (int i = 0; i < validSamples; i++) { double sample = buffer[i]; sumOfSquares += (sample * sample); }
-        return sumOfSquares / validSamples;
-    }
-//The calculateSNR was previously set to 100 incase 30 doesnt work
-    /** Calculates SNR in dB */
-    private double calculateSNR(double signalPower, double noisePower) {
-        if (noisePower <= 1e-10) { return (signalPower > 1e-10) ? 30.0 : 0.0; }
-        if (signalPower <= 1e-10) { return 0.0; }
-        double ratio = signalPower / noisePower; if (ratio <= 1.0) { return 0.0; }
-        double snr = 10.0 * Math.log10(ratio); return Math.max(0.0, Math.min(30.0, snr));
-    }
+    // Window, power and SNR math lives in AudioMetrics so offline analysis matches the live test.
 
     // --- Callback Interfaces ---
     public interface VoiceQualityTestingCallback { void onIntermediateSNR(double snr); void onMicrophoneActive(boolean isActive); }
@@ -0,0 +1,85 @@
+package com.example.vocalharmony.ui.home;
+
+/**
+ * Dynamic time warping between two feature sequences (e.g. {@link Mfcc} frames), so a word
+ * said faster or slower than its template still lines up. Two refinements keep it cheap enough
+ * to run against every template:
+ * <ul>
+ *   <li>A Sakoe-Chiba band: frame i of one sequence may only match frames within
+ *       {@code band} of the corresponding position in the other, which cuts the work from
+ *       n*m to about n*(2*band+1) and rules out absurd alignments.</li>
+ *   <li>Early abandoning: once every cell of a row already costs more than the best match found
+ *       so far, the rest cannot do better and the comparison stops.</li>
+ * </ul>
+ * Costs are normalized by path length (n + m), so words of different lengths compare fairly.
+ * Not thread-safe: the row buffers are reused. Use one instance per thread.
+ */
+public class Dtw {
+
+    private double[] previousRow = new double[0];
+    private double[] currentRow = new double[0];
+
+    /**
+     * @param band Sakoe-Chiba half-width in frames; widened if needed to reach the far corner
+     * @param abandonAbove normalized cost beyond which the caller has no use for the result
+     *                     (e.g. the best so far), or {@link Double#POSITIVE_INFINITY}
+     * @return the normalized alignment cost, or {@link Double#POSITIVE_INFINITY} if it exceeds
+     *         {@code abandonAbove} or either sequence is empty
+     */
+    public double distance(float[][] a, float[][] b, int band, double abandonAbove) {
+        int n = a.length;
+        int m = b.length;
+        if (n == 0 || m == 0) return Double.POSITIVE_INFINITY;
+        // Rows follow a; the band is centred on the diagonal scaled to b's length
+        int width = Math.max(band, Math.abs(n - m));
+        double limit = abandonAbove * (n + m);
+        if (previousRow.length < m) {
+            previousRow = new double[m];
+            currentRow = new double[m];
+        }
+
+        // Only cells inside the band are written; reads outside the previous row's band count as infinite
+        int previousFrom = 0;
+        int previousTo = -1;
+        for (int i = 0; i < n; i++) {
+            int center = (int) ((long) i * m / n);
+            int from = Math.max(0, center - width);
+            int to = Math.min(m - 1, center + width);
+            double rowMin = Double.POSITIVE_INFINITY;
+            for (int j = from; j <= to; j++) {
+                double best;
+                if (i == 0 && j == 0) {
+                    best = 0.0;
+                } else {
+                    best = Double.POSITIVE_INFINITY;
+                    boolean above = j >= previousFrom && j <= previousTo;
+                    boolean diagonal = j - 1 >= previousFrom && j - 1 <= previousTo;
+                    if (above) best = previousRow[j]; // Insertion
+                    if (j > from) best = Math.min(best, currentRow[j - 1]); // Deletion
+                    if (diagonal) best = Math.min(best, previousRow[j - 1]); // Match
+                }
+                double cost = best + euclidean(a[i], b[j]);
+                currentRow[j] = cost;
+                if (cost < rowMin) rowMin = cost;
+            }
+            if (rowMin > limit) return Double.POSITIVE_INFINITY;
+            double[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+            previousFrom = from;
+            previousTo = to;
+        }
+        // The widened band always reaches the last cell
+        double total = previousRow[m - 1];
+        return total > limit ? Double.POSITIVE_INFINITY : total / (n + m);
+    }
+
+    private static double euclidean(float[] x, float[] y) {
+        double sum = 0.0;
+        for (int k = 0; k < x.length; k++) {
+            double d = x[k] - y[k];
+            sum += d * d;
+        }
+        return Math.sqrt(sum);
+    }
+}
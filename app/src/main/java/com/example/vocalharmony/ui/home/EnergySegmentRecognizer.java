@@ -0,0 +1,80 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Deterministic stand-in {@link SpeechRecognizerEngine} for tests and for running the streaming
+ * path without a real model. It transcribes nothing; each stretch of speech, found by frame
+ * energy and ended by a pause, becomes a placeholder token giving its length (e.g. "[0.42 s]").
+ * The same audio always gives the same text, and a partial result follows every completed
+ * segment, so it exercises the pipeline the way a real engine would.
+ */
+public class EnergySegmentRecognizer implements SpeechRecognizerEngine {
+
+    /** Speech if frame power exceeds the noise floor by this factor (about +6 dB), as in {@link EnergyVad}. */
+    private static final double THRESHOLD_RATIO = 4.0;
+    /** Floor used when no baseline was measured; roughly -55 dBFS RMS. */
+    private static final double DEFAULT_NOISE_POWER = 60.0 * 60.0;
+    /** Shorter voiced runs are clicks, not speech. */
+    private static final int MIN_SEGMENT_FRAMES = 3;
+    /** Silence this long (200 ms) ends a segment. */
+    private static final int END_PAUSE_FRAMES = 10;
+
+    private final double thresholdPower;
+    private final StringBuilder transcript = new StringBuilder();
+    private PartialListener listener;
+    private int voicedFrames;
+    private int silentFrames;
+
+    /** @param noiseFloorPower mean power of the room noise, or 0 to use a default. */
+    public EnergySegmentRecognizer(double noiseFloorPower) {
+        this.thresholdPower = (noiseFloorPower > 0 ? noiseFloorPower : DEFAULT_NOISE_POWER) * THRESHOLD_RATIO;
+    }
+
+    @Override
+    public void start(@NonNull PartialListener listener) {
+        this.listener = listener;
+        transcript.setLength(0);
+        voicedFrames = 0;
+        silentFrames = 0;
+    }
+
+    @Override
+    public void acceptFrame(@NonNull short[] frame) {
+        double energy = 0.0;
+        for (short s : frame) energy += (double) s * s;
+        if (energy / frame.length >= thresholdPower) {
+            // A short dip inside a segment belongs to it
+            voicedFrames += silentFrames + 1;
+            silentFrames = 0;
+        } else if (voicedFrames > 0 && ++silentFrames >= END_PAUSE_FRAMES) {
+            if (endSegment()) listener.onPartialResult(transcript.toString());
+        }
+    }
+
+    @NonNull
+    @Override
+    public String finish() {
+        endSegment();
+        return transcript.toString();
+    }
+
+    @Override
+    public void release() {
+        listener = null;
+    }
+
+    /** Closes the open segment; returns whether it was long enough to become a token. */
+    private boolean endSegment() {
+        boolean isSpeech = voicedFrames >= MIN_SEGMENT_FRAMES;
+        if (isSpeech) {
+            if (transcript.length() > 0) transcript.append(' ');
+            transcript.append(String.format(Locale.US, "[%.2f s]", voicedFrames * (double) FRAME_SAMPLES / SAMPLE_RATE));
+        }
+        voicedFrames = 0;
+        silentFrames = 0;
+        return isSpeech;
+    }
+}
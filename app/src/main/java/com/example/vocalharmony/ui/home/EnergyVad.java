@@ -0,0 +1,95 @@
+package com.example.vocalharmony.ui.home;
+
+/**
+ * Streaming energy-based voice activity detector. PCM is fed in as it is captured and cut into
+ * 20 ms frames; a frame is voiced when its mean power clears the noise floor by
+ * {@link #THRESHOLD_RATIO}. Only runs of at least {@link #MIN_VOICED_FRAMES} voiced frames count,
+ * so the click of tapping Record or Stop is not mistaken for speech.
+ *
+ * The detector keeps only the first and last voiced positions, so memory use doesn't grow
+ * with the length of the take.
+ */
+public class EnergyVad {
+
+    public static final int FRAME_MS = 20;
+    /** Voiced if power exceeds the noise floor by this factor (about +6 dB). */
+    private static final double THRESHOLD_RATIO = 4.0;
+    /** Floor used when no baseline was measured; roughly -55 dBFS RMS. */
+    private static final double DEFAULT_NOISE_POWER = 60.0 * 60.0;
+    private static final int MIN_VOICED_FRAMES = 3;
+
+    private final int frameSamples;
+    private final double thresholdPower;
+
+    private long samplesSeen = 0;
+    private double frameEnergy = 0.0;
+    private int frameFill = 0;
+    private int pendingLowByte = -1; // Carries an odd trailing byte between chunks
+
+    private int runLength = 0;
+    private long runStartSample = -1;
+    private long firstVoicedSample = -1;
+    private long lastVoicedEndSample = -1;
+
+    /**
+     * @param noiseFloorPower mean power of the room noise (e.g. the saved baseline), or 0 to use a default.
+     */
+    public EnergyVad(int sampleRate, double noiseFloorPower) {
+        this.frameSamples = Math.max(1, sampleRate * FRAME_MS / 1000);
+        double floor = noiseFloorPower > 0 ? noiseFloorPower : DEFAULT_NOISE_POWER;
+        this.thresholdPower = floor * THRESHOLD_RATIO;
+    }
+
+    /** Feeds little-endian 16-bit mono PCM. */
+    public void addPcm16(byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        if (pendingLowByte >= 0 && i < end) {
+            addSample((short) ((data[i] << 8) | pendingLowByte));
+            pendingLowByte = -1;
+            i++;
+        }
+        for (; i + 1 < end; i += 2) addSample((short) ((data[i + 1] << 8) | (data[i] & 0xff)));
+        if (i < end) pendingLowByte = data[i] & 0xff;
+    }
+
+    /** Feeds 16-bit mono samples. */
+    public void addPcm16(short[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) addSample(samples[i]);
+    }
+
+    private void addSample(short sample) {
+        frameEnergy += (double) sample * sample;
+        samplesSeen++;
+        if (++frameFill == frameSamples) {
+            onFrame(frameEnergy / frameSamples >= thresholdPower);
+            frameEnergy = 0.0;
+            frameFill = 0;
+        }
+    }
+
+    private void onFrame(boolean voiced) {
+        long frameEnd = samplesSeen;
+        if (!voiced) {
+            runLength = 0;
+            return;
+        }
+        if (runLength == 0) runStartSample = frameEnd - frameSamples;
+        runLength++;
+        if (runLength >= MIN_VOICED_FRAMES) {
+            if (firstVoicedSample < 0) firstVoicedSample = runStartSample;
+            lastVoicedEndSample = frameEnd;
+        }
+    }
+
+    /** True once any speech has been detected. */
+    public boolean hasVoice() { return firstVoicedSample >= 0; }
+
+    /** Sample index where the first voiced run starts, or -1. */
+    public long getFirstVoicedSample() { return firstVoicedSample; }
+
+    /** Sample index just past the last voiced frame, or -1. */
+    public long getLastVoicedEndSample() { return lastVoicedEndSample; }
+
+    public long getSamplesSeen() { return samplesSeen; }
+}
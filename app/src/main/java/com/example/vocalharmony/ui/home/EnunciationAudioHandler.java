@@ -1,4 +1,128 @@
 package com.example.vocalharmony.ui.home;
 
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Captures a single spoken word for {@link EnunciationScorer}: 16 kHz mono PCM into a fixed
+ * buffer, ending on its own once speech has been followed by {@link #END_SILENCE_MS} of quiet,
+ * or after {@link #MAX_CAPTURE_MS}. The take is delivered on the main thread.
+ */
 public class EnunciationAudioHandler {
+
+    private static final String TAG = "EnunciationAudioHandler";
+    private static final int SAMPLE_RATE = Mfcc.SAMPLE_RATE;
+    private static final int CHANNEL_CONFIG = AudioFormat.CHANNEL_IN_MONO;
+    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
+    public static final int MAX_CAPTURE_MS = 3000;
+    private static final int END_SILENCE_MS = 400;
+
+    /** Called on the main thread. */
+    public interface Listener {
+        /** The take, whether or not it contains speech. */
+        void onWordCaptured(@NonNull short[] pcm, int length);
+
+        void onCaptureFailed(@NonNull String reason);
+    }
+
+    private final double noiseFloorPower;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Thread captureThread;
+    private volatile boolean stopRequested = false;
+    private volatile boolean released = false;
+
+    /**
+     * @param noiseFloorPower mean power of the room noise, used to tell when the word has ended, or 0 for a default
+     */
+    public EnunciationAudioHandler(double noiseFloorPower, @NonNull Listener listener) {
+        this.noiseFloorPower = noiseFloorPower;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts capturing. Needs the RECORD_AUDIO permission.
+     * @return false if the microphone could not be opened
+     */
+    public boolean start() {
+        if (isCapturing()) return true;
+        int bufferSize = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT);
+        AudioRecord record;
+        try {
+            record = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT, bufferSize);
+        } catch (SecurityException | IllegalArgumentException e) {
+            Log.e(TAG, "Could not create AudioRecord", e);
+            return false;
+        }
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "AudioRecord could not be initialized.");
+            record.release();
+            return false;
+        }
+        stopRequested = false;
+        released = false;
+        record.startRecording();
+        captureThread = new Thread(() -> capture(record, bufferSize / 2), "EnunciationCapture");
+        captureThread.start();
+        return true;
+    }
+
+    public boolean isCapturing() {
+        return captureThread != null && captureThread.isAlive();
+    }
+
+    /** Ends the take now; what was captured so far is still delivered. */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** Stops without delivering anything. Call when the screen goes away. */
+    public void release() {
+        released = true;
+        stopRequested = true;
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void capture(AudioRecord record, int readSamples) {
+        short[] pcm = new short[SAMPLE_RATE * MAX_CAPTURE_MS / 1000];
+        long endSilenceSamples = (long) SAMPLE_RATE * END_SILENCE_MS / 1000;
+        EnergyVad vad = new EnergyVad(SAMPLE_RATE, noiseFloorPower);
+        int length = 0;
+        String error = null;
+        try {
+            while (!stopRequested && length < pcm.length) {
+                int read = record.read(pcm, length, Math.min(readSamples, pcm.length - length));
+                if (read < 0) {
+                    error = "Microphone read failed (" + read + ")";
+                    break;
+                }
+                vad.addPcm16(pcm, length, read);
+                length += read;
+                if (vad.hasVoice() && vad.getSamplesSeen() - vad.getLastVoicedEndSample() >= endSilenceSamples) break;
+            }
+        } finally {
+            if (record.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) record.stop();
+            record.release();
+        }
+        Log.d(TAG, "Captured " + length * 1000L / SAMPLE_RATE + " ms, voice=" + vad.hasVoice());
+
+        if (released) return;
+        final int captured = length;
+        final String failure = error;
+        mainHandler.post(() -> {
+            if (released) return;
+            if (failure != null) {
+                listener.onCaptureFailed(failure);
+            } else {
+                listener.onWordCaptured(pcm, captured);
+            }
+        });
+    }
 }
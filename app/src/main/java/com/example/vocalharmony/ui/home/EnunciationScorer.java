@@ -0,0 +1,130 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Scores how closely a spoken word matches its reference {@link EnunciationTemplates}, entirely
+ * on-device. The take is trimmed to its voiced part, turned into {@link Mfcc} frames and aligned
+ * against each template with banded, early-abandoning {@link Dtw}. The best alignment cost is
+ * mapped to a 0-100 score.
+ *
+ * The take is also checked against every other word in the pack, with the target's cost as the
+ * abandon bound, so most of those comparisons stop after a few rows. If another word aligns
+ * better, it is reported as what the take sounded like.
+ *
+ * Not thread-safe: the feature and alignment buffers are reused. Use one instance per thread.
+ */
+public class EnunciationScorer {
+
+    /** Band half-width: 150 ms of tempo drift either way. */
+    private static final int BAND_FRAMES = 15;
+    /**
+     * Normalized costs at or below this score 100; at or above {@link #BAD_DISTANCE} they score 0.
+     * Starting points: retune against real takes whenever the reference set changes.
+     */
+    private static final double GOOD_DISTANCE = 6.0;
+    private static final double BAD_DISTANCE = 24.0;
+    /** Context kept either side of the voiced part, so soft onsets and endings are not clipped. */
+    private static final int PAD_SAMPLES = Mfcc.SAMPLE_RATE / 20;
+
+    /** Result for one take. */
+    public static final class Score {
+        public final String word;
+        /** Normalized DTW cost against the best template; infinite if nothing was said. */
+        public final double distance;
+        /** 0-100, higher is closer to the reference. */
+        public final int percent;
+        /** Another word in the pack the take matched better, or null. */
+        @Nullable public final String soundedLike;
+        public final long elapsedMs;
+
+        Score(String word, double distance, int percent, @Nullable String soundedLike, long elapsedMs) {
+            this.word = word;
+            this.distance = distance;
+            this.percent = percent;
+            this.soundedLike = soundedLike;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public boolean hasSpeech() {
+            return !Double.isInfinite(distance);
+        }
+    }
+
+    private final EnunciationTemplates templates;
+    private final double noiseFloorPower;
+    private final Mfcc mfcc = new Mfcc();
+    private final Dtw dtw = new Dtw();
+
+    /**
+     * @param noiseFloorPower mean power of the room noise for trimming (e.g. the saved baseline), or 0 for a default
+     */
+    public EnunciationScorer(@NonNull EnunciationTemplates templates, double noiseFloorPower) {
+        this.templates = templates;
+        this.noiseFloorPower = noiseFloorPower;
+    }
+
+    /** Scores {@code length} samples of 16 kHz mono {@code pcm} as an attempt at {@code word}. */
+    @NonNull
+    public Score score(@NonNull String word, @NonNull short[] pcm, int length) {
+        long start = System.nanoTime();
+        float[][] take = featuresOf(pcm, length, mfcc, noiseFloorPower);
+
+        double best = Double.POSITIVE_INFINITY;
+        for (EnunciationTemplates.Template template : templates.forWord(word)) {
+            best = Math.min(best, dtw.distance(take, template.features, BAND_FRAMES, best));
+        }
+
+        // Only a word that beats the target matters, so the target's cost bounds every other comparison
+        String soundedLike = null;
+        double bound = best;
+        for (String other : templates.getWords()) {
+            if (other.equals(word)) continue;
+            for (EnunciationTemplates.Template template : templates.forWord(other)) {
+                double distance = dtw.distance(take, template.features, BAND_FRAMES, bound);
+                if (distance < bound) {
+                    bound = distance;
+                    soundedLike = other;
+                }
+            }
+        }
+        return new Score(word, best, percentFor(best), soundedLike, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    static int percentFor(double distance) {
+        if (Double.isInfinite(distance)) return 0;
+        double t = (BAD_DISTANCE - distance) / (BAD_DISTANCE - GOOD_DISTANCE);
+        return (int) Math.round(100.0 * Math.max(0.0, Math.min(1.0, t)));
+    }
+
+    // --- Features ---
+
+    /** MFCCs of the voiced part of a take; empty if no speech was found. */
+    @NonNull
+    static float[][] featuresOf(@NonNull short[] pcm, int length, @NonNull Mfcc mfcc, double noiseFloorPower) {
+        EnergyVad vad = new EnergyVad(Mfcc.SAMPLE_RATE, noiseFloorPower);
+        vad.addPcm16(pcm, 0, length);
+        if (!vad.hasVoice()) return new float[0][];
+        int from = (int) Math.max(0, vad.getFirstVoicedSample() - PAD_SAMPLES);
+        int to = (int) Math.min(length, vad.getLastVoicedEndSample() + PAD_SAMPLES);
+        return mfcc.compute(pcm, from, to - from);
+    }
+
+    /** MFCCs of the voiced part of a 16 kHz reference WAV (first channel if stereo). */
+    @NonNull
+    static float[][] featuresOf(@NonNull File wav, @NonNull Mfcc mfcc) throws IOException {
+        try (MappedWavReader reader = MappedWavReader.open(wav)) {
+            if (reader.getSampleRate() != Mfcc.SAMPLE_RATE) {
+                throw new IOException(wav.getName() + " is " + reader.getSampleRate() + " Hz, expected " + Mfcc.SAMPLE_RATE);
+            }
+            int frames = (int) Math.min(reader.getFrameCount(), Integer.MAX_VALUE);
+            short[] pcm = new short[frames];
+            for (int i = 0; i < frames; i++) pcm[i] = reader.getSample(i, 0);
+            return featuresOf(pcm, frames, mfcc, 0);
+        }
+    }
+}
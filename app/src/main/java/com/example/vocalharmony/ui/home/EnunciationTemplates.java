@@ -0,0 +1,248 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reference pronunciations for the enunciation scorer, as {@link Mfcc} sequences. A word may
+ * have several templates, for example from different speakers.
+ *
+ * Templates are stored in a compact binary pack: a header, then each template's word and its
+ * float features. Loading a pack is a single sequential read with no audio processing. The app
+ * takes a precomputed pack from assets ({@link #ASSET_PACK}) when one ships. Otherwise it builds
+ * a pack once from the reference WAVs in {@link #ASSET_DIR} (named {@code word.wav} or
+ * {@code word_2.wav}) and caches it in app storage until the app is updated.
+ */
+public class EnunciationTemplates {
+
+    private static final String TAG = "EnunciationTemplates";
+    public static final String ASSET_DIR = "enunciation";
+    public static final String ASSET_PACK = ASSET_DIR + "/templates.bin";
+    private static final String CACHE_FILENAME = "enunciation_templates.bin";
+    private static final int MAGIC = 0x56484550; // "VHEP"
+    private static final int VERSION = 1;
+
+    /** One reference pronunciation. */
+    public static final class Template {
+        public final String word;
+        public final float[][] features;
+
+        Template(String word, float[][] features) {
+            this.word = word;
+            this.features = features;
+        }
+    }
+
+    private final Map<String, List<Template>> byWord;
+    private final long sourceStamp;
+
+    EnunciationTemplates(@NonNull List<Template> templates, long sourceStamp) {
+        this.byWord = new LinkedHashMap<>();
+        for (Template template : templates) {
+            List<Template> list = byWord.get(template.word);
+            if (list == null) {
+                list = new ArrayList<>();
+                byWord.put(template.word, list);
+            }
+            list.add(template);
+        }
+        this.sourceStamp = sourceStamp;
+    }
+
+    /** Words with at least one template, in pack order. */
+    @NonNull
+    public List<String> getWords() {
+        return new ArrayList<>(byWord.keySet());
+    }
+
+    @NonNull
+    public List<Template> forWord(@NonNull String word) {
+        List<Template> list = byWord.get(word);
+        return list != null ? Collections.unmodifiableList(list) : Collections.emptyList();
+    }
+
+    public boolean isEmpty() {
+        return byWord.isEmpty();
+    }
+
+    // --- Loading ---
+
+    /**
+     * Returns the app's templates: the shipped pack, else the cached pack, else one built from
+     * the reference WAVs (and cached). Does file and audio work; call off the main thread.
+     * Empty if the app has no reference words.
+     */
+    @NonNull
+    public static EnunciationTemplates load(@NonNull Context context) {
+        AssetManager assets = context.getAssets();
+        try (InputStream in = assets.open(ASSET_PACK)) {
+            return read(in);
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No precomputed pack; using reference recordings");
+        } catch (IOException e) {
+            Log.w(TAG, "Shipped template pack unreadable; using reference recordings", e);
+        }
+
+        long stamp = installStamp(context);
+        File cache = new File(context.getFilesDir(), CACHE_FILENAME);
+        if (cache.exists()) {
+            try (InputStream in = new FileInputStream(cache)) {
+                EnunciationTemplates cached = read(in);
+                if (cached.sourceStamp == stamp) return cached;
+                Log.i(TAG, "Template cache is from another install; rebuilding");
+            } catch (IOException e) {
+                Log.w(TAG, "Template cache unreadable; rebuilding", e);
+            }
+        }
+
+        EnunciationTemplates built = buildFromAssets(context, stamp);
+        if (!built.isEmpty()) {
+            File temp = new File(cache.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                built.write(out);
+                out.getFD().sync();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not cache templates", e);
+            }
+            if (temp.exists() && !temp.renameTo(cache)) {
+                Log.w(TAG, "Could not move template cache into place");
+                if (!temp.delete()) Log.w(TAG, "Failed to delete temp template cache");
+            }
+        }
+        return built;
+    }
+
+    /** Computes templates from the reference WAVs in {@link #ASSET_DIR}. */
+    @NonNull
+    static EnunciationTemplates buildFromAssets(@NonNull Context context, long stamp) {
+        List<Template> templates = new ArrayList<>();
+        String[] names;
+        try {
+            names = context.getAssets().list(ASSET_DIR);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not list reference recordings", e);
+            names = null;
+        }
+        if (names == null || names.length == 0) return new EnunciationTemplates(templates, stamp);
+        Arrays.sort(names);
+
+        long start = System.nanoTime();
+        Mfcc mfcc = new Mfcc();
+        File temp = new File(context.getCacheDir(), "enunciation_ref.wav");
+        for (String name : names) {
+            if (!name.toLowerCase(Locale.US).endsWith(".wav")) continue;
+            try {
+                copyAsset(context.getAssets(), ASSET_DIR + "/" + name, temp);
+                float[][] features = EnunciationScorer.featuresOf(temp, mfcc);
+                if (features.length == 0) {
+                    Log.w(TAG, "No speech found in " + name);
+                    continue;
+                }
+                templates.add(new Template(wordFor(name), features));
+            } catch (IOException e) {
+                Log.w(TAG, "Skipping reference " + name, e);
+            }
+        }
+        if (temp.exists() && !temp.delete()) Log.w(TAG, "Failed to delete " + temp.getName());
+        Log.i(TAG, "Built " + templates.size() + " templates in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new EnunciationTemplates(templates, stamp);
+    }
+
+    /** "water_2.wav" and "water.wav" are both templates for "water". */
+    static String wordFor(String filename) {
+        String base = filename.substring(0, filename.length() - ".wav".length());
+        int underscore = base.lastIndexOf('_');
+        if (underscore > 0 && base.substring(underscore + 1).matches("\\d+")) base = base.substring(0, underscore);
+        return base.replace('_', ' ');
+    }
+
+    // --- Pack format ---
+
+    /** Reads a pack written by {@link #write}. */
+    @NonNull
+    static EnunciationTemplates read(@NonNull InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) throw new IOException("Not an enunciation template pack");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported template pack version " + version);
+        long stamp = in.readLong();
+        int dims = in.readInt();
+        if (dims != Mfcc.NUM_COEFFS) throw new IOException("Pack has " + dims + " coefficients, expected " + Mfcc.NUM_COEFFS);
+        int count = in.readInt();
+        List<Template> templates = new ArrayList<>(count);
+        for (int t = 0; t < count; t++) {
+            String word = in.readUTF();
+            int frames = in.readInt();
+            float[][] features = new float[frames][dims];
+            for (float[] frame : features) {
+                for (int k = 0; k < dims; k++) frame[k] = in.readFloat();
+            }
+            templates.add(new Template(word, features));
+        }
+        return new EnunciationTemplates(templates, stamp);
+    }
+
+    /** Writes the templates as a pack. */
+    void write(@NonNull OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        int count = 0;
+        for (List<Template> list : byWord.values()) count += list.size();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceStamp);
+        out.writeInt(Mfcc.NUM_COEFFS);
+        out.writeInt(count);
+        for (List<Template> list : byWord.values()) {
+            for (Template template : list) {
+                out.writeUTF(template.word);
+                out.writeInt(template.features.length);
+                for (float[] frame : template.features) {
+                    for (float value : frame) out.writeFloat(value);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    // --- Helpers ---
+
+    /** Changes whenever the app is installed or updated, which is the only way assets change. */
+    private static long installStamp(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0L;
+        }
+    }
+
+    private static void copyAsset(AssetManager assets, String path, File target) throws IOException {
+        try (InputStream in = assets.open(path); OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[16 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Minimal lossless FLAC encoder for the 16-bit PCM takes this app records. Each channel of each
+ * 4096-sample block is coded as a constant, verbatim, or fixed-predictor (order 0-4) subframe
+ * with partitioned Rice residuals, whichever is smallest. No LPC, so it trails libFLAC by a few
+ * percent, but speech still typically shrinks to around half the WAV size.
+ *
+ * The output is a standard .flac file (STREAMINFO with MD5, CRC-8 frame headers, CRC-16
+ * footers) that MediaPlayer and desktop tools play directly.
+ */
+public final class FlacEncoder {
+
+    public static final int BLOCK_SIZE = 4096;
+    private static final int BITS_PER_SAMPLE = 16;
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int MAX_PARTITION_ORDER = 8;
+    private static final int MAX_RICE_PARAM = 14; // 15 is the escape code with 4-bit parameters
+    private static final int STREAMINFO_OFFSET = 8; // After "fLaC" and the metadata block header
+    private static final int STREAMINFO_LENGTH = 34;
+
+    private FlacEncoder() {}
+
+    /** Basic stream properties read back from a .flac file's STREAMINFO block. */
+    public static class StreamInfo {
+        public final int sampleRate;
+        public final int channels;
+        public final int bitsPerSample;
+        public final long totalSamples;
+
+        StreamInfo(int sampleRate, int channels, int bitsPerSample, long totalSamples) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.bitsPerSample = bitsPerSample;
+            this.totalSamples = totalSamples;
+        }
+
+        public long getDurationMs() { return sampleRate > 0 ? totalSamples * 1000L / sampleRate : 0; }
+    }
+
+    /**
+     * Encodes the whole take into {@code flacFile}.
+     * @return the size of the written file in bytes.
+     */
+    public static long encode(MappedWavReader reader, File flacFile) throws IOException {
+        return encode(reader, flacFile, null);
+    }
+
+    /**
+     * Encodes the whole take into {@code flacFile}, also feeding the PCM (16-bit little-endian,
+     * interleaved) to {@code pcmDigest}, so a caller can hash the audio without a second pass.
+     * @return the size of the written file in bytes.
+     */
+    public static long encode(MappedWavReader reader, File flacFile, @Nullable MessageDigest pcmDigest) throws IOException {
+        int channels = reader.getChannels();
+        if (channels < 1 || channels > 8) throw new IOException("Unsupported channel count " + channels);
+        int sampleRate = reader.getSampleRate();
+        long totalFrames = reader.getFrameCount();
+
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("MD5 unavailable", e);
+        }
+
+        int minFrameBytes = Integer.MAX_VALUE;
+        int maxFrameBytes = 0;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(flacFile))) {
+            out.write(new byte[] { 'f', 'L', 'a', 'C' });
+            // STREAMINFO is the only (so last) metadata block; its contents are patched in at the end
+            out.write(new byte[] { (byte) 0x80, 0, 0, STREAMINFO_LENGTH });
+            out.write(new byte[STREAMINFO_LENGTH]);
+
+            short[] interleaved = new short[BLOCK_SIZE * channels];
+            byte[] pcmBytes = new byte[interleaved.length * 2];
+            int[][] channelSamples = new int[channels][BLOCK_SIZE];
+            BitWriter bits = new BitWriter(BLOCK_SIZE * channels * 2 + 64);
+            long frameNumber = 0;
+
+            for (long pos = 0; pos < totalFrames; frameNumber++) {
+                int n = reader.read(pos, interleaved, 0, BLOCK_SIZE);
+                if (n <= 0) break;
+                pos += n;
+
+                for (int i = 0; i < n * channels; i++) {
+                    short s = interleaved[i];
+                    pcmBytes[2 * i] = (byte) s;
+                    pcmBytes[2 * i + 1] = (byte) (s >> 8);
+                    channelSamples[i % channels][i / channels] = s;
+                }
+                md5.update(pcmBytes, 0, n * channels * 2);
+                if (pcmDigest != null) pcmDigest.update(pcmBytes, 0, n * channels * 2);
+
+                bits.reset();
+                writeFrameHeader(bits, n, sampleRate, channels, frameNumber);
+                for (int c = 0; c < channels; c++) writeSubframe(bits, channelSamples[c], n);
+                bits.alignToByte();
+                bits.writeBits(crc16(bits.buffer(), bits.byteLength()), 16);
+
+                out.write(bits.buffer(), 0, bits.byteLength());
+                minFrameBytes = Math.min(minFrameBytes, bits.byteLength());
+                maxFrameBytes = Math.max(maxFrameBytes, bits.byteLength());
+            }
+        }
+        if (maxFrameBytes == 0) minFrameBytes = 0;
+
+        // Patch STREAMINFO now that frame sizes and the MD5 are known
+        BitWriter info = new BitWriter(STREAMINFO_LENGTH);
+        info.writeBits(BLOCK_SIZE, 16); // min block size
+        info.writeBits(BLOCK_SIZE, 16); // max block size
+        info.writeBits(minFrameBytes, 24);
+        info.writeBits(maxFrameBytes, 24);
+        info.writeBits(sampleRate, 20);
+        info.writeBits(channels - 1, 3);
+        info.writeBits(BITS_PER_SAMPLE - 1, 5);
+        info.writeBits(totalFrames >>> 32, 4);
+        info.writeBits(totalFrames & 0xFFFFFFFFL, 32);
+        byte[] digest = md5.digest();
+        for (byte b : digest) info.writeBits(b & 0xFF, 8);
+        try (RandomAccessFile raf = new RandomAccessFile(flacFile, "rw")) {
+            raf.seek(STREAMINFO_OFFSET);
+            raf.write(info.buffer(), 0, STREAMINFO_LENGTH);
+            return raf.length();
+        }
+    }
+
+    /** Reads STREAMINFO from a .flac file. */
+    public static StreamInfo readStreamInfo(File flacFile) throws IOException {
+        try (InputStream in = new FileInputStream(flacFile)) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != 0x664C6143) throw new IOException("Not a FLAC file"); // "fLaC"
+            int blockHeader = data.readInt();
+            if (((blockHeader >>> 24) & 0x7F) != 0) throw new IOException("STREAMINFO missing");
+            byte[] info = new byte[STREAMINFO_LENGTH];
+            data.readFully(info);
+            long packed = 0; // Bytes 10..17: rate(20) channels-1(3) bps-1(5) total samples(36)
+            for (int i = 10; i < 18; i++) packed = (packed << 8) | (info[i] & 0xFF);
+            int sampleRate = (int) (packed >>> 44);
+            int channels = (int) ((packed >>> 41) & 0x7) + 1;
+            int bps = (int) ((packed >>> 36) & 0x1F) + 1;
+            long totalSamples = packed & 0xFFFFFFFFFL;
+            return new StreamInfo(sampleRate, channels, bps, totalSamples);
+        }
+    }
+
+    // --- Frames ---
+
+    private static void writeFrameHeader(BitWriter bits, int blockSize, int sampleRate, int channels, long frameNumber) {
+        bits.writeBits(0x3FFE, 14); // Sync code
+        bits.writeBits(0, 1); // Reserved
+        bits.writeBits(0, 1); // Fixed block size stream
+
+        int blockSizeCode = blockSize == BLOCK_SIZE ? 12 : 7; // 12: 256 * 2^4; 7: 16-bit value at end of header
+        bits.writeBits(blockSizeCode, 4);
+        int rateCode = sampleRateCode(sampleRate);
+        bits.writeBits(rateCode, 4);
+        bits.writeBits(channels - 1, 4); // Independent channels
+        bits.writeBits(4, 3); // 16 bits per sample
+        bits.writeBits(0, 1); // Reserved
+        writeUtf8Number(bits, frameNumber);
+        if (blockSizeCode == 7) bits.writeBits(blockSize - 1, 16);
+        if (rateCode == 12) bits.writeBits(sampleRate / 1000, 8);
+        else if (rateCode == 13) bits.writeBits(sampleRate, 16);
+        bits.writeBits(crc8(bits.buffer(), bits.byteLength()), 8);
+    }
+
+    private static int sampleRateCode(int sampleRate) {
+        switch (sampleRate) {
+            case 8000: return 4;
+            case 16000: return 5;
+            case 22050: return 6;
+            case 24000: return 7;
+            case 32000: return 8;
+            case 44100: return 9;
+            case 48000: return 10;
+            case 96000: return 11;
+            default:
+                if (sampleRate % 1000 == 0 && sampleRate / 1000 < 256) return 12;
+                if (sampleRate < 65536) return 13;
+                return 0; // Taken from STREAMINFO
+        }
+    }
+
+    /** Frame numbers use the same variable-length scheme as UTF-8, extended to 36 bits. */
+    private static void writeUtf8Number(BitWriter bits, long value) {
+        if (value < 0x80) { bits.writeBits(value, 8); return; }
+        int continuationBytes = value < 0x800 ? 1 : value < 0x10000 ? 2 : value < 0x200000 ? 3
+                : value < 0x4000000 ? 4 : value < 0x80000000L ? 5 : 6;
+        int leadingOnes = continuationBytes + 1;
+        int firstBits = 7 - leadingOnes;
+        long lead = (0xFF00 >> leadingOnes) & 0xFF;
+        bits.writeBits(lead | (value >>> (6 * continuationBytes)) & ((1 << firstBits) - 1), 8);
+        for (int i = continuationBytes - 1; i >= 0; i--) {
+            bits.writeBits(0x80 | ((value >>> (6 * i)) & 0x3F), 8);
+        }
+    }
+
+    // --- Subframes ---
+
+    private static void writeSubframe(BitWriter bits, int[] x, int n) {
+        boolean constant = true;
+        for (int i = 1; i < n && constant; i++) constant = x[i] == x[0];
+        if (constant) {
+            bits.writeBits(0, 8); // Padding bit, type 000000, no wasted bits
+            bits.writeBits(x[0] & 0xFFFF, BITS_PER_SAMPLE);
+            return;
+        }
+
+        // Pick the fixed predictor order with the smallest residual magnitude
+        int maxOrder = Math.min(MAX_FIXED_ORDER, n - 1);
+        int bestOrder = 0;
+        long bestSum = Long.MAX_VALUE;
+        int[] residual = new int[n];
+        for (int order = 0; order <= maxOrder; order++) {
+            computeResidual(x, n, order, residual);
+            long sum = 0;
+            for (int i = order; i < n; i++) sum += Math.abs(residual[i]);
+            if (sum < bestSum) { bestSum = sum; bestOrder = order; }
+        }
+        computeResidual(x, n, bestOrder, residual);
+        RicePlan plan = planRice(residual, n, bestOrder);
+
+        long fixedBits = 8 + (long) bestOrder * BITS_PER_SAMPLE + plan.bits;
+        long verbatimBits = 8 + (long) n * BITS_PER_SAMPLE;
+        if (verbatimBits <= fixedBits) {
+            bits.writeBits(0x02, 8); // Type 000001: verbatim
+            for (int i = 0; i < n; i++) bits.writeBits(x[i] & 0xFFFF, BITS_PER_SAMPLE);
+            return;
+        }
+
+        bits.writeBits((0x08 | bestOrder) << 1, 8); // Type 001xxx: fixed, order xxx
+        for (int i = 0; i < bestOrder; i++) bits.writeBits(x[i] & 0xFFFF, BITS_PER_SAMPLE);
+        bits.writeBits(0, 2); // Rice coding with 4-bit parameters
+        bits.writeBits(plan.partitionOrder, 4);
+        int partitions = 1 << plan.partitionOrder;
+        int partitionSize = n >> plan.partitionOrder;
+        for (int p = 0; p < partitions; p++) {
+            int k = plan.params[p];
+            bits.writeBits(k, 4);
+            int start = p == 0 ? bestOrder : p * partitionSize;
+            int end = (p + 1) * partitionSize;
+            for (int i = start; i < end; i++) bits.writeRice(fold(residual[i]), k);
+        }
+    }
+
+    private static void computeResidual(int[] x, int n, int order, int[] out) {
+        switch (order) {
+            case 0: for (int i = 0; i < n; i++) out[i] = x[i]; break;
+            case 1: for (int i = 1; i < n; i++) out[i] = x[i] - x[i - 1]; break;
+            case 2: for (int i = 2; i < n; i++) out[i] = x[i] - 2 * x[i - 1] + x[i - 2]; break;
+            case 3: for (int i = 3; i < n; i++) out[i] = x[i] - 3 * x[i - 1] + 3 * x[i - 2] - x[i - 3]; break;
+            default: for (int i = 4; i < n; i++) out[i] = x[i] - 4 * x[i - 1] + 6 * x[i - 2] - 4 * x[i - 3] + x[i - 4]; break;
+        }
+    }
+
+    /** Zigzag-maps a signed residual to an unsigned value for Rice coding. */
+    private static long fold(int r) {
+        return r >= 0 ? 2L * r : -2L * r - 1;
+    }
+
+    private static class RicePlan {
+        int partitionOrder;
+        int[] params;
+        long bits = Long.MAX_VALUE;
+    }
+
+    /** Chooses the partition order and per-partition Rice parameters that minimise the coded size. */
+    private static RicePlan planRice(int[] residual, int n, int order) {
+        RicePlan best = new RicePlan();
+        for (int po = 0; po <= MAX_PARTITION_ORDER; po++) {
+            int partitions = 1 << po;
+            if (n % partitions != 0 || (n >> po) <= order) break;
+            int partitionSize = n >> po;
+            int[] params = new int[partitions];
+            long total = 2 + 4; // Coding method and partition order
+            for (int p = 0; p < partitions; p++) {
+                int start = p == 0 ? order : p * partitionSize;
+                int end = (p + 1) * partitionSize;
+                long sum = 0;
+                for (int i = start; i < end; i++) sum += fold(residual[i]);
+                int count = end - start;
+                // Start from the parameter implied by the mean and check its neighbours
+                int guess = 0;
+                if (count > 0) { long mean = sum / count; while (guess < MAX_RICE_PARAM && (1L << (guess + 1)) <= mean) guess++; }
+                int bestK = guess;
+                long bestBits = Long.MAX_VALUE;
+                for (int k = Math.max(0, guess - 1); k <= Math.min(MAX_RICE_PARAM, guess + 1); k++) {
+                    long b = (long) count * (k + 1);
+                    for (int i = start; i < end; i++) b += fold(residual[i]) >>> k;
+                    if (b < bestBits) { bestBits = b; bestK = k; }
+                }
+                params[p] = bestK;
+                total += 4 + bestBits;
+            }
+            if (total < best.bits) {
+                best.bits = total;
+                best.partitionOrder = po;
+                best.params = params;
+            }
+        }
+        return best;
+    }
+
+    // --- CRCs ---
+
+    private static int crc8(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int b = 0; b < 8; b++) crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+        }
+        return crc;
+    }
+
+    private static int crc16(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int b = 0; b < 8; b++) crc = (crc & 0x8000) != 0 ? ((crc << 1) ^ 0x8005) & 0xFFFF : (crc << 1) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    // --- Bit output ---
+
+    /** MSB-first bit writer into a growable byte array. */
+    private static class BitWriter {
+        private byte[] buf;
+        private int bytePos;
+        private long acc;
+        private int accBits;
+
+        BitWriter(int initialCapacity) { buf = new byte[Math.max(16, initialCapacity)]; }
+
+        void reset() { bytePos = 0; acc = 0; accBits = 0; }
+
+        void writeBits(long value, int count) {
+            for (int remaining = count; remaining > 0; ) {
+                int chunk = Math.min(remaining, 32);
+                remaining -= chunk;
+                acc = (acc << chunk) | ((value >>> remaining) & ((1L << chunk) - 1));
+                accBits += chunk;
+                while (accBits >= 8) {
+                    accBits -= 8;
+                    put((byte) (acc >>> accBits));
+                }
+            }
+        }
+
+        void writeRice(long u, int k) {
+            long q = u >>> k;
+            while (q >= 32) { writeBits(0, 32); q -= 32; }
+            writeBits(1, (int) q + 1); // q zeros then a one
+            if (k > 0) writeBits(u & ((1L << k) - 1), k);
+        }
+
+        void alignToByte() {
+            if (accBits > 0) writeBits(0, 8 - accBits);
+        }
+
+        private void put(byte b) {
+            if (bytePos == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[bytePos++] = b;
+        }
+
+        byte[] buffer() { return buf; }
+
+        /** Whole bytes written so far; callers align first where it matters. */
+        int byteLength() { return bytePos; }
+    }
+}
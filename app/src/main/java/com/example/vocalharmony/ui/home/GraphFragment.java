@@ -1,16 +1,19 @@
 package com.example.vocalharmony.ui.home;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.res.Resources; // Keep if needed elsewhere, maybe by Log.e call? Check imports after changes.
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 // Removed TypedValue import
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
+import android.widget.Toast;
 
 // Removed AttrRes, ColorInt imports
 import androidx.annotation.NonNull;
@@ -30,47 +33,62 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.highlight.Highlight;
 import com.github.mikephil.charting.interfaces.datasets.ILineDataSet;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+import com.github.mikephil.charting.listener.OnChartValueSelectedListener;
 
-import java.text.ParseException;
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class GraphFragment extends Fragment {
 
     private static final String TAG = "GraphFragment";
-    private static final String PREFS_NAME = "VocalHarmonyPrefs";
-    private static final String SNR_KEY_PREFIX = "snr_";
-    private static final String DATE_FORMAT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    // --- Downsampling ---
+    // About one point per this many pixels of chart width is drawn
+    private static final int PX_PER_POINT = 3;
+    private static final int MIN_POINTS = 50;
+    // Circles and value labels are only drawn when this few points are visible
+    private static final int MAX_DECORATED_POINTS = 60;
+    private static final long DETAIL_REFRESH_DELAY_MS = 80;
+
+    // --- Session replay ---
+    // Sessions drawn together on the trace chart: the one tapped and the one tapped before it
+    private static final int MAX_COMPARED_TRACES = 2;
+    // A chart point's time is a float in minutes, so it only locates the result to within seconds
+    private static final long TRACE_MATCH_TOLERANCE_MS = 60_000;
+    private static final int TRACE_READ_CHUNK = 512;
 
     private LineChart historyLineChart;
     private TextView textNoData;
-    private SimpleDateFormat keyDateFormat;
     private SimpleDateFormat labelDateFormat;
 
-    private static class SnrDataPoint {
-        final long timestampMillis;
-        final float snrValue;
-        final Date date;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable detailRefresh = this::refreshVisibleDetail;
+    // Full-resolution series on display, sorted by time
+    private SnrSeries series;
+    // LTTB selection over the whole series, used outside the visible range
+    private int[] overviewIndices;
+    private LineDataSet dataSet;
 
-        SnrDataPoint(long timestampMillis, float snrValue, Date date) {
-            this.timestampMillis = timestampMillis;
-            this.snrValue = snrValue;
-            this.date = date;
-        }
-    }
+    private LineChart traceChart;
+    private final ArrayList<ILineDataSet> traceSets = new ArrayList<>(); // Oldest selection first
+    // Decodes traces; one at a time, in tap order
+    private final ExecutorService traceExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        keyDateFormat = new SimpleDateFormat(DATE_FORMAT_PATTERN, Locale.US);
-        keyDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
         labelDateFormat = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault());
     }
 
@@ -81,6 +99,7 @@ public class GraphFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_graph, container, false);
         historyLineChart = view.findViewById(R.id.history_line_chart);
         textNoData = view.findViewById(R.id.text_no_data);
+        traceChart = view.findViewById(R.id.session_trace_chart);
         if (historyLineChart == null) Log.e(TAG, "Error: History Line Chart not found!");
         if (textNoData == null) Log.e(TAG, "Error: No Data TextView not found!");
         return view;
@@ -92,7 +111,7 @@ public class GraphFragment extends Fragment {
         Log.d(TAG, "onViewCreated");
         if (historyLineChart != null) {
             setupHistoryChart();
-            loadAndDisplaySnrData();
+            observeHistory();
         } else {
             if (textNoData != null) {
                 textNoData.setText(getString(R.string.graph_init_error));
@@ -111,6 +130,8 @@ public class GraphFragment extends Fragment {
         historyLineChart.setDragEnabled(true);
         historyLineChart.setScaleEnabled(true);
         historyLineChart.setPinchZoom(true);
+        // Detail is re-selected when a gesture ends; a fling coasting on afterwards would outrun it
+        historyLineChart.setDragDecelerationEnabled(false);
         historyLineChart.getLegend().setEnabled(false);
         Description description = new Description();
         description.setEnabled(false);
@@ -119,7 +140,7 @@ public class GraphFragment extends Fragment {
         XAxis xAxis = historyLineChart.getXAxis();
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
         xAxis.setDrawGridLines(true);
-        xAxis.setGranularity(1f);
+        xAxis.setGranularity(1f); // One minute
         xAxis.setLabelRotationAngle(-45);
         YAxis leftAxis = historyLineChart.getAxisLeft();
         leftAxis.setDrawGridLines(true);
@@ -128,53 +149,78 @@ public class GraphFragment extends Fragment {
         historyLineChart.getAxisRight().setEnabled(false);
         // No data text unchanged...
         historyLineChart.setNoDataText(getString(R.string.graph_loading_data));
+        historyLineChart.setOnChartValueSelectedListener(new OnChartValueSelectedListener() {
+            @Override public void onValueSelected(Entry e, Highlight h) { replayTrace(e); }
+            @Override public void onNothingSelected() {}
+        });
         historyLineChart.invalidate();
+        if (traceChart != null) setupTraceChart();
     }
 
-
-    private void loadAndDisplaySnrData() {
-        if (getContext() == null || historyLineChart == null) { Log.e(TAG, "Cannot load data: Context or Chart is null."); return; }
-        Log.d(TAG, "Loading SNR data from SharedPreferences...");
-        SharedPreferences prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Map<String, ?> allEntries = prefs.getAll();
-        ArrayList<SnrDataPoint> dataPoints = new ArrayList<>();
-
-        // Parsing loop unchanged...
-        for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
-            String key = entry.getKey();
-            if (key != null && key.startsWith(SNR_KEY_PREFIX)) {
-                try {
-                    String timestampStr = key.substring(SNR_KEY_PREFIX.length());
-                    Date date = keyDateFormat.parse(timestampStr);
-                    if (date != null) {
-                        long timestampMillis = date.getTime();
-                        float snrValue = (Float) entry.getValue();
-                        dataPoints.add(new SnrDataPoint(timestampMillis, snrValue, date));
-                        Log.v(TAG, "Parsed entry: Time=" + timestampMillis + ", SNR=" + snrValue + ", Date="+date);
-                    }
-                } catch (ParseException | ClassCastException e) { // Combine catches
-                    Log.w(TAG, "Failed to parse/cast entry for key: " + key, e);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error processing key: " + key, e);
-                }
+    private void setupTraceChart() {
+        traceChart.setDrawGridBackground(false);
+        traceChart.setDrawBorders(true);
+        traceChart.setBorderColor(Color.LTGRAY);
+        Description description = new Description();
+        description.setEnabled(false);
+        traceChart.setDescription(description);
+        XAxis xAxis = traceChart.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getAxisLabel(float value, AxisBase axis) {
+                return getString(R.string.graph_trace_seconds, value);
             }
-        }
+        });
+        YAxis leftAxis = traceChart.getAxisLeft();
+        leftAxis.setAxisMinimum(0f);
+        leftAxis.setAxisMaximum((float) AudioMetrics.MAX_SNR_DB);
+        traceChart.getAxisRight().setEnabled(false);
+    }
 
-        Log.d(TAG, "Found " + dataPoints.size() + " historical SNR data points.");
 
-        // Handling no data unchanged...
-        if (dataPoints.isEmpty()) { /* ... */ return; }
-        else { if(textNoData != null) textNoData.setVisibility(View.GONE); }
+    /**
+     * Follows the shared history series: the one already in memory is drawn straight away, and
+     * every saved result extends the chart in place.
+     */
+    private void observeHistory() {
+        if (getContext() == null || historyLineChart == null) { Log.e(TAG, "Cannot load data: Context or Chart is null."); return; }
+        SnrHistoryRepository repository = SnrHistoryRepository.getInstance(requireContext());
+        repository.observeSeries(getViewLifecycleOwner(), pointBudget(), loaded -> {
+            if (historyLineChart == null || loaded.series == series) return;
+            displaySeries(loaded.series, loaded.overview);
+        });
+    }
 
-        // Sorting unchanged...
-        dataPoints.sort(Comparator.comparingLong(dp -> dp.timestampMillis));
+    private void showMessage(int messageRes) {
+        if (historyLineChart == null) return;
+        historyLineChart.clear();
+        dataSet = null;
+        series = null;
+        historyLineChart.setNoDataText(getString(messageRes));
+        if (textNoData != null) { textNoData.setText(getString(messageRes)); textNoData.setVisibility(View.VISIBLE); }
+    }
 
-        // Entry creation unchanged...
-        final ArrayList<Entry> entries = new ArrayList<>();
-        for (int i = 0; i < dataPoints.size(); i++) { entries.add(new Entry(i, dataPoints.get(i).snrValue)); }
+    /** Puts a loaded series on the chart. Main thread only. */
+    private void displaySeries(SnrSeries loaded, int[] overview) {
+        Log.d(TAG, "Found " + loaded.size() + " historical SNR data points.");
+        if (loaded.size() == 0) { showMessage(R.string.graph_no_data); return; }
+        if (textNoData != null) textNoData.setVisibility(View.GONE);
 
+        boolean refresh = dataSet != null;
+        series = loaded;
+        overviewIndices = overview;
+        ArrayList<Entry> entries = new ArrayList<>(overview.length);
+        for (int i : overview) entries.add(new Entry(series.x[i], series.y[i]));
+        pinXAxis();
+        if (refresh) {
+            // New results since the cached series was drawn; keep the current zoom
+            applyEntries(entries, overview.length);
+            refreshVisibleDetail();
+            return;
+        }
 
-        LineDataSet dataSet = new LineDataSet(entries, "Max SNR History");
+        dataSet = new LineDataSet(entries, "Max SNR History");
         Context context = requireContext();
 
         // *** USING DIRECT COLOR RESOURCES ***
@@ -196,25 +242,174 @@ public class GraphFragment extends Fragment {
         LineData lineData = new LineData(dataSets);
 
 
-        // X-Axis formatter setup unchanged...
+        applyEntries(entries, overviewIndices.length);
+        historyLineChart.setData(lineData);
+        historyLineChart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {}
+            @Override public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) { scheduleDetailRefresh(); }
+            @Override public void onChartLongPressed(MotionEvent me) {}
+            @Override public void onChartDoubleTapped(MotionEvent me) { scheduleDetailRefresh(); }
+            @Override public void onChartSingleTapped(MotionEvent me) {}
+            @Override public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {}
+            @Override public void onChartScale(MotionEvent me, float scaleX, float scaleY) { scheduleDetailRefresh(); }
+            @Override public void onChartTranslate(MotionEvent me, float dX, float dY) { scheduleDetailRefresh(); }
+        });
+        historyLineChart.invalidate();
+        Log.i(TAG, "Chart data loaded: " + series.size() + " points, " + overviewIndices.length + " drawn.");
+    }
+
+    /**
+     * Time-based x axis. The range is pinned to the full series because the data set only
+     * holds a selection of the points.
+     */
+    private void pinXAxis() {
         XAxis xAxis = historyLineChart.getXAxis();
-        final ArrayList<SnrDataPoint> finalDataPoints = dataPoints; // Final for use in inner class
+        final long labelOrigin = series.originMillis;
         xAxis.setValueFormatter(new ValueFormatter() {
             @Override
             public String getAxisLabel(float value, AxisBase axis) {
-                int index = (int) value;
-                if (index >= 0 && index < finalDataPoints.size()) {
-                    return labelDateFormat.format(finalDataPoints.get(index).date);
-                }
-                return "";
+                return labelDateFormat.format(new Date(labelOrigin + (long) (value * SnrSeries.MILLIS_PER_X)));
             }
         });
-        xAxis.setLabelCount(Math.min(dataPoints.size(), 6), false);
+        xAxis.setLabelCount(Math.min(series.size(), 6), false);
+        float span = series.x[series.size() - 1];
+        float padding = span > 0 ? span * 0.02f : 1f;
+        xAxis.setAxisMinimum(-padding);
+        xAxis.setAxisMaximum(span + padding);
+    }
 
-        // Set data and refresh unchanged...
-        historyLineChart.setData(lineData);
+    // --- Viewport-dependent detail ---
+
+    /** Number of points worth drawing across the chart's current width. */
+    private int pointBudget() {
+        float width = historyLineChart != null ? historyLineChart.getViewPortHandler().contentWidth() : 0f;
+        if (width <= 0f) width = getResources().getDisplayMetrics().widthPixels; // Not laid out yet
+        return Math.max(MIN_POINTS, (int) (width / PX_PER_POINT));
+    }
+
+    private void scheduleDetailRefresh() {
+        mainHandler.removeCallbacks(detailRefresh);
+        mainHandler.postDelayed(detailRefresh, DETAIL_REFRESH_DELAY_MS);
+    }
+
+    /**
+     * Re-selects points for the visible x range at full resolution (or LTTB if even that range
+     * has more points than pixels), keeping the coarse overview outside it so panning never
+     * shows gaps.
+     */
+    private void refreshVisibleDetail() {
+        if (historyLineChart == null || dataSet == null || series == null) return;
+        float[] seriesX = series.x;
+        float[] seriesY = series.y;
+        int from = Math.max(0, lowerBound(seriesX, historyLineChart.getLowestVisibleX()) - 1);
+        int to = Math.min(seriesX.length, lowerBound(seriesX, historyLineChart.getHighestVisibleX()) + 1);
+        int[] detail = LttbDownsampler.select(seriesX, seriesY, from, to, pointBudget());
+
+        ArrayList<Entry> entries = new ArrayList<>(overviewIndices.length + detail.length);
+        for (int i : overviewIndices) { if (i < from) entries.add(new Entry(seriesX[i], seriesY[i])); }
+        for (int i : detail) entries.add(new Entry(seriesX[i], seriesY[i]));
+        for (int i : overviewIndices) { if (i >= to) entries.add(new Entry(seriesX[i], seriesY[i])); }
+
+        applyEntries(entries, detail.length);
+        historyLineChart.getData().notifyDataChanged();
+        historyLineChart.notifyDataSetChanged();
         historyLineChart.invalidate();
-        Log.i(TAG,"Chart data loaded and displayed.");
+        Log.v(TAG, "Detail refresh: " + (to - from) + " points in view, " + detail.length + " drawn");
+    }
+
+    private void applyEntries(ArrayList<Entry> entries, int visibleCount) {
+        dataSet.setValues(entries);
+        boolean decorate = visibleCount <= MAX_DECORATED_POINTS;
+        dataSet.setDrawCircles(decorate);
+        dataSet.setDrawValues(decorate);
+    }
+
+    // --- Session replay ---
+
+    /** Loads the saved trace of the tapped result in the background and adds it to the trace chart. */
+    private void replayTrace(Entry entry) {
+        if (series == null || traceChart == null || getContext() == null) return;
+        long timeMillis = series.originMillis + (long) ((double) entry.getX() * SnrSeries.MILLIS_PER_X);
+        Context appContext = requireContext().getApplicationContext();
+        traceExecutor.execute(() -> {
+            File file = SnrTrace.findTrace(appContext, timeMillis, TRACE_MATCH_TOLERANCE_MS);
+            List<Entry> entries = null;
+            if (file != null) {
+                try {
+                    entries = readTrace(file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not read SNR trace " + file.getName(), e);
+                }
+            }
+            final List<Entry> loaded = entries;
+            mainHandler.post(() -> showTrace(timeMillis, loaded));
+        });
+    }
+
+    /** Streams a trace into chart entries: x is seconds into the session, y the SNR. */
+    private static List<Entry> readTrace(File file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        float[] chunk = new float[TRACE_READ_CHUNK];
+        try (SnrTrace.Reader reader = new SnrTrace.Reader(file)) {
+            float secondsPerValue = reader.getWindowMs() / 1000f;
+            int n;
+            while ((n = reader.read(chunk, 0, chunk.length)) > 0) {
+                for (int i = 0; i < n; i++) entries.add(new Entry(entries.size() * secondsPerValue, chunk[i]));
+            }
+        }
+        return entries;
+    }
+
+    /** Main thread. Draws the session next to the previously selected one, dropping the oldest. */
+    private void showTrace(long timeMillis, @Nullable List<Entry> entries) {
+        if (traceChart == null || !isAdded()) return;
+        if (entries == null || entries.isEmpty()) {
+            Toast.makeText(requireContext(), R.string.graph_trace_missing, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        LineDataSet set = new LineDataSet(entries, labelDateFormat.format(new Date(timeMillis)));
+        set.setLineWidth(1.5f);
+        set.setDrawCircles(false);
+        set.setDrawValues(false);
+        traceSets.add(set);
+        if (traceSets.size() > MAX_COMPARED_TRACES) traceSets.remove(0);
+        // Newest selection in the primary color, the one it is compared against in the secondary
+        for (int i = 0; i < traceSets.size(); i++) {
+            boolean newest = i == traceSets.size() - 1;
+            ((LineDataSet) traceSets.get(i)).setColor(ContextCompat.getColor(requireContext(),
+                    newest ? R.color.colorPrimary : R.color.colorSecondary));
+        }
+        traceChart.setData(new LineData(new ArrayList<>(traceSets)));
+        traceChart.setVisibility(View.VISIBLE);
+        traceChart.invalidate();
+    }
+
+    /** First index whose value is >= key. */
+    private static int lowerBound(float[] sorted, float key) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mainHandler.removeCallbacksAndMessages(null);
+        historyLineChart = null;
+        textNoData = null;
+        traceChart = null;
+        traceSets.clear();
+        dataSet = null;
+        series = null; // The parsed series itself stays in the repository
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        traceExecutor.shutdown();
     }
 
     // *** REMOVED getColorFromAttr METHOD ***
@@ -0,0 +1,65 @@
+package com.example.vocalharmony.ui.home;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013). Picks a subset of a
+ * time series that keeps its visual shape: the first and last points are always kept, the
+ * rest are split into equal buckets, and from each bucket the point forming the largest
+ * triangle with the previously kept point and the average of the next bucket is chosen.
+ * Peaks and dips survive, which plain decimation or averaging would lose.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {}
+
+    /**
+     * Returns the indices (ascending) of at most {@code threshold} points chosen from [from, to).
+     * If the range already fits, every index is returned. {@code x} must be non-decreasing.
+     */
+    public static int[] select(float[] x, float[] y, int from, int to, int threshold) {
+        int length = to - from;
+        if (length <= 0) return new int[0];
+        if (threshold >= length) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) all[i] = from + i;
+            return all;
+        }
+        // Too few buckets for a triangle: keep the ends
+        if (threshold < 3) return threshold <= 1 ? new int[] {from} : new int[] {from, to - 1};
+
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = from;
+
+        // The interior points are split into threshold - 2 buckets
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int a = from; // Previously selected point
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int bucketStart = from + 1 + (int) Math.floor(bucket * bucketSize);
+            int bucketEnd = from + 1 + (int) Math.floor((bucket + 1) * bucketSize);
+
+            // Average of the next bucket (or the last point, for the final bucket)
+            int nextStart = bucketEnd;
+            int nextEnd = Math.min(to, from + 1 + (int) Math.floor((bucket + 2) * bucketSize));
+            if (bucket == threshold - 3) { nextStart = to - 1; nextEnd = to; }
+            double avgX = 0, avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) { avgX += x[i]; avgY += y[i]; }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double ax = x[a], ay = y[a];
+            double maxArea = -1;
+            int chosen = bucketStart;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                // Twice the triangle area; the factor doesn't change which point wins
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > maxArea) { maxArea = area; chosen = i; }
+            }
+            selected[count++] = chosen;
+            a = chosen;
+        }
+
+        selected[count++] = to - 1;
+        return selected;
+    }
+}
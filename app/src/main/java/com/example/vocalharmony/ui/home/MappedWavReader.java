@@ -0,0 +1,144 @@
+package com.example.vocalharmony.ui.home;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, memory-mapped view of a 16-bit PCM WAV file. The header is parsed once and the
+ * sample data is mapped rather than copied, so callers can seek anywhere in a long take
+ * without pulling it onto the heap.
+ *
+ * A single mapping is limited to 2 GB, so the data chunk is mapped as a series of regions whose
+ * size is a multiple of the frame size; a frame therefore never straddles two regions.
+ * Instances are not thread-safe for {@link #read}; the short views can be handed to other threads.
+ */
+public class MappedWavReader implements Closeable {
+
+    // Roughly 1 GB per region, rounded down to whole frames in the constructor
+    private static final long MAX_REGION_BYTES = 1L << 30;
+
+    private final RandomAccessFile file;
+    private final int sampleRate;
+    private final int channels;
+    private final int blockAlign;
+    private final long dataOffset;
+    private final long dataLength;
+    private final long regionBytes;
+    private final MappedByteBuffer[] regions;
+
+    /** Opens and maps the file. Throws if it isn't a 16-bit PCM WAV. */
+    public static MappedWavReader open(File wavFile) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(wavFile, "r");
+        try {
+            return new MappedWavReader(raf);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private MappedWavReader(RandomAccessFile raf) throws IOException {
+        this.file = raf;
+        WavHeader header = WavHeader.read(raf);
+        if (header.format != WavHeader.FORMAT_PCM && header.format != WavHeader.FORMAT_EXTENSIBLE) {
+            throw new IOException("Unsupported WAV format " + header.format);
+        }
+        if (header.bitsPerSample != 16) throw new IOException("Only 16-bit PCM is supported, got " + header.bitsPerSample + "-bit");
+        if (header.channels <= 0 || header.blockAlign != header.channels * 2) throw new IOException("Corrupt fmt chunk");
+
+        this.sampleRate = header.sampleRate;
+        this.channels = header.channels;
+        this.blockAlign = header.blockAlign;
+        this.dataOffset = header.dataOffset;
+        this.dataLength = header.dataSize;
+        this.regionBytes = MAX_REGION_BYTES - (MAX_REGION_BYTES % blockAlign);
+
+        FileChannel channel = raf.getChannel();
+        int regionCount = (int) ((dataLength + regionBytes - 1) / regionBytes);
+        this.regions = new MappedByteBuffer[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            long start = (long) i * regionBytes;
+            long length = Math.min(regionBytes, dataLength - start);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + start, length);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            regions[i] = region;
+        }
+    }
+
+    // --- Format ---
+
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+    public long getFrameCount() { return dataLength / blockAlign; }
+    /** Byte offset of the first sample in the file. */
+    public long getDataOffset() { return dataOffset; }
+
+    public long getDurationMs() {
+        return sampleRate > 0 ? getFrameCount() * 1000L / sampleRate : 0;
+    }
+
+    // --- Random access ---
+
+    /** Returns one sample of one channel. */
+    public short getSample(long frame, int channel) {
+        if (frame < 0 || frame >= getFrameCount() || channel < 0 || channel >= channels) {
+            throw new IndexOutOfBoundsException("frame " + frame + ", channel " + channel);
+        }
+        long byteOffset = frame * blockAlign + channel * 2L;
+        return regions[(int) (byteOffset / regionBytes)].getShort((int) (byteOffset % regionBytes));
+    }
+
+    /** Same as {@link #getSample} scaled to [-1, 1). */
+    public float getFloat(long frame, int channel) {
+        return getSample(frame, channel) / 32768f;
+    }
+
+    /**
+     * Copies up to {@code frames} interleaved frames starting at {@code startFrame} into {@code dst}.
+     * @return the number of frames copied, 0 at end of data.
+     */
+    public int read(long startFrame, short[] dst, int offset, int frames) {
+        long remaining = getFrameCount() - startFrame;
+        if (startFrame < 0 || remaining < 0) throw new IndexOutOfBoundsException("frame " + startFrame);
+        int total = (int) Math.min(frames, remaining);
+        int copied = 0;
+        while (copied < total) {
+            ShortBuffer view = shortView(startFrame + copied, total - copied);
+            int n = view.remaining();
+            view.get(dst, offset + copied * channels, n);
+            copied += n / channels;
+        }
+        return total;
+    }
+
+    /**
+     * Zero-copy view of interleaved samples starting at {@code startFrame}. The view stops at the
+     * end of the data or of the underlying mapped region, whichever comes first, so it may hold
+     * fewer than {@code maxFrames} frames; callers walking a long file should loop.
+     */
+    public ShortBuffer shortView(long startFrame, int maxFrames) {
+        if (startFrame < 0 || startFrame > getFrameCount()) throw new IndexOutOfBoundsException("frame " + startFrame);
+        long byteOffset = startFrame * blockAlign;
+        if (byteOffset == dataLength) return ShortBuffer.allocate(0);
+        int regionIndex = (int) (byteOffset / regionBytes);
+        int regionOffset = (int) (byteOffset % regionBytes);
+        ByteBuffer region = regions[regionIndex].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long bytes = Math.min((long) maxFrames * blockAlign, region.capacity() - regionOffset);
+        region.position(regionOffset);
+        region.limit(regionOffset + (int) bytes);
+        return region.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    /** Closes the file. Mapped regions are released by the GC once the views are unreachable. */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
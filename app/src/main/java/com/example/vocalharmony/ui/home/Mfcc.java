@@ -0,0 +1,126 @@
+package com.example.vocalharmony.ui.home;
+
+import org.jtransforms.fft.FloatFFT_1D;
+
+import java.util.Arrays;
+
+/**
+ * Mel-frequency cepstral coefficients of 16 kHz mono speech, the features the enunciation scorer
+ * compares. Frames are 25 ms with a 10 ms hop; each gives {@link #NUM_COEFFS} coefficients from
+ * 26 mel filters up to 8 kHz, with c0 replaced by log frame energy. The per-utterance mean is
+ * subtracted from every coefficient (cepstral mean normalization), which cancels most of the
+ * difference between microphones and rooms.
+ *
+ * Not thread-safe: the FFT and work buffers are reused between calls. Use one instance per
+ * thread.
+ */
+public class Mfcc {
+
+    public static final int SAMPLE_RATE = 16000;
+    public static final int FRAME_SAMPLES = 400; // 25 ms
+    public static final int HOP_SAMPLES = 160; // 10 ms
+    public static final int NUM_COEFFS = 13;
+    private static final int FFT_SIZE = 512;
+    private static final int NUM_FILTERS = 26;
+    private static final float PRE_EMPHASIS = 0.97f;
+    private static final double LOG_FLOOR = 1e-10;
+
+    private final FloatFFT_1D fft = new FloatFFT_1D(FFT_SIZE);
+    private final float[] window = new float[FRAME_SAMPLES];
+    private final float[] spectrum = new float[FFT_SIZE];
+    private final double[] power = new double[FFT_SIZE / 2 + 1];
+    private final double[] melEnergies = new double[NUM_FILTERS];
+    // Triangular filters over FFT bins: filter m rises from bin edges[m] to edges[m+1] and falls to edges[m+2]
+    private final int[] filterEdges = new int[NUM_FILTERS + 2];
+    private final double[][] dct = new double[NUM_COEFFS][NUM_FILTERS];
+
+    public Mfcc() {
+        for (int n = 0; n < FRAME_SAMPLES; n++) {
+            window[n] = (float) (0.54 - 0.46 * Math.cos(2.0 * Math.PI * n / (FRAME_SAMPLES - 1))); // Hamming
+        }
+        double maxMel = hzToMel(SAMPLE_RATE / 2.0);
+        for (int m = 0; m < filterEdges.length; m++) {
+            double hz = melToHz(maxMel * m / (NUM_FILTERS + 1));
+            filterEdges[m] = (int) Math.floor((FFT_SIZE + 1) * hz / SAMPLE_RATE);
+        }
+        for (int k = 0; k < NUM_COEFFS; k++) {
+            for (int m = 0; m < NUM_FILTERS; m++) {
+                dct[k][m] = Math.cos(Math.PI * k * (m + 0.5) / NUM_FILTERS);
+            }
+        }
+    }
+
+    /** Number of frames {@link #compute} returns for {@code samples} samples. */
+    public static int frameCount(int samples) {
+        return samples < FRAME_SAMPLES ? 0 : 1 + (samples - FRAME_SAMPLES) / HOP_SAMPLES;
+    }
+
+    /**
+     * Computes normalized MFCCs for {@code length} samples of {@code pcm}.
+     * @return one row of {@link #NUM_COEFFS} coefficients per frame; empty if shorter than a frame
+     */
+    public float[][] compute(short[] pcm, int offset, int length) {
+        int frames = frameCount(length);
+        float[][] features = new float[frames][NUM_COEFFS];
+        for (int f = 0; f < frames; f++) computeFrame(pcm, offset, offset + f * HOP_SAMPLES, features[f]);
+        normalizeMean(features);
+        return features;
+    }
+
+    private void computeFrame(short[] pcm, int offset, int start, float[] out) {
+        // Pre-emphasis and window; the sample before the frame seeds the filter, unless it lies before the utterance
+        float previous = start > offset ? pcm[start - 1] : 0f;
+        double energy = 0.0;
+        for (int n = 0; n < FRAME_SAMPLES; n++) {
+            float sample = pcm[start + n];
+            energy += (double) sample * sample;
+            spectrum[n] = (sample - PRE_EMPHASIS * previous) * window[n];
+            previous = sample;
+        }
+        Arrays.fill(spectrum, FRAME_SAMPLES, FFT_SIZE, 0f);
+        fft.realForward(spectrum);
+
+        // realForward packs Re[0] and Re[N/2] into the first two slots, then (Re, Im) pairs
+        power[0] = spectrum[0] * spectrum[0];
+        power[FFT_SIZE / 2] = spectrum[1] * spectrum[1];
+        for (int k = 1; k < FFT_SIZE / 2; k++) {
+            float re = spectrum[2 * k];
+            float im = spectrum[2 * k + 1];
+            power[k] = re * re + im * im;
+        }
+
+        for (int m = 0; m < NUM_FILTERS; m++) {
+            int left = filterEdges[m];
+            int center = filterEdges[m + 1];
+            int right = filterEdges[m + 2];
+            double sum = 0.0;
+            for (int k = left; k < center; k++) sum += power[k] * (k - left) / Math.max(1, center - left);
+            for (int k = center; k < right; k++) sum += power[k] * (right - k) / Math.max(1, right - center);
+            melEnergies[m] = Math.log(Math.max(sum, LOG_FLOOR));
+        }
+        out[0] = (float) Math.log(Math.max(energy, LOG_FLOOR));
+        for (int k = 1; k < NUM_COEFFS; k++) {
+            double c = 0.0;
+            for (int m = 0; m < NUM_FILTERS; m++) c += dct[k][m] * melEnergies[m];
+            out[k] = (float) c;
+        }
+    }
+
+    private static void normalizeMean(float[][] features) {
+        if (features.length == 0) return;
+        for (int k = 0; k < NUM_COEFFS; k++) {
+            double mean = 0.0;
+            for (float[] frame : features) mean += frame[k];
+            mean /= features.length;
+            for (float[] frame : features) frame[k] -= (float) mean;
+        }
+    }
+
+    private static double hzToMel(double hz) {
+        return 2595.0 * Math.log10(1.0 + hz / 700.0);
+    }
+
+    private static double melToHz(double mel) {
+        return 700.0 * (Math.pow(10.0, mel / 2595.0) - 1.0);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.vocalharmony.ui.home;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits one continuous reading of a passage into a WAV file per sentence, in a single pass as
+ * the audio is captured. Speech is found with 20 ms energy frames, as in {@link EnergyVad}. A
+ * pause ends the current sentence only if it is long enough for how much of the sentence has
+ * been read: a short pause near its expected length, a long one well before it. That length
+ * comes from the sentence's character count and the reader's pace on the sentences before it.
+ * A comma pause in a long sentence therefore doesn't split it, and the last sentence is never
+ * split. Silence between sentences is not written: each file starts a short pre-roll before
+ * the speech and ends a short guard after it.
+ *
+ * Each sentence is fed through its own {@link TakeQualityGate}, so every file can be judged
+ * like a single take. The gate is judged on what the file keeps: during a pause it is copied at
+ * the point the guard would end, and that copy is used if the pause is cut off there.
+ *
+ * Not thread-safe; use it from the capture thread only. Listener callbacks run on that thread.
+ */
+public class PassageSegmenter {
+
+    private static final String TAG = "PassageSegmenter";
+    private static final int CHANNELS = 1;
+    private static final int BITS_PER_SAMPLE = 16;
+    /** Voiced if power exceeds the noise floor by this factor (about +6 dB), as in EnergyVad. */
+    private static final double THRESHOLD_RATIO = 4.0;
+    private static final double DEFAULT_NOISE_POWER = 60.0 * 60.0;
+    private static final int MIN_VOICED_FRAMES = 3;
+    private static final int PRE_ROLL_MS = 200;
+    private static final int GUARD_MS = 250;
+    /**
+     * Pause needed to end a sentence, by how much of its expected length has been spoken: the
+     * further short of it, the longer the pause must be, so a comma pause doesn't cut it early.
+     */
+    private static final int[] PAUSE_MS = {350, 600, 900};
+    private static final double[] CUT_FRACTION = {0.85, 0.6, 0.35};
+    /** Reading pace assumed until the first sentence is done: about 15 characters a second. */
+    private static final double INITIAL_SECONDS_PER_CHAR = 0.065;
+
+    /** Called on the capture thread. */
+    public interface Listener {
+        /** Speech for sentence {@code index} has started and is being written. */
+        void onSentenceStarted(int index);
+    }
+
+    /** One finished sentence file. */
+    public static final class Segment {
+        public final int index;
+        public final File file;
+        /** Position of the file's first sample in the whole reading. */
+        public final long startSample;
+        public final long sampleCount;
+        public final double spokenSeconds;
+        public final double expectedSeconds;
+        public final TakeQualityGate gate;
+
+        Segment(int index, File file, long startSample, long sampleCount, double spokenSeconds,
+                double expectedSeconds, TakeQualityGate gate) {
+            this.index = index;
+            this.file = file;
+            this.startSample = startSample;
+            this.sampleCount = sampleCount;
+            this.spokenSeconds = spokenSeconds;
+            this.expectedSeconds = expectedSeconds;
+            this.gate = gate;
+        }
+    }
+
+    private final List<File> files;
+    private final int[] sentenceChars;
+    private final int sampleRate;
+    private final long guardSamples;
+    private final double thresholdPower;
+    private final TakeQualityGate gateTemplate;
+    private final Listener listener;
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final short[] frame;
+    private int frameFill = 0;
+    private long totalSamples = 0;
+    private byte[] bytes = new byte[0];
+
+    // Between sentences: the last few frames, written as pre-roll once speech starts
+    private final short[][] preRoll;
+    private int preRollHead = 0;
+    private int preRollCount = 0;
+    private int voicedRun = 0;
+
+    // The sentence being written
+    private OutputStream out;
+    private TakeQualityGate gate;
+    private long segmentStart;
+    private long segmentSamples;
+    private long lastVoicedEnd; // Segment-relative
+    private TakeQualityGate gateAtGuard; // The gate as of lastVoicedEnd plus the guard, once the pause gets there
+    private int silentRun = 0;
+
+    // Reading pace so far
+    private double spokenSecondsDone = 0.0;
+    private long charsDone = 0;
+
+    /**
+     * @param sentences the passage, in reading order
+     * @param files target file per sentence
+     * @param noiseFloorPower mean (raw, unwindowed) power of the room noise, or 0 to use a default
+     * @param gateTemplate thresholds for the per-sentence quality gates
+     */
+    public PassageSegmenter(@NonNull List<String> sentences, @NonNull List<File> files, int sampleRate,
+                            double noiseFloorPower, @NonNull TakeQualityGate gateTemplate, @NonNull Listener listener) {
+        if (sentences.size() != files.size() || sentences.isEmpty()) {
+            throw new IllegalArgumentException("Need one file per sentence");
+        }
+        this.files = new ArrayList<>(files);
+        this.sentenceChars = new int[sentences.size()];
+        for (int i = 0; i < sentenceChars.length; i++) sentenceChars[i] = Math.max(1, sentences.get(i).length());
+        this.sampleRate = sampleRate;
+        this.guardSamples = (long) sampleRate * GUARD_MS / 1000;
+        double floor = noiseFloorPower > 0 ? noiseFloorPower : DEFAULT_NOISE_POWER;
+        this.thresholdPower = floor * THRESHOLD_RATIO;
+        this.gateTemplate = gateTemplate;
+        this.listener = listener;
+        int frameSamples = Math.max(1, sampleRate * EnergyVad.FRAME_MS / 1000);
+        this.frame = new short[frameSamples];
+        this.preRoll = new short[Math.max(MIN_VOICED_FRAMES, PRE_ROLL_MS / EnergyVad.FRAME_MS)][frameSamples];
+    }
+
+    /** Feeds 16-bit mono samples. */
+    public void write(@NonNull short[] pcm, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            int n = Math.min(end - offset, frame.length - frameFill);
+            System.arraycopy(pcm, offset, frame, frameFill, n);
+            frameFill += n;
+            offset += n;
+            if (frameFill == frame.length) {
+                onFrame();
+                frameFill = 0;
+            }
+        }
+    }
+
+    /**
+     * Closes the last sentence. The reading lined up with the passage if the number of
+     * segments equals the number of sentences.
+     */
+    @NonNull
+    public List<Segment> finish() throws IOException {
+        if (out != null) closeSegment();
+        Log.i(TAG, "Split reading into " + segments.size() + " of " + files.size() + " sentences");
+        return Collections.unmodifiableList(segments);
+    }
+
+    /** Stops after a failure or cancel and deletes every file written. */
+    public void abort() {
+        if (out != null) {
+            try { out.close(); } catch (IOException e) { Log.w(TAG, "Error closing segment on abort", e); }
+            out = null;
+        }
+        for (File file : files) {
+            if (file.exists() && !file.delete()) Log.w(TAG, "Failed to delete " + file.getName());
+        }
+        segments.clear();
+    }
+
+    // --- Framing ---
+
+    private void onFrame() throws IOException {
+        totalSamples += frame.length;
+        double energy = 0.0;
+        for (short s : frame) energy += (double) s * s;
+        boolean voiced = energy / frame.length >= thresholdPower;
+
+        if (out == null) {
+            if (segments.size() == files.size()) return; // Unreachable: the last sentence is never cut
+            pushPreRoll();
+            voicedRun = voiced ? voicedRun + 1 : 0;
+            if (voicedRun >= MIN_VOICED_FRAMES) openSegment();
+            return;
+        }
+
+        writeSamples(frame, frame.length);
+        if (voiced) {
+            silentRun = 0;
+            lastVoicedEnd = segmentSamples;
+            gateAtGuard = null; // Speech resumed, so the pause stays in the file
+        } else if (shouldCut(++silentRun)) {
+            closeSegment();
+        }
+    }
+
+    private boolean shouldCut(int silentFrames) {
+        int index = segments.size();
+        if (index == files.size() - 1) return false; // Everything left belongs to the last sentence
+        int pauseMs = silentFrames * EnergyVad.FRAME_MS;
+        if (pauseMs < PAUSE_MS[0]) return false;
+        double share = ((double) lastVoicedEnd / sampleRate) / expectedSeconds(index);
+        for (int i = 0; i < PAUSE_MS.length; i++) {
+            if (pauseMs >= PAUSE_MS[i] && share >= CUT_FRACTION[i]) return true;
+        }
+        return false;
+    }
+
+    private double expectedSeconds(int index) {
+        double secondsPerChar = charsDone > 0 ? spokenSecondsDone / charsDone : INITIAL_SECONDS_PER_CHAR;
+        return sentenceChars[index] * secondsPerChar;
+    }
+
+    private void pushPreRoll() {
+        int slot = (preRollHead + preRollCount) % preRoll.length;
+        System.arraycopy(frame, 0, preRoll[slot], 0, frame.length);
+        if (preRollCount < preRoll.length) {
+            preRollCount++;
+        } else {
+            preRollHead = (preRollHead + 1) % preRoll.length;
+        }
+    }
+
+    // --- Sentence files ---
+
+    private void openSegment() throws IOException {
+        int index = segments.size();
+        File file = files.get(index);
+        out = new BufferedOutputStream(new FileOutputStream(file));
+        WavWriter.writeHeader(out, sampleRate, CHANNELS, BITS_PER_SAMPLE, 0); // Placeholder, patched on close
+        gate = gateTemplate.newTake();
+        segmentStart = totalSamples - (long) preRollCount * frame.length;
+        segmentSamples = 0;
+        silentRun = 0;
+        for (int i = 0; i < preRollCount; i++) writeSamples(preRoll[(preRollHead + i) % preRoll.length], frame.length);
+        lastVoicedEnd = segmentSamples;
+        gateAtGuard = null;
+        preRollHead = 0;
+        preRollCount = 0;
+        voicedRun = 0;
+        Log.d(TAG, "Sentence " + index + " starts at " + segmentStart * 1000 / sampleRate + " ms");
+        listener.onSentenceStarted(index);
+    }
+
+    private void writeSamples(short[] samples, int length) throws IOException {
+        if (bytes.length < length * 2) bytes = new byte[length * 2];
+        for (int i = 0; i < length; i++) { // Little-endian 16-bit, as in the WAV data chunk
+            bytes[2 * i] = (byte) samples[i];
+            bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        out.write(bytes, 0, length * 2);
+        long guardEnd = lastVoicedEnd + guardSamples;
+        if (gateAtGuard == null && segmentSamples <= guardEnd && guardEnd < segmentSamples + length) {
+            int split = (int) (guardEnd - segmentSamples);
+            gate.add(samples, 0, split);
+            gateAtGuard = gate.copy();
+            gate.add(samples, split, length - split);
+        } else {
+            gate.add(samples, 0, length);
+        }
+        segmentSamples += length;
+    }
+
+    /** Ends the sentence a guard interval after its last speech; the rest of the pause is cut off. */
+    private void closeSegment() throws IOException {
+        int index = segments.size();
+        File file = files.get(index);
+        out.close();
+        out = null;
+        long keep = Math.min(segmentSamples, lastVoicedEnd + guardSamples);
+        WavWriter.cropData(file, 0, keep * 2); // Only truncates, and patches the header
+        // The gate has heard the whole pause; the copy at the guard has heard only what was kept
+        TakeQualityGate keptGate = keep < segmentSamples ? gateAtGuard : gate;
+        double spoken = (double) lastVoicedEnd / sampleRate;
+        double expected = expectedSeconds(index);
+        segments.add(new Segment(index, file, segmentStart, keep, spoken, expected, keptGate));
+        spokenSecondsDone += spoken;
+        charsDone += sentenceChars[index];
+        gate = null;
+        gateAtGuard = null;
+        Log.d(TAG, String.format(Locale.US, "Sentence %d: %.2f s spoken, %.2f s expected", index, spoken, expected));
+    }
+}
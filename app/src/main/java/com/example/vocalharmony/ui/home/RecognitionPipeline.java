@@ -0,0 +1,153 @@
+package com.example.vocalharmony.ui.home;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams captured PCM to a {@link SpeechRecognizerEngine} with memory that stays flat however
+ * long the user speaks. The capture thread {@link #write}s reads of any size; they are cut into
+ * fixed {@link SpeechRecognizerEngine#FRAME_SAMPLES} frames and handed through a bounded queue
+ * to a worker thread that runs the engine. Frame buffers come from a fixed pool and are
+ * recycled, so nothing is allocated per read.
+ *
+ * If the engine falls behind by more than the queue holds, new frames are dropped (and counted)
+ * rather than blocking capture, which would only overflow the recorder's own buffer instead.
+ */
+public class RecognitionPipeline {
+
+    private static final String TAG = "RecognitionPipeline";
+    /** Default queue depth: 1 s of audio. */
+    public static final int DEFAULT_QUEUE_FRAMES = 50;
+    private static final long POLL_MS = 50;
+
+    /** Receives results on the pipeline thread; post to the UI thread as needed. */
+    public interface Callback {
+        void onPartialResult(@NonNull String text);
+
+        /** The transcript once all queued audio has been recognized. Not called after {@link #cancel()}. */
+        void onFinalResult(@NonNull String text);
+    }
+
+    private final SpeechRecognizerEngine engine;
+    private final Callback callback;
+    private final BlockingQueue<short[]> frames;
+    private final BlockingQueue<short[]> freeFrames;
+    private final Thread worker;
+
+    // Capture side, used only by the writing thread
+    private short[] currentFrame;
+    private int currentFill;
+    private long samplesWritten;
+
+    private volatile boolean finishing = false;
+    private volatile boolean cancelled = false;
+    private volatile int droppedFrames = 0;
+
+    public RecognitionPipeline(@NonNull SpeechRecognizerEngine engine, int queueFrames, @NonNull Callback callback) {
+        this.engine = engine;
+        this.callback = callback;
+        // Every buffer fits in either queue, so handing one over never fails
+        int capacity = Math.max(2, queueFrames);
+        this.frames = new ArrayBlockingQueue<>(capacity);
+        this.freeFrames = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) freeFrames.add(new short[SpeechRecognizerEngine.FRAME_SAMPLES]);
+        this.worker = new Thread(this::runEngine, "RecognitionPipeline");
+    }
+
+    /** Starts the worker thread. Call once, before the first {@link #write}. */
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Queues captured audio (16 kHz mono). Never blocks; call from the capture thread only.
+     * @return false if frames had to be dropped because the engine is behind
+     */
+    public boolean write(@NonNull short[] pcm, int offset, int length) {
+        if (finishing || cancelled) return false;
+        boolean kept = true;
+        samplesWritten += length;
+        int end = offset + length;
+        while (offset < end) {
+            if (currentFrame == null) {
+                currentFrame = freeFrames.poll();
+                currentFill = 0;
+                if (currentFrame == null) { // Engine is behind; drop the rest of this frame's audio
+                    int skip = Math.min(end - offset, SpeechRecognizerEngine.FRAME_SAMPLES);
+                    offset += skip;
+                    droppedFrames++;
+                    kept = false;
+                    continue;
+                }
+            }
+            int n = Math.min(end - offset, currentFrame.length - currentFill);
+            System.arraycopy(pcm, offset, currentFrame, currentFill, n);
+            currentFill += n;
+            offset += n;
+            if (currentFill == currentFrame.length) {
+                frames.add(currentFrame);
+                currentFrame = null;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Ends the utterance: the partial last frame is padded with silence and queued, and once
+     * the engine has worked through the queue the final transcript goes to the callback. Call
+     * after the last {@link #write}, on the capture thread or after it has stopped.
+     */
+    public void finish() {
+        if (finishing || cancelled) return;
+        if (currentFrame != null) {
+            Arrays.fill(currentFrame, currentFill, currentFrame.length, (short) 0);
+            frames.add(currentFrame);
+            currentFrame = null;
+        }
+        finishing = true;
+        Log.d(TAG, "Finishing after " + samplesWritten + " samples, " + droppedFrames + " frames dropped");
+    }
+
+    /** Stops without a final result. Safe from any thread. */
+    public void cancel() {
+        cancelled = true;
+        worker.interrupt();
+    }
+
+    /** Frames lost because the engine fell behind. */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    private void runEngine() {
+        try {
+            engine.start(text -> {
+                if (!cancelled) callback.onPartialResult(text);
+            });
+            while (!cancelled) {
+                short[] frame = frames.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    // finish() queues the last frame before setting the flag, so an empty queue here means done
+                    if (finishing && frames.isEmpty()) break;
+                    continue;
+                }
+                engine.acceptFrame(frame);
+                freeFrames.add(frame);
+            }
+            if (!cancelled) callback.onFinalResult(engine.finish());
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Recognition cancelled");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Recognizer failed", e);
+            if (!cancelled) callback.onFinalResult("");
+        } finally {
+            engine.release();
+        }
+    }
+}
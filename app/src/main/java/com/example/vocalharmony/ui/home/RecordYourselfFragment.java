@@ -2,9 +2,9 @@ package com.example.vocalharmony.ui.home;
 
 // Android & Java Imports
 import android.Manifest;
-import android.content.Context;
 import android.content.DialogInterface; // Needed for AlertDialog
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.media.AudioFormat;
 import android.media.AudioRecord;
@@ -41,17 +41,10 @@ import com.google.android.material.button.MaterialButton; // Use if buttons are
 
 // Java IO and Util Imports
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.RandomAccessFile;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.TimeZone;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -61,7 +54,8 @@ import java.util.regex.Pattern; // For filename validation
  * Fragment for recording audio messages, listing them, and allowing playback,
  * sharing, deletion, and renaming.
  */
-public class RecordYourselfFragment extends Fragment implements RecordingsAdapter.OnItemActionListener {
+public class RecordYourselfFragment extends Fragment implements RecordingsAdapter.OnItemActionListener,
+        RecordingStore.ChangeListener {
 
     // --- Constants ---
     private static final String TAG = "RecordYourselfFragment";
@@ -72,8 +66,15 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
             AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT),
             2048 // Use a reasonable default buffer size
     );
-    private static final String FILENAME_PREFIX = "VocalHarmony_";
-    private static final String FILENAME_SUFFIX = ".wav";
+    private static final String FILENAME_PREFIX = RecordingStore.FILENAME_PREFIX;
+    private static final String FILENAME_SUFFIX = RecordingStore.FILENAME_SUFFIX;
+    // Long sessions roll over to a new WAV at this boundary (see SegmentedWavWriter)
+    private static final long SEGMENT_MAX_DURATION_MS = 10 * 60 * 1000L;
+    private static final long SEGMENT_MAX_BYTES = 0; // No size limit beyond the RIFF cap
+    // Save-time silence trimming, configurable through prefs
+    static final String KEY_TRIM_SILENCE = "trimSilenceEnabled";
+    static final String KEY_TRIM_GUARD_MS = "trimSilenceGuardMs";
+    private static final int DEFAULT_TRIM_GUARD_MS = 300;
     // Pattern to check for invalid filename characters (adjust as needed for target OS)
     private static final Pattern INVALID_FILENAME_CHARS = Pattern.compile("[\\\\/:*?\"<>|]");
 
@@ -87,13 +88,15 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
     // --- State & Logic Variables ---
     private AudioRecord audioRecord;
     private MediaPlayer mediaPlayer;
-    private File currentRecordingFile; // File currently being written to
+    private SegmentedWavWriter currentSession; // Session currently being written to
     private volatile boolean isRecording = false; // Flag for recording state (volatile for thread visibility)
     private boolean isPlaying = false; // Flag for playback state
     private String playingFilePath = null; // Path of the file currently playing
 
     private RecordingsAdapter recordingsAdapter;
-    // Use a final list instance, modify its contents (clear/addAll)
+    private RecordingStore recordingStore;
+    // Mirror of what the adapter shows. Never handed to the adapter directly: ListAdapter
+    // ignores re-submission of the same instance, so publishRecordingsList() submits a copy.
     private final List<RecordingItem> recordingItemsList = new ArrayList<>();
 
     // Background tasks executor and UI thread handler
@@ -109,6 +112,7 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         Log.d(TAG, "onCreate");
+        recordingStore = RecordingStore.getInstance(requireContext());
         // Initialize the permission launcher
         requestPermissionLauncher = registerForActivityResult(
                 new ActivityResultContracts.RequestPermission(),
@@ -149,6 +153,8 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         Log.d(TAG, "onViewCreated");
+        // Receive item-level add/rename/remove events instead of rescanning the folder
+        recordingStore.addListener(this);
         // Initial check for permission and setup UI/load data
         checkPermissionAndSetup();
     }
@@ -183,6 +189,8 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         Log.d(TAG,"onDestroyView: Nullifying views and removing handler callbacks.");
         // Clean up UI references and pending UI updates
         mainHandler.removeCallbacksAndMessages(null);
+        recordingStore.removeListener(this);
+        if (recordingsAdapter != null) recordingsAdapter.release();
         recyclerViewRecordings.setAdapter(null); // Prevent memory leaks from adapter
         recyclerViewRecordings = null;
         recordingsAdapter = null; // Let adapter be garbage collected
@@ -218,7 +226,7 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
             // Ensure the list is cleared if permission is denied/missing
             if (recordingsAdapter != null) {
                 recordingItemsList.clear();
-                recordingsAdapter.submitList(recordingItemsList); // Show empty list
+                publishRecordingsList(); // Show empty list
             }
         }
         // Update button states based on current permission status
@@ -295,7 +303,10 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
 
     // --- File Management ---
 
-    /** Loads the list of existing WAV recordings from the app's external files directory. */
+    /**
+     * Loads the list of existing WAV recordings. The directory is only scanned the first time;
+     * after that RecordingStore serves its cached list and pushes individual changes to us.
+     */
     private void loadRecordingsList() {
         if (getContext() == null || recordingsAdapter == null) {
             Log.e(TAG, "Cannot load recordings: Context or Adapter is null.");
@@ -304,63 +315,7 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         Log.d(TAG, "Loading recordings list...");
         // Execute file loading on a background thread
         executorService.execute(() -> {
-            List<RecordingItem> loadedItems = new ArrayList<>();
-            File recordingsDir = requireContext().getExternalFilesDir(null); // App-specific external storage
-
-            if (recordingsDir != null && recordingsDir.exists()) {
-                // Filter for files matching the naming convention
-                File[] files = recordingsDir.listFiles((dir, name) ->
-                        name.startsWith(FILENAME_PREFIX) && name.toLowerCase().endsWith(FILENAME_SUFFIX));
-
-                if (files != null) {
-                    Log.d(TAG, "Found " + files.length + " potential recording files.");
-                    // Prepare date/time formatters
-                    SimpleDateFormat durationFormat = new SimpleDateFormat("m:ss", Locale.getDefault());
-                    durationFormat.setTimeZone(TimeZone.getTimeZone("UTC")); // Format duration correctly
-                    SimpleDateFormat displayDateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault()); // More detailed date
-
-                    for (File file : files) {
-                        try {
-                            String name = file.getName();
-                            // Extract timestamp from filename
-                            String timestampStr = name.substring(FILENAME_PREFIX.length(), name.length() - FILENAME_SUFFIX.length());
-                            long timestamp = Long.parseLong(timestampStr);
-
-                            // Create RecordingItem
-                            RecordingItem item = new RecordingItem(name, file.getAbsolutePath(), timestamp);
-
-                            // Get duration using MediaPlayer (safely)
-                            MediaPlayer mp = null;
-                            try {
-                                mp = new MediaPlayer();
-                                mp.setDataSource(item.getFilePath());
-                                mp.prepare(); // Can throw IOException if file is corrupt/invalid
-                                long durationMs = mp.getDuration();
-                                item.setDurationString(durationMs > 0 ? durationFormat.format(new Date(durationMs)) : "0:00");
-                            } catch (Exception e) { // Catch MediaPlayer exceptions (IOException, IllegalStateException)
-                                Log.w(TAG, "Could not get duration for " + item.getFileName() + ". File might be corrupt.", e);
-                                item.setDurationString("?:??"); // Indicate error
-                            } finally {
-                                if (mp != null) { try { mp.release(); } catch (Exception ignored) {} }
-                            }
-
-                            // Set formatted date string
-                            item.setFormattedDate(displayDateFormat.format(new Date(item.getTimestamp())));
-                            loadedItems.add(item);
-
-                        } catch (NumberFormatException e) {
-                            Log.w(TAG, "Could not parse timestamp from filename: " + file.getName() + ". Skipping.");
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error processing file entry: " + file.getName(), e);
-                        }
-                    } // End loop through files
-
-                    // Sort by timestamp, newest first
-                    loadedItems.sort(Comparator.comparingLong(RecordingItem::getTimestamp).reversed());
-
-                } else { Log.w(TAG, "listFiles returned null for directory: " + recordingsDir.getPath()); }
-            } else { Log.w(TAG, "Recordings directory is null or doesn't exist."); }
-
+            List<RecordingItem> loadedItems = recordingStore.getRecordings();
             Log.d(TAG, "Finished loading. Found " + loadedItems.size() + " valid recordings.");
 
             // Update UI on the main thread
@@ -368,15 +323,57 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
                 if (!isAdded() || recordingsAdapter == null) return; // Check fragment/adapter state
                 recordingItemsList.clear();
                 recordingItemsList.addAll(loadedItems);
-                recordingsAdapter.submitList(recordingItemsList); // Update the adapter's list
+                publishRecordingsList(); // Diffed off the main thread by the adapter
                 updateUiForCurrentState(); // Refresh button states etc.
             });
         });
     }
 
+    /** Hands a copy of the current list to the adapter, which diffs it asynchronously. */
+    private void publishRecordingsList() {
+        if (recordingsAdapter != null) {
+            recordingsAdapter.submitList(new ArrayList<>(recordingItemsList));
+        }
+    }
+
+    // --- RecordingStore.ChangeListener (main thread) ---
+
+    @Override
+    public void onRecordingAdded(@NonNull RecordingItem item) {
+        if (!isAdded()) return;
+        recordingItemsList.remove(item);
+        // Newest first: find the first older item and insert before it
+        int index = 0;
+        while (index < recordingItemsList.size() && recordingItemsList.get(index).getTimestamp() > item.getTimestamp()) index++;
+        recordingItemsList.add(index, item);
+        publishRecordingsList();
+    }
+
+    @Override
+    public void onRecordingRenamed(@NonNull RecordingItem oldItem, @NonNull RecordingItem newItem) {
+        if (!isAdded()) return;
+        int index = recordingItemsList.indexOf(oldItem);
+        if (index >= 0) {
+            recordingItemsList.set(index, newItem);
+            publishRecordingsList();
+        } else {
+            Log.w(TAG, "Renamed item not in list: " + oldItem.getFileName() + ". Adding it.");
+            onRecordingAdded(newItem);
+        }
+    }
+
+    @Override
+    public void onRecordingRemoved(@NonNull RecordingItem item) {
+        if (!isAdded()) return;
+        if (recordingItemsList.remove(item)) {
+            publishRecordingsList();
+        }
+        updateUiForCurrentState();
+    }
+
     /**
      * Shows a confirmation dialog and deletes the specified recording file and list item.
-     * (Corrected version using only notifyItemRemoved)
+     * The list itself is updated by the store's removal event.
      */
     private void deleteRecording(final RecordingItem item, final int position) {
         if (item == null || item.getFilePath() == null || !isAdded() || getContext() == null) {
@@ -390,55 +387,16 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
                 .setTitle(R.string.dialog_delete_title)
                 .setMessage(getString(R.string.dialog_delete_message, fileName)) // Use formatted string
                 .setPositiveButton(android.R.string.yes, (dialog, which) -> {
-                    // Perform deletion on background thread
+                    // Perform deletion on background thread; the store publishes the removal
                     executorService.execute(() -> {
-                        boolean deleted = false;
-                        String logMessage = "Attempting delete for " + fileName;
-                        try {
-                            if (fileToDelete.exists()) {
-                                deleted = fileToDelete.delete();
-                                logMessage = "Deletion attempt result for " + fileName + ": " + deleted;
-                            } else {
-                                Log.w(TAG,"File not found for deletion: " + fileName + ". Treating as 'deleted'.");
-                                deleted = true; // Allow list item removal if file is already gone
-                            }
-                        } catch (SecurityException se) {
-                            logMessage = "SecurityException deleting file " + fileName;
-                            Log.e(TAG, logMessage, se);
-                        } catch (Exception e) {
-                            logMessage = "Error deleting file " + fileName;
-                            Log.e(TAG, logMessage, e);
-                        } finally {
-                            Log.d(TAG, logMessage); // Log the final outcome/error
-                        }
-
-                        // --- Actions after delete attempt ---
-                        final boolean finalDeleted = deleted; // Need final var for lambda
-                        mainHandler.post(() -> { // Ensure UI updates are on the main thread
-                            if (!isAdded()) return; // Check fragment state again
-
-                            if (finalDeleted) {
-                                Log.i(TAG, "File deletion successful (or file was missing): " + fileName);
-                                // Verify position and item consistency *before* removing from list
-                                if (position >= 0 && position < recordingItemsList.size() && recordingItemsList.get(position).equals(item)) { // Use .equals for safety
-                                    recordingItemsList.remove(position);
-                                    if (recordingsAdapter != null) {
-                                        Log.d(TAG, "Notifying adapter: item removed at position " + position);
-                                        recordingsAdapter.notifyItemRemoved(position);
-                                        // No longer calling notifyItemRangeChanged here
-                                    }
-                                } else {
-                                    // If position is invalid or item doesn't match, log it and reload the whole list as a fallback
-                                    Log.w(TAG,"Position " + position + " invalid or item mismatch during deletion UI update. Reloading list.");
-                                    loadRecordingsList();
-                                }
-                                updateUiForCurrentState(); // Update overall UI state if needed
-                            } else {
-                                // Deletion failed
+                        boolean deleted = recordingStore.delete(item);
+                        if (!deleted) {
+                            mainHandler.post(() -> {
+                                if (!isAdded()) return;
                                 Log.e(TAG, "Failed to delete file: " + fileName);
                                 Toast.makeText(requireContext(), R.string.error_deleting_file, Toast.LENGTH_SHORT).show();
-                            }
-                        }); // End mainHandler.post
+                            });
+                        }
                     }); // End executorService.execute
                 })
                 .setNegativeButton(android.R.string.no, null) // No action on cancel
@@ -487,9 +445,19 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
             Log.d(TAG, "AudioRecord initialized successfully with source: " + audioSource);
 
             // --- Create File ---
-            currentRecordingFile = new File(requireContext().getExternalFilesDir(null),
-                    FILENAME_PREFIX + System.currentTimeMillis() + FILENAME_SUFFIX);
-            Log.d(TAG, "Recording to file: " + currentRecordingFile.getAbsolutePath());
+            // Each finished segment is published right away, so it can be played or processed
+            // while capture continues
+            currentSession = new SegmentedWavWriter(requireContext().getExternalFilesDir(null),
+                    System.currentTimeMillis(), SAMPLE_RATE, SEGMENT_MAX_DURATION_MS, SEGMENT_MAX_BYTES,
+                    segment -> recordingStore.onRecordingSaved(segment.file));
+            SharedPreferences prefs = AppPreferences.settings(requireContext());
+            if (prefs.getBoolean(KEY_TRIM_SILENCE, true)) {
+                // The saved baseline is Hanning-windowed power; the VAD works on raw power
+                double noiseFloor = AudioProcessor.getSavedBaselineNoisePower(requireContext()) / AudioMetrics.HANN_POWER_GAIN;
+                currentSession.enableSilenceTrimming(new EnergyVad(SAMPLE_RATE, noiseFloor),
+                        prefs.getInt(KEY_TRIM_GUARD_MS, DEFAULT_TRIM_GUARD_MS));
+            }
+            Log.d(TAG, "Recording session: " + currentSession.getManifestFile().getName());
 
             // --- Start Recording & Background Thread ---
             isRecording = true; // Set flag BEFORE starting thread/recording
@@ -526,10 +494,10 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         }
     }
 
-    /** Background task to read from AudioRecord and write to the current WAV file. */
+    /** Background task to read from AudioRecord and write to the current session's WAV segments. */
     private void writeAudioDataToFile() {
-        if (currentRecordingFile == null || audioRecord == null) {
-            Log.e(TAG, "writeAudioDataToFile started with null file or AudioRecord!");
+        if (currentSession == null || audioRecord == null) {
+            Log.e(TAG, "writeAudioDataToFile started with null session or AudioRecord!");
             mainHandler.post(() -> updateStatusText(getString(R.string.status_error_saving)));
             // Ensure recording state is reset if this somehow happens
             isRecording = false;
@@ -538,23 +506,18 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         }
 
         byte[] data = new byte[BUFFER_SIZE];
-        FileOutputStream fos = null;
-        long totalAudioLenBytes = 0;
-        boolean writeSuccess = false;
-        File fileBeingWritten = currentRecordingFile; // Use local ref in thread
+        boolean writeSuccess = true;
+        SegmentedWavWriter session = currentSession; // Use local ref in thread
 
         try {
-            fos = new FileOutputStream(fileBeingWritten);
-            writeWavHeader(fos, 0); // Write placeholder header
-
             Log.d(TAG, "Starting audio data read loop.");
             while (isRecording) { // Loop continues as long as isRecording is true
                 if (audioRecord == null) { Log.w(TAG, "AudioRecord became null during write loop. Stopping."); break; }
                 int read = audioRecord.read(data, 0, BUFFER_SIZE);
                 if (read > 0) {
                     try {
-                        fos.write(data, 0, read);
-                        totalAudioLenBytes += read;
+                        // Rolls over to a new segment file on its own; finished segments are published by its listener
+                        session.write(data, 0, read);
                     } catch (IOException e) {
                         Log.e(TAG, "IOException during file write chunk", e);
                         mainHandler.post(() -> updateStatusText(getString(R.string.status_error_saving)));
@@ -570,63 +533,46 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
                 } // else read == 0, just continue looping
             } // End while(isRecording)
 
+            long totalAudioLenBytes = session.getTotalBytes();
             Log.d(TAG, "Recording read loop finished. Total bytes read: " + totalAudioLenBytes);
-            // If loop finished because isRecording became false, consider it a success *so far*
-            // unless an IO error occurred earlier.
-            if (writeSuccess || !isRecording) { // If no explicit failure and loop ended normally
-                writeSuccess = true;
-            }
 
-        } catch (IOException e) {
-            Log.e(TAG, "IOException setting up FileOutputStream: ", e);
-            mainHandler.post(() -> updateStatusText(getString(R.string.status_error_saving)));
-            writeSuccess = false; // Mark failure
-        } finally {
-            // --- Cleanup and Header Update ---
-            if (fos != null) {
-                try { fos.close(); } catch (IOException e) { Log.e(TAG,"Error closing FileOutputStream", e); writeSuccess=false;} // Mark failure if close fails
-            }
-
-            // Finalize header only if write likely succeeded AND there's actual audio data
-            if (writeSuccess && totalAudioLenBytes > 0 && fileBeingWritten != null) {
+            // --- Finalize the last segment ---
+            if (writeSuccess) {
                 try {
-                    updateWavHeader(fileBeingWritten, totalAudioLenBytes);
-                    Log.i(TAG, "Recording saved successfully: " + fileBeingWritten.getName());
-                    // Post actions that need to happen *after* successful save and header update
-                    mainHandler.post(this::loadRecordingsList); // Refresh list to show new item
-                    mainHandler.post(() -> {
-                        if(isAdded() && getContext() != null) Toast.makeText(requireContext(), R.string.recording_saved_success, Toast.LENGTH_SHORT).show();
-                        updateStatusText(getString(R.string.status_ready)); // Set status back to ready
-                    });
+                    session.finish(); // Header, peaks sidecar and manifest; publishes the last segment
+                    if (totalAudioLenBytes > 0) {
+                        Log.i(TAG, "Recording saved successfully in " + session.getFinishedSegments().size() + " segment(s).");
+                        mainHandler.post(() -> {
+                            if(isAdded() && getContext() != null) Toast.makeText(requireContext(), R.string.recording_saved_success, Toast.LENGTH_SHORT).show();
+                            updateStatusText(getString(R.string.status_ready)); // Set status back to ready
+                        });
+                    } else {
+                        // Inform user if stopped but no data
+                        mainHandler.post(() -> updateStatusText(getString(R.string.status_stopped_no_data)));
+                    }
                 } catch (IOException e) {
-                    Log.e(TAG, "IOException updating WAV header for " + fileBeingWritten.getName(), e);
+                    Log.e(TAG, "IOException finalizing the last segment", e);
                     mainHandler.post(() -> updateStatusText(getString(R.string.status_error_saving_header)));
                     writeSuccess = false; // Mark failure if header update fails
                 }
             }
 
-            // Delete the file if the write failed OR if no actual audio data was recorded
-            // Use the potentially updated 'writeSuccess' value here
-            if (!writeSuccess || totalAudioLenBytes <= 0) {
-                Log.w(TAG, "Write failed (success=" + writeSuccess + ") or no data recorded (bytes=" + totalAudioLenBytes + "). Deleting file: " + (fileBeingWritten != null ? fileBeingWritten.getName():"null"));
-                if (fileBeingWritten != null && fileBeingWritten.exists()) {
-                    if (!fileBeingWritten.delete()) { // Log if delete fails
-                        Log.w(TAG, "Failed to delete unsuccessful/empty recording file: " + fileBeingWritten.getName());
-                    }
-                }
-                // Inform user if stopped but no data
-                if (totalAudioLenBytes <= 0 && writeSuccess) {
-                    mainHandler.post(() -> updateStatusText(getString(R.string.status_stopped_no_data)));
-                }
+            // Delete the unfinished segment if the write failed; segments finished earlier stay valid takes
+            if (!writeSuccess) {
+                Log.w(TAG, "Write failed. Discarding unfinished segment (" + session.getFinishedSegments().size() + " finished segment(s) kept).");
+                session.abort();
             }
-
-            // Reset the current file reference AFTER all operations are done for this recording
-            currentRecordingFile = null;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Unexpected error while recording", e);
+            mainHandler.post(() -> updateStatusText(getString(R.string.status_error_saving)));
+            session.abort();
+        } finally {
+            // Reset the session reference AFTER all operations are done for this recording
+            currentSession = null;
 
             // Signal final UI update AFTER all file operations on this thread are complete
             mainHandler.post(this::onRecordingStoppedUpdateUi);
-
-        } // End finally block
+        }
         Log.d(TAG, "Exiting writeAudioDataToFile thread.");
     } // End writeAudioDataToFile method
 
@@ -731,8 +677,8 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
             Log.w(TAG,"Cannot share: File missing or empty - " + item.getFileName());
             if(isAdded()) Toast.makeText(requireContext(), R.string.error_share_file_missing, Toast.LENGTH_SHORT).show();
             updateStatusText(getString(R.string.status_error_share_file_missing));
-            // Reload list to remove missing item potentially
-            loadRecordingsList();
+            // Drop the stale entry; the store treats a missing file as already deleted
+            executorService.execute(() -> recordingStore.delete(item));
             return;
         }
 
@@ -743,7 +689,9 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
             Log.d(TAG, "Sharing URI: " + fileUri + " for file: " + fileToShare.getPath());
 
             Intent shareIntent = new Intent(Intent.ACTION_SEND);
-            shareIntent.setType("audio/wav"); // MIME type for WAV
+            // Archived takes are FLAC (see StorageRetentionManager)
+            boolean isFlac = fileToShare.getName().toLowerCase(Locale.US).endsWith(RecordingStore.FLAC_SUFFIX);
+            shareIntent.setType(isFlac ? "audio/flac" : "audio/wav");
             shareIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
             shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION); // Grant permission to receiving app
             shareIntent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.share_subject, item.getFileName())); // Optional subject
@@ -781,6 +729,7 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         if (isPlaying && playingFilePath != null && playingFilePath.equals(item.getFilePath())) {
             stopPlaying(); // Stop if this item is currently playing
         } else {
+            recordingStore.markAccessed(item); // Keeps it off the front of the eviction order
             startPlaying(item.getFilePath()); // Start playing this item
         }
     }
@@ -788,6 +737,7 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
     @Override
     public void onShareClick(RecordingItem item, int position) {
         Log.d(TAG, "Share clicked for pos " + position + ": " + item.getFileName());
+        recordingStore.markAccessed(item);
         shareRecording(item); // Call the sharing method
     }
 
@@ -825,9 +775,9 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         final View dialogView = LayoutInflater.from(getContext()).inflate(R.layout.dialog_rename, null);
         final EditText input = dialogView.findViewById(R.id.edit_text_new_name); // Get EditText from dialog layout
 
-        // Pre-fill with current name without the ".wav" extension
+        // Pre-fill with current name without the ".wav"/".flac" extension
         String currentName = item.getFileName();
-        int extensionIndex = currentName.toLowerCase().lastIndexOf(FILENAME_SUFFIX);
+        int extensionIndex = currentName.length() - RecordingStore.extensionOf(currentName).length();
         if (extensionIndex > 0) { // Ensure suffix is found and not at the beginning
             input.setText(currentName.substring(0, extensionIndex));
         } else {
@@ -909,7 +859,8 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
             return;
         }
 
-        final String newFileName = newBaseName + FILENAME_SUFFIX; // Add the extension back
+        String extension = RecordingStore.extensionOf(oldFile.getName());
+        final String newFileName = newBaseName + (extension.isEmpty() ? FILENAME_SUFFIX : extension); // Add the extension back
         final File newFile = new File(recordingsDir, newFileName);
 
         // Prevent renaming to the exact same name (no-op)
@@ -928,40 +879,16 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         }
 
         Log.d(TAG, "Attempting rename on background thread: '" + oldFile.getName() + "' -> '" + newFileName + "'");
-        boolean success = false;
-        try {
-            success = oldFile.renameTo(newFile); // The actual rename operation
-        } catch (SecurityException se) {
-            Log.e(TAG, "SecurityException during rename: ", se);
-        } catch (Exception e) { // Catch any other IO errors
-            Log.e(TAG, "Exception during rename: ", e);
-        }
+        // The store renames the file and publishes the change; the list update arrives via onRecordingRenamed
+        final boolean renameSuccess = recordingStore.rename(item, newFile) != null;
 
         // --- Post-Rename Actions (on main thread) ---
-        final boolean renameSuccess = success; // Final variable for lambda
         mainHandler.post(() -> {
             if (!isAdded()) return; // Check fragment state
 
             if (renameSuccess) {
                 Log.i(TAG, "Rename successful for " + newFileName);
-                // Double-check position and item validity before updating list/adapter
-                if (position >= 0 && position < recordingItemsList.size() && recordingItemsList.get(position).equals(item)) { // Use .equals
-                    // Update the RecordingItem object IN the list
-                    recordingItemsList.get(position).updateNameAndPath(newFileName, newFile.getAbsolutePath());
-
-                    // Update the display formatting if needed (duration shouldn't change)
-                    // String newFormattedDate = ... ;
-                    // recordingItemsList.get(position).setFormattedDate(newFormattedDate);
-
-                    if (recordingsAdapter != null) {
-                        recordingsAdapter.notifyItemChanged(position); // Notify adapter about the change
-                    }
-                    Toast.makeText(getContext(), R.string.rename_success, Toast.LENGTH_SHORT).show();
-                } else {
-                    // Should not happen if list isn't modified elsewhere, but handle defensively
-                    Log.w(TAG,"Position/Item mismatch during rename UI update. Reloading list.");
-                    loadRecordingsList(); // Fallback: reload if something went wrong
-                }
+                Toast.makeText(getContext(), R.string.rename_success, Toast.LENGTH_SHORT).show();
             } else {
                 Log.e(TAG, "Rename failed for '" + oldFile.getName() + "' to '" + newFileName + "'");
                 Toast.makeText(getContext(), R.string.error_rename_failed, Toast.LENGTH_SHORT).show();
@@ -1094,86 +1021,4 @@ public class RecordYourselfFragment extends Fragment implements RecordingsAdapte
         }
     }
 
-
-    // --- Corrected WAV File Helper Methods ---
-    // (Keep these as they were - essential for playable WAV files)
-
-    /** Writes a valid 44-byte WAV header placeholder */
-    private void writeWavHeader(OutputStream out, long totalAudioLen) throws IOException {
-        long totalDataLen = totalAudioLen + 36;
-        long longSampleRate = SAMPLE_RATE;
-        int channels = (CHANNEL_CONFIG == AudioFormat.CHANNEL_IN_MONO ? 1 : 2);
-        int bitsPerSample = (AUDIO_FORMAT == AudioFormat.ENCODING_PCM_16BIT ? 16 : 8);
-        long byteRate = longSampleRate * channels * bitsPerSample / 8;
-        int blockAlign = channels * bitsPerSample / 8;
-
-        byte[] header = new byte[44];
-        header[0] = 'R'; header[1] = 'I'; header[2] = 'F'; header[3] = 'F'; // RIFF chunk descriptor
-        header[4] = (byte) (totalDataLen & 0xff); // file size - 8
-        header[5] = (byte) ((totalDataLen >> 8) & 0xff);
-        header[6] = (byte) ((totalDataLen >> 16) & 0xff);
-        header[7] = (byte) ((totalDataLen >> 24) & 0xff);
-        header[8] = 'W'; header[9] = 'A'; header[10] = 'V'; header[11] = 'E'; // WAVE format
-        header[12] = 'f'; header[13] = 'm'; header[14] = 't'; header[15] = ' '; // 'fmt ' subchunk
-        header[16] = 16; header[17] = 0; header[18] = 0; header[19] = 0; // 16 for PCM size
-        header[20] = 1; header[21] = 0; // Audio format 1=PCM
-        header[22] = (byte) channels; header[23] = 0; // number of channels
-        header[24] = (byte) (longSampleRate & 0xff); // sample rate
-        header[25] = (byte) ((longSampleRate >> 8) & 0xff);
-        header[26] = (byte) ((longSampleRate >> 16) & 0xff);
-        header[27] = (byte) ((longSampleRate >> 24) & 0xff);
-        header[28] = (byte) (byteRate & 0xff); // byte rate = sampleRate * channels * bitsPerSample/8
-        header[29] = (byte) ((byteRate >> 8) & 0xff);
-        header[30] = (byte) ((byteRate >> 16) & 0xff);
-        header[31] = (byte) ((byteRate >> 24) & 0xff);
-        header[32] = (byte) blockAlign; header[33] = 0; // block align = channels * bitsPerSample/8
-        header[34] = (byte) bitsPerSample; header[35] = 0; // bits per sample
-        header[36] = 'd'; header[37] = 'a'; header[38] = 't'; header[39] = 'a'; // 'data' subchunk
-        header[40] = (byte) (totalAudioLen & 0xff); // subchunk 2 size = NumSamples * channels * bitsPerSample/8
-        header[41] = (byte) ((totalAudioLen >> 8) & 0xff);
-        header[42] = (byte) ((totalAudioLen >> 16) & 0xff);
-        header[43] = (byte) ((totalAudioLen >> 24) & 0xff);
-
-        out.write(header, 0, 44);
-        Log.d(TAG, "WAV header placeholder written.");
-    }
-
-    /** Updates the WAV header with correct file sizes after recording is finished */
-    private void updateWavHeader(File file, long totalAudioLenBytes) throws IOException {
-        if (file == null || !file.exists() || totalAudioLenBytes < 0) {
-            throw new IOException("Invalid file or audio length for header update.");
-        }
-        // Prepare the 8 bytes to update: 4 for RIFF size, 4 for data chunk size
-        long totalDataLen = totalAudioLenBytes + 36; // RIFF chunk size (file size - 8)
-        byte[] headerUpdates = new byte[8];
-        // RIFF chunk size (offset 4)
-        headerUpdates[0] = (byte) (totalDataLen & 0xff);
-        headerUpdates[1] = (byte) ((totalDataLen >> 8) & 0xff);
-        headerUpdates[2] = (byte) ((totalDataLen >> 16) & 0xff);
-        headerUpdates[3] = (byte) ((totalDataLen >> 24) & 0xff);
-        // Data chunk size (offset 40)
-        headerUpdates[4] = (byte) (totalAudioLenBytes & 0xff);
-        headerUpdates[5] = (byte) ((totalAudioLenBytes >> 8) & 0xff);
-        headerUpdates[6] = (byte) ((totalAudioLenBytes >> 16) & 0xff);
-        headerUpdates[7] = (byte) ((totalAudioLenBytes >> 24) & 0xff);
-
-        RandomAccessFile wavFile = null;
-        try {
-            wavFile = new RandomAccessFile(file, "rw"); // Open for read-write
-            // Seek and write RIFF chunk size
-            wavFile.seek(4);
-            wavFile.write(headerUpdates, 0, 4);
-            // Seek and write data chunk size
-            wavFile.seek(40);
-            wavFile.write(headerUpdates, 4, 4);
-            Log.d(TAG, "WAV header updated successfully for " + file.getName() + " (Data Size: " + totalAudioLenBytes + ")");
-        } finally {
-            // Ensure the file is closed
-            if (wavFile != null) {
-                try { wavFile.close(); } catch (IOException e) { Log.e(TAG, "Error closing RandomAccessFile after header update", e); }
-            }
-        }
-    }
-    // --- END WAV ---
-
 } // End of RecordYourselfFragment class
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Per-take analysis results, keyed by file name and stored as one JSON file in app storage.
+ * Each entry remembers the size and mtime of the file it was computed from, so a re-analysis
+ * pass can skip takes that haven't changed. Thread-safe.
+ */
+public class RecordingCatalog {
+
+    private static final String TAG = "RecordingCatalog";
+    private static final String CATALOG_FILENAME = "recording_catalog.json";
+
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_MTIME = "mtime";
+    private static final String KEY_BASELINE = "baselinePower";
+    private static final String KEY_DURATION_MS = "durationMs";
+    private static final String KEY_RMS = "rms";
+    private static final String KEY_PEAK = "peak";
+    private static final String KEY_CLIPPING = "clippingRatio";
+    private static final String KEY_MEAN_SNR = "meanSnrDb";
+    private static final String KEY_MAX_SNR = "maxSnrDb";
+    private static final String KEY_ANALYZED_AT = "analyzedAt";
+
+    private static volatile RecordingCatalog instance;
+
+    private final File catalogFile;
+    private final JSONObject entries;
+
+    private RecordingCatalog(File catalogFile, JSONObject entries) {
+        this.catalogFile = catalogFile;
+        this.entries = entries;
+    }
+
+    /**
+     * App-scoped instance, so background jobs that touch the catalog at the same time work on
+     * one copy instead of overwriting each other's saves. Loads from disk on first use.
+     */
+    @NonNull
+    public static RecordingCatalog getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (RecordingCatalog.class) {
+                if (instance == null) instance = load(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    /** Loads the catalog from app storage. A missing or unreadable file yields an empty catalog. */
+    @NonNull
+    private static RecordingCatalog load(@NonNull Context context) {
+        File file = new File(context.getFilesDir(), CATALOG_FILENAME);
+        JSONObject entries = new JSONObject();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] bytes = new byte[(int) file.length()];
+                int off = 0;
+                while (off < bytes.length) {
+                    int n = in.read(bytes, off, bytes.length - off);
+                    if (n < 0) break;
+                    off += n;
+                }
+                entries = new JSONObject(new String(bytes, 0, off, StandardCharsets.UTF_8));
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Catalog unreadable, starting fresh", e);
+            }
+        }
+        return new RecordingCatalog(file, entries);
+    }
+
+    /**
+     * True if the catalog already has metrics for this exact file (same size and mtime) computed
+     * against the same baseline.
+     */
+    public synchronized boolean isUpToDate(@NonNull File take, double baselineNoisePower) {
+        JSONObject entry = entries.optJSONObject(take.getName());
+        return entry != null
+                && entry.optLong(KEY_SIZE, -1) == take.length()
+                && entry.optLong(KEY_MTIME, -1) == take.lastModified()
+                && entry.optDouble(KEY_BASELINE, Double.NaN) == (float) baselineNoisePower;
+    }
+
+    public synchronized void put(@NonNull File take, double baselineNoisePower, @NonNull AudioMetrics.TakeMetrics metrics) {
+        try {
+            JSONObject entry = new JSONObject();
+            entry.put(KEY_SIZE, take.length());
+            entry.put(KEY_MTIME, take.lastModified());
+            // Stored as float, matching the precision it is saved with in prefs
+            entry.put(KEY_BASELINE, (double) (float) baselineNoisePower);
+            entry.put(KEY_DURATION_MS, metrics.durationMs);
+            entry.put(KEY_RMS, metrics.rms);
+            entry.put(KEY_PEAK, metrics.peak);
+            entry.put(KEY_CLIPPING, metrics.clippingRatio);
+            entry.put(KEY_MEAN_SNR, metrics.meanSnrDb);
+            entry.put(KEY_MAX_SNR, metrics.maxSnrDb);
+            entry.put(KEY_ANALYZED_AT, System.currentTimeMillis());
+            entries.put(take.getName(), entry);
+        } catch (JSONException e) {
+            // Only thrown for NaN/infinite values
+            Log.e(TAG, "Could not store metrics for " + take.getName(), e);
+        }
+    }
+
+    /** Returns the stored metrics for a take, or null if it hasn't been analysed. */
+    @Nullable
+    public synchronized AudioMetrics.TakeMetrics get(@NonNull String fileName) {
+        JSONObject entry = entries.optJSONObject(fileName);
+        if (entry == null) return null;
+        return new AudioMetrics.TakeMetrics(entry.optLong(KEY_DURATION_MS), entry.optDouble(KEY_RMS),
+                entry.optInt(KEY_PEAK), entry.optDouble(KEY_CLIPPING),
+                entry.optDouble(KEY_MEAN_SNR), entry.optDouble(KEY_MAX_SNR));
+    }
+
+    /**
+     * Re-keys an entry after its take was re-encoded (same audio, new file), refreshing the
+     * recorded size and mtime so it still counts as up to date.
+     */
+    public synchronized void moveEntry(@NonNull File from, @NonNull File to) {
+        JSONObject entry = entries.optJSONObject(from.getName());
+        if (entry == null) return;
+        entries.remove(from.getName());
+        try {
+            entry.put(KEY_SIZE, to.length());
+            entry.put(KEY_MTIME, to.lastModified());
+            entries.put(to.getName(), entry);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not move catalog entry to " + to.getName(), e);
+        }
+    }
+
+    /** Drops entries for takes that no longer exist. */
+    public synchronized void retainOnly(@NonNull Collection<String> fileNames) {
+        Set<String> keep = new HashSet<>(fileNames);
+        List<String> stale = new ArrayList<>();
+        for (Iterator<String> keys = entries.keys(); keys.hasNext(); ) {
+            String name = keys.next();
+            if (!keep.contains(name)) stale.add(name);
+        }
+        for (String name : stale) entries.remove(name);
+    }
+
+    /** Writes the catalog via a temp file so an interrupted save never loses earlier results. */
+    public synchronized void save() throws IOException {
+        File temp = new File(catalogFile.getParentFile(), catalogFile.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(entries.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!temp.renameTo(catalogFile)) {
+            if (!temp.delete()) Log.w(TAG, "Failed to delete temp catalog");
+            throw new IOException("Could not replace " + catalogFile.getName());
+        }
+    }
+}
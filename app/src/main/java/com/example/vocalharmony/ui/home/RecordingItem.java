@@ -46,6 +46,18 @@ public class RecordingItem {
         // Duration also doesn't change with rename.
     }
 
+    /**
+     * Returns a copy of this item pointing at a renamed file. The list adapter diffs
+     * old and new lists, so renames must produce a new instance instead of mutating
+     * the one the adapter is already showing.
+     */
+    public RecordingItem renamedTo(String newFileName, String newFilePath) {
+        RecordingItem copy = new RecordingItem(newFileName, newFilePath, timestamp);
+        copy.formattedDate = formattedDate;
+        copy.durationString = durationString;
+        return copy;
+    }
+
     // Setters for formatted strings (used during loading)
     public void setFormattedDate(String formattedDate) { this.formattedDate = formattedDate; }
     public void setDurationString(String durationString) { this.durationString = durationString; }
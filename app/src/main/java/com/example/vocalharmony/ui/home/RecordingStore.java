@@ -0,0 +1,305 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * App-scoped owner of the saved recordings in {@code getExternalFilesDir(null)}.
+ * The directory is scanned once; after that every save, rename and delete goes through
+ * this class, which keeps its in-memory list current and publishes item-level change
+ * events to listeners on the main thread, so screens never have to rescan the folder.
+ */
+public class RecordingStore {
+
+    private static final String TAG = "RecordingStore";
+    public static final String FILENAME_PREFIX = "VocalHarmony_";
+    public static final String FILENAME_SUFFIX = ".wav";
+    /** Older takes are archived losslessly with this suffix by the retention job. */
+    public static final String FLAC_SUFFIX = ".flac";
+    private static final String ACCESS_PREFS_NAME = "VocalHarmonyRecordingAccess";
+
+    /** Callbacks for item-level changes. Always invoked on the main thread. */
+    public interface ChangeListener {
+        void onRecordingAdded(@NonNull RecordingItem item);
+        void onRecordingRenamed(@NonNull RecordingItem oldItem, @NonNull RecordingItem newItem);
+        void onRecordingRemoved(@NonNull RecordingItem item);
+    }
+
+    private static volatile RecordingStore instance;
+
+    @Nullable private final File recordingsDir;
+    // File name -> last time the take was played or shared, for least-recently-used eviction
+    private final SharedPreferences accessPrefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    // Guarded by 'lock'. Null until the first scan has completed.
+    @Nullable private List<RecordingItem> cachedItems = null;
+
+    public static RecordingStore getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (RecordingStore.class) {
+                if (instance == null) {
+                    instance = new RecordingStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private RecordingStore(@NonNull Context appContext) {
+        this.recordingsDir = appContext.getExternalFilesDir(null);
+        this.accessPrefs = appContext.getSharedPreferences(ACCESS_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Nullable
+    public File getRecordingsDir() { return recordingsDir; }
+
+    public void addListener(@NonNull ChangeListener listener) { listeners.addIfAbsent(listener); }
+
+    public void removeListener(@NonNull ChangeListener listener) { listeners.remove(listener); }
+
+    /** True for the audio files this store manages (WAV takes and their FLAC archives). */
+    public static boolean isRecordingFileName(@NonNull String name) {
+        String lower = name.toLowerCase(Locale.US);
+        return lower.endsWith(FILENAME_SUFFIX) || lower.endsWith(FLAC_SUFFIX);
+    }
+
+    /** The file's extension including the dot (e.g. ".wav"), or "" if it has none. */
+    @NonNull
+    public static String extensionOf(@NonNull String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : "";
+    }
+
+    /** Records that the take was just used, so eviction treats it as recent. */
+    public void markAccessed(@NonNull RecordingItem item) {
+        accessPrefs.edit().putLong(item.getFileName(), System.currentTimeMillis()).apply();
+    }
+
+    /** Last time the take was played or shared, falling back to when it was recorded. */
+    public long getLastAccessed(@NonNull RecordingItem item) {
+        return Math.max(item.getTimestamp(), accessPrefs.getLong(item.getFileName(), 0L));
+    }
+
+    /**
+     * Returns a snapshot of all recordings, newest first. Scans the directory only the first
+     * time it is called; later calls return the cached list. Must be called off the main thread.
+     */
+    @NonNull
+    public List<RecordingItem> getRecordings() {
+        synchronized (lock) {
+            if (cachedItems == null) {
+                cachedItems = scanDirectory();
+            }
+            return new ArrayList<>(cachedItems);
+        }
+    }
+
+    /** Registers a freshly written take and publishes an 'added' event. Call off the main thread. */
+    @Nullable
+    public RecordingItem onRecordingSaved(@NonNull File file) {
+        if (!file.exists()) { Log.w(TAG, "onRecordingSaved: file missing " + file.getName()); return null; }
+        RecordingItem item = buildItem(file);
+        synchronized (lock) {
+            if (cachedItems != null) {
+                cachedItems.remove(item); // Guard against a duplicate entry for the same path
+                cachedItems.add(0, item);
+                cachedItems.sort(NEWEST_FIRST);
+            }
+        }
+        Log.d(TAG, "Recording added: " + item.getFileName());
+        mainHandler.post(() -> { for (ChangeListener l : listeners) l.onRecordingAdded(item); });
+        return item;
+    }
+
+    /**
+     * Deletes the file behind the item, drops it from its session manifest if it is a segment,
+     * and publishes a 'removed' event. A missing file is treated as already deleted. Call off the main thread.
+     * @return true if the recording no longer exists on disk.
+     */
+    public boolean delete(@NonNull RecordingItem item) {
+        File file = new File(item.getFilePath());
+        boolean deleted;
+        try {
+            deleted = !file.exists() || file.delete();
+        } catch (SecurityException se) {
+            Log.e(TAG, "SecurityException deleting " + file.getName(), se);
+            deleted = false;
+        }
+        if (!deleted) { Log.e(TAG, "Failed to delete " + file.getName()); return false; }
+        File sidecar = WaveformPeaks.sidecarFor(file);
+        if (sidecar.exists() && !sidecar.delete()) Log.w(TAG, "Failed to delete peaks sidecar " + sidecar.getName());
+        SessionManifest.onSegmentRemoved(file);
+        WaveformThumbnailLoader.invalidate(item.getFilePath());
+        accessPrefs.edit().remove(item.getFileName()).apply();
+        synchronized (lock) {
+            if (cachedItems != null) cachedItems.remove(item);
+        }
+        Log.d(TAG, "Recording removed: " + item.getFileName());
+        mainHandler.post(() -> { for (ChangeListener l : listeners) l.onRecordingRemoved(item); });
+        return true;
+    }
+
+    /**
+     * Renames the file behind the item and publishes a 'renamed' event. Call off the main thread.
+     * @return the renamed item, or null if the rename failed.
+     */
+    @Nullable
+    public RecordingItem rename(@NonNull RecordingItem item, @NonNull File newFile) {
+        File oldFile = new File(item.getFilePath());
+        boolean success;
+        try {
+            success = oldFile.renameTo(newFile);
+        } catch (SecurityException se) {
+            Log.e(TAG, "SecurityException during rename: ", se);
+            success = false;
+        }
+        if (!success) { Log.e(TAG, "Rename failed for '" + oldFile.getName() + "' to '" + newFile.getName() + "'"); return null; }
+        // Keep the peaks sidecar next to its audio file
+        File oldSidecar = WaveformPeaks.sidecarFor(oldFile);
+        if (oldSidecar.exists() && !oldSidecar.renameTo(WaveformPeaks.sidecarFor(newFile))) {
+            Log.w(TAG, "Failed to rename peaks sidecar " + oldSidecar.getName());
+        }
+        SessionManifest.onSegmentMoved(oldFile, newFile);
+        WaveformThumbnailLoader.invalidate(item.getFilePath());
+        moveAccessRecord(item.getFileName(), newFile.getName());
+
+        return publishRenamed(item, newFile);
+    }
+
+    /**
+     * Swaps the file behind an item for a re-encoded copy that is already on disk (e.g. the FLAC
+     * archive of a WAV take), deletes the old file and publishes it as a rename. Call off the main thread.
+     * @return the updated item, or null if the old file could not be removed.
+     */
+    @Nullable
+    public RecordingItem replaceFile(@NonNull RecordingItem item, @NonNull File newFile) {
+        File oldFile = new File(item.getFilePath());
+        if (oldFile.exists() && !oldFile.delete()) {
+            Log.e(TAG, "replaceFile: could not delete " + oldFile.getName());
+            return null;
+        }
+        File oldSidecar = WaveformPeaks.sidecarFor(oldFile);
+        if (oldSidecar.exists() && !oldSidecar.renameTo(WaveformPeaks.sidecarFor(newFile))) {
+            Log.w(TAG, "Failed to move peaks sidecar " + oldSidecar.getName());
+        }
+        SessionManifest.onSegmentMoved(oldFile, newFile);
+        WaveformThumbnailLoader.invalidate(item.getFilePath());
+        moveAccessRecord(item.getFileName(), newFile.getName());
+        return publishRenamed(item, newFile);
+    }
+
+    private void moveAccessRecord(String oldName, String newName) {
+        long accessed = accessPrefs.getLong(oldName, 0L);
+        SharedPreferences.Editor editor = accessPrefs.edit().remove(oldName);
+        if (accessed > 0) editor.putLong(newName, accessed);
+        editor.apply();
+    }
+
+    private RecordingItem publishRenamed(@NonNull RecordingItem item, @NonNull File newFile) {
+        RecordingItem renamed = item.renamedTo(newFile.getName(), newFile.getAbsolutePath());
+        synchronized (lock) {
+            if (cachedItems != null) {
+                int index = cachedItems.indexOf(item);
+                if (index >= 0) {
+                    cachedItems.set(index, renamed);
+                } else {
+                    cachedItems.add(renamed);
+                    cachedItems.sort(NEWEST_FIRST); // Keep the snapshot order the add path keeps
+                }
+            }
+        }
+        Log.d(TAG, "Recording renamed: " + item.getFileName() + " -> " + renamed.getFileName());
+        mainHandler.post(() -> { for (ChangeListener l : listeners) l.onRecordingRenamed(item, renamed); });
+        return renamed;
+    }
+
+    // --- Scanning ---
+
+    @NonNull
+    private List<RecordingItem> scanDirectory() {
+        List<RecordingItem> loadedItems = new ArrayList<>();
+        if (recordingsDir == null || !recordingsDir.exists()) {
+            Log.w(TAG, "Recordings directory is null or doesn't exist.");
+            return loadedItems;
+        }
+        File[] files = recordingsDir.listFiles((dir, name) -> isRecordingFileName(name));
+        if (files == null) { Log.w(TAG, "listFiles returned null for directory: " + recordingsDir.getPath()); return loadedItems; }
+
+        Log.d(TAG, "Scanning " + files.length + " recording files.");
+        for (File file : files) {
+            try {
+                loadedItems.add(buildItem(file));
+            } catch (Exception e) {
+                Log.e(TAG, "Error processing file entry: " + file.getName(), e);
+            }
+        }
+        loadedItems.sort(NEWEST_FIRST);
+        Log.d(TAG, "Scan finished. Found " + loadedItems.size() + " recordings.");
+        return loadedItems;
+    }
+
+    /** Builds a fully formatted item for a file on disk. Reads the file header; never call on the main thread. */
+    @NonNull
+    private RecordingItem buildItem(@NonNull File file) {
+        String name = file.getName();
+        RecordingItem item = new RecordingItem(name, file.getAbsolutePath(), parseTimestamp(file));
+
+        SimpleDateFormat durationFormat = new SimpleDateFormat("m:ss", Locale.getDefault());
+        durationFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat displayDateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+
+        // Duration comes straight from the file header; much cheaper than preparing a MediaPlayer per file
+        try {
+            long durationMs;
+            if (name.toLowerCase(Locale.US).endsWith(FLAC_SUFFIX)) {
+                durationMs = FlacEncoder.readStreamInfo(file).getDurationMs();
+            } else {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                    durationMs = WavHeader.read(raf).getDurationMs(); // Header only; no need to map the samples
+                }
+            }
+            item.setDurationString(durationMs > 0 ? durationFormat.format(new Date(durationMs)) : "0:00");
+        } catch (Exception e) {
+            Log.w(TAG, "Could not get duration for " + name + ". File might be corrupt.", e);
+            item.setDurationString("?:??");
+        }
+        item.setFormattedDate(displayDateFormat.format(new Date(item.getTimestamp())));
+        return item;
+    }
+
+    /** Creation time from the 'VocalHarmony_<millis>.wav|.flac' pattern, or the file's mtime for renamed takes. */
+    private static long parseTimestamp(@NonNull File file) {
+        String name = file.getName();
+        int extensionLength = extensionOf(name).length();
+        if (name.startsWith(FILENAME_PREFIX) && name.length() > FILENAME_PREFIX.length() + extensionLength) {
+            try {
+                return Long.parseLong(name.substring(FILENAME_PREFIX.length(), name.length() - extensionLength));
+            } catch (NumberFormatException ignored) {
+                // Fall through to mtime
+            }
+        }
+        return file.lastModified();
+    }
+
+    private static final Comparator<RecordingItem> NEWEST_FIRST =
+            Comparator.comparingLong(RecordingItem::getTimestamp).reversed();
+}
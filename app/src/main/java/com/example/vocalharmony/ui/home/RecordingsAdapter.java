@@ -6,33 +6,31 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil; // Import for potential future optimization
-import androidx.recyclerview.widget.ListAdapter; // Consider extending ListAdapter for DiffUtil
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.vocalharmony.R; // Ensure R is imported correctly
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter for displaying a list of RecordingItem objects in a RecyclerView.
  * Includes click and long-click listeners for actions like play, share, delete, and rename.
+ * Extends ListAdapter so each submitted list is diffed on a background thread
+ * (AsyncListDiffer) and only the rows that actually changed are re-bound.
  */
-// Note: Consider extending ListAdapter<RecordingItem, RecordingsAdapter.RecordingViewHolder>
-// in the future for automatic DiffUtil implementation if performance becomes an issue.
-// For now, extending RecyclerView.Adapter is fine.
-public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.RecordingViewHolder> {
+public class RecordingsAdapter extends ListAdapter<RecordingItem, RecordingsAdapter.RecordingViewHolder> {
 
     private static final String TAG = "RecordingsAdapter"; // For logging
 
-    // Use List directly, copying in submitList ensures adapter has its own instance.
-    private List<RecordingItem> recordingsList = new ArrayList<>();
     private final LayoutInflater inflater;
     private final OnItemActionListener listener;
+    private final WaveformThumbnailLoader thumbnailLoader;
 
     /**
      * Interface definition for callbacks to be invoked when actions are performed
@@ -46,28 +44,39 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
         void onItemLongClick(RecordingItem item, int position);
     }
 
+    /**
+     * Items are identified by their creation timestamp, which survives a rename;
+     * contents compare the fields the row actually displays.
+     */
+    private static final DiffUtil.ItemCallback<RecordingItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<RecordingItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull RecordingItem oldItem, @NonNull RecordingItem newItem) {
+            return oldItem.getTimestamp() == newItem.getTimestamp();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull RecordingItem oldItem, @NonNull RecordingItem newItem) {
+            return Objects.equals(oldItem.getFilePath(), newItem.getFilePath())
+                    && Objects.equals(oldItem.getFileName(), newItem.getFileName())
+                    && Objects.equals(oldItem.getDurationString(), newItem.getDurationString());
+        }
+    };
+
     /**
      * Constructor for the RecordingsAdapter.
      * @param context The context used to inflate layouts.
      * @param listener The listener that will handle item actions.
      */
     public RecordingsAdapter(@NonNull Context context, @NonNull OnItemActionListener listener) {
+        super(DIFF_CALLBACK);
         this.inflater = LayoutInflater.from(context);
         this.listener = listener;
+        this.thumbnailLoader = new WaveformThumbnailLoader(context);
     }
 
-    /**
-     * Updates the list of recordings displayed by the adapter.
-     * @param newList The new list of RecordingItems to display.
-     */
-    public void submitList(@NonNull List<RecordingItem> newList) {
-        // Create a new list to prevent external modifications affecting the adapter's list
-        this.recordingsList = new ArrayList<>(newList);
-        // TODO: Replace notifyDataSetChanged with DiffUtil for better performance,
-        // especially with frequent list updates or large lists.
-        // Using ListAdapter automatically handles DiffUtil.
-        notifyDataSetChanged(); // Simple update - Triggers Lint warning about performance
-        Log.d(TAG, "Submitted new list with size: " + recordingsList.size());
+    /** Stops pending thumbnail work. Call when the adapter is detached for good. */
+    public void release() {
+        thumbnailLoader.shutdown();
     }
 
     @NonNull
@@ -80,25 +89,21 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
     @Override
     public void onBindViewHolder(@NonNull RecordingViewHolder holder, int position) {
         // Check bounds to avoid potential IndexOutOfBoundsException
-        if (position >= 0 && position < recordingsList.size()) {
-            RecordingItem currentItem = recordingsList.get(position);
-            holder.bind(currentItem, listener);
+        if (position >= 0 && position < getItemCount()) {
+            RecordingItem currentItem = getItem(position);
+            holder.bind(currentItem, listener, thumbnailLoader);
         } else {
-            Log.e(TAG, "Invalid position in onBindViewHolder: " + position + ", list size: " + recordingsList.size());
+            Log.e(TAG, "Invalid position in onBindViewHolder: " + position + ", list size: " + getItemCount());
             // Optionally hide the holder's view or display an error state
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return recordingsList.size();
-    }
-
     // --- ViewHolder Class ---
     // Must be public static if it's an inner class accessed from outside (like ListAdapter might require)
     // Or just public if RecordingsAdapter itself is not static inner class.
     public static class RecordingViewHolder extends RecyclerView.ViewHolder {
         private final TextView textRecordingName;
+        private final ImageView imageWaveform;
         private final ImageButton buttonPlayItem;
         private final ImageButton buttonShareItem;
         private final ImageButton buttonDeleteItem;
@@ -107,6 +112,7 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
             super(itemView);
             // Ensure these IDs exist in list_item_recording.xml
             textRecordingName = itemView.findViewById(R.id.text_recording_name);
+            imageWaveform = itemView.findViewById(R.id.image_waveform);
             buttonPlayItem = itemView.findViewById(R.id.button_play_item);
             buttonShareItem = itemView.findViewById(R.id.button_share_item);
             buttonDeleteItem = itemView.findViewById(R.id.button_delete_item);
@@ -116,8 +122,10 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
          * Binds a RecordingItem's data to the ViewHolder's views and sets listeners.
          * @param item The RecordingItem data for this position.
          * @param listener The listener to handle actions.
+         * @param thumbnailLoader Draws the waveform from the item's peaks sidecar (never from PCM).
          */
-        public void bind(final RecordingItem item, final OnItemActionListener listener) {
+        public void bind(final RecordingItem item, final OnItemActionListener listener,
+                         final WaveformThumbnailLoader thumbnailLoader) {
             if (item == null) {
                 Log.e(TAG, "bind called with null item at position " + getBindingAdapterPosition());
                 // Optionally clear views or show an error state
@@ -131,6 +139,9 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
                 displayInfo += " (" + item.getDurationString() + ")"; // Append duration if valid
             }
             textRecordingName.setText(displayInfo);
+            if (imageWaveform != null && item.getFilePath() != null) {
+                thumbnailLoader.load(imageWaveform, item.getFilePath());
+            }
             // TODO: Add content descriptions that include the filename for accessibility
 
             // --- Set Click Listeners ---
@@ -170,4 +181,4 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
             });
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package com.example.vocalharmony.ui.home;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes one recording session of mono 16-bit PCM as a series of WAV segments. When the current
+ * segment reaches the configured duration or size it is finalized (header, peaks sidecar) and the
+ * next write continues in a new file, split exactly on a sample boundary so nothing is dropped.
+ *
+ * Segment names follow the usual {@code VocalHarmony_<millis>.wav} pattern, where millis is the
+ * session start plus the segment's offset, so every segment lists and sorts like a normal take.
+ * Once a session spans more than one segment, a {@link SessionManifest} links them together and
+ * gains an entry each time a segment completes.
+ *
+ * Optionally ({@link #enableSilenceTrimming}) an {@link EnergyVad} watches the audio as it is
+ * written, and on {@link #finish()} the dead air before the first and after the last speech is
+ * cut from the file in place, keeping a guard interval on each side.
+ *
+ * Not thread-safe; use it from the capture thread only. Listener callbacks run on that thread.
+ */
+public class SegmentedWavWriter {
+
+    private static final String TAG = "SegmentedWavWriter";
+
+    private static final int CHANNELS = 1;
+    private static final int BITS_PER_SAMPLE = 16;
+    private static final int BLOCK_ALIGN = CHANNELS * BITS_PER_SAMPLE / 8;
+
+    /** Called on the writer thread after a segment's header and sidecar are final. */
+    public interface SegmentListener {
+        void onSegmentFinished(Segment segment);
+    }
+
+    /** A finished segment and its place in the session. */
+    public static class Segment {
+        public final File file;
+        public final int index;
+        public final long startSample;
+        public final long sampleCount;
+
+        Segment(File file, int index, long startSample, long sampleCount) {
+            this.file = file;
+            this.index = index;
+            this.startSample = startSample;
+            this.sampleCount = sampleCount;
+        }
+    }
+
+    private final File directory;
+    private final long sessionStartMillis;
+    private final int sampleRate;
+    private final long segmentLimitBytes;
+    private final SegmentListener listener;
+    private final List<Segment> finishedSegments = new ArrayList<>();
+
+    private OutputStream out;
+    private File currentFile;
+    private WaveformPeaks.Accumulator currentPeaks;
+    private long currentStartSample;
+    private long currentBytes;
+    private long totalBytes;
+    private boolean multiSegment = false;
+    private int manifestedSegments = 0; // Finished segments already added to the manifest
+
+    // Silence trimming (optional)
+    private EnergyVad vad;
+    private long trimGuardSamples;
+    private long peaksCropStart = -1; // Segment-relative sample range kept by a trim, or -1
+    private long peaksCropEnd = -1;
+
+    /**
+     * @param maxSegmentDurationMs roll over after this much audio; 0 for no duration limit.
+     * @param maxSegmentBytes roll over after this many data bytes; 0 for no size limit.
+     *                        Either way a segment never exceeds what a RIFF header can describe.
+     */
+    public SegmentedWavWriter(File directory, long sessionStartMillis, int sampleRate,
+                              long maxSegmentDurationMs, long maxSegmentBytes, SegmentListener listener) {
+        this.directory = directory;
+        this.sessionStartMillis = sessionStartMillis;
+        this.sampleRate = sampleRate;
+        this.listener = listener;
+
+        long limit = WavWriter.MAX_DATA_BYTES;
+        if (maxSegmentDurationMs > 0) limit = Math.min(limit, maxSegmentDurationMs * sampleRate / 1000 * BLOCK_ALIGN);
+        if (maxSegmentBytes > 0) limit = Math.min(limit, maxSegmentBytes);
+        limit -= limit % BLOCK_ALIGN; // Only ever split between samples
+        this.segmentLimitBytes = Math.max(BLOCK_ALIGN, limit);
+    }
+
+    public static File segmentFile(File directory, long startMillis) {
+        return new File(directory, RecordingStore.FILENAME_PREFIX + startMillis + RecordingStore.FILENAME_SUFFIX);
+    }
+
+    public File getManifestFile() {
+        return SessionManifest.fileFor(directory, sessionStartMillis);
+    }
+
+    public long getTotalBytes() { return totalBytes; }
+
+    /**
+     * Trims leading and trailing silence when the session finishes, keeping {@code guardMs} of
+     * audio around the detected speech. Call before the first write.
+     */
+    public void enableSilenceTrimming(EnergyVad vad, int guardMs) {
+        this.vad = vad;
+        this.trimGuardSamples = (long) sampleRate * guardMs / 1000;
+    }
+
+    public List<Segment> getFinishedSegments() { return Collections.unmodifiableList(finishedSegments); }
+
+    /** Appends PCM, rolling over to new segments as needed. */
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (vad != null) vad.addPcm16(data, offset, length);
+        while (length > 0) {
+            if (out == null) openSegment();
+            int n = (int) Math.min(length, segmentLimitBytes - currentBytes);
+            out.write(data, offset, n);
+            currentPeaks.addPcm16(data, offset, n);
+            currentBytes += n;
+            totalBytes += n;
+            offset += n;
+            length -= n;
+            if (currentBytes >= segmentLimitBytes) {
+                multiSegment = true; // More audio may follow; from here on the session needs a manifest
+                finishSegment();
+            }
+        }
+    }
+
+    /** Finalizes the last segment and, for multi-segment sessions, marks the manifest complete. */
+    public void finish() throws IOException {
+        if (out != null) {
+            boolean keep = vad == null || trimCurrentSegment();
+            if (keep) finishSegment();
+        }
+        if (multiSegment) updateManifest(SessionManifest.STATUS_COMPLETE);
+    }
+
+    /** Stops after a failure. Finished segments are kept; the unfinished one is deleted. */
+    public void abort() {
+        if (out != null) {
+            try { out.close(); } catch (IOException e) { Log.w(TAG, "Error closing segment on abort", e); }
+            out = null;
+            if (currentFile.exists() && !currentFile.delete()) Log.w(TAG, "Failed to delete unfinished segment " + currentFile.getName());
+        }
+        if (multiSegment) updateManifest(SessionManifest.STATUS_FAILED);
+    }
+
+    private void openSegment() throws IOException {
+        currentStartSample = totalBytes / BLOCK_ALIGN;
+        currentFile = segmentFile(directory, sessionStartMillis + currentStartSample * 1000 / sampleRate);
+        currentPeaks = new WaveformPeaks.Accumulator(sampleRate);
+        currentBytes = 0;
+        out = new BufferedOutputStream(new FileOutputStream(currentFile));
+        WavWriter.writeHeader(out, sampleRate, CHANNELS, BITS_PER_SAMPLE, 0); // Placeholder, patched on finish
+        Log.d(TAG, "Recording segment " + finishedSegments.size() + " to " + currentFile.getName());
+    }
+
+    /**
+     * Cuts silence from the open (last) segment. Trailing silence is always trimmed; leading
+     * silence only while the session is still a single file, since earlier segments have
+     * already been published. A last segment that holds no speech at all is dropped.
+     * @return false if the segment was dropped, true if it should still be finished.
+     */
+    private boolean trimCurrentSegment() throws IOException {
+        if (!vad.hasVoice()) {
+            Log.i(TAG, "No speech detected; keeping the take untrimmed");
+            return true;
+        }
+        long segmentSamples = currentBytes / BLOCK_ALIGN;
+        long keepStart = 0;
+        if (finishedSegments.isEmpty()) {
+            keepStart = Math.max(0, vad.getFirstVoicedSample() - trimGuardSamples);
+            keepStart -= keepStart % WaveformPeaks.cropAlignment(); // Lets the peaks be cropped instead of rebuilt
+        }
+        long keepEnd = Math.min(segmentSamples, vad.getLastVoicedEndSample() + trimGuardSamples - currentStartSample);
+        if (keepStart == 0 && keepEnd == segmentSamples) return true;
+
+        out.close();
+        out = null;
+        if (keepEnd <= keepStart) {
+            Log.i(TAG, "Last segment is all silence; dropping " + currentFile.getName());
+            if (!currentFile.delete()) Log.w(TAG, "Failed to delete silent segment " + currentFile.getName());
+            return false;
+        }
+        WavWriter.cropData(currentFile, keepStart * BLOCK_ALIGN, keepEnd * BLOCK_ALIGN);
+        Log.i(TAG, "Trimmed " + currentFile.getName() + ": kept samples " + keepStart + ".." + keepEnd + " of " + segmentSamples);
+        currentStartSample += keepStart;
+        currentBytes = (keepEnd - keepStart) * BLOCK_ALIGN;
+        peaksCropStart = keepStart;
+        peaksCropEnd = keepEnd;
+        return true;
+    }
+
+    private void finishSegment() throws IOException {
+        OutputStream closing = out;
+        out = null;
+        if (closing != null) closing.close();
+        WavWriter.finalizeHeader(currentFile, currentBytes);
+
+        File sidecar = WaveformPeaks.sidecarFor(currentFile);
+        try {
+            WaveformPeaks peaks = currentPeaks.build();
+            if (peaksCropStart >= 0) peaks = peaks.crop(peaksCropStart, peaksCropEnd);
+            peaks.writeTo(sidecar);
+        } catch (IOException e) {
+            // A missing sidecar only costs the list thumbnail
+            Log.w(TAG, "Could not write peaks sidecar for " + currentFile.getName(), e);
+            if (sidecar.exists() && !sidecar.delete()) Log.w(TAG, "Failed to delete partial sidecar " + sidecar.getName());
+        }
+
+        peaksCropStart = peaksCropEnd = -1;
+
+        Segment segment = new Segment(currentFile, finishedSegments.size(), currentStartSample, currentBytes / BLOCK_ALIGN);
+        finishedSegments.add(segment);
+        Log.i(TAG, "Segment finished: " + currentFile.getName() + " (" + currentBytes + " bytes)");
+        if (multiSegment) updateManifest(SessionManifest.STATUS_RECORDING);
+        if (listener != null) listener.onSegmentFinished(segment);
+    }
+
+    /** Adds the segments finished since the last update to the manifest and sets its status. */
+    private void updateManifest(String status) {
+        SessionManifest.update(directory, sessionStartMillis, sampleRate, CHANNELS, BITS_PER_SAMPLE,
+                finishedSegments, manifestedSegments, status);
+        manifestedSegments = finishedSegments.size();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.vocalharmony.ui.home;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The {@code VocalHarmony_<sessionStart>.session.json} file that links the segments of a
+ * multi-segment recording session. {@link SegmentedWavWriter} adds segments as they complete;
+ * {@link RecordingStore} rewrites the entry of a segment it renames or re-encodes and drops the
+ * entry of one it deletes, so the manifest only ever lists files that exist. A deleted segment
+ * leaves a gap in the indices and sample ranges rather than being renumbered.
+ *
+ * All reads and writes hold one lock, since the capture thread and store jobs may touch the same
+ * session at once. Failures are logged rather than thrown; the segments are valid takes without it.
+ */
+public final class SessionManifest {
+
+    private static final String TAG = "SessionManifest";
+    public static final String SUFFIX = ".session.json";
+
+    public static final String STATUS_RECORDING = "recording";
+    public static final String STATUS_COMPLETE = "complete";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final String KEY_SEGMENTS = "segments";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_INDEX = "index";
+
+    private static final Object LOCK = new Object();
+
+    private SessionManifest() {}
+
+    public static File fileFor(File directory, long sessionStartMillis) {
+        return new File(directory, RecordingStore.FILENAME_PREFIX + sessionStartMillis + SUFFIX);
+    }
+
+    /**
+     * Adds the segments from {@code firstNew} on to the session's manifest (creating it if needed)
+     * and sets its status. Entries already on disk are kept as they are, so edits made by the
+     * store since the last update survive.
+     */
+    static void update(File directory, long sessionStartMillis, int sampleRate, int channels, int bitsPerSample,
+                       List<SegmentedWavWriter.Segment> segments, int firstNew, String status) {
+        synchronized (LOCK) {
+            File target = fileFor(directory, sessionStartMillis);
+            JSONObject manifest = target.exists() ? read(target) : null;
+            if (manifest == null && firstNew >= segments.size()) return; // Every listed segment was deleted
+            try {
+                if (manifest == null) {
+                    manifest = new JSONObject();
+                    manifest.put("sessionStart", sessionStartMillis);
+                    manifest.put("sampleRate", sampleRate);
+                    manifest.put("channels", channels);
+                    manifest.put("bitsPerSample", bitsPerSample);
+                    manifest.put(KEY_SEGMENTS, new JSONArray());
+                }
+                manifest.put("status", status);
+                JSONArray entries = manifest.getJSONArray(KEY_SEGMENTS);
+                for (int i = firstNew; i < segments.size(); i++) {
+                    SegmentedWavWriter.Segment s = segments.get(i);
+                    JSONObject entry = new JSONObject();
+                    entry.put(KEY_INDEX, s.index);
+                    entry.put(KEY_FILE, s.file.getName());
+                    entry.put("startSample", s.startSample);
+                    entry.put("sampleCount", s.sampleCount);
+                    entries.put(entry);
+                }
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not build session manifest " + target.getName(), e);
+                return;
+            }
+            write(target, manifest);
+        }
+    }
+
+    /** Points the manifest entry of a renamed or re-encoded segment at its new file. */
+    static void onSegmentMoved(@NonNull File oldFile, @NonNull File newFile) {
+        synchronized (LOCK) {
+            File target = findFor(oldFile);
+            if (target == null) return;
+            JSONObject manifest = read(target);
+            if (manifest == null) return;
+            JSONArray entries = manifest.optJSONArray(KEY_SEGMENTS);
+            for (int i = 0; i < entries.length(); i++) {
+                JSONObject entry = entries.optJSONObject(i);
+                if (entry == null || !oldFile.getName().equals(entry.optString(KEY_FILE))) continue;
+                try {
+                    entry.put(KEY_FILE, newFile.getName());
+                } catch (JSONException e) {
+                    Log.e(TAG, "Could not move manifest entry to " + newFile.getName(), e);
+                    return;
+                }
+            }
+            write(target, manifest);
+        }
+    }
+
+    /** Drops a deleted segment from its manifest, and the manifest once no segment is left. */
+    static void onSegmentRemoved(@NonNull File file) {
+        synchronized (LOCK) {
+            File target = findFor(file);
+            if (target == null) return;
+            JSONObject manifest = read(target);
+            if (manifest == null) return;
+            JSONArray entries = manifest.optJSONArray(KEY_SEGMENTS);
+            for (int i = entries.length() - 1; i >= 0; i--) {
+                JSONObject entry = entries.optJSONObject(i);
+                if (entry != null && file.getName().equals(entry.optString(KEY_FILE))) entries.remove(i);
+            }
+            if (entries.length() == 0) {
+                if (!target.delete()) Log.w(TAG, "Failed to delete empty session manifest " + target.getName());
+                return;
+            }
+            write(target, manifest);
+        }
+    }
+
+    /**
+     * Finds the manifest listing a segment file. Segments can be renamed away from the
+     * timestamp pattern, so this checks every manifest in the directory; there are few.
+     */
+    @Nullable
+    private static File findFor(File segment) {
+        File directory = segment.getParentFile();
+        File[] manifests = directory == null ? null : directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (manifests == null) return null;
+        for (File candidate : manifests) {
+            JSONObject manifest = read(candidate);
+            JSONArray entries = manifest == null ? null : manifest.optJSONArray(KEY_SEGMENTS);
+            if (entries == null) continue;
+            for (int i = 0; i < entries.length(); i++) {
+                JSONObject entry = entries.optJSONObject(i);
+                if (entry != null && segment.getName().equals(entry.optString(KEY_FILE))) return candidate;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the parsed manifest, or null if it is unreadable or has no segment list. */
+    @Nullable
+    private static JSONObject read(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int off = 0;
+            while (off < bytes.length) {
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) break;
+                off += n;
+            }
+            JSONObject manifest = new JSONObject(new String(bytes, 0, off, StandardCharsets.UTF_8));
+            return manifest.optJSONArray(KEY_SEGMENTS) != null ? manifest : null;
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Session manifest " + file.getName() + " unreadable", e);
+            return null;
+        }
+    }
+
+    /** Rewrites the manifest via a temp file so readers never see a half-written one. */
+    private static void write(File target, JSONObject manifest) {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (OutputStream os = new FileOutputStream(temp)) {
+            os.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write session manifest " + temp.getName(), e);
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "Could not replace session manifest " + target.getName());
+            if (!temp.delete()) Log.w(TAG, "Failed to delete temp manifest " + temp.getName());
+        }
+    }
+}
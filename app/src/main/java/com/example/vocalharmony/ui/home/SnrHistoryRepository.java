@@ -0,0 +1,377 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Query layer over the {@link SnrHistoryStore}; screens read and write SNR history through this
+ * rather than the raw log.
+ *
+ * Time-range queries use a sparse index of the log: one entry per block of
+ * {@link #BLOCK_SIZE} records with the block's time range. Results are appended in time order
+ * except after a clock change, so the index also keeps a running max of block end times (from the
+ * front) and min of block start times (from the back). Both are monotonic, so the blocks that can
+ * hold a range are found by binary search even if some blocks overlap. Day, week and month
+ * rollups are kept as buckets that are updated as records are indexed, so a rollup query is a
+ * sorted-map range lookup.
+ *
+ * The index is built on the first query and catches up with the log on every later one, so it
+ * stays correct however the records were appended. Neither the index nor the rollups are
+ * persisted: building them is one sequential read of 16-byte records per process (years of daily
+ * tests is well under a megabyte), while a stored copy would be a second file to keep consistent
+ * with the log across crashes, migrations and clock changes. Queries read the log, so call them off the
+ * main thread; {@link #getSummary} is safe anywhere. Thread-safe.
+ *
+ * The store is opened (and legacy results migrated) in the background when the repository is
+ * created. Calls that need it wait for that; if it could not be opened, the history reads as
+ * empty and nothing can be appended.
+ *
+ * Screens observe the history rather than reading it: {@link #getSummaryData} and
+ * {@link #observeSeries} publish the running aggregates and the chart series, which are kept in
+ * memory for the life of the process. A result saved through {@link #append} is folded into both
+ * directly, so observers update without the log being read again.
+ */
+public class SnrHistoryRepository {
+
+    private static final String TAG = "SnrHistoryRepository";
+
+    static final int BLOCK_SIZE = 256;
+
+    /** Granularity of {@link #query} results. */
+    public enum Resolution { RAW, DAY, WEEK, MONTH }
+
+    /** One query result: a single record (RAW) or a calendar bucket. */
+    public static class Row {
+        public final long startMillis;
+        public final int count;
+        public final float min;
+        public final float max;
+        public final float mean;
+
+        Row(long startMillis, int count, float min, float max, float mean) {
+            this.startMillis = startMillis;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+        }
+    }
+
+    /** A series as published to the chart, with its LTTB overview already selected off the main thread. */
+    static final class ChartSeries {
+        final SnrSeries series;
+        final int[] overview;
+
+        ChartSeries(SnrSeries series, int[] overview) {
+            this.series = series;
+            this.overview = overview;
+        }
+    }
+
+    private static class Bucket {
+        int count;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        double sum;
+
+        void add(float value) {
+            count++;
+            if (value < min) min = value;
+            if (value > max) max = value;
+            sum += value;
+        }
+    }
+
+    private static volatile SnrHistoryRepository instance;
+
+    private final Future<SnrHistoryStore> storeFuture;
+    private volatile SnrHistoryStore openedStore; // Set once the store is open, for non-blocking reads
+
+    // --- Published state ---
+    private final MutableLiveData<SnrSummary> summaryData = new MutableLiveData<>();
+    private final MutableLiveData<ChartSeries> seriesData = new MutableLiveData<>();
+    private volatile int overviewBudget = 300; // Until a chart asks for its own
+    // Loads the series; never interrupted, as that would close the store's shared FileChannel
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+
+    // --- Sparse index (built lazily) ---
+    private int indexedCount = 0;
+    private int blockCount = 0;
+    private long[] blockMin = new long[16];
+    private long[] blockMax = new long[16];
+    private long[] prefixMax = new long[16]; // max(blockMax[0..b]), non-decreasing
+    private long[] suffixMin = new long[16]; // min(blockMin[b..]), non-decreasing
+    private final Map<Resolution, TreeMap<Long, Bucket>> rollups = new EnumMap<>(Resolution.class);
+
+    private SnrHistoryRepository(Context appContext) {
+        // First task on the executor, so series loads queued after it find the store open
+        this.storeFuture = loadExecutor.submit(() -> {
+            SnrHistoryStore store = SnrHistoryStore.getInstance(appContext);
+            openedStore = store;
+            summaryData.postValue(store.getSummary());
+            return store;
+        });
+        rollups.put(Resolution.DAY, new TreeMap<>());
+        rollups.put(Resolution.WEEK, new TreeMap<>());
+        rollups.put(Resolution.MONTH, new TreeMap<>());
+    }
+
+    /**
+     * App-scoped instance. Cheap and safe on the main thread: the store opens in the background
+     * and nothing is indexed until the first query.
+     */
+    @NonNull
+    public static SnrHistoryRepository getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (SnrHistoryRepository.class) {
+                if (instance == null) instance = new SnrHistoryRepository(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    /** The store, waiting for it to open if need be; null if it can't be opened. Not on the main thread. */
+    @Nullable
+    private SnrHistoryStore store() {
+        try {
+            return storeFuture.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Could not open SNR history", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    // --- Writing ---
+
+    /**
+     * Saves one result (see {@link SnrHistoryStore#append}) and publishes the new summary and
+     * series. The series in memory is extended in place; it is only reloaded if the result is
+     * older than the newest one already shown. Writes to disk; not on the main thread.
+     */
+    public boolean append(long timeMillis, float value, int flags) {
+        // Not synchronized: SnrSeries.load locks the series before querying, so locking this first could deadlock
+        SnrHistoryStore store = store();
+        if (store == null || !store.append(timeMillis, value, flags)) return false;
+        summaryData.postValue(store.getSummary());
+        SnrSeries series = SnrSeries.appendSaved(timeMillis, value, store.size());
+        if (series != null) {
+            publish(series);
+        } else if (SnrSeries.peekCached() != null) {
+            refreshSeries();
+        }
+        return true;
+    }
+
+    // --- Reading ---
+
+    /** Running aggregates; a field read, safe on the main thread. Empty until the store is open. */
+    @NonNull
+    public SnrSummary getSummary() {
+        SnrHistoryStore store = openedStore;
+        return store != null ? store.getSummary() : SnrSummary.EMPTY;
+    }
+
+    /** The running aggregates, published once the store is open and whenever a result is saved. */
+    @NonNull
+    public LiveData<SnrSummary> getSummaryData() { return summaryData; }
+
+    /**
+     * Follows the history as a chart series, updated whenever a result is saved. The first call
+     * loads it in the background; later calls deliver the series in memory and only read records
+     * the repository hasn't seen. Each series comes with its overview for {@code overviewBudget}
+     * points, so the chart never downsamples on the main thread. Main thread only.
+     */
+    void observeSeries(@NonNull LifecycleOwner owner, int overviewBudget, @NonNull Observer<ChartSeries> observer) {
+        this.overviewBudget = overviewBudget;
+        seriesData.observe(owner, observer); // Before the load, which stops once nobody observes
+        refreshSeries();
+    }
+
+    private void refreshSeries() {
+        loadExecutor.execute(() -> {
+            // A graph that was destroyed stops a full reload; the next observer catches up instead
+            SnrSeries series = SnrSeries.load(this, () -> !seriesData.hasObservers());
+            if (series == null) return;
+            Log.d(TAG, "Series up to date: " + series.size() + " points");
+            publish(series);
+        });
+    }
+
+    /** Selects the overview on the calling (background) thread and posts both to observers. */
+    private void publish(SnrSeries series) {
+        seriesData.postValue(new ChartSeries(series, series.overview(overviewBudget)));
+    }
+
+    /** Number of records in the log. */
+    public int size() {
+        SnrHistoryStore store = store();
+        return store != null ? store.size() : 0;
+    }
+
+    /**
+     * Visits log positions {@code fromIndex} to {@code toIndex} (exclusive) in log order, which is
+     * save order rather than time order. For readers that keep their own copy and only need what
+     * was appended since they last looked.
+     */
+    public void forEach(int fromIndex, int toIndex, @NonNull SnrHistoryStore.Visitor visitor) {
+        SnrHistoryStore store = store();
+        if (store != null) store.forEach(fromIndex, toIndex, visitor);
+    }
+
+    /**
+     * Results between {@code fromMillis} and {@code toMillis} (inclusive), oldest first. RAW gives
+     * one row per record; the other resolutions give one row per local calendar bucket, and a
+     * bucket that overlaps either end of the range is returned whole.
+     */
+    @NonNull
+    public synchronized List<Row> query(long fromMillis, long toMillis, @NonNull Resolution resolution) {
+        catchUp();
+        List<Row> rows = new ArrayList<>();
+        if (fromMillis > toMillis) return rows;
+        if (resolution == Resolution.RAW) {
+            queryRaw(fromMillis, toMillis, rows);
+            return rows;
+        }
+        TreeMap<Long, Bucket> buckets = rollups.get(resolution);
+        for (Map.Entry<Long, Bucket> entry : buckets.subMap(bucketStart(resolution, fromMillis), true, toMillis, true).entrySet()) {
+            Bucket b = entry.getValue();
+            rows.add(new Row(entry.getKey(), b.count, b.min, b.max, (float) (b.sum / b.count)));
+        }
+        return rows;
+    }
+
+    private void queryRaw(long fromMillis, long toMillis, List<Row> rows) {
+        SnrHistoryStore store = store();
+        if (store == null) return;
+        // First block whose records could reach fromMillis, last block whose records could start by toMillis
+        int first = lowerBound(prefixMax, blockCount, fromMillis);
+        int last = upperBound(suffixMin, blockCount, toMillis) - 1;
+        boolean sorted = true;
+        long previous = Long.MIN_VALUE;
+        for (int b = first; b <= last; b++) {
+            if (blockMax[b] < fromMillis || blockMin[b] > toMillis) continue;
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(indexedCount, from + BLOCK_SIZE);
+            int before = rows.size();
+            store.forEach(from, to, (time, value, flags) -> {
+                if (time >= fromMillis && time <= toMillis) rows.add(new Row(time, 1, value, value, value));
+            });
+            for (int i = before; i < rows.size(); i++) {
+                long time = rows.get(i).startMillis;
+                if (time < previous) sorted = false;
+                previous = time;
+            }
+        }
+        if (!sorted) rows.sort((a, c) -> Long.compare(a.startMillis, c.startMillis));
+    }
+
+    // --- Index maintenance ---
+
+    /** Indexes the records appended since the last query. */
+    private void catchUp() {
+        SnrHistoryStore store = store();
+        if (store == null) return;
+        int count = store.size();
+        if (count < indexedCount) { // Log was replaced; start over
+            indexedCount = 0;
+            blockCount = 0;
+            for (TreeMap<Long, Bucket> buckets : rollups.values()) buckets.clear();
+        }
+        if (count == indexedCount) return;
+        int firstTouched = indexedCount / BLOCK_SIZE;
+        store.forEach(indexedCount, count, (time, value, flags) -> {
+            int block = indexedCount / BLOCK_SIZE;
+            if (block == blockCount) {
+                ensureBlockCapacity(block + 1);
+                blockMin[block] = time;
+                blockMax[block] = time;
+                blockCount++;
+            } else {
+                if (time < blockMin[block]) blockMin[block] = time;
+                if (time > blockMax[block]) blockMax[block] = time;
+            }
+            addToBucket(Resolution.DAY, SnrSummary.startOfDay(time), value);
+            addToBucket(Resolution.WEEK, SnrSummary.startOfWeek(time), value);
+            addToBucket(Resolution.MONTH, SnrSummary.startOfMonth(time), value);
+            indexedCount++;
+        });
+
+        for (int b = firstTouched; b < blockCount; b++) {
+            prefixMax[b] = b == 0 ? blockMax[0] : Math.max(prefixMax[b - 1], blockMax[b]);
+        }
+        // A new early record lowers the suffix min of every block before it
+        for (int b = blockCount - 1; b >= 0; b--) {
+            long min = b == blockCount - 1 ? blockMin[b] : Math.min(suffixMin[b + 1], blockMin[b]);
+            if (b < firstTouched && suffixMin[b] == min) break;
+            suffixMin[b] = min;
+        }
+    }
+
+    private void addToBucket(Resolution resolution, long start, float value) {
+        TreeMap<Long, Bucket> buckets = rollups.get(resolution);
+        Bucket bucket = buckets.get(start);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(start, bucket);
+        }
+        bucket.add(value);
+    }
+
+    private void ensureBlockCapacity(int blocks) {
+        if (blocks <= blockMin.length) return;
+        int capacity = Math.max(blocks, blockMin.length * 2);
+        blockMin = Arrays.copyOf(blockMin, capacity);
+        blockMax = Arrays.copyOf(blockMax, capacity);
+        prefixMax = Arrays.copyOf(prefixMax, capacity);
+        suffixMin = Arrays.copyOf(suffixMin, capacity);
+    }
+
+    private static long bucketStart(Resolution resolution, long timeMillis) {
+        switch (resolution) {
+            case DAY: return SnrSummary.startOfDay(timeMillis);
+            case WEEK: return SnrSummary.startOfWeek(timeMillis);
+            case MONTH: return SnrSummary.startOfMonth(timeMillis);
+            default: return timeMillis;
+        }
+    }
+
+    /** First index in [0, length) with a[i] >= key, or length. */
+    private static int lowerBound(long[] a, int length, long key) {
+        int low = 0, high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (a[mid] < key) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    /** First index in [0, length) with a[i] > key, or length. */
+    private static int upperBound(long[] a, int length, long key) {
+        int low = 0, high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (a[mid] <= key) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+/**
+ * History of SNR test results, kept as an append-only log of fixed-size binary records
+ * (epoch millis, value, flags) in app storage. Appending writes one record at the end of the
+ * file; reads go through a memory mapping of the file, so neither grows with the length of the
+ * history the way the old one-prefs-key-per-result scheme did.
+ *
+ * A {@link SnrSummary} of the history is updated on every append and kept in a small sidecar
+ * file, so the latest/best/period figures are an O(1) read. The sidecar records how many log
+ * records it covers; if it is missing, torn or behind the log, it is rebuilt with one scan.
+ *
+ * Results saved by older versions as {@code snr_<timestamp>} floats in VocalHarmonyPrefs are
+ * moved into the log the first time the store is opened. Opening does disk I/O, so
+ * {@link #getInstance} belongs off the main thread. Thread-safe.
+ */
+public class SnrHistoryStore {
+
+    private static final String TAG = "SnrHistoryStore";
+    private static final String HISTORY_FILENAME = "snr_history.bin";
+    private static final String SUMMARY_FILENAME = "snr_history.summary";
+
+    // Header: magic, version, record size, reserved
+    private static final int MAGIC = 0x56485331; // "VHS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 16; // long time + float value + int flags
+
+    // Summary sidecar: magic, record count, summary, CRC32 of everything before it
+    private static final int SUMMARY_MAGIC = 0x56485353; // "VHSS"
+    private static final int SUMMARY_FILE_SIZE = 4 + 4 + SnrSummary.SERIALIZED_SIZE + 8;
+
+    /** Record was imported from the legacy prefs keys. */
+    public static final int FLAG_MIGRATED = 1;
+    /** The session's full trace is stored in {@link SnrTrace#traceFile} under the record's time. */
+    public static final int FLAG_HAS_TRACE = 2;
+
+    // --- Legacy storage ---
+    private static final String LEGACY_KEY_PREFIX = "snr_";
+    private static final String LEGACY_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+    static final String KEY_MIGRATED = "snrHistoryMigrated"; // In AppPreferences.settings
+
+    private static volatile SnrHistoryStore instance;
+
+    private final File historyFile;
+    private final FileChannel channel;
+    private final File summaryFile;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer summaryBuffer = ByteBuffer.allocate(SUMMARY_FILE_SIZE);
+    private int count;
+    private volatile SnrSummary summary = SnrSummary.EMPTY;
+    // Read-only mapping of the first mappedCount records; remapped when the log has grown
+    private MappedByteBuffer mapped;
+    private int mappedCount = -1;
+
+    /** One stored result. */
+    public static class Point {
+        public final long timeMillis;
+        public final float value;
+        public final int flags;
+
+        public Point(long timeMillis, float value, int flags) {
+            this.timeMillis = timeMillis;
+            this.value = value;
+            this.flags = flags;
+        }
+    }
+
+    /** Receives records in log order from {@link #forEach}. */
+    public interface Visitor {
+        void visit(long timeMillis, float value, int flags);
+    }
+
+    private SnrHistoryStore(File historyFile, File summaryFile) throws IOException {
+        this.historyFile = historyFile;
+        this.summaryFile = summaryFile;
+        RandomAccessFile file = new RandomAccessFile(historyFile, "rw"); // Kept open for the life of the app
+        try {
+            this.channel = file.getChannel();
+            this.count = openLog();
+            loadSummary();
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * App-scoped instance. Opens the log on first use and migrates any legacy prefs entries, so
+     * call it off the main thread. Throws only if app storage itself is unusable.
+     */
+    @NonNull
+    public static SnrHistoryStore getInstance(@NonNull Context context) throws IOException {
+        if (instance == null) {
+            synchronized (SnrHistoryStore.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    File dir = appContext.getFilesDir();
+                    SnrHistoryStore store = new SnrHistoryStore(new File(dir, HISTORY_FILENAME), new File(dir, SUMMARY_FILENAME));
+                    SharedPreferences settings = AppPreferences.settings(appContext);
+                    if (!settings.getBoolean(KEY_MIGRATED, false)) {
+                        store.migrateLegacyPrefs(AppPreferences.legacy(appContext), settings);
+                        AppPreferences.releaseLegacy(appContext);
+                    }
+                    instance = store;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Validates or writes the header and returns the number of whole records. */
+    private int openLog() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (size < HEADER_SIZE) {
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+            channel.truncate(0);
+            while (header.hasRemaining()) channel.write(header, header.position());
+            channel.force(false);
+            return 0;
+        }
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) throw new IOException("Unexpected end of history header");
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException(historyFile.getName() + " is not an SNR history log");
+        }
+        // A record cut short by a crash mid-append is dropped
+        long records = (size - HEADER_SIZE) / RECORD_SIZE;
+        if (HEADER_SIZE + records * RECORD_SIZE != size) {
+            Log.w(TAG, "Dropping partial record at end of " + historyFile.getName());
+            channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+        }
+        return (int) Math.min(records, Integer.MAX_VALUE);
+    }
+
+    // --- Writing ---
+
+    /** Appends one result. Non-finite values are rejected. */
+    public synchronized boolean append(long timeMillis, float value, int flags) {
+        if (!Float.isFinite(value)) {
+            Log.w(TAG, "Not storing non-finite SNR value " + value);
+            return false;
+        }
+        recordBuffer.clear();
+        recordBuffer.putLong(timeMillis).putFloat(value).putInt(flags).flip();
+        long position = HEADER_SIZE + (long) count * RECORD_SIZE;
+        try {
+            while (recordBuffer.hasRemaining()) position += channel.write(recordBuffer, position);
+            channel.force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append SNR result", e);
+            try {
+                channel.truncate(HEADER_SIZE + (long) count * RECORD_SIZE); // Don't leave half a record
+            } catch (IOException ignored) {}
+            return false;
+        }
+        count++;
+        summary = summary.plus(timeMillis, value);
+        saveSummary();
+        return true;
+    }
+
+    /**
+     * Appends many results with one write, one sync and one summary update. Non-finite values
+     * are skipped. All or nothing: on failure the log is left as it was.
+     * @return the number of records appended, or -1 if the write failed
+     */
+    public synchronized int appendAll(@NonNull List<Point> points) {
+        ByteBuffer batch = ByteBuffer.allocate(points.size() * RECORD_SIZE);
+        SnrSummary batchSummary = summary;
+        int appended = 0;
+        for (Point point : points) {
+            if (!Float.isFinite(point.value)) {
+                Log.w(TAG, "Not storing non-finite SNR value " + point.value);
+                continue;
+            }
+            batch.putLong(point.timeMillis).putFloat(point.value).putInt(point.flags);
+            batchSummary = batchSummary.plus(point.timeMillis, point.value);
+            appended++;
+        }
+        if (appended == 0) return 0;
+        batch.flip();
+        long position = HEADER_SIZE + (long) count * RECORD_SIZE;
+        try {
+            while (batch.hasRemaining()) position += channel.write(batch, position);
+            channel.force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append " + appended + " SNR results", e);
+            try {
+                channel.truncate(HEADER_SIZE + (long) count * RECORD_SIZE); // Don't leave part of the batch
+            } catch (IOException ignored) {}
+            return -1;
+        }
+        count += appended;
+        summary = batchSummary;
+        saveSummary();
+        return appended;
+    }
+
+    // --- Reading ---
+
+    public synchronized int size() { return count; }
+
+    /** Aggregates over the whole history. Doesn't touch the log; safe to call on the main thread. */
+    @NonNull
+    public SnrSummary getSummary() { return summary; }
+
+    public synchronized boolean isEmpty() { return count == 0; }
+
+    /** Calls the visitor for records [from, to) in log order. */
+    public synchronized void forEach(int from, int to, @NonNull Visitor visitor) {
+        if (from < 0 || to > count || from > to) throw new IndexOutOfBoundsException(from + ".." + to + " of " + count);
+        ByteBuffer view = mappedView();
+        if (view == null) return;
+        for (int i = from; i < to; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            visitor.visit(view.getLong(offset), view.getFloat(offset + 8), view.getInt(offset + 12));
+        }
+    }
+
+    public synchronized void forEach(@NonNull Visitor visitor) { forEach(0, count, visitor); }
+
+    /** Returns record {@code index}, or null if it can't be read. */
+    @Nullable
+    public synchronized Point get(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException(index + " of " + count);
+        ByteBuffer view = mappedView();
+        if (view == null) return null;
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        return new Point(view.getLong(offset), view.getFloat(offset + 8), view.getInt(offset + 12));
+    }
+
+    /** Copies the whole history, in log order. */
+    @NonNull
+    public synchronized List<Point> readAll() {
+        List<Point> points = new ArrayList<>(count);
+        forEach(0, count, (time, value, flags) -> points.add(new Point(time, value, flags)));
+        return points;
+    }
+
+    private ByteBuffer mappedView() {
+        if (mapped == null || mappedCount != count) {
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) count * RECORD_SIZE);
+                mappedCount = count;
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to map " + historyFile.getName(), e);
+                mapped = null;
+                mappedCount = -1;
+                return null;
+            }
+        }
+        return mapped;
+    }
+
+    // --- Summary sidecar ---
+
+    private void loadSummary() {
+        if (summaryFile.length() == SUMMARY_FILE_SIZE) {
+            byte[] bytes = new byte[SUMMARY_FILE_SIZE];
+            try (RandomAccessFile in = new RandomAccessFile(summaryFile, "r")) {
+                in.readFully(bytes);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                CRC32 crc = new CRC32();
+                crc.update(bytes, 0, SUMMARY_FILE_SIZE - 8);
+                if (buffer.getInt(0) == SUMMARY_MAGIC && buffer.getInt(4) == count
+                        && buffer.getLong(SUMMARY_FILE_SIZE - 8) == crc.getValue()) {
+                    buffer.position(8);
+                    summary = SnrSummary.readFrom(buffer);
+                    return;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Summary unreadable", e);
+            }
+        }
+        // Missing, torn or stale: rebuild from the log
+        Log.i(TAG, "Rebuilding summary from " + count + " records");
+        final SnrSummary[] rebuilt = {SnrSummary.EMPTY};
+        forEach(0, count, (time, value, flags) -> rebuilt[0] = rebuilt[0].plus(time, value));
+        summary = rebuilt[0];
+        saveSummary();
+    }
+
+    /** Overwrites the sidecar in place; a torn write fails the CRC and is rebuilt on the next launch. */
+    private void saveSummary() {
+        summaryBuffer.clear();
+        summaryBuffer.putInt(SUMMARY_MAGIC).putInt(count);
+        summary.writeTo(summaryBuffer);
+        CRC32 crc = new CRC32();
+        crc.update(summaryBuffer.array(), 0, summaryBuffer.position());
+        summaryBuffer.putLong(crc.getValue());
+        try (RandomAccessFile out = new RandomAccessFile(summaryFile, "rw")) {
+            out.write(summaryBuffer.array(), 0, SUMMARY_FILE_SIZE);
+            out.setLength(SUMMARY_FILE_SIZE);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to save summary", e);
+        }
+    }
+
+    // --- Migration ---
+
+    /**
+     * Moves {@code snr_<timestamp>} floats out of the shared prefs into the log in one batch,
+     * oldest first, then deletes the keys that made it in. Records already in the log (flagged
+     * {@link #FLAG_MIGRATED}) are matched by time and not written again, so a run cut short by a
+     * failed write or a kill is finished on the next launch. Entries that can't be imported
+     * (unparseable key, not a finite float) are skipped and left in place.
+     */
+    private void migrateLegacyPrefs(SharedPreferences prefs, SharedPreferences settings) {
+        Set<Long> imported = new HashSet<>();
+        forEach(0, count, (time, value, flags) -> {
+            if ((flags & FLAG_MIGRATED) != 0) imported.add(time);
+        });
+
+        SimpleDateFormat format = new SimpleDateFormat(LEGACY_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        List<String> importedKeys = new ArrayList<>();
+        List<String> pendingKeys = new ArrayList<>();
+        List<Point> pendingPoints = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            String key = entry.getKey();
+            if (key == null || !key.startsWith(LEGACY_KEY_PREFIX)) continue;
+            Object value = entry.getValue();
+            if (!(value instanceof Float) || !Float.isFinite((Float) value)) {
+                Log.w(TAG, "Skipping legacy entry that is not a finite float: " + key);
+                continue;
+            }
+            try {
+                Date date = format.parse(key.substring(LEGACY_KEY_PREFIX.length()));
+                if (date == null) continue;
+                if (imported.contains(date.getTime())) {
+                    importedKeys.add(key);
+                } else {
+                    pendingKeys.add(key);
+                    pendingPoints.add(new Point(date.getTime(), (Float) value, FLAG_MIGRATED));
+                }
+            } catch (ParseException e) {
+                Log.w(TAG, "Skipping legacy entry with unparseable key: " + key);
+            }
+        }
+
+        pendingPoints.sort((a, b) -> Long.compare(a.timeMillis, b.timeMillis));
+        boolean complete = appendAll(pendingPoints) >= 0;
+        if (complete) {
+            importedKeys.addAll(pendingKeys);
+        } else {
+            Log.e(TAG, "Legacy migration failed; " + pendingPoints.size() + " results will be retried next launch");
+        }
+
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : importedKeys) editor.remove(key);
+        if (!editor.commit()) {
+            Log.w(TAG, "Could not clear imported legacy SNR keys; they are skipped next launch");
+        } else if (complete && settings.edit().putBoolean(KEY_MIGRATED, true).commit()) {
+            Log.i(TAG, "Migrated " + pendingPoints.size() + " legacy SNR results (" + (importedKeys.size() - pendingKeys.size()) + " already imported)");
+        }
+    }
+}
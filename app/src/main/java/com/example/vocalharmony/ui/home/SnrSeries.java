@@ -0,0 +1,157 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The SNR history as chart-ready arrays, sorted by time: x is minutes since the first result,
+ * y the SNR. The last series loaded is kept for the life of the process, so reopening the graph
+ * can draw straight away; a later load only reads the records appended since then.
+ */
+final class SnrSeries {
+
+    static final float MILLIS_PER_X = 60_000f;
+
+    final long originMillis;
+    final float[] x;
+    final float[] y;
+    /** Number of log records this series was built from. */
+    final int sourceCount;
+
+    private final long lastMillis;
+    private int overviewBudget = -1;
+    private int[] overview;
+
+    private static SnrSeries cached;
+
+    private SnrSeries(long originMillis, float[] x, float[] y, int sourceCount, long lastMillis) {
+        this.originMillis = originMillis;
+        this.x = x;
+        this.y = y;
+        this.sourceCount = sourceCount;
+        this.lastMillis = lastMillis;
+    }
+
+    int size() { return x.length; }
+
+    /** LTTB selection of the whole series for the given point budget; computed once per budget. */
+    synchronized int[] overview(int budget) {
+        if (overview == null || overviewBudget != budget) {
+            overview = LttbDownsampler.select(x, y, 0, x.length, budget);
+            overviewBudget = budget;
+        }
+        return overview;
+    }
+
+    /** The last series loaded in this process, without touching the log. May be out of date. */
+    @Nullable
+    static synchronized SnrSeries peekCached() { return cached; }
+
+    /**
+     * Brings the cached series up to date with the log and returns it. Reads only the records
+     * appended since the last load, unless they go back in time (e.g. after a clock change), in
+     * which case the whole history is re-read and sorted. Call off the main thread.
+     * @return the series, or null if cancelled.
+     */
+    @Nullable
+    static synchronized SnrSeries load(@NonNull SnrHistoryRepository repository, @NonNull BooleanSupplier isCancelled) {
+        if (isCancelled.getAsBoolean()) return null;
+        int count = repository.size();
+        SnrSeries previous = cached;
+        if (previous != null && previous.sourceCount == count) return previous;
+
+        if (previous == null || previous.size() == 0 || previous.sourceCount > count) {
+            return cache(loadAll(repository, isCancelled));
+        }
+
+        int from = previous.sourceCount;
+        int newCount = count - from;
+        long[] read = new long[newCount];
+        float[] readValues = new float[newCount];
+        final int[] filled = {0};
+        repository.forEach(from, count, (timeMillis, value, flags) -> {
+            read[filled[0]] = timeMillis;
+            readValues[filled[0]] = value;
+            filled[0]++;
+        });
+        long[] times = read;
+        float[] values = readValues;
+        if (isCancelled.getAsBoolean()) return null;
+        if (filled[0] < newCount) { // Log couldn't be mapped; keep what was read
+            times = Arrays.copyOf(times, filled[0]);
+            values = Arrays.copyOf(values, filled[0]);
+            count = from + filled[0];
+        }
+
+        if (!isSorted(times, previous.lastMillis)) {
+            // Out-of-order append (e.g. after a clock change); start over with the whole log
+            return cache(loadAll(repository, isCancelled));
+        }
+        return cache(previous.append(times, values, count));
+    }
+
+    /** The whole history from a time-range query, which comes back sorted. */
+    @Nullable
+    private static SnrSeries loadAll(SnrHistoryRepository repository, BooleanSupplier isCancelled) {
+        List<SnrHistoryRepository.Row> rows =
+                repository.query(Long.MIN_VALUE, Long.MAX_VALUE, SnrHistoryRepository.Resolution.RAW);
+        if (isCancelled.getAsBoolean()) return null;
+        int n = rows.size();
+        long origin = n > 0 ? rows.get(0).startMillis : 0L;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            SnrHistoryRepository.Row row = rows.get(i);
+            x[i] = (row.startMillis - origin) / MILLIS_PER_X;
+            y[i] = row.mean;
+        }
+        // A full-range query returns every record in the log at the time, including any saved since count was read
+        return new SnrSeries(origin, x, y, n, n > 0 ? rows.get(n - 1).startMillis : Long.MIN_VALUE);
+    }
+
+    /**
+     * Extends the cached series with a result that was just saved, without reading the log.
+     * Returns null if that can't be done (nothing cached, records missed, or the result is older
+     * than the newest point), in which case the next {@link #load} catches up.
+     */
+    @Nullable
+    static synchronized SnrSeries appendSaved(long timeMillis, float value, int newSourceCount) {
+        SnrSeries previous = cached;
+        if (previous == null || previous.size() == 0 || previous.sourceCount != newSourceCount - 1
+                || timeMillis < previous.lastMillis) {
+            return null;
+        }
+        return cache(previous.append(new long[] {timeMillis}, new float[] {value}, newSourceCount));
+    }
+
+    @Nullable
+    private static SnrSeries cache(@Nullable SnrSeries series) {
+        if (series != null) cached = series;
+        return series;
+    }
+
+    private SnrSeries append(long[] times, float[] values, int newSourceCount) {
+        int oldSize = x.length;
+        float[] newX = Arrays.copyOf(x, oldSize + times.length);
+        float[] newY = Arrays.copyOf(y, oldSize + times.length);
+        for (int i = 0; i < times.length; i++) {
+            newX[oldSize + i] = (times[i] - originMillis) / MILLIS_PER_X;
+            newY[oldSize + i] = values[i];
+        }
+        long last = times.length > 0 ? times[times.length - 1] : lastMillis;
+        return new SnrSeries(originMillis, newX, newY, newSourceCount, last);
+    }
+
+    private static boolean isSorted(long[] times, long after) {
+        long previous = after;
+        for (long time : times) {
+            if (time < previous) return false;
+            previous = time;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Calendar;
+
+/**
+ * Running aggregates over the SNR history: session count, latest and all-time best result, and
+ * min/max/mean for the most recent day and week. {@link SnrHistoryStore} folds each appended
+ * result into a new summary, so screens can show them without scanning the log. Immutable.
+ */
+public final class SnrSummary {
+
+    /** Bytes used by {@link #writeTo}. */
+    static final int SERIALIZED_SIZE = 4 + 8 + 4 + 8 + 4 + 2 * Period.SERIALIZED_SIZE;
+
+    public static final SnrSummary EMPTY = new SnrSummary(0, Long.MIN_VALUE, 0f, Long.MIN_VALUE, 0f, null, null);
+
+    public final int count;
+    public final long latestTimeMillis;
+    public final float latest;
+    public final long bestTimeMillis;
+    public final float best;
+    /** Local calendar day of the newest result, or null if there are none. */
+    @Nullable public final Period day;
+    /** Local calendar week of the newest result, or null if there are none. */
+    @Nullable public final Period week;
+
+    /** Min/max/mean of the results that fall in one calendar period. */
+    public static final class Period {
+        static final int SERIALIZED_SIZE = 8 + 4 + 4 + 4 + 8;
+
+        public final long startMillis;
+        public final int count;
+        public final float min;
+        public final float max;
+        private final double sum;
+
+        Period(long startMillis, int count, float min, float max, double sum) {
+            this.startMillis = startMillis;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+        }
+
+        public float getMean() { return count > 0 ? (float) (sum / count) : 0f; }
+
+        /** Adds a result that starts the period at {@code start}; results from an earlier period are ignored. */
+        static Period plus(@Nullable Period period, long start, float value) {
+            if (period == null || start > period.startMillis) return new Period(start, 1, value, value, value);
+            if (start < period.startMillis) return period;
+            return new Period(start, period.count + 1, Math.min(period.min, value), Math.max(period.max, value), period.sum + value);
+        }
+
+        void writeTo(ByteBuffer out) {
+            out.putLong(startMillis).putInt(count).putFloat(min).putFloat(max).putDouble(sum);
+        }
+
+        static Period readFrom(ByteBuffer in) {
+            Period period = new Period(in.getLong(), in.getInt(), in.getFloat(), in.getFloat(), in.getDouble());
+            return period.count > 0 ? period : null;
+        }
+    }
+
+    private SnrSummary(int count, long latestTimeMillis, float latest, long bestTimeMillis, float best,
+                       @Nullable Period day, @Nullable Period week) {
+        this.count = count;
+        this.latestTimeMillis = latestTimeMillis;
+        this.latest = latest;
+        this.bestTimeMillis = bestTimeMillis;
+        this.best = best;
+        this.day = day;
+        this.week = week;
+    }
+
+    public boolean isEmpty() { return count == 0; }
+
+    /** The day stats if the newest result is from the same local day as {@code nowMillis}, else null. */
+    @Nullable
+    public Period getDay(long nowMillis) {
+        return day != null && day.startMillis == startOfDay(nowMillis) ? day : null;
+    }
+
+    /** The week stats if the newest result is from the same local week as {@code nowMillis}, else null. */
+    @Nullable
+    public Period getWeek(long nowMillis) {
+        return week != null && week.startMillis == startOfWeek(nowMillis) ? week : null;
+    }
+
+    /** Returns the summary with one more result folded in. */
+    @NonNull
+    SnrSummary plus(long timeMillis, float value) {
+        boolean newer = count == 0 || timeMillis >= latestTimeMillis;
+        boolean better = count == 0 || value > best;
+        return new SnrSummary(count + 1,
+                newer ? timeMillis : latestTimeMillis, newer ? value : latest,
+                better ? timeMillis : bestTimeMillis, better ? value : best,
+                Period.plus(day, startOfDay(timeMillis), value),
+                Period.plus(week, startOfWeek(timeMillis), value));
+    }
+
+    // --- Serialization ---
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(count).putLong(latestTimeMillis).putFloat(latest).putLong(bestTimeMillis).putFloat(best);
+        (day != null ? day : new Period(0, 0, 0f, 0f, 0.0)).writeTo(out);
+        (week != null ? week : new Period(0, 0, 0f, 0f, 0.0)).writeTo(out);
+    }
+
+    @NonNull
+    static SnrSummary readFrom(ByteBuffer in) {
+        return new SnrSummary(in.getInt(), in.getLong(), in.getFloat(), in.getLong(), in.getFloat(),
+                Period.readFrom(in), Period.readFrom(in));
+    }
+
+    // --- Calendar periods (device time zone) ---
+
+    static long startOfDay(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    static long startOfWeek(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(timeMillis));
+        int daysIntoWeek = (calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek() + 7) % 7;
+        calendar.add(Calendar.DAY_OF_MONTH, -daysIntoWeek);
+        return calendar.getTimeInMillis();
+    }
+
+    static long startOfMonth(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(timeMillis));
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compact on-disk format for the full per-window SNR trace of one test session.
+ *
+ * After a 20-byte header (magic, version, quantization, window length, start time) the file is a
+ * single column of values quantized to 0.1 dB, each stored as the zigzag-encoded difference from
+ * the previous value in a LEB128 varint. Consecutive windows rarely differ by more than 6.3 dB,
+ * so a trace costs about one byte per window. Timestamps are implicit: value i was measured
+ * {@code i * windowMs} after the start.
+ *
+ * Both sides stream: the {@link Writer} is fed from the audio thread as windows are measured, and
+ * the {@link Reader} decodes in chunks, so neither needs the whole trace in memory. The graph
+ * screen reads saved traces back to replay and compare sessions.
+ */
+public final class SnrTrace {
+
+    private static final String TAG = "SnrTrace";
+    private static final String TRACE_DIR = "snr_traces";
+    private static final String TRACE_SUFFIX = ".snrt";
+
+    private static final int MAGIC = 0x56485431; // "VHT1"
+    private static final int VERSION = 1;
+    /** Quantization: values are stored in tenths of a dB. */
+    public static final int STEPS_PER_DB = 10;
+
+    private SnrTrace() {}
+
+    /** Directory holding the traces, created if needed. */
+    @NonNull
+    public static File tracesDir(@NonNull Context context) {
+        File dir = new File(context.getApplicationContext().getFilesDir(), TRACE_DIR);
+        if (!dir.exists() && !dir.mkdirs()) Log.w(TAG, "Could not create " + dir);
+        return dir;
+    }
+
+    /** The trace of the session saved in the SNR history at {@code timeMillis}. */
+    @NonNull
+    public static File traceFile(@NonNull Context context, long timeMillis) {
+        return new File(tracesDir(context), timeMillis + TRACE_SUFFIX);
+    }
+
+    /**
+     * The saved trace closest in time to {@code timeMillis}, or null if none is within
+     * {@code toleranceMillis}. For callers that only have an approximate time, such as a chart point.
+     */
+    @Nullable
+    public static File findTrace(@NonNull Context context, long timeMillis, long toleranceMillis) {
+        File exact = traceFile(context, timeMillis);
+        if (exact.exists()) return exact;
+        File[] files = tracesDir(context).listFiles((dir, name) -> name.endsWith(TRACE_SUFFIX));
+        if (files == null) return null;
+        File best = null;
+        long bestDistance = toleranceMillis;
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                long distance = Math.abs(Long.parseLong(name.substring(0, name.length() - TRACE_SUFFIX.length())) - timeMillis);
+                if (distance <= bestDistance) {
+                    best = file;
+                    bestDistance = distance;
+                }
+            } catch (NumberFormatException e) {
+                // Not a saved trace (e.g. the pending one)
+            }
+        }
+        return best;
+    }
+
+    /** Where the trace of the test in progress is written until its result is saved. */
+    @NonNull
+    public static File pendingFile(@NonNull Context context) {
+        return new File(tracesDir(context), "pending" + TRACE_SUFFIX + ".tmp");
+    }
+
+    private static int quantize(float snrDb) {
+        return Float.isFinite(snrDb) ? Math.round(snrDb * STEPS_PER_DB) : 0;
+    }
+
+    // --- Encoding ---
+
+    /**
+     * Streaming encoder. {@link #append} may be called from the audio thread while another thread
+     * closes the writer; values arriving after {@link #close} are dropped.
+     */
+    public static class Writer implements Closeable {
+        private final File file;
+        private final OutputStream out;
+        private int previous = 0;
+        private long count = 0;
+        private boolean closed = false;
+
+        public Writer(@NonNull File file, long startMillis, int windowMs) throws IOException {
+            this.file = file;
+            this.out = new BufferedOutputStream(new FileOutputStream(file), 4096);
+            DataOutputStream header = new DataOutputStream(out);
+            try {
+                header.writeInt(MAGIC);
+                header.writeByte(VERSION);
+                header.writeByte(STEPS_PER_DB);
+                header.writeShort(0); // Reserved
+                header.writeInt(windowMs);
+                header.writeLong(startMillis);
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+        }
+
+        @NonNull
+        public File getFile() { return file; }
+
+        public synchronized long getCount() { return count; }
+
+        /** Appends one window's SNR in dB. I/O errors close the writer; the values written so far stay readable. */
+        public synchronized void append(float snrDb) {
+            if (closed) return;
+            int value = quantize(snrDb);
+            int delta = value - previous;
+            previous = value;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            try {
+                while ((zigzag & ~0x7F) != 0) {
+                    out.write((zigzag & 0x7F) | 0x80);
+                    zigzag >>>= 7;
+                }
+                out.write(zigzag);
+                count++;
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write to " + file.getName(), e);
+                close();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close " + file.getName(), e);
+            }
+        }
+    }
+
+    // --- Decoding ---
+
+    /** Streaming decoder. Not thread-safe. */
+    public static class Reader implements Closeable {
+        private final InputStream in;
+        private final int windowMs;
+        private final long startMillis;
+        private final int stepsPerDb;
+        private int previous = 0;
+        private boolean finished = false;
+
+        public Reader(@NonNull File file) throws IOException {
+            this.in = new BufferedInputStream(new FileInputStream(file), 4096);
+            try {
+                DataInputStream header = new DataInputStream(in);
+                if (header.readInt() != MAGIC) throw new IOException(file.getName() + " is not an SNR trace");
+                int version = header.readUnsignedByte();
+                if (version != VERSION) throw new IOException("Unsupported trace version " + version);
+                this.stepsPerDb = header.readUnsignedByte();
+                header.readShort(); // Reserved
+                this.windowMs = header.readInt();
+                this.startMillis = header.readLong();
+                if (stepsPerDb == 0) throw new IOException("Corrupt trace header");
+            } catch (EOFException e) {
+                in.close();
+                throw new IOException("Truncated trace header", e);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        public int getWindowMs() { return windowMs; }
+        public long getStartMillis() { return startMillis; }
+
+        /**
+         * Decodes up to {@code length} values into {@code dst}. Returns the number decoded, or -1
+         * at the end of the trace. A value cut short by a crash mid-write ends the trace.
+         */
+        public int read(float[] dst, int offset, int length) throws IOException {
+            if (finished) return -1;
+            int n = 0;
+            while (n < length) {
+                int zigzag = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = in.read();
+                    if (b < 0) { finished = true; return n > 0 ? n : -1; }
+                    if (shift > 28) throw new IOException("Corrupt varint in trace");
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                dst[offset + n++] = (float) previous / stepsPerDb;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+    }
+}
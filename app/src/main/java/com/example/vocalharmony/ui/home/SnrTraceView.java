@@ -0,0 +1,140 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.vocalharmony.R;
+
+/**
+ * Scrolling trace of the SNR values reported during a test, newest on the right. Values are
+ * kept in a fixed-size primitive ring and drawn with one {@link Canvas#drawLines} call from a
+ * preallocated coordinate array, so appending and drawing allocate nothing per frame.
+ * Main thread only.
+ */
+public class SnrTraceView extends View {
+
+    private static final float SNR_MIN_DB = 0f;
+    private static final float SNR_MAX_DB = (float) AudioMetrics.MAX_SNR_DB;
+    private static final float GRID_STEP_DB = 10f;
+    // At roughly ten SNR windows a second this shows the last half minute
+    private static final int DEFAULT_CAPACITY = 300;
+
+    private float[] ring;
+    private int head = 0; // Next write position
+    private int size = 0;
+    private float max = SNR_MIN_DB;
+    // Line segment coordinates (x0, y0, x1, y1) for drawLines, sized once for the capacity
+    private float[] segments;
+
+    private Paint tracePaint;
+    private Paint gridPaint;
+    private Paint maxPaint;
+
+    public SnrTraceView(@NonNull Context context) {
+        super(context);
+        init(context);
+    }
+
+    public SnrTraceView(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
+    }
+
+    public SnrTraceView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context);
+    }
+
+    private void init(@NonNull Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        tracePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        tracePaint.setColor(ContextCompat.getColor(context, R.color.colorPrimary));
+        tracePaint.setStrokeWidth(2f * density);
+        tracePaint.setStrokeCap(Paint.Cap.ROUND);
+
+        gridPaint = new Paint();
+        gridPaint.setColor(ContextCompat.getColor(context, R.color.snr_trace_grid_color));
+        gridPaint.setStrokeWidth(1f);
+
+        maxPaint = new Paint();
+        maxPaint.setColor(ContextCompat.getColor(context, R.color.max_snr_color));
+        maxPaint.setStrokeWidth(1f * density);
+
+        setCapacity(DEFAULT_CAPACITY);
+    }
+
+    /** Number of values visible across the width. Clears the trace. */
+    public void setCapacity(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+        ring = new float[capacity];
+        segments = new float[(capacity - 1) * 4];
+        reset();
+    }
+
+    /** Adds one SNR value (dB); non-finite values are drawn as 0. */
+    public void append(float snrDb) {
+        float value = Float.isFinite(snrDb) ? Math.max(SNR_MIN_DB, Math.min(snrDb, SNR_MAX_DB)) : SNR_MIN_DB;
+        ring[head] = value;
+        head = (head + 1) % ring.length;
+        if (size < ring.length) size++;
+        if (value > max) max = value;
+        postInvalidateOnAnimation();
+    }
+
+    public void reset() {
+        head = 0;
+        size = 0;
+        max = SNR_MIN_DB;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (width <= 0 || height <= 0) return;
+
+        for (float db = GRID_STEP_DB; db < SNR_MAX_DB; db += GRID_STEP_DB) {
+            float y = yFor(db, top, height);
+            canvas.drawLine(left, y, left + width, y, gridPaint);
+        }
+        if (size == 0) return;
+        float maxY = yFor(max, top, height);
+        canvas.drawLine(left, maxY, left + width, maxY, maxPaint);
+        if (size < 2) return;
+
+        // The newest value sits on the right edge; older ones scroll off to the left
+        float step = width / (ring.length - 1);
+        float xStart = left + width - (size - 1) * step;
+        int index = (head - size + ring.length) % ring.length;
+        float prevX = xStart;
+        float prevY = yFor(ring[index], top, height);
+        int n = 0;
+        for (int i = 1; i < size; i++) {
+            index = (index + 1) % ring.length;
+            float x = xStart + i * step;
+            float y = yFor(ring[index], top, height);
+            segments[n++] = prevX;
+            segments[n++] = prevY;
+            segments[n++] = x;
+            segments[n++] = y;
+            prevX = x;
+            prevY = y;
+        }
+        canvas.drawLines(segments, 0, n, tracePaint);
+    }
+
+    private static float yFor(float db, float top, float height) {
+        return top + height * (1f - (db - SNR_MIN_DB) / (SNR_MAX_DB - SNR_MIN_DB));
+    }
+}
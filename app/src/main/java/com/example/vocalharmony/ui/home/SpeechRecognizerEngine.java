@@ -0,0 +1,37 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A speech recognizer fed incrementally: fixed-size frames of 16 kHz mono PCM arrive as they are
+ * captured, and the engine reports partial transcripts as it goes, so text can appear while the
+ * user is still speaking. {@link RecognitionPipeline} drives it; every method is called from the
+ * pipeline's single worker thread, so implementations need no locking.
+ */
+public interface SpeechRecognizerEngine {
+
+    int SAMPLE_RATE = 16000;
+    /** Samples per frame: 20 ms at {@link #SAMPLE_RATE}. */
+    int FRAME_SAMPLES = SAMPLE_RATE / 50;
+
+    /** Receives partial transcripts. Called on the pipeline thread. */
+    interface PartialListener {
+        void onPartialResult(@NonNull String text);
+    }
+
+    /** Begins an utterance; earlier state is discarded. */
+    void start(@NonNull PartialListener listener);
+
+    /**
+     * Feeds one frame of exactly {@link #FRAME_SAMPLES} samples. The array is reused once this
+     * returns; copy anything that must be kept.
+     */
+    void acceptFrame(@NonNull short[] frame);
+
+    /** Ends the utterance and returns the final transcript (empty if nothing was recognized). */
+    @NonNull
+    String finish();
+
+    /** Frees any resources. The engine is not used afterwards. */
+    void release();
+}
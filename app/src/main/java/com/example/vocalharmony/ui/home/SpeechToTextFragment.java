@@ -6,6 +6,8 @@ import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -24,7 +26,6 @@ import androidx.fragment.app.Fragment;
 import com.example.vocalharmony.R;
 import com.google.android.material.button.MaterialButton;
 
-import java.io.ByteArrayOutputStream;
 // Removed unused IOException import
 
 public class SpeechToTextFragment extends Fragment {
@@ -32,7 +33,7 @@ public class SpeechToTextFragment extends Fragment {
     private static final String TAG = "SpeechToTextFragment";
 
     // AudioRecord Configuration
-    private static final int SAMPLE_RATE = 16000; // Rate suitable for STT
+    private static final int SAMPLE_RATE = SpeechRecognizerEngine.SAMPLE_RATE; // Rate suitable for STT
     private static final int CHANNEL_CONFIG = AudioFormat.CHANNEL_IN_MONO;
     private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
     private static final int BUFFER_SIZE = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT);
@@ -49,7 +50,9 @@ public class SpeechToTextFragment extends Fragment {
     // Audio Handling
     private AudioRecord audioRecord;
     private Thread recordingThread;
-    private ByteArrayOutputStream recordingBuffer;
+    // Streams audio to the recognizer as it is captured; memory stays flat however long the take
+    private RecognitionPipeline pipeline;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // Permission Handling
     private final ActivityResultLauncher<String> requestPermissionLauncher = registerForActivityResult(
@@ -116,15 +119,26 @@ public class SpeechToTextFragment extends Fragment {
                 return;
             }
 
-            recordingBuffer = new ByteArrayOutputStream();
+            pipeline = new RecognitionPipeline(createEngine(), RecognitionPipeline.DEFAULT_QUEUE_FRAMES, new RecognitionPipeline.Callback() {
+                @Override
+                public void onPartialResult(@NonNull String text) {
+                    mainHandler.post(() -> showPartialResult(text));
+                }
+
+                @Override
+                public void onFinalResult(@NonNull String text) {
+                    mainHandler.post(() -> showFinalResult(text));
+                }
+            });
             audioRecord.startRecording();
+            pipeline.start();
             isRecording = true;
             sttResultTextView.setText(getString(R.string.stt_status_recording));
             recordButton.setText(getString(R.string.stt_button_stop));
 
             Log.i(TAG, "Recording started.");
 
-            recordingThread = new Thread(this::writeAudioDataToBuffer, "AudioRecorder Thread");
+            recordingThread = new Thread(this::streamAudioToRecognizer, "AudioRecorder Thread");
             recordingThread.start();
         } catch (SecurityException e) {
             Log.e(TAG, "SecurityException starting AudioRecord", e);
@@ -134,15 +148,36 @@ public class SpeechToTextFragment extends Fragment {
         }
     }
 
-    private void writeAudioDataToBuffer() {
-        byte[] data = new byte[BUFFER_SIZE];
+    /** The recognizer to stream to. A local stand-in until a real engine is bundled. */
+    private SpeechRecognizerEngine createEngine() {
+        // The saved baseline is Hanning-windowed power; the recognizer works on raw power
+        double noiseFloor = AudioProcessor.getSavedBaselineNoisePower(requireContext()) / AudioMetrics.HANN_POWER_GAIN;
+        return new EnergySegmentRecognizer(noiseFloor);
+    }
+
+    private void streamAudioToRecognizer() {
+        short[] data = new short[BUFFER_SIZE / 2];
+        RecognitionPipeline target = pipeline;
         while (isRecording) {
-            int read = audioRecord.read(data, 0, BUFFER_SIZE);
-            if (read > 0) {
-                // No try-catch needed here because ByteArrayOutputStream.write() does not throw IOException
-                recordingBuffer.write(data, 0, read);
+            int read = audioRecord.read(data, 0, data.length);
+            if (read > 0 && !target.write(data, 0, read)) {
+                Log.w(TAG, "Recognizer is behind; dropped audio (" + target.getDroppedFrames() + " frames so far)");
             }
         }
+        target.finish();
+    }
+
+    private void showPartialResult(String text) {
+        if (getView() == null) return;
+        sttResultTextView.setText(text);
+    }
+
+    private void showFinalResult(String text) {
+        if (getView() == null) return;
+        sttResultTextView.setText(text.isEmpty() ? getString(R.string.stt_result_empty) : text);
+        recordButton.setEnabled(true);
+        sttProgressBar.setVisibility(View.GONE);
+        pipeline = null;
     }
 
     private void stopRecording() {
@@ -170,13 +205,8 @@ public class SpeechToTextFragment extends Fragment {
         audioRecord = null;
         recordingThread = null;
 
-        Log.i(TAG, "Recording stopped. Total bytes captured: " + recordingBuffer.size());
-
-        if(getContext() != null) {
-            Toast.makeText(getContext(), "Captured " + recordingBuffer.size() + " bytes of audio.", Toast.LENGTH_SHORT).show();
-        }
-        recordButton.setEnabled(true);
-        sttProgressBar.setVisibility(View.GONE);
+        // The capture thread has finished the pipeline; the final result re-enables the button
+        Log.i(TAG, "Recording stopped; waiting for the final transcript.");
     }
 
     @Override
@@ -186,4 +216,14 @@ public class SpeechToTextFragment extends Fragment {
             stopRecording();
         }
     }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (pipeline != null) {
+            pipeline.cancel();
+            pipeline = null;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps the recordings folder within a byte budget. Recent takes stay as WAV; older ones are
+ * transcoded to lossless FLAC, and if the library is still over budget the least recently
+ * used old takes are deleted. Everything goes through {@link RecordingStore}, so open screens
+ * see the changes as ordinary renames and removals.
+ *
+ * The budget and the "recent" window are read from SharedPreferences so they can be changed
+ * without an update; the bytes reclaimed by each run are written back there as well.
+ */
+public class StorageRetentionManager {
+
+    private static final String TAG = "StorageRetention";
+
+    public static final String KEY_BUDGET_BYTES = "retentionBudgetBytes";
+    public static final String KEY_KEEP_WAV_DAYS = "retentionKeepWavDays";
+    public static final String KEY_LAST_RECLAIMED_BYTES = "retentionLastReclaimedBytes";
+    public static final String KEY_TOTAL_RECLAIMED_BYTES = "retentionTotalReclaimedBytes";
+
+    public static final long DEFAULT_BUDGET_BYTES = 1024L * 1024 * 1024; // 1 GB
+    public static final int DEFAULT_KEEP_WAV_DAYS = 7;
+    // A take touched this recently may still be being written (e.g. the current segment)
+    private static final long ACTIVE_FILE_GUARD_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** What one run did. */
+    public static class Report {
+        public int transcoded;
+        public long transcodeSavedBytes;
+        public int evicted;
+        public long evictedBytes;
+        public long bytesAfter;
+
+        public long getReclaimedBytes() { return transcodeSavedBytes + evictedBytes; }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "transcoded " + transcoded + " (" + transcodeSavedBytes + " B saved), evicted " + evicted
+                    + " (" + evictedBytes + " B), library now " + bytesAfter + " B";
+        }
+    }
+
+    private final RecordingStore store;
+    private final RecordingCatalog catalog;
+    private final SharedPreferences prefs;
+
+    public StorageRetentionManager(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        this.store = RecordingStore.getInstance(appContext);
+        this.catalog = RecordingCatalog.getInstance(appContext);
+        this.prefs = AppPreferences.settings(appContext);
+    }
+
+    /**
+     * Runs one retention pass. Must be called off the main thread.
+     * @param isCancelled polled between takes; the pass stops early (leaving a consistent library) when true.
+     */
+    @NonNull
+    public Report run(@NonNull BooleanSupplier isCancelled) {
+        long budget = prefs.getLong(KEY_BUDGET_BYTES, DEFAULT_BUDGET_BYTES);
+        long keepWavMs = TimeUnit.DAYS.toMillis(prefs.getInt(KEY_KEEP_WAV_DAYS, DEFAULT_KEEP_WAV_DAYS));
+        long now = System.currentTimeMillis();
+        Report report = new Report();
+
+        // Oldest first, so an interrupted pass has already handled the takes that matter most
+        List<RecordingItem> items = new ArrayList<>(store.getRecordings());
+        Collections.reverse(items);
+
+        // --- Tier 2: transcode old WAV takes to FLAC ---
+        for (int i = 0; i < items.size() && !isCancelled.getAsBoolean(); i++) {
+            RecordingItem item = items.get(i);
+            File wav = new File(item.getFilePath());
+            if (!wav.getName().endsWith(RecordingStore.FILENAME_SUFFIX)) continue;
+            if (item.getTimestamp() > now - keepWavMs || wav.lastModified() > now - ACTIVE_FILE_GUARD_MS) continue;
+
+            RecordingItem archived = transcode(item, wav, report);
+            if (archived != null) items.set(i, archived);
+        }
+        if (report.transcoded > 0) {
+            // FLAC takes are never re-analysed, so a moved entry that isn't saved is lost for good
+            try {
+                catalog.save();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not save the catalog after transcoding", e);
+            }
+        }
+
+        // --- Tier 3: evict least recently used old takes while over budget ---
+        long total = 0;
+        for (RecordingItem item : items) total += diskUsage(new File(item.getFilePath()));
+        if (total > budget) {
+            List<RecordingItem> candidates = new ArrayList<>();
+            for (RecordingItem item : items) {
+                if (item.getTimestamp() <= now - keepWavMs) candidates.add(item); // Recent takes are never evicted
+            }
+            candidates.sort((a, b) -> Long.compare(store.getLastAccessed(a), store.getLastAccessed(b)));
+            for (RecordingItem item : candidates) {
+                if (total <= budget || isCancelled.getAsBoolean()) break;
+                long size = diskUsage(new File(item.getFilePath()));
+                if (store.delete(item)) {
+                    total -= size;
+                    report.evicted++;
+                    report.evictedBytes += size;
+                    Log.i(TAG, "Evicted " + item.getFileName() + " (" + size + " bytes)");
+                }
+            }
+            if (total > budget) Log.w(TAG, "Still over budget after eviction: " + total + " > " + budget + " bytes");
+        }
+        report.bytesAfter = total;
+
+        prefs.edit()
+                .putLong(KEY_LAST_RECLAIMED_BYTES, report.getReclaimedBytes())
+                .putLong(KEY_TOTAL_RECLAIMED_BYTES, prefs.getLong(KEY_TOTAL_RECLAIMED_BYTES, 0L) + report.getReclaimedBytes())
+                .apply();
+        Log.i(TAG, "Retention pass: " + report);
+        return report;
+    }
+
+    /** Encodes one take to FLAC next to the WAV and swaps it in. Returns the archived item, or null if skipped. */
+    private RecordingItem transcode(RecordingItem item, File wav, Report report) {
+        String name = wav.getName();
+        String baseName = name.substring(0, name.length() - RecordingStore.FILENAME_SUFFIX.length());
+        File flac = new File(wav.getParentFile(), baseName + RecordingStore.FLAC_SUFFIX);
+        if (flac.exists()) { Log.w(TAG, "Skipping " + name + ": " + flac.getName() + " already exists"); return null; }
+        File temp = new File(wav.getParentFile(), flac.getName() + TEMP_SUFFIX);
+
+        long wavSize = wav.length();
+        long flacSize;
+        try (MappedWavReader reader = MappedWavReader.open(wav)) {
+            flacSize = FlacEncoder.encode(reader, temp);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not transcode " + name, e);
+            deleteQuietly(temp);
+            return null;
+        }
+        if (flacSize >= wavSize) { // Pathological input (e.g. white noise); keep the WAV
+            deleteQuietly(temp);
+            return null;
+        }
+        // Keep the original mtime: renamed takes get their timestamp from it
+        if (!temp.setLastModified(wav.lastModified())) Log.w(TAG, "Could not preserve mtime for " + flac.getName());
+        if (!temp.renameTo(flac)) {
+            Log.w(TAG, "Could not move " + temp.getName() + " into place");
+            deleteQuietly(temp);
+            return null;
+        }
+
+        RecordingItem archived = store.replaceFile(item, flac);
+        if (archived == null) { // WAV couldn't be removed; don't keep two copies
+            deleteQuietly(flac);
+            return null;
+        }
+        catalog.moveEntry(wav, flac);
+        report.transcoded++;
+        report.transcodeSavedBytes += wavSize - flacSize;
+        Log.d(TAG, "Transcoded " + name + ": " + wavSize + " -> " + flacSize + " bytes");
+        return archived;
+    }
+
+    /** Audio file plus its peaks sidecar. */
+    private static long diskUsage(File audio) {
+        return audio.length() + WaveformPeaks.sidecarFor(audio).length();
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) Log.w(TAG, "Failed to delete " + file.getName());
+    }
+}
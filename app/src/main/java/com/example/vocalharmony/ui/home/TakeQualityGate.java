@@ -0,0 +1,159 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Judges a take while it is being captured, so a bad one can be flagged at once and thrown away
+ * before it is saved or queued for upload. PCM is fed in as it is read; SNR is measured the same
+ * way as the live test (Hanning-windowed power against the saved baseline, see
+ * {@link AudioMetrics}) but only over windows that hold speech, so pauses between words don't
+ * drag it down. Clipping is the share of samples at full scale.
+ *
+ * The thresholds come from the settings store ({@link #fromSettings}). Without a measured
+ * baseline SNR can't be judged, and only clipping and the presence of speech are checked.
+ *
+ * Not thread-safe; feed it from the capture thread. The getters may be read from other threads
+ * for display, and may then be one window behind.
+ */
+public class TakeQualityGate {
+
+    public static final String KEY_MIN_SNR_DB = "takeMinSnrDb";
+    public static final String KEY_MAX_CLIPPING_RATIO = "takeMaxClippingRatio";
+    public static final float DEFAULT_MIN_SNR_DB = 15f;
+    public static final float DEFAULT_MAX_CLIPPING_RATIO = 0.001f; // 0.1% of samples
+
+    private static final int WINDOW_MS = 100;
+    /** A window holds speech if its power clears the noise floor by this factor (about +6 dB), as in {@link EnergyVad}. */
+    private static final double SPEECH_RATIO = 4.0;
+    /** Windowed floor used for speech detection when no baseline was measured; EnergyVad's default. */
+    private static final double DEFAULT_NOISE_POWER = 60.0 * 60.0 * AudioMetrics.HANN_POWER_GAIN;
+    private static final int MIN_SPEECH_WINDOWS = 3;
+    /** Clipping is not flagged live until this much audio is in, so one early peak doesn't condemn the take. */
+    private static final int MIN_CLIPPING_MS = 500;
+
+    public enum Verdict { OK, NO_SPEECH, LOW_SNR, CLIPPING }
+
+    private final int sampleRate;
+    private final double baselineNoisePower;
+    private final double minSnrDb;
+    private final double maxClippingRatio;
+    private final short[] window;
+    private final long minClippingSamples;
+    private int windowFill = 0;
+
+    private volatile long samples = 0;
+    private volatile long clippedSamples = 0;
+    private volatile int speechWindows = 0;
+    private volatile double speechSnrSum = 0.0;
+
+    /**
+     * @param baselineNoisePower the saved (Hanning-windowed) baseline, or 0 if none was measured
+     */
+    public TakeQualityGate(int sampleRate, double baselineNoisePower, double minSnrDb, double maxClippingRatio) {
+        this.sampleRate = sampleRate;
+        this.baselineNoisePower = baselineNoisePower;
+        this.minSnrDb = minSnrDb;
+        this.maxClippingRatio = maxClippingRatio;
+        this.window = new short[Math.max(1, sampleRate * WINDOW_MS / 1000)];
+        this.minClippingSamples = (long) sampleRate * MIN_CLIPPING_MS / 1000;
+    }
+
+    /** A gate using the saved baseline and the thresholds from the settings store. */
+    @NonNull
+    public static TakeQualityGate fromSettings(@NonNull Context context, int sampleRate) {
+        SharedPreferences prefs = AppPreferences.settings(context);
+        return new TakeQualityGate(sampleRate, AudioProcessor.getSavedBaselineNoisePower(context),
+                prefs.getFloat(KEY_MIN_SNR_DB, DEFAULT_MIN_SNR_DB),
+                prefs.getFloat(KEY_MAX_CLIPPING_RATIO, DEFAULT_MAX_CLIPPING_RATIO));
+    }
+
+    /** A fresh gate with the same rate, baseline and thresholds, for another take. */
+    @NonNull
+    public TakeQualityGate newTake() {
+        return new TakeQualityGate(sampleRate, baselineNoisePower, minSnrDb, maxClippingRatio);
+    }
+
+    /** A copy of this gate as it stands, including a partly filled window, to be fed separately. */
+    @NonNull
+    TakeQualityGate copy() {
+        TakeQualityGate copy = newTake();
+        System.arraycopy(window, 0, copy.window, 0, windowFill);
+        copy.windowFill = windowFill;
+        copy.samples = samples;
+        copy.clippedSamples = clippedSamples;
+        copy.speechWindows = speechWindows;
+        copy.speechSnrSum = speechSnrSum;
+        return copy;
+    }
+
+    /** Feeds 16-bit mono samples. */
+    public void add(@NonNull short[] pcm, int offset, int length) {
+        long clipped = 0;
+        for (int i = offset; i < offset + length; i++) {
+            short s = pcm[i];
+            if (s == Short.MAX_VALUE || s == Short.MIN_VALUE) clipped++;
+            window[windowFill++] = s;
+            if (windowFill == window.length) {
+                onWindow();
+                windowFill = 0;
+            }
+        }
+        clippedSamples += clipped;
+        samples += length;
+    }
+
+    private void onWindow() {
+        AudioMetrics.applyHanningWindow(window, window.length);
+        double power = AudioMetrics.calculatePower(window, window.length);
+        double floor = baselineNoisePower > 0 ? baselineNoisePower : DEFAULT_NOISE_POWER;
+        if (power < floor * SPEECH_RATIO) return;
+        speechSnrSum += AudioMetrics.calculateSNR(power, floor);
+        speechWindows++;
+    }
+
+    /** True if SNR is judged, i.e. a baseline has been measured. */
+    public boolean isSnrChecked() {
+        return baselineNoisePower > 0;
+    }
+
+    /** Mean SNR over the speech so far, in dB; 0 before any speech. */
+    public double getSpeechSnrDb() {
+        int windows = speechWindows;
+        return windows > 0 ? speechSnrSum / windows : 0.0;
+    }
+
+    public double getClippingRatio() {
+        long n = samples;
+        return n > 0 ? (double) clippedSamples / n : 0.0;
+    }
+
+    public double getMinSnrDb() {
+        return minSnrDb;
+    }
+
+    public double getMaxClippingRatio() {
+        return maxClippingRatio;
+    }
+
+    /**
+     * Problems that can be called while the take is still going: only clipping, since a quiet
+     * start may still be followed by good speech.
+     */
+    @NonNull
+    public Verdict getLiveVerdict() {
+        if (samples >= minClippingSamples && getClippingRatio() > maxClippingRatio) return Verdict.CLIPPING;
+        return Verdict.OK;
+    }
+
+    /** The verdict on the take as captured so far; call once it has ended. */
+    @NonNull
+    public Verdict getVerdict() {
+        if (getClippingRatio() > maxClippingRatio) return Verdict.CLIPPING;
+        if (speechWindows < MIN_SPEECH_WINDOWS) return Verdict.NO_SPEECH;
+        if (isSnrChecked() && getSpeechSnrDb() < minSnrDb) return Verdict.LOW_SNR;
+        return Verdict.OK;
+    }
+}
@@ -51,15 +51,13 @@ public class TrainingFragment extends Fragment {
             }
         });
 
-        // --- MODIFIED: Listener for Word Enunciation Button ---
-        // This button now navigates to the Speech-To-Text test fragment.
+        // --- Listener for Word Enunciation Button ---
         wordEnunciationButton.setOnClickListener(view -> {
-            Log.d(TAG, "Word Enunciation button clicked. Navigating to Speech-to-Text test screen...");
+            Log.d(TAG, "Word Enunciation button clicked. Navigating to WordEnunciationFragment...");
             try {
-                // Use the action ID we created in mobile_navigation.xml
-                Navigation.findNavController(view).navigate(R.id.action_trainingFragment_to_speechToTextFragment);
+                Navigation.findNavController(view).navigate(R.id.action_trainingFragment_to_wordEnunciationFragment);
             } catch (Exception e) {
-                Log.e(TAG, "Navigation to SpeechToTextFragment failed", e);
+                Log.e(TAG, "Navigation to WordEnunciationFragment failed", e);
                 if (isAdded() && getContext() != null) {
                     Toast.makeText(getContext(), "Error opening feature.", Toast.LENGTH_SHORT).show();
                 }
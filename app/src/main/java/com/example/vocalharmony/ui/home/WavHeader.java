@@ -0,0 +1,97 @@
+package com.example.vocalharmony.ui.home;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * The format and data chunk location of a RIFF/WAVE file, read from its chunk headers only.
+ * This is the one place the header is parsed, so every reader agrees on how a file that was
+ * never finalized (zero or stale data size) is treated: the data runs to the end of the file.
+ */
+public final class WavHeader {
+
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    public final int format;
+    public final int channels;
+    public final int sampleRate;
+    public final long byteRate;
+    public final int blockAlign;
+    public final int bitsPerSample;
+    /** Byte offset of the first sample in the file. */
+    public final long dataOffset;
+    /** Size of the sample data in bytes, a whole number of frames. */
+    public final long dataSize;
+
+    private WavHeader(int format, int channels, int sampleRate, long byteRate, int blockAlign, int bitsPerSample,
+                      long dataOffset, long dataSize) {
+        this.format = format;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.byteRate = byteRate;
+        this.blockAlign = blockAlign;
+        this.bitsPerSample = bitsPerSample;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+    }
+
+    /**
+     * Walks the chunks of {@code file}: 'fmt ' must come before 'data'; anything else (LIST,
+     * fact, ...) is skipped. Throws if the file isn't a WAV or has no usable fmt or data chunk.
+     */
+    public static WavHeader read(RandomAccessFile file) throws IOException {
+        long fileLength = file.length();
+        byte[] chunk = new byte[12];
+        file.seek(0);
+        file.readFully(chunk);
+        if (getInt(chunk, 0) != 0x46464952 || getInt(chunk, 8) != 0x45564157) { // "RIFF" ... "WAVE"
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+
+        int format = -1, channels = 0, sampleRate = 0, blockAlign = 0, bits = 0;
+        long byteRate = 0;
+        long pos = 12;
+        while (pos + 8 <= fileLength) {
+            file.seek(pos);
+            file.readFully(chunk, 0, 8);
+            int id = (int) getInt(chunk, 0);
+            long size = getInt(chunk, 4);
+            long body = pos + 8;
+            if (id == 0x20746D66) { // "fmt "
+                byte[] fmt = new byte[16];
+                file.readFully(fmt);
+                format = getShort(fmt, 0);
+                channels = getShort(fmt, 2);
+                sampleRate = (int) getInt(fmt, 4);
+                byteRate = getInt(fmt, 8);
+                blockAlign = getShort(fmt, 12);
+                bits = getShort(fmt, 14);
+            } else if (id == 0x61746164) { // "data"
+                if (format < 0 || blockAlign <= 0) throw new IOException("Corrupt or missing fmt chunk");
+                // A take that was never finalized has a zero (or stale) size in its header; trust the file length
+                long available = fileLength - body;
+                if (size == 0 || size > available) size = available;
+                size -= size % blockAlign;
+                return new WavHeader(format, channels, sampleRate, byteRate, blockAlign, bits, body, size);
+            }
+            pos = body + size + (size & 1); // Chunks are word-aligned
+        }
+        throw new IOException("No data chunk");
+    }
+
+    public long getFrameCount() { return dataSize / blockAlign; }
+
+    public long getDurationMs() {
+        return byteRate > 0 ? dataSize * 1000L / byteRate : 0;
+    }
+
+    private static long getInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xffL) | (buffer[offset + 1] & 0xffL) << 8
+                | (buffer[offset + 2] & 0xffL) << 16 | (buffer[offset + 3] & 0xffL) << 24;
+    }
+
+    private static int getShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xff) | (buffer[offset + 1] & 0xff) << 8;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.vocalharmony.ui.home;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Helpers for the canonical 44-byte PCM WAV header. A take is written with a placeholder
+ * header first and the sizes are patched in by {@link #finalizeHeader} once it is finished.
+ */
+public final class WavWriter {
+
+    public static final int HEADER_SIZE = 44;
+    /** Largest data chunk the 32-bit RIFF size fields can describe. */
+    public static final long MAX_DATA_BYTES = 0xFFFFFFFFL - (HEADER_SIZE - 8);
+
+    private WavWriter() {}
+
+    /** Writes a header describing {@code dataLength} bytes of PCM (0 for a placeholder). */
+    public static void writeHeader(OutputStream out, int sampleRate, int channels, int bitsPerSample,
+                                   long dataLength) throws IOException {
+        long byteRate = (long) sampleRate * channels * bitsPerSample / 8;
+        int blockAlign = channels * bitsPerSample / 8;
+
+        byte[] header = new byte[HEADER_SIZE];
+        header[0] = 'R'; header[1] = 'I'; header[2] = 'F'; header[3] = 'F'; // RIFF chunk descriptor
+        putInt(header, 4, dataLength + 36); // file size - 8
+        header[8] = 'W'; header[9] = 'A'; header[10] = 'V'; header[11] = 'E'; // WAVE format
+        header[12] = 'f'; header[13] = 'm'; header[14] = 't'; header[15] = ' '; // 'fmt ' subchunk
+        putInt(header, 16, 16); // 16 for PCM
+        header[20] = 1; header[21] = 0; // Audio format 1=PCM
+        header[22] = (byte) channels; header[23] = 0;
+        putInt(header, 24, sampleRate);
+        putInt(header, 28, byteRate);
+        header[32] = (byte) blockAlign; header[33] = 0;
+        header[34] = (byte) bitsPerSample; header[35] = 0;
+        header[36] = 'd'; header[37] = 'a'; header[38] = 't'; header[39] = 'a'; // 'data' subchunk
+        putInt(header, 40, dataLength);
+
+        out.write(header, 0, HEADER_SIZE);
+    }
+
+    /** Patches the RIFF and data chunk sizes of a file written with {@link #writeHeader}. */
+    public static void finalizeHeader(File file, long dataLength) throws IOException {
+        if (file == null || !file.exists() || dataLength < 0 || dataLength > MAX_DATA_BYTES) {
+            throw new IOException("Invalid file or audio length for header update.");
+        }
+        byte[] size = new byte[4];
+        try (RandomAccessFile wavFile = new RandomAccessFile(file, "rw")) {
+            putInt(size, 0, dataLength + 36);
+            wavFile.seek(4);
+            wavFile.write(size);
+            putInt(size, 0, dataLength);
+            wavFile.seek(40);
+            wavFile.write(size);
+        }
+    }
+
+    /**
+     * Keeps only data bytes [fromByte, toByte) of a canonical WAV, in place: the kept range is
+     * shifted down behind the header in one forward pass and the file is truncated, so the take is
+     * never loaded into memory. Also patches the header sizes.
+     */
+    public static void cropData(File file, long fromByte, long toByte) throws IOException {
+        if (fromByte < 0 || toByte < fromByte) throw new IOException("Invalid crop range " + fromByte + ".." + toByte);
+        long kept;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            long dataEnd = Math.min(channel.size(), HEADER_SIZE + toByte);
+            if (fromByte > 0) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                long src = HEADER_SIZE + fromByte;
+                long dst = HEADER_SIZE;
+                while (src < dataEnd) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), dataEnd - src));
+                    int n = channel.read(buffer, src);
+                    if (n <= 0) break;
+                    buffer.flip();
+                    while (buffer.hasRemaining()) dst += channel.write(buffer, dst);
+                    src += n;
+                }
+            }
+            kept = Math.max(0, dataEnd - HEADER_SIZE - fromByte);
+            channel.truncate(HEADER_SIZE + kept);
+        }
+        finalizeHeader(file, kept);
+    }
+
+    private static void putInt(byte[] buffer, int offset, long value) {
+        buffer[offset] = (byte) (value & 0xff);
+        buffer[offset + 1] = (byte) ((value >> 8) & 0xff);
+        buffer[offset + 2] = (byte) ((value >> 16) & 0xff);
+        buffer[offset + 3] = (byte) ((value >> 24) & 0xff);
+    }
+}
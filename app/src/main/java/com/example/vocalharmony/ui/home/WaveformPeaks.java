@@ -0,0 +1,225 @@
+package com.example.vocalharmony.ui.home;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Multi-resolution min/max peak summary of a mono 16-bit take, stored as a small
+ * ".peaks" sidecar next to the WAV. The summary is built while the take is being
+ * written (see {@link Accumulator}), so list rows can draw a waveform without ever
+ * touching PCM data.
+ *
+ * Sidecar layout (big-endian): magic, version, sample rate, total samples, level count,
+ * then per level: samples-per-peak, peak count, and count (min, max) short pairs.
+ */
+public class WaveformPeaks {
+
+    public static final String SIDECAR_SUFFIX = ".peaks";
+    /** Fine and coarse bucket sizes, in samples. */
+    public static final int[] LEVEL_SAMPLES_PER_PEAK = { 256, 4096 };
+
+    private static final int MAGIC = 0x5648504B; // "VHPK"
+    private static final int VERSION = 1;
+
+    private final int sampleRate;
+    private final long totalSamples;
+    private final Level[] levels;
+
+    /** One resolution of the summary: the min and max sample of each bucket. */
+    public static class Level {
+        public final int samplesPerPeak;
+        public final short[] mins;
+        public final short[] maxs;
+
+        Level(int samplesPerPeak, short[] mins, short[] maxs) {
+            this.samplesPerPeak = samplesPerPeak;
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+
+        public int size() { return mins.length; }
+    }
+
+    WaveformPeaks(int sampleRate, long totalSamples, Level[] levels) {
+        this.sampleRate = sampleRate;
+        this.totalSamples = totalSamples;
+        this.levels = levels;
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public long getTotalSamples() { return totalSamples; }
+    public int getLevelCount() { return levels.length; }
+    public Level getLevel(int index) { return levels[index]; }
+
+    /** Returns the coarsest level that still has at least {@code minPeaks} buckets, or the finest one. */
+    public Level levelForWidth(int minPeaks) {
+        for (int i = levels.length - 1; i >= 0; i--) {
+            if (levels[i].size() >= minPeaks) return levels[i];
+        }
+        return levels[0];
+    }
+
+    /** Largest bucket size; a crop starting on a multiple of this keeps every level's buckets aligned. */
+    public static int cropAlignment() { return LEVEL_SAMPLES_PER_PEAK[LEVEL_SAMPLES_PER_PEAK.length - 1]; }
+
+    /**
+     * Returns the summary of samples [startSample, endSample). {@code startSample} must be a
+     * multiple of {@link #cropAlignment()}; the last bucket may then cover a few samples past the end.
+     */
+    public WaveformPeaks crop(long startSample, long endSample) {
+        if (startSample % cropAlignment() != 0) throw new IllegalArgumentException("Unaligned crop start " + startSample);
+        Level[] cropped = new Level[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            int from = (int) Math.min(level.size(), startSample / level.samplesPerPeak);
+            int to = (int) Math.min(level.size(), (endSample + level.samplesPerPeak - 1) / level.samplesPerPeak);
+            to = Math.max(from, to);
+            cropped[i] = new Level(level.samplesPerPeak, Arrays.copyOfRange(level.mins, from, to), Arrays.copyOfRange(level.maxs, from, to));
+        }
+        return new WaveformPeaks(sampleRate, Math.max(0, endSample - startSample), cropped);
+    }
+
+    /** Location of the sidecar for a given audio file (e.g. "take.wav" -> "take.wav.peaks"). */
+    public static File sidecarFor(File audioFile) {
+        return new File(audioFile.getParentFile(), audioFile.getName() + SIDECAR_SUFFIX);
+    }
+
+    // --- Serialization ---
+
+    public void writeTo(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(sampleRate);
+            out.writeLong(totalSamples);
+            out.writeByte(levels.length);
+            for (Level level : levels) {
+                out.writeInt(level.samplesPerPeak);
+                out.writeInt(level.size());
+                for (int i = 0; i < level.size(); i++) {
+                    out.writeShort(level.mins[i]);
+                    out.writeShort(level.maxs[i]);
+                }
+            }
+        }
+    }
+
+    public static WaveformPeaks readFrom(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a peaks file: " + file.getName());
+            int version = in.readShort();
+            if (version != VERSION) throw new IOException("Unsupported peaks version " + version);
+            int sampleRate = in.readInt();
+            long totalSamples = in.readLong();
+            int levelCount = in.readUnsignedByte();
+            Level[] levels = new Level[levelCount];
+            for (int l = 0; l < levelCount; l++) {
+                int samplesPerPeak = in.readInt();
+                int count = in.readInt();
+                if (samplesPerPeak <= 0 || count < 0) throw new IOException("Corrupt peaks level " + l);
+                short[] mins = new short[count];
+                short[] maxs = new short[count];
+                for (int i = 0; i < count; i++) {
+                    mins[i] = in.readShort();
+                    maxs[i] = in.readShort();
+                }
+                levels[l] = new Level(samplesPerPeak, mins, maxs);
+            }
+            return new WaveformPeaks(sampleRate, totalSamples, levels);
+        }
+    }
+
+    // --- Streaming construction ---
+
+    /**
+     * Builds the summary incrementally from little-endian 16-bit PCM as it is written.
+     * Not thread-safe; feed it from the writer thread only.
+     */
+    public static class Accumulator {
+        private final int sampleRate;
+        private final LevelBuilder[] builders;
+        private long totalSamples = 0;
+        private int pendingLowByte = -1; // Carries an odd trailing byte between chunks
+
+        public Accumulator(int sampleRate) {
+            this.sampleRate = sampleRate;
+            this.builders = new LevelBuilder[LEVEL_SAMPLES_PER_PEAK.length];
+            for (int i = 0; i < builders.length; i++) builders[i] = new LevelBuilder(LEVEL_SAMPLES_PER_PEAK[i]);
+        }
+
+        public void addPcm16(byte[] data, int offset, int length) {
+            int i = offset;
+            int end = offset + length;
+            if (pendingLowByte >= 0 && i < end) {
+                addSample((short) ((data[i] << 8) | pendingLowByte));
+                pendingLowByte = -1;
+                i++;
+            }
+            for (; i + 1 < end; i += 2) {
+                addSample((short) ((data[i + 1] << 8) | (data[i] & 0xff)));
+            }
+            if (i < end) pendingLowByte = data[i] & 0xff;
+        }
+
+        public void addSamples(short[] samples, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) addSample(samples[i]);
+        }
+
+        private void addSample(short sample) {
+            totalSamples++;
+            for (LevelBuilder builder : builders) builder.add(sample);
+        }
+
+        public long getTotalSamples() { return totalSamples; }
+
+        /** Finishes the summary, including any partially filled last bucket. */
+        public WaveformPeaks build() {
+            Level[] levels = new Level[builders.length];
+            for (int i = 0; i < builders.length; i++) levels[i] = builders[i].build();
+            return new WaveformPeaks(sampleRate, totalSamples, levels);
+        }
+    }
+
+    private static class LevelBuilder {
+        private final int samplesPerPeak;
+        private short[] mins = new short[64];
+        private short[] maxs = new short[64];
+        private int count = 0;
+        private int inBucket = 0;
+        private short curMin = Short.MAX_VALUE;
+        private short curMax = Short.MIN_VALUE;
+
+        LevelBuilder(int samplesPerPeak) { this.samplesPerPeak = samplesPerPeak; }
+
+        void add(short sample) {
+            if (sample < curMin) curMin = sample;
+            if (sample > curMax) curMax = sample;
+            if (++inBucket == samplesPerPeak) flush();
+        }
+
+        private void flush() {
+            if (count == mins.length) {
+                mins = Arrays.copyOf(mins, count * 2);
+                maxs = Arrays.copyOf(maxs, count * 2);
+            }
+            mins[count] = curMin;
+            maxs[count] = curMax;
+            count++;
+            inBucket = 0;
+            curMin = Short.MAX_VALUE;
+            curMax = Short.MIN_VALUE;
+        }
+
+        Level build() {
+            if (inBucket > 0) flush();
+            return new Level(samplesPerPeak, Arrays.copyOf(mins, count), Arrays.copyOf(maxs, count));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.vocalharmony.ui.home;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.example.vocalharmony.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads waveform thumbnails for the recordings list. Thumbnails are rendered from the
+ * ".peaks" sidecar only (never from PCM) on a background thread, and kept in a bitmap
+ * LRU cache so scrolling back to a row is a cache hit. A row that is rebound cancels the render
+ * it was still waiting for, so fast scrolling never queues work for rows that left the screen.
+ */
+public class WaveformThumbnailLoader {
+
+    private static final String TAG = "WaveformThumbLoader";
+    private static final int THUMB_WIDTH_PX = 256;
+    private static final int THUMB_HEIGHT_PX = 48;
+
+    // Process-wide so thumbnails survive the fragment being recreated
+    private static LruCache<String, Bitmap> bitmapCache;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final int waveformColor;
+    // The render each row is waiting for; main thread only
+    private final Map<ImageView, Future<?>> pending = new WeakHashMap<>();
+
+    public WaveformThumbnailLoader(@NonNull Context context) {
+        this.waveformColor = ContextCompat.getColor(context, R.color.colorPrimary);
+        synchronized (WaveformThumbnailLoader.class) {
+            if (bitmapCache == null) {
+                // Use 1/32 of the app's heap, sized in KB
+                int cacheSizeKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 32);
+                bitmapCache = new LruCache<String, Bitmap>(cacheSizeKb) {
+                    @Override
+                    protected int sizeOf(String key, Bitmap bitmap) { return bitmap.getByteCount() / 1024; }
+                };
+            }
+        }
+    }
+
+    /**
+     * Binds the thumbnail for the given audio file into the view. The view's tag is used to
+     * drop results that arrive after the row has been recycled for a different item.
+     */
+    public void load(@NonNull ImageView view, @NonNull String audioFilePath) {
+        if (audioFilePath.equals(view.getTag()) && pending.containsKey(view)) return; // Already on its way
+        view.setTag(audioFilePath);
+        Future<?> previous = pending.remove(view);
+        if (previous != null) previous.cancel(false); // Dropped before it starts if still queued
+        Bitmap cached = bitmapCache.get(audioFilePath);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageDrawable(null);
+        pending.put(view, executor.submit(() -> {
+            // Another row may have rendered the same take while this one was queued
+            Bitmap bitmap = bitmapCache.get(audioFilePath);
+            if (bitmap == null) {
+                bitmap = render(audioFilePath);
+                if (bitmap != null) bitmapCache.put(audioFilePath, bitmap);
+            }
+            final Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                if (!audioFilePath.equals(view.getTag())) return;
+                pending.remove(view);
+                if (result != null) view.setImageBitmap(result);
+            });
+        }));
+    }
+
+    /** Drops the cached thumbnail for a path, e.g. after the file was renamed or deleted. */
+    public static void invalidate(@NonNull String audioFilePath) {
+        synchronized (WaveformThumbnailLoader.class) {
+            if (bitmapCache != null) bitmapCache.remove(audioFilePath);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+        pending.clear();
+    }
+
+    private Bitmap render(String audioFilePath) {
+        File sidecar = WaveformPeaks.sidecarFor(new File(audioFilePath));
+        if (!sidecar.exists()) return null; // Older takes have no summary; show nothing rather than read PCM
+        WaveformPeaks peaks;
+        try {
+            peaks = WaveformPeaks.readFrom(sidecar);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read peaks sidecar " + sidecar.getName(), e);
+            return null;
+        }
+        if (peaks.getLevelCount() == 0) return null;
+        WaveformPeaks.Level level = peaks.levelForWidth(THUMB_WIDTH_PX);
+        if (level.size() == 0) return null;
+
+        Bitmap bitmap = Bitmap.createBitmap(THUMB_WIDTH_PX, THUMB_HEIGHT_PX, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setColor(waveformColor);
+        paint.setStrokeWidth(1f);
+
+        float mid = THUMB_HEIGHT_PX / 2f;
+        float scale = mid / 32768f;
+        int peaksCount = level.size();
+        for (int x = 0; x < THUMB_WIDTH_PX; x++) {
+            // Each column covers a range of buckets; take the extreme of that range
+            int from = (int) ((long) x * peaksCount / THUMB_WIDTH_PX);
+            int to = Math.max(from + 1, (int) ((long) (x + 1) * peaksCount / THUMB_WIDTH_PX));
+            if (from >= peaksCount) break;
+            short min = Short.MAX_VALUE, max = Short.MIN_VALUE;
+            for (int i = from; i < Math.min(to, peaksCount); i++) {
+                if (level.mins[i] < min) min = level.mins[i];
+                if (level.maxs[i] > max) max = level.maxs[i];
+            }
+            canvas.drawLine(x, mid - max * scale, x, mid - min * scale + 1f, paint);
+        }
+        return bitmap;
+    }
+}
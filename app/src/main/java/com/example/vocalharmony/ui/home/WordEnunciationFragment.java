@@ -1,4 +1,225 @@
 package com.example.vocalharmony.ui.home;
 
-public class WordEnunciationFragment {
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+
+import com.example.vocalharmony.R;
+import com.google.android.material.button.MaterialButton;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Word enunciation practice: shows a word, captures one take of it and scores the take against
+ * the word's reference templates with {@link EnunciationScorer}. Everything runs on-device;
+ * templates are loaded once per visit from the precomputed pack.
+ */
+public class WordEnunciationFragment extends Fragment implements EnunciationAudioHandler.Listener {
+
+    private static final String TAG = "WordEnunciationFragment";
+
+    // UI Elements
+    private TextView wordTextView;
+    private TextView resultTextView;
+    private MaterialButton recordButton;
+    private MaterialButton nextButton;
+    private ProgressBar progressBar;
+
+    // State Management
+    private boolean hasAudioPermission = false;
+    private List<String> words;
+    private int wordIndex = 0;
+
+    // Audio and scoring; the scorer is only touched on the executor thread
+    private EnunciationAudioHandler audioHandler;
+    private EnunciationScorer scorer;
+    private double noiseFloorPower;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Permission Handling
+    private final ActivityResultLauncher<String> requestPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(),
+            isGranted -> {
+                hasAudioPermission = isGranted;
+                updateRecordButton();
+                if (!isGranted) {
+                    Toast.makeText(getContext(), "Permission Denied. Cannot record.", Toast.LENGTH_LONG).show();
+                }
+            });
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_word_enunciation, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        wordTextView = view.findViewById(R.id.textview_enunciation_word);
+        resultTextView = view.findViewById(R.id.textview_enunciation_result);
+        recordButton = view.findViewById(R.id.button_enunciation_record);
+        nextButton = view.findViewById(R.id.button_enunciation_next);
+        progressBar = view.findViewById(R.id.progress_bar_enunciation);
+
+        // The saved baseline is Hanning-windowed power; trimming works on raw power
+        noiseFloorPower = AudioProcessor.getSavedBaselineNoisePower(requireContext()) / AudioMetrics.HANN_POWER_GAIN;
+        audioHandler = new EnunciationAudioHandler(noiseFloorPower, this);
+
+        checkPermission();
+        loadTemplates();
+
+        recordButton.setOnClickListener(v -> {
+            if (audioHandler.isCapturing()) {
+                audioHandler.stop();
+            } else {
+                startCapture();
+            }
+        });
+        nextButton.setOnClickListener(v -> {
+            wordIndex = (wordIndex + 1) % words.size();
+            showCurrentWord();
+        });
+    }
+
+    private void checkPermission() {
+        hasAudioPermission = ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.RECORD_AUDIO)
+                == PackageManager.PERMISSION_GRANTED;
+        if (!hasAudioPermission) requestPermissionLauncher.launch(Manifest.permission.RECORD_AUDIO);
+    }
+
+    private void loadTemplates() {
+        progressBar.setVisibility(View.VISIBLE);
+        Context appContext = requireContext().getApplicationContext();
+        executor.execute(() -> {
+            EnunciationTemplates templates = EnunciationTemplates.load(appContext);
+            scorer = new EnunciationScorer(templates, noiseFloorPower);
+            mainHandler.post(() -> onTemplatesLoaded(templates));
+        });
+    }
+
+    private void onTemplatesLoaded(EnunciationTemplates templates) {
+        if (getView() == null) return;
+        progressBar.setVisibility(View.GONE);
+        words = templates.getWords();
+        if (words.isEmpty()) {
+            Log.w(TAG, "No enunciation templates available");
+            resultTextView.setText(getString(R.string.enunciation_no_templates));
+            return;
+        }
+        nextButton.setEnabled(words.size() > 1);
+        showCurrentWord();
+    }
+
+    private void showCurrentWord() {
+        wordTextView.setText(words.get(wordIndex));
+        resultTextView.setText(getString(R.string.enunciation_status_ready));
+        updateRecordButton();
+    }
+
+    private void updateRecordButton() {
+        if (recordButton == null) return;
+        recordButton.setEnabled(hasAudioPermission && words != null && !words.isEmpty());
+    }
+
+    private void startCapture() {
+        if (!hasAudioPermission) {
+            checkPermission();
+            return;
+        }
+        if (!audioHandler.start()) {
+            Toast.makeText(getContext(), getString(R.string.enunciation_error_capture), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        recordButton.setText(getString(R.string.enunciation_button_stop));
+        nextButton.setEnabled(false);
+        resultTextView.setText(getString(R.string.enunciation_status_listening));
+    }
+
+    // --- EnunciationAudioHandler.Listener ---
+
+    @Override
+    public void onWordCaptured(@NonNull short[] pcm, int length) {
+        if (getView() == null) return;
+        recordButton.setText(getString(R.string.enunciation_button_record));
+        recordButton.setEnabled(false);
+        resultTextView.setText(getString(R.string.enunciation_status_scoring));
+        progressBar.setVisibility(View.VISIBLE);
+
+        String word = words.get(wordIndex);
+        executor.execute(() -> {
+            EnunciationScorer.Score score = scorer.score(word, pcm, length);
+            Log.d(TAG, "Scored '" + word + "': distance " + score.distance + ", " + score.percent + "% in " + score.elapsedMs + " ms");
+            mainHandler.post(() -> showScore(score));
+        });
+    }
+
+    @Override
+    public void onCaptureFailed(@NonNull String reason) {
+        if (getView() == null) return;
+        Log.e(TAG, "Capture failed: " + reason);
+        recordButton.setText(getString(R.string.enunciation_button_record));
+        nextButton.setEnabled(words.size() > 1);
+        resultTextView.setText(getString(R.string.enunciation_error_capture));
+    }
+
+    private void showScore(EnunciationScorer.Score score) {
+        if (getView() == null) return;
+        progressBar.setVisibility(View.GONE);
+        updateRecordButton();
+        nextButton.setEnabled(words.size() > 1);
+        if (!score.hasSpeech()) {
+            resultTextView.setText(getString(R.string.enunciation_result_no_speech));
+        } else if (score.soundedLike != null) {
+            resultTextView.setText(getString(R.string.enunciation_result_sounded_like, score.percent, score.soundedLike));
+        } else {
+            resultTextView.setText(getString(R.string.enunciation_result_score, score.percent));
+        }
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (audioHandler != null && audioHandler.isCapturing()) {
+            audioHandler.stop();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (audioHandler != null) {
+            audioHandler.release();
+            audioHandler = null;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // No interrupts: template loading reads through file channels
+        executor.shutdown();
+    }
 }
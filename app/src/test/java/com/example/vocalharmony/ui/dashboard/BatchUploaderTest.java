@@ -0,0 +1,172 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/** Drains real queues into a {@link LocalStorageBackend}, as the batch worker does with Firebase. */
+@RunWith(RobolectricTestRunner.class)
+public class BatchUploaderTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Context context;
+    private LocalStorageBackend backend;
+    private UploadQueue queue;
+    private UploadMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        context = RuntimeEnvironment.getApplication();
+        backend = new LocalStorageBackend(context, temp.newFolder("remote"));
+        queue = UploadQueue.load(new File(temp.getRoot(), "upload_queue.json"));
+        metrics = UploadMetrics.load(new File(temp.getRoot(), "upload_metrics.ndjson"));
+    }
+
+    @Test
+    public void drainsEveryItemIntoTheBackend() throws Exception {
+        List<UploadItem> items = new ArrayList<>();
+        List<byte[]> takes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            byte[] take = randomBytes(40_000 + i, i);
+            takes.add(take);
+            items.add(enqueue("alice", "take" + i, take));
+        }
+
+        BatchUploader.Report report = batchUploader(3).run(() -> false);
+
+        assertEquals(5, report.uploaded);
+        assertEquals(0, report.retryLater + report.failed);
+        assertTrue(report.bytes > 5 * 40_000L);
+        assertEquals(0, queue.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertArrayEquals(takes.get(i), Files.readAllBytes(uploadedAudio(items.get(i), takes.get(i)).toPath()));
+        }
+    }
+
+    @Test
+    public void unreadableItemFailsAndStaysQueued() throws Exception {
+        enqueue("alice", "good", randomBytes(1000, 1L));
+        UploadItem missing = new UploadItem(Uri.fromFile(new File(temp.getRoot(), "gone.m4a")).toString(),
+                "alice", "Gone", 2L, "gone.m4a");
+        queue.enqueue(missing);
+
+        BatchUploader.Report report = batchUploader(2).run(() -> false);
+
+        assertEquals(1, report.uploaded);
+        assertEquals(1, report.failed);
+        List<UploadQueue.Entry> left = queue.getAll();
+        assertEquals(1, left.size());
+        assertEquals(missing.getRemotePath(), left.get(0).getId());
+        assertEquals(UploadQueue.State.FAILED, left.get(0).state);
+    }
+
+    @Test
+    public void cancelledRunStartsNothing() throws Exception {
+        byte[] take = randomBytes(1000, 1L);
+        UploadItem item = enqueue("alice", "take", take);
+
+        BatchUploader.Report report = batchUploader(2).run(() -> true);
+
+        assertEquals(0, report.uploaded + report.retryLater + report.failed);
+        assertEquals(1, queue.getPending().size());
+        assertFalse(uploadedAudio(item, take).exists());
+    }
+
+    @Test
+    public void sendsOneManifestPerUser() throws Exception {
+        Set<String> aliceTakes = new HashSet<>();
+        for (int i = 0; i < 3; i++) aliceTakes.add(enqueue("alice", "a" + i, randomBytes(2000, i)).targetFilename);
+        Set<String> bobTakes = new HashSet<>();
+        for (int i = 0; i < 2; i++) bobTakes.add(enqueue("bob", "b" + i, randomBytes(2000, 10 + i)).targetFilename);
+
+        BatchUploader.Report report = batchUploader(4).run(() -> false);
+
+        assertEquals(5, report.uploaded);
+        assertEquals(aliceTakes, manifestFilenames("alice"));
+        assertEquals(bobTakes, manifestFilenames("bob"));
+    }
+
+    @Test
+    public void itemsInBackoffAreDeferred() throws Exception {
+        enqueue("alice", "ready", randomBytes(1000, 1L));
+        UploadItem backedOff = enqueue("alice", "later", randomBytes(1000, 2L));
+        queue.markAttemptFailed(backedOff.getRemotePath(), "offline", true);
+
+        BatchUploader.Report report = batchUploader(2).run(() -> false);
+
+        assertEquals(1, report.uploaded);
+        assertEquals(1, report.deferred);
+        assertEquals(backedOff.getRemotePath(), queue.getPending().get(0).getId());
+    }
+
+    // --- Fixtures ---
+
+    private BatchUploader batchUploader(int parallelism) {
+        return new BatchUploader(new RecordingUploader(context, backend), queue, metrics, parallelism,
+                UploadQueue.Priority.OLDEST_FIRST);
+    }
+
+    /** Writes a take (an already-compressed .m4a, so it is sent as it is) and queues it. */
+    private UploadItem enqueue(String userId, String name, byte[] take) throws Exception {
+        File file = new File(temp.getRoot(), userId + "_" + name + ".m4a");
+        Files.write(file.toPath(), take);
+        UploadItem item = new UploadItem(Uri.fromFile(file).toString(), userId, "Sentence " + name,
+                System.currentTimeMillis(), file.getName());
+        queue.enqueue(item, take.length);
+        return item;
+    }
+
+    /** Where the backend keeps an item's audio: under its content hash. */
+    private File uploadedAudio(UploadItem item, byte[] take) throws Exception {
+        StringBuilder sha256 = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(take)) sha256.append(String.format(Locale.US, "%02x", b & 0xFF));
+        return backend.fileFor("recordings/" + item.userId + "/blobs/" + sha256 + ".m4a");
+    }
+
+    /** Audio filenames listed in the user's manifest, asserting there is exactly one manifest. */
+    private Set<String> manifestFilenames(String userId) throws Exception {
+        File[] manifests = backend.fileFor("recordings/" + userId + "/manifests").listFiles();
+        assertNotNull(manifests);
+        assertEquals(1, manifests.length);
+        Set<String> filenames = new HashSet<>();
+        for (String line : new String(Files.readAllBytes(manifests[0].toPath()), StandardCharsets.UTF_8).split("\n")) {
+            JSONObject record = new JSONObject(line);
+            assertEquals(userId, record.getString("userId"));
+            filenames.add(record.getString("audioFilename"));
+        }
+        return filenames;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the resumable protocol of {@link LocalStorageBackend} the way the upload worker does:
+ * progress tokens go into an {@link UploadSessionStore}, and a later attempt, possibly from a
+ * fresh backend after process death, resumes from the stored one.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LocalStorageBackendTest {
+
+    private static final int CHUNK = LocalStorageBackend.CHUNK_SIZE;
+    private static final String REMOTE_PATH = "recordings/user/take.wav";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Context context;
+    private File root;
+    private UploadSessionStore sessions;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        root = temp.newFolder("remote");
+        sessions = new UploadSessionStore(context);
+        sessions.clear(REMOTE_PATH);
+    }
+
+    @Test
+    public void uploadsInChunksAndPublishesOnlyWhenComplete() throws Exception {
+        byte[] data = randomBytes(2 * CHUNK + CHUNK / 2, 1L);
+        LocalStorageBackend backend = new LocalStorageBackend(context, root);
+        List<Long> offsets = new ArrayList<>();
+
+        backend.upload(writeSource(data), REMOTE_PATH, "audio/wav", null, (token, uploaded, total) -> {
+            offsets.add(uploaded);
+            assertFalse("Published before the last chunk", backend.exists(REMOTE_PATH));
+        });
+
+        assertEquals(List.of((long) CHUNK, 2L * CHUNK, (long) data.length), offsets);
+        assertArrayEquals(data, Files.readAllBytes(backend.fileFor(REMOTE_PATH).toPath()));
+        assertFalse(partFile(backend).exists());
+    }
+
+    @Test
+    public void resumesFromPersistedTokenInFreshBackend() throws Exception {
+        byte[] data = randomBytes(3 * CHUNK, 2L);
+        Uri source = writeSource(data);
+        LocalStorageBackend first = new LocalStorageBackend(context, root);
+        // A crash after the first chunk was synced, with half of the second written but not confirmed
+        File part = partFile(first);
+        assertTrue(part.getParentFile().mkdirs());
+        try (OutputStream out = new FileOutputStream(part)) {
+            out.write(data, 0, CHUNK);
+            out.write(new byte[CHUNK / 2]); // Garbage past the synced offset
+        }
+        sessions.save(REMOTE_PATH, part.getPath() + "#" + CHUNK, CHUNK);
+
+        LocalStorageBackend second = new LocalStorageBackend(context, root);
+        List<Long> offsets = new ArrayList<>();
+        second.upload(source, REMOTE_PATH, "audio/wav", sessions.getSession(REMOTE_PATH),
+                (token, uploaded, total) -> offsets.add(uploaded));
+
+        assertEquals(List.of(2L * CHUNK, 3L * CHUNK), offsets);
+        assertArrayEquals(data, Files.readAllBytes(second.fileFor(REMOTE_PATH).toPath()));
+    }
+
+    @Test
+    public void interruptedUploadResumesWhereItStopped() throws Exception {
+        byte[] data = randomBytes(3 * CHUNK + 17, 3L);
+        Uri source = writeSource(data);
+        LocalStorageBackend backend = new LocalStorageBackend(context, root);
+
+        try {
+            assertThrows(RetryableUploadException.class, () -> backend.upload(source, REMOTE_PATH, "audio/wav", null,
+                    (token, uploaded, total) -> {
+                        sessions.save(REMOTE_PATH, token, uploaded);
+                        Thread.currentThread().interrupt(); // As the worker's stop does
+                    }));
+        } finally {
+            Thread.interrupted();
+        }
+        assertFalse(backend.exists(REMOTE_PATH));
+        assertEquals(CHUNK, sessions.getOffset(REMOTE_PATH));
+        assertEquals(CHUNK, partFile(backend).length());
+
+        String token = sessions.getSession(REMOTE_PATH);
+        assertNotNull(token);
+        List<Long> offsets = new ArrayList<>();
+        backend.upload(source, REMOTE_PATH, "audio/wav", token, (t, uploaded, total) -> offsets.add(uploaded));
+
+        assertEquals(2L * CHUNK, (long) offsets.get(0));
+        assertArrayEquals(data, Files.readAllBytes(backend.fileFor(REMOTE_PATH).toPath()));
+    }
+
+    @Test
+    public void tokenForAnotherUploadStartsOver() throws Exception {
+        byte[] data = randomBytes(2 * CHUNK, 4L);
+        LocalStorageBackend backend = new LocalStorageBackend(context, root);
+        File part = partFile(backend);
+        assertTrue(part.getParentFile().mkdirs());
+        try (RandomAccessFile raf = new RandomAccessFile(part, "rw")) {
+            raf.setLength(CHUNK); // Zeros, which must not end up in the object
+        }
+        List<Long> offsets = new ArrayList<>();
+
+        backend.upload(writeSource(data), REMOTE_PATH, "audio/wav", "elsewhere.part#" + CHUNK,
+                (token, uploaded, total) -> offsets.add(uploaded));
+
+        assertEquals(CHUNK, (long) offsets.get(0));
+        assertArrayEquals(data, Files.readAllBytes(backend.fileFor(REMOTE_PATH).toPath()));
+    }
+
+    @Test
+    public void clearedSessionHasNoToken() {
+        sessions.save(REMOTE_PATH, "token#1", 1L);
+        sessions.save(REMOTE_PATH, null, 0L);
+
+        assertNull(sessions.getSession(REMOTE_PATH));
+        assertEquals(0L, sessions.getOffset(REMOTE_PATH));
+    }
+
+    // --- Fixtures ---
+
+    private Uri writeSource(byte[] data) throws IOException {
+        File source = temp.newFile();
+        Files.write(source.toPath(), data);
+        return Uri.fromFile(source);
+    }
+
+    private static File partFile(LocalStorageBackend backend) {
+        return new File(backend.fileFor(REMOTE_PATH).getPath() + ".part");
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
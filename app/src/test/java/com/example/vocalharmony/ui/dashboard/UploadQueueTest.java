@@ -0,0 +1,165 @@
+package com.example.vocalharmony.ui.dashboard;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Retry state, backoff and priorities of {@link UploadQueue}, and that they survive a reload from disk. */
+@RunWith(RobolectricTestRunner.class)
+public class UploadQueueTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File queueFile;
+    private UploadQueue queue;
+
+    @Before
+    public void setUp() {
+        queueFile = new File(temp.getRoot(), "upload_queue.json");
+        queue = UploadQueue.load(queueFile);
+    }
+
+    @Test
+    public void retryableFailuresFailTheItemAfterMaxAttempts() throws Exception {
+        UploadItem item = item("a", 1L);
+        queue.enqueue(item);
+
+        for (int attempt = 1; attempt < UploadQueue.MAX_ATTEMPTS; attempt++) {
+            assertEquals("attempt " + attempt, UploadQueue.State.PENDING,
+                    queue.markAttemptFailed(item.getRemotePath(), "timeout", true));
+        }
+        assertEquals(UploadQueue.State.FAILED, queue.markAttemptFailed(item.getRemotePath(), "timeout", true));
+
+        UploadQueue.Entry entry = queue.getAll().get(0);
+        assertEquals(UploadQueue.State.FAILED, entry.state);
+        assertEquals(UploadQueue.MAX_ATTEMPTS, entry.attempts);
+        assertEquals("timeout", entry.lastError);
+        assertTrue(queue.getPending().isEmpty());
+    }
+
+    @Test
+    public void permanentFailureFailsAtOnce() throws Exception {
+        UploadItem item = item("a", 1L);
+        queue.enqueue(item);
+
+        assertEquals(UploadQueue.State.FAILED, queue.markAttemptFailed(item.getRemotePath(), "not found", false));
+        assertEquals(1, queue.getAll().get(0).attempts);
+    }
+
+    @Test
+    public void reloadKeepsOrderAndRetryState() throws Exception {
+        UploadItem first = item("a", 1L);
+        UploadItem second = item("b", 2L);
+        queue.enqueue(first);
+        queue.enqueue(second);
+        queue.markAttemptFailed(second.getRemotePath(), "offline", true);
+
+        UploadQueue reloaded = UploadQueue.load(queueFile);
+
+        List<UploadQueue.Entry> entries = reloaded.getAll();
+        assertEquals(List.of(first.getRemotePath(), second.getRemotePath()), ids(entries));
+        assertEquals(1, entries.get(1).attempts);
+        assertEquals("offline", entries.get(1).lastError);
+        assertEquals(second.sentence, entries.get(1).item.sentence);
+    }
+
+    @Test
+    public void doneItemsLeaveAndRequeueResetsRetryState() throws Exception {
+        UploadItem first = item("a", 1L);
+        UploadItem second = item("b", 2L);
+        queue.enqueue(first);
+        queue.enqueue(second);
+        queue.markAttemptFailed(second.getRemotePath(), "not found", false);
+
+        queue.markDone(first.getRemotePath());
+        queue.enqueue(second);
+
+        assertEquals(1, queue.size());
+        assertEquals(0, queue.getPending().get(0).attempts);
+        assertEquals(1, UploadQueue.load(queueFile).size());
+    }
+
+    @Test
+    public void backoffDoublesWithinEqualJitterBoundsUpToTheCap() {
+        Random random = new Random(42L);
+        for (int attempts = 1; attempts <= 40; attempts++) {
+            long delay = Math.min(UploadQueue.BASE_BACKOFF_MS << Math.min(attempts - 1, 20), UploadQueue.MAX_BACKOFF_MS);
+            for (int i = 0; i < 100; i++) {
+                long backoff = UploadQueue.backoffMs(attempts, random);
+                assertTrue("attempt " + attempts + ": " + backoff, backoff >= delay / 2 && backoff <= delay);
+            }
+        }
+        long first = UploadQueue.backoffMs(0, random); // Treated as the first attempt
+        assertTrue(first >= UploadQueue.BASE_BACKOFF_MS / 2 && first <= UploadQueue.BASE_BACKOFF_MS);
+    }
+
+    @Test
+    public void backoffIsReproducibleForASeed() {
+        Random first = new Random(7L);
+        Random second = new Random(7L);
+        for (int attempts = 1; attempts <= UploadQueue.MAX_ATTEMPTS; attempts++) {
+            assertEquals(UploadQueue.backoffMs(attempts, first), UploadQueue.backoffMs(attempts, second));
+        }
+    }
+
+    @Test
+    public void failedAttemptIsNotReadyUntilItsBackoffPasses() throws Exception {
+        UploadItem item = item("a", 1L);
+        queue.enqueue(item);
+        long before = System.currentTimeMillis();
+
+        queue.markAttemptFailed(item.getRemotePath(), "offline", true);
+
+        long nextAttemptAt = queue.getNextAttemptAt();
+        assertTrue(nextAttemptAt >= before + UploadQueue.BASE_BACKOFF_MS / 2);
+        assertTrue(nextAttemptAt <= System.currentTimeMillis() + UploadQueue.BASE_BACKOFF_MS);
+        assertTrue(queue.getReady(nextAttemptAt - 1, UploadQueue.Priority.OLDEST_FIRST).isEmpty());
+        assertEquals(1, queue.getReady(nextAttemptAt, UploadQueue.Priority.OLDEST_FIRST).size());
+        assertEquals(nextAttemptAt, UploadQueue.load(queueFile).getNextAttemptAt());
+    }
+
+    @Test
+    public void getReadyOrdersByEachPriority() throws Exception {
+        UploadItem middleSized = item("a", 3000L);
+        UploadItem unknownSize = item("b", 1000L);
+        UploadItem smallest = item("c", 2000L);
+        queue.enqueue(middleSized, 300L);
+        queue.enqueue(unknownSize);
+        queue.enqueue(smallest, 100L);
+        UploadItem failed = item("d", 4000L);
+        queue.enqueue(failed, 1L);
+        queue.markAttemptFailed(failed.getRemotePath(), "not found", false);
+        long now = System.currentTimeMillis();
+
+        assertEquals(List.of(middleSized.getRemotePath(), unknownSize.getRemotePath(), smallest.getRemotePath()),
+                ids(queue.getReady(now, UploadQueue.Priority.OLDEST_FIRST)));
+        assertEquals(List.of(middleSized.getRemotePath(), smallest.getRemotePath(), unknownSize.getRemotePath()),
+                ids(queue.getReady(now, UploadQueue.Priority.NEWEST_FIRST)));
+        assertEquals(List.of(smallest.getRemotePath(), middleSized.getRemotePath(), unknownSize.getRemotePath()),
+                ids(queue.getReady(now, UploadQueue.Priority.SMALLEST_FIRST)));
+    }
+
+    // --- Fixtures ---
+
+    private static UploadItem item(String name, long recordedAt) {
+        return new UploadItem("file:///takes/" + name + ".m4a", "user", "Sentence " + name, recordedAt, name + ".m4a");
+    }
+
+    private static List<String> ids(List<UploadQueue.Entry> entries) {
+        List<String> ids = new ArrayList<>();
+        for (UploadQueue.Entry entry : entries) ids.add(entry.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.vocalharmony.ui.home;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link Dtw} against a plain full-matrix DTW: the band and early abandoning must only
+ * ever skip work, never change an answer the caller keeps.
+ */
+public class DtwTest {
+
+    private static final int DIMENSIONS = Mfcc.NUM_COEFFS;
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void bandCoveringBothSequencesGivesFullDtw() {
+        Random random = new Random(1L);
+        Dtw dtw = new Dtw(); // Reused across sizes, as the scorer does
+        for (int trial = 0; trial < 200; trial++) {
+            float[][] a = sequence(1 + random.nextInt(40), random);
+            float[][] b = sequence(1 + random.nextInt(40), random);
+            int band = Math.max(a.length, b.length) + random.nextInt(3);
+
+            assertEquals("trial " + trial, fullDtw(a, b), dtw.distance(a, b, band, Double.POSITIVE_INFINITY), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void narrowerBandIsNeverCheaper() {
+        Random random = new Random(2L);
+        Dtw dtw = new Dtw();
+        for (int trial = 0; trial < 200; trial++) {
+            float[][] a = sequence(5 + random.nextInt(40), random);
+            float[][] b = sequence(5 + random.nextInt(40), random);
+
+            double banded = dtw.distance(a, b, random.nextInt(4), Double.POSITIVE_INFINITY);
+            assertTrue("trial " + trial, banded >= fullDtw(a, b) - TOLERANCE);
+        }
+    }
+
+    @Test
+    public void abandonsExactlyWhenTheCostExceedsTheBound() {
+        Random random = new Random(3L);
+        Dtw dtw = new Dtw();
+        for (int trial = 0; trial < 300; trial++) {
+            float[][] a = sequence(1 + random.nextInt(30), random);
+            float[][] b = sequence(1 + random.nextInt(30), random);
+            int band = random.nextInt(8);
+            double cost = dtw.distance(a, b, band, Double.POSITIVE_INFINITY);
+
+            assertEquals("trial " + trial, cost, dtw.distance(a, b, band, cost * (1 + 1e-6)), 0.0);
+            assertEquals("trial " + trial, Double.POSITIVE_INFINITY, dtw.distance(a, b, band, cost * (1 - 1e-6)), 0.0);
+        }
+    }
+
+    @Test
+    public void identicalSequencesCostNothingAndEmptyOnesCannotMatch() {
+        float[][] a = sequence(20, new Random(4L));
+
+        assertEquals(0.0, new Dtw().distance(a, a, 3, 0.0), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, new Dtw().distance(a, new float[0][], 3, Double.POSITIVE_INFINITY), 0.0);
+    }
+
+    // --- Fixtures ---
+
+    /** A random walk, so neighbouring frames are similar as in real MFCCs. */
+    private static float[][] sequence(int frames, Random random) {
+        float[][] sequence = new float[frames][DIMENSIONS];
+        for (int i = 0; i < frames; i++) {
+            for (int k = 0; k < DIMENSIONS; k++) {
+                float previous = i > 0 ? sequence[i - 1][k] : 0f;
+                sequence[i][k] = previous + (float) random.nextGaussian();
+            }
+        }
+        return sequence;
+    }
+
+    /** Unconstrained DTW over the whole cost matrix, normalized by n + m as {@link Dtw} is. */
+    private static double fullDtw(float[][] a, float[][] b) {
+        int n = a.length;
+        int m = b.length;
+        double[][] cost = new double[n][m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double best;
+                if (i == 0 && j == 0) {
+                    best = 0.0;
+                } else {
+                    best = Double.POSITIVE_INFINITY;
+                    if (i > 0) best = Math.min(best, cost[i - 1][j]);
+                    if (j > 0) best = Math.min(best, cost[i][j - 1]);
+                    if (i > 0 && j > 0) best = Math.min(best, cost[i - 1][j - 1]);
+                }
+                double d = 0.0;
+                for (int k = 0; k < DIMENSIONS; k++) d += (a[i][k] - b[j][k]) * (double) (a[i][k] - b[j][k]);
+                cost[i][j] = best + Math.sqrt(d);
+            }
+        }
+        return cost[n - 1][m - 1] / (n + m);
+    }
+}
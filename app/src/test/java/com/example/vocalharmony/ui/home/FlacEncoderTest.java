@@ -0,0 +1,288 @@
+package com.example.vocalharmony.ui.home;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round-trips takes through {@link FlacEncoder} and a small independent decoder that handles
+ * exactly what the encoder emits (constant, verbatim and fixed subframes, Rice residuals).
+ */
+public class FlacEncoderTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void monoTakeRoundTripsBitExactly() throws Exception {
+        // Not a multiple of the block size, so the last frame carries an explicit block size
+        short[] pcm = speechLike(16000 * 2 + 1234, 1, 1L);
+        File flac = encode(pcm, 16000, 1);
+
+        assertArrayEquals(pcm, decode(flac, 1, pcm.length));
+    }
+
+    @Test
+    public void stereoTakeRoundTripsBitExactly() throws Exception {
+        short[] pcm = speechLike(44100, 2, 2L);
+        File flac = encode(pcm, 44100, 2);
+
+        assertArrayEquals(pcm, decode(flac, 2, pcm.length));
+    }
+
+    @Test
+    public void streamInfoDescribesTheTake() throws Exception {
+        short[] pcm = speechLike(22050 + 7, 1, 3L);
+        File flac = encode(pcm, 22050, 1);
+
+        FlacEncoder.StreamInfo info = FlacEncoder.readStreamInfo(flac);
+        assertEquals(22050, info.sampleRate);
+        assertEquals(1, info.channels);
+        assertEquals(16, info.bitsPerSample);
+        assertEquals(pcm.length, info.totalSamples);
+        assertEquals(1000, info.getDurationMs());
+
+        byte[] bytes = Files.readAllBytes(flac.toPath());
+        byte[] storedMd5 = Arrays.copyOfRange(bytes, 8 + 18, 8 + 34);
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(littleEndian(pcm)), storedMd5);
+    }
+
+    @Test
+    public void encodingIsByteDeterministic() throws Exception {
+        // Content-addressed uploads rely on this: a retry re-encodes and must resend the same bytes
+        short[] pcm = speechLike(16000 * 3, 1, 4L);
+        File wav = writeWav(pcm, 16000, 1);
+        File first = temp.newFile("first.flac");
+        File second = temp.newFile("second.flac");
+        MessageDigest firstDigest = MessageDigest.getInstance("SHA-256");
+        MessageDigest secondDigest = MessageDigest.getInstance("SHA-256");
+        try (MappedWavReader reader = MappedWavReader.open(wav)) { FlacEncoder.encode(reader, first, firstDigest); }
+        try (MappedWavReader reader = MappedWavReader.open(wav)) { FlacEncoder.encode(reader, second, secondDigest); }
+
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+        assertArrayEquals(firstDigest.digest(), secondDigest.digest());
+    }
+
+    @Test
+    public void silenceAndFullScaleNoiseRoundTrip() throws Exception {
+        // Silence takes the constant subframe, full-scale noise the verbatim one
+        short[] pcm = new short[FlacEncoder.BLOCK_SIZE * 3];
+        Random random = new Random(5L);
+        for (int i = FlacEncoder.BLOCK_SIZE; i < 2 * FlacEncoder.BLOCK_SIZE; i++) pcm[i] = (short) random.nextInt();
+        Arrays.fill(pcm, 2 * FlacEncoder.BLOCK_SIZE, pcm.length, Short.MIN_VALUE);
+        File flac = encode(pcm, 16000, 1);
+
+        assertArrayEquals(pcm, decode(flac, 1, pcm.length));
+        assertTrue(flac.length() < 2L * pcm.length); // Only the noise block costs full size
+    }
+
+    // --- Fixtures ---
+
+    /** Voiced bursts with harmonics, a little noise, gaps of silence and a clipped stretch. */
+    private static short[] speechLike(int frames, int channels, long seed) {
+        Random random = new Random(seed);
+        short[] pcm = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            boolean voiced = (i / 2000) % 3 != 2;
+            double t = i / 16000.0;
+            double v = voiced ? 9000 * Math.sin(2 * Math.PI * 180 * t) + 4000 * Math.sin(2 * Math.PI * 540 * t) : 0;
+            v += random.nextGaussian() * 120;
+            if (i % 9000 < 300) v *= 6; // Clips
+            for (int c = 0; c < channels; c++) {
+                double s = c == 0 ? v : v * 0.5 + random.nextGaussian() * 40;
+                pcm[i * channels + c] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(s)));
+            }
+        }
+        return pcm;
+    }
+
+    private File encode(short[] pcm, int sampleRate, int channels) throws IOException {
+        File wav = writeWav(pcm, sampleRate, channels);
+        File flac = new File(temp.getRoot(), wav.getName() + ".flac");
+        try (MappedWavReader reader = MappedWavReader.open(wav)) {
+            FlacEncoder.encode(reader, flac);
+        }
+        return flac;
+    }
+
+    private File writeWav(short[] pcm, int sampleRate, int channels) throws IOException {
+        File wav = File.createTempFile("take", ".wav", temp.getRoot());
+        byte[] data = littleEndian(pcm);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(wav))) {
+            WavWriter.writeHeader(out, sampleRate, channels, 16, data.length);
+            out.write(data);
+        }
+        return wav;
+    }
+
+    private static byte[] littleEndian(short[] pcm) {
+        byte[] bytes = new byte[pcm.length * 2];
+        for (int i = 0; i < pcm.length; i++) {
+            bytes[2 * i] = (byte) pcm[i];
+            bytes[2 * i + 1] = (byte) (pcm[i] >> 8);
+        }
+        return bytes;
+    }
+
+    // --- Decoder ---
+
+    /** Decodes the frames of a .flac file written by the encoder into interleaved samples. */
+    private static short[] decode(File flac, int channels, int totalSamples) throws IOException {
+        byte[] bytes = Files.readAllBytes(flac.toPath());
+        BitReader in = new BitReader(bytes, 8 + 34); // Past "fLaC" and STREAMINFO
+        short[] out = new short[totalSamples];
+        int written = 0;
+        long expectedFrame = 0;
+        while (in.bytePosition() < bytes.length) {
+            int frameStart = in.bytePosition();
+            assertEquals("sync", 0x3FFE, in.read(14));
+            in.read(2);
+            int blockSizeCode = in.read(4);
+            int rateCode = in.read(4);
+            assertEquals("channel assignment", channels - 1, in.read(4));
+            assertEquals("sample size", 4, in.read(3));
+            in.read(1);
+            assertEquals("frame number", expectedFrame++, in.readUtf8Number());
+            int blockSize = blockSizeCode == 12 ? FlacEncoder.BLOCK_SIZE : blockSizeCode == 7 ? in.read(16) + 1 : -1;
+            assertTrue("block size code " + blockSizeCode, blockSize > 0);
+            if (rateCode == 12) in.read(8); else if (rateCode == 13) in.read(16);
+            int headerCrc = crc8(bytes, frameStart, in.bytePosition());
+            assertEquals("header CRC-8", headerCrc, in.read(8));
+
+            int[][] samples = new int[channels][];
+            for (int c = 0; c < channels; c++) samples[c] = readSubframe(in, blockSize);
+            in.alignToByte();
+            int footerCrc = crc16(bytes, frameStart, in.bytePosition());
+            assertEquals("footer CRC-16", footerCrc, in.read(16));
+
+            for (int i = 0; i < blockSize; i++) {
+                for (int c = 0; c < channels; c++) out[written++] = (short) samples[c][i];
+            }
+        }
+        assertEquals(totalSamples, written);
+        return out;
+    }
+
+    private static int[] readSubframe(BitReader in, int n) {
+        assertEquals("padding", 0, in.read(1));
+        int type = in.read(6);
+        assertEquals("wasted bits", 0, in.read(1));
+        int[] x = new int[n];
+        if (type == 0) {
+            Arrays.fill(x, in.readSigned(16));
+        } else if (type == 1) {
+            for (int i = 0; i < n; i++) x[i] = in.readSigned(16);
+        } else if ((type & 0x38) == 0x08 && (type & 0x07) <= 4) {
+            int order = type & 0x07;
+            for (int i = 0; i < order; i++) x[i] = in.readSigned(16);
+            int[] residual = readResidual(in, n, order);
+            for (int i = order; i < n; i++) x[i] = residual[i] + predict(x, i, order);
+        } else {
+            throw new AssertionError("Unexpected subframe type " + type);
+        }
+        return x;
+    }
+
+    private static int predict(int[] x, int i, int order) {
+        switch (order) {
+            case 0: return 0;
+            case 1: return x[i - 1];
+            case 2: return 2 * x[i - 1] - x[i - 2];
+            case 3: return 3 * x[i - 1] - 3 * x[i - 2] + x[i - 3];
+            default: return 4 * x[i - 1] - 6 * x[i - 2] + 4 * x[i - 3] - x[i - 4];
+        }
+    }
+
+    private static int[] readResidual(BitReader in, int n, int order) {
+        assertEquals("Rice coding method", 0, in.read(2));
+        int partitionOrder = in.read(4);
+        int partitions = 1 << partitionOrder;
+        int partitionSize = n >> partitionOrder;
+        int[] residual = new int[n];
+        for (int p = 0; p < partitions; p++) {
+            int k = in.read(4);
+            int start = p == 0 ? order : p * partitionSize;
+            int end = (p + 1) * partitionSize;
+            for (int i = start; i < end; i++) {
+                if (k == 15) {
+                    throw new AssertionError("Escaped partitions are never written");
+                }
+                long q = 0;
+                while (in.read(1) == 0) q++;
+                long u = (q << k) | (k > 0 ? in.read(k) : 0);
+                residual[i] = (int) ((u >>> 1) ^ -(u & 1));
+            }
+        }
+        return residual;
+    }
+
+    private static int crc8(byte[] data, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int b = 0; b < 8; b++) crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+        }
+        return crc;
+    }
+
+    private static int crc16(byte[] data, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int b = 0; b < 8; b++) crc = (crc & 0x8000) != 0 ? ((crc << 1) ^ 0x8005) & 0xFFFF : (crc << 1) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /** MSB-first bit reader. */
+    private static class BitReader {
+        private final byte[] data;
+        private long bitPos;
+
+        BitReader(byte[] data, int byteOffset) {
+            this.data = data;
+            this.bitPos = byteOffset * 8L;
+        }
+
+        int read(int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++, bitPos++) {
+                int bit = (data[(int) (bitPos >>> 3)] >> (7 - (int) (bitPos & 7))) & 1;
+                value = (value << 1) | bit;
+            }
+            return value;
+        }
+
+        int readSigned(int count) {
+            int value = read(count);
+            return (value << (32 - count)) >> (32 - count);
+        }
+
+        long readUtf8Number() {
+            int first = read(8);
+            if ((first & 0x80) == 0) return first;
+            int leadingOnes = Integer.numberOfLeadingZeros(~(first << 24));
+            long value = first & ((1 << (7 - leadingOnes)) - 1);
+            for (int i = 1; i < leadingOnes; i++) value = (value << 6) | (read(8) & 0x3F);
+            return value;
+        }
+
+        void alignToByte() { bitPos = (bitPos + 7) & ~7L; }
+
+        int bytePosition() { return (int) (bitPos >>> 3); }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.vocalharmony.ui.home;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/** Frame count, output shape and normalization of {@link Mfcc}. */
+public class MfccTest {
+
+    @Test
+    public void frameCountFollowsFrameAndHop() {
+        assertEquals(0, Mfcc.frameCount(0));
+        assertEquals(0, Mfcc.frameCount(Mfcc.FRAME_SAMPLES - 1));
+        assertEquals(1, Mfcc.frameCount(Mfcc.FRAME_SAMPLES));
+        assertEquals(1, Mfcc.frameCount(Mfcc.FRAME_SAMPLES + Mfcc.HOP_SAMPLES - 1));
+        assertEquals(2, Mfcc.frameCount(Mfcc.FRAME_SAMPLES + Mfcc.HOP_SAMPLES));
+        assertEquals(98, Mfcc.frameCount(Mfcc.SAMPLE_RATE)); // 1 s: 25 ms frames every 10 ms
+    }
+
+    @Test
+    public void computeReturnsOneRowOfCoefficientsPerFrame() {
+        Mfcc mfcc = new Mfcc();
+        short[] pcm = speech(Mfcc.SAMPLE_RATE + 123, 1L);
+        for (int length : new int[] {0, Mfcc.FRAME_SAMPLES - 1, Mfcc.FRAME_SAMPLES, 4321, pcm.length}) {
+            float[][] features = mfcc.compute(pcm, 0, length);
+
+            assertEquals("length " + length, Mfcc.frameCount(length), features.length);
+            for (float[] frame : features) assertEquals(Mfcc.NUM_COEFFS, frame.length);
+        }
+    }
+
+    @Test
+    public void everyCoefficientHasZeroMeanOverTheUtterance() {
+        float[][] features = new Mfcc().compute(speech(8000, 2L), 0, 8000);
+        for (int k = 0; k < Mfcc.NUM_COEFFS; k++) {
+            double mean = 0.0;
+            for (float[] frame : features) mean += frame[k];
+            assertEquals("c" + k, 0.0, mean / features.length, 1e-3);
+        }
+    }
+
+    @Test
+    public void resultDependsOnlyOnTheRequestedSamples() {
+        short[] pcm = speech(6000, 3L);
+        short[] padded = new short[pcm.length + 200];
+        System.arraycopy(pcm, 0, padded, 100, pcm.length);
+        padded[99] = Short.MAX_VALUE; // Just before the range; must not seed the first frame's filter
+        Mfcc mfcc = new Mfcc();
+
+        float[][] expected = mfcc.compute(pcm, 0, pcm.length);
+        float[][] actual = mfcc.compute(padded, 100, pcm.length);
+        assertEquals(expected.length, actual.length);
+        for (int f = 0; f < expected.length; f++) assertArrayEquals(expected[f], actual[f], 0f);
+    }
+
+    /** A vowel-like buzz with a moving pitch and some noise. */
+    private static short[] speech(int samples, long seed) {
+        Random random = new Random(seed);
+        short[] pcm = new short[samples];
+        double phase = 0.0;
+        for (int i = 0; i < samples; i++) {
+            phase += 2 * Math.PI * (140 + 40 * Math.sin(2 * Math.PI * i / samples)) / Mfcc.SAMPLE_RATE;
+            double v = 6000 * Math.sin(phase) + 2500 * Math.sin(3 * phase) + 1200 * Math.sin(5 * phase);
+            pcm[i] = (short) Math.round(v + random.nextGaussian() * 200);
+        }
+        return pcm;
+    }
+}
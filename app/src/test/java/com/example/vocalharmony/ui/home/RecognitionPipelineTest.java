@@ -0,0 +1,160 @@
+package com.example.vocalharmony.ui.home;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streams synthetic tone and silence through {@link RecognitionPipeline} with the
+ * {@link EnergySegmentRecognizer}, and overflows the queue with an engine held back.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecognitionPipelineTest {
+
+    private static final int FRAME = SpeechRecognizerEngine.FRAME_SAMPLES;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    public void energyRecognizerTurnsEachToneIntoOneToken() {
+        EnergySegmentRecognizer engine = new EnergySegmentRecognizer(0);
+        List<String> partials = new ArrayList<>();
+        engine.start(partials::add);
+
+        short[] pcm = utterance();
+        for (int offset = 0; offset < pcm.length; offset += FRAME) {
+            short[] frame = new short[FRAME];
+            System.arraycopy(pcm, offset, frame, 0, FRAME);
+            engine.acceptFrame(frame);
+        }
+
+        // The two-frame click is too short to be speech; the pause after each tone closes it
+        assertEquals(List.of("[0.50 s]", "[0.50 s] [0.30 s]"), partials);
+        assertEquals("[0.50 s] [0.30 s]", engine.finish());
+    }
+
+    @Test
+    public void transcriptDoesNotDependOnReadSize() throws Exception {
+        short[] pcm = utterance();
+        for (int readSize : new int[] {FRAME, 1234, 7, pcm.length}) {
+            List<String> partials = Collections.synchronizedList(new ArrayList<>());
+            AtomicReference<String> result = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(1);
+            RecognitionPipeline pipeline = new RecognitionPipeline(new EnergySegmentRecognizer(0),
+                    pcm.length / FRAME, callback(partials, result, done));
+            pipeline.start();
+            for (int offset = 0; offset < pcm.length; offset += readSize) {
+                assertTrue(pipeline.write(pcm, offset, Math.min(readSize, pcm.length - offset)));
+            }
+            pipeline.finish();
+
+            assertTrue("No final result for reads of " + readSize, done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals("reads of " + readSize, "[0.50 s] [0.30 s]", result.get());
+            assertEquals("reads of " + readSize, List.of("[0.50 s]", "[0.50 s] [0.30 s]"), partials);
+            assertEquals(0, pipeline.getDroppedFrames());
+        }
+    }
+
+    @Test
+    public void fullQueueDropsAndCountsFramesWithoutBlocking() throws Exception {
+        int queueFrames = 4;
+        HeldEngine engine = new HeldEngine();
+        AtomicReference<String> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        RecognitionPipeline pipeline = new RecognitionPipeline(engine, queueFrames,
+                callback(new ArrayList<>(), result, done));
+        pipeline.start();
+
+        // The engine holds the first frame, so only the pool's buffers can be filled
+        assertFalse(pipeline.write(new short[10 * FRAME], 0, 10 * FRAME));
+        assertEquals(10 - queueFrames, pipeline.getDroppedFrames());
+
+        engine.release.countDown();
+        pipeline.finish();
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(queueFrames, engine.accepted.get());
+        assertEquals("4 frames", result.get());
+    }
+
+    // --- Fixtures ---
+
+    /** 0.5 s tone, 0.5 s silence, a 40 ms click, 0.5 s silence, 0.3 s tone, 0.3 s silence. */
+    private static short[] utterance() {
+        List<short[]> parts = List.of(tone(25), new short[25 * FRAME], tone(2), new short[25 * FRAME],
+                tone(15), new short[15 * FRAME]);
+        int length = 0;
+        for (short[] part : parts) length += part.length;
+        short[] pcm = new short[length];
+        int offset = 0;
+        for (short[] part : parts) {
+            System.arraycopy(part, 0, pcm, offset, part.length);
+            offset += part.length;
+        }
+        return pcm;
+    }
+
+    private static short[] tone(int frames) {
+        short[] pcm = new short[frames * FRAME];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * 220 * i / SpeechRecognizerEngine.SAMPLE_RATE));
+        }
+        return pcm;
+    }
+
+    private static RecognitionPipeline.Callback callback(List<String> partials, AtomicReference<String> result,
+                                                         CountDownLatch done) {
+        return new RecognitionPipeline.Callback() {
+            @Override
+            public void onPartialResult(@NonNull String text) {
+                partials.add(text);
+            }
+
+            @Override
+            public void onFinalResult(@NonNull String text) {
+                result.set(text);
+                done.countDown();
+            }
+        };
+    }
+
+    /** Blocks in its first frame until released, as a slow model would; then counts frames. */
+    private static final class HeldEngine implements SpeechRecognizerEngine {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger accepted = new AtomicInteger();
+
+        @Override
+        public void start(@NonNull PartialListener listener) {}
+
+        @Override
+        public void acceptFrame(@NonNull short[] frame) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            accepted.incrementAndGet();
+        }
+
+        @NonNull
+        @Override
+        public String finish() {
+            return accepted.get() + " frames";
+        }
+
+        @Override
+        public void release() {}
+    }
+}